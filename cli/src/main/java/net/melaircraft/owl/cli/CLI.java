@@ -0,0 +1,198 @@
+package net.melaircraft.owl.cli;
+
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import net.melaircraft.owl.library.loadtest.LoadGenerator;
+import net.melaircraft.owl.library.loadtest.LoadReport;
+import net.melaircraft.owl.library.loadtest.SyntheticBundle;
+import net.melaircraft.owl.library.loadtest.WorkloadMix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Command line entry point, runs a single command or a batch of commands against one bundle file.
+ *
+ * The bundle is memory mapped rather than read, so a command only touches the parts of the file it needs.
+ */
+public final class CLI {
+    /** Exit status of a successful run. */
+    public static final int EXIT_SUCCESS = 0;
+    /** Exit status of a failed command. */
+    public static final int EXIT_FAILURE = 1;
+    /** Exit status of invalid arguments. */
+    public static final int EXIT_USAGE = 2;
+
+    /** Usage text. */
+    private static final String USAGE = "usage: owl <bundle> <command> [arguments]\n"
+            + "\n"
+            + "commands:\n"
+            + "  create <slots>                   create a new bundle\n"
+            + "  list                             list occupied slots\n"
+            + "  extract <slot> [file|-]          extract a disk image\n"
+            + "  insert <slot> [file|-] [name]    insert a disk image\n"
+            + "  rename <slot> <name>             rename a slot\n"
+            + "  lock <slot>                      lock a slot\n"
+            + "  unlock <slot>                    unlock a slot\n"
+            + "  resize <slots>                   change the number of slots with storage\n"
+            + "  verify [--repair]                check the bundle structure\n"
+            + "  batch [file|-]                   run commands, one per line, against the bundle\n"
+            + "  loadtest <slots> <threads> <s>   load test a new synthetic bundle, deleted afterwards\n";
+
+    /**
+     * Utility class, not constructed.
+     */
+    private CLI() {
+    }
+
+    /**
+     * Main entry point.
+     *
+     * @param args bundle path, command and arguments
+     */
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run a command line.
+     *
+     * @param args bundle path, command and arguments
+     * @param out standard output
+     * @param err standard error
+     * @return exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length < 2) {
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+
+        Path path = Paths.get(args[0]);
+        String[] command = Arrays.copyOfRange(args, 1, args.length);
+
+        try {
+            if ("create".equals(command[0])) {
+                return create(path, command);
+            }
+
+            if ("loadtest".equals(command[0])) {
+                return loadTest(path, command, out);
+            }
+
+            try (FileChannelDiskBundle bundle = FileChannelDiskBundle.open(path)) {
+                CommandRunner runner = new CommandRunner(bundle, System.in, out);
+
+                if ("batch".equals(command[0])) {
+                    return batch(runner, command);
+                }
+
+                return runner.run(command);
+            }
+        } catch (UsageException e) {
+            err.println("owl: " + e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        } catch (IOException | RuntimeException e) {
+            err.println("owl: " + e.getMessage());
+            return EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("owl: interrupted");
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Create a new bundle file.
+     *
+     * @param path path of bundle
+     * @param command create command and its arguments
+     * @return exit status
+     * @throws IOException if the bundle could not be created
+     */
+    private static int create(Path path, String[] command) throws IOException {
+        if (command.length != 2) {
+            throw new UsageException("Wrong number of arguments for create.");
+        }
+
+        if (Files.exists(path)) {
+            throw new UsageException(path + " already exists.");
+        }
+
+        int slots = CommandRunner.parseNumber(command[1], 0, 511);
+
+        try {
+            FileChannelDiskBundle.create(path, slots).close();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Load test a new bundle file filled with synthetic disks, using the read mostly workload, then delete it.
+     *
+     * @param path path of bundle, which must not exist
+     * @param command loadtest command and its arguments
+     * @param out stream for the report
+     * @return exit status, failure if any operation failed or the final state was wrong
+     * @throws IOException if the bundle could not be created or deleted
+     * @throws InterruptedException if interrupted while the load test was running
+     */
+    private static int loadTest(Path path, String[] command, PrintStream out) throws IOException, InterruptedException {
+        if (command.length != 4) {
+            throw new UsageException("Wrong number of arguments for loadtest.");
+        }
+
+        if (Files.exists(path)) {
+            throw new UsageException(path + " already exists.");
+        }
+
+        int slots = CommandRunner.parseNumber(command[1], 1, 511 - LoadGenerator.SPARE_SLOTS);
+        int threads = CommandRunner.parseNumber(command[2], 1, slots);
+        int seconds = CommandRunner.parseNumber(command[3], 1, Integer.MAX_VALUE);
+
+        try (FileChannelDiskBundle bundle = FileChannelDiskBundle.create(path, slots)) {
+            SyntheticBundle.populate(bundle, 0.5, 0);
+
+            LoadReport report = new LoadGenerator(bundle, WorkloadMix.readMostly(), threads, System.nanoTime()).run(Duration.ofSeconds(1), Duration.ofSeconds(seconds));
+            out.print(report);
+
+            return report.isCorrect() ? EXIT_SUCCESS : EXIT_FAILURE;
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Run a batch of commands from a file or standard input.
+     *
+     * @param runner runner for the opened bundle
+     * @param command batch command and its arguments
+     * @return exit status
+     * @throws IOException if the commands could not be read
+     */
+    private static int batch(CommandRunner runner, String[] command) throws IOException {
+        if (command.length > 2) {
+            throw new UsageException("Wrong number of arguments for batch.");
+        }
+
+        if (command.length == 1 || "-".equals(command[1])) {
+            return runner.runBatch(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII)));
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(command[1]), StandardCharsets.US_ASCII)) {
+            return runner.runBatch(reader);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package net.melaircraft.owl.cli;
+
+import net.melaircraft.owl.library.CatalogueEntry;
+import net.melaircraft.owl.library.CatalogueVisitor;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.fsck.BundleChecker;
+import net.melaircraft.owl.library.fsck.CheckReport;
+import net.melaircraft.owl.library.fsck.Problem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs commands against a single opened bundle.
+ *
+ * Commands are dispatched by name rather than through a class per command, and only the classes a command needs are
+ * touched, so short invocations load as little as possible. Disk images are streamed between the bundle and files,
+ * or standard input and output when the file is given as "-".
+ */
+public class CommandRunner {
+    /** Name given in place of a file to use standard input or output. */
+    private static final String STANDARD_STREAM = "-";
+
+    /** Bundle commands are run against. */
+    private final DiskBundle bundle;
+    /** Stream for standard input. */
+    private final InputStream in;
+    /** Stream for standard output. */
+    private final OutputStream out;
+    /** Stream for text output. */
+    private final PrintStream text;
+
+    /**
+     * Construct a new command runner.
+     *
+     * @param bundle bundle to run commands against
+     * @param in stream used for standard input
+     * @param out stream used for standard output
+     */
+    public CommandRunner(DiskBundle bundle, InputStream in, OutputStream out) {
+        this.bundle = bundle;
+        this.in = in;
+        this.out = out;
+        this.text = out instanceof PrintStream ? (PrintStream) out : new PrintStream(out, true);
+    }
+
+    /**
+     * Run a single command.
+     *
+     * @param args command name followed by its arguments
+     * @return exit status, 0 on success
+     * @throws IOException if a file or stream could not be read or written
+     * @throws UsageException if the command or its arguments are invalid
+     */
+    public int run(String[] args) throws IOException, UsageException {
+        if (args.length == 0) {
+            throw new UsageException("No command given.");
+        }
+
+        switch (args[0]) {
+            case "list":
+                expectArguments(args, 1, 1);
+                list();
+                return 0;
+            case "extract":
+                expectArguments(args, 2, 3);
+                extract(parseSlot(args[1]), args.length > 2 ? args[2] : STANDARD_STREAM);
+                return 0;
+            case "insert":
+                expectArguments(args, 2, 4);
+                insert(parseSlot(args[1]), args.length > 2 ? args[2] : STANDARD_STREAM, args.length > 3 ? args[3] : null);
+                return 0;
+            case "rename":
+                expectArguments(args, 3, 3);
+                bundle.setName(parseSlot(args[1]), args[2]);
+                return 0;
+            case "lock":
+                expectArguments(args, 2, 2);
+                bundle.lock(parseSlot(args[1]));
+                return 0;
+            case "unlock":
+                expectArguments(args, 2, 2);
+                bundle.unlock(parseSlot(args[1]));
+                return 0;
+            case "resize":
+                expectArguments(args, 2, 2);
+                bundle.changeStorageSize(parseNumber(args[1], 0, 511));
+                return 0;
+            case "verify":
+                expectArguments(args, 1, 2);
+                return verify(args.length > 1 && "--repair".equals(args[1]));
+            default:
+                throw new UsageException("Unknown command " + args[0] + ".");
+        }
+    }
+
+    /**
+     * Run commands read one per line, stopping at the first which fails. Blank lines and lines starting with "#" are
+     * ignored, arguments containing spaces can be enclosed in double quotes.
+     *
+     * @param reader reader of commands
+     * @return exit status of the first failed command, or 0 if all succeeded
+     * @throws IOException if the commands could not be read
+     */
+    public int runBatch(BufferedReader reader) throws IOException {
+        String line;
+        int number = 0;
+
+        while ((line = reader.readLine()) != null) {
+            number++;
+
+            String trimmed = line.trim();
+
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+
+            int status;
+
+            try {
+                status = run(tokenize(trimmed));
+            } catch (RuntimeException | IOException e) {
+                throw new BatchException(number, e);
+            }
+
+            if (status != 0) {
+                return status;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * List the occupied slots, one per line with the slot number, L if locked and the name.
+     */
+    private void list() {
+        StringBuilder line = new StringBuilder(24);
+
+        /* An anonymous class rather than a lambda, to avoid bootstrapping lambdas for a single short command. */
+        bundle.forEachEntry(new CatalogueVisitor() {
+            @Override
+            public void visit(CatalogueEntry entry) {
+                if (entry.isOccupied()) {
+                    line.setLength(0);
+
+                    int slot = entry.getSlot();
+
+                    for (int padding = slot < 10 ? 2 : slot < 100 ? 1 : 0; padding > 0; padding--) {
+                        line.append(' ');
+                    }
+
+                    line.append(slot).append(entry.isLocked() ? " L " : "   ").append(entry.getName());
+                    text.println(line);
+                }
+            }
+        });
+    }
+
+    /**
+     * Extract the image of a slot to a file or standard output.
+     *
+     * @param slot slot number (0 - 510)
+     * @param target path of file, or "-" for standard output
+     * @throws IOException if the image could not be written
+     */
+    private void extract(int slot, String target) throws IOException {
+        if (!bundle.isOccupied(slot)) {
+            throw new UsageException("Slot " + slot + " is not occupied.");
+        }
+
+        ByteBuffer image = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+        bundle.read(slot, 0, image);
+        image.flip();
+
+        if (STANDARD_STREAM.equals(target)) {
+            writeFully(Channels.newChannel(out), image);
+            out.flush();
+        } else {
+            try (FileChannel channel = FileChannel.open(Paths.get(target), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, image);
+            }
+        }
+    }
+
+    /**
+     * Insert an image into a slot from a file or standard input. A short image is padded with 0x00, a slot which was
+     * unused is activated and left unlocked.
+     *
+     * @param slot slot number (0 - 510)
+     * @param source path of file, or "-" for standard input
+     * @param name new name of slot, or null to name it after the file, or leave it unchanged for standard input
+     * @throws IOException if the image could not be read
+     */
+    private void insert(int slot, String source, String name) throws IOException {
+        ByteBuffer image = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+
+        if (STANDARD_STREAM.equals(source)) {
+            readFully(Channels.newChannel(in), image);
+        } else {
+            Path path = Paths.get(source);
+
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                readFully(channel, image);
+            }
+
+            if (name == null) {
+                name = path.getFileName().toString();
+                int extension = name.lastIndexOf('.');
+
+                if (extension > 0) {
+                    name = name.substring(0, extension);
+                }
+            }
+        }
+
+        image.clear();
+
+        boolean wasOccupied = bundle.isOccupied(slot);
+
+        if (!wasOccupied) {
+            bundle.activate(slot);
+            bundle.unlock(slot);
+        }
+
+        bundle.write(slot, 0, image);
+
+        if (name != null) {
+            bundle.setName(slot, name);
+        }
+    }
+
+    /**
+     * Check the bundle and print any problems.
+     *
+     * @param repair true to repair problems where possible
+     * @return 0 if no problems remain, 1 otherwise
+     */
+    private int verify(boolean repair) {
+        CheckReport report = new BundleChecker().check(bundle, repair);
+
+        for (Problem problem : report.getProblems()) {
+            text.println((report.getRepaired().contains(problem) ? "repaired: " : "") + problem.getMessage());
+        }
+
+        return report.getRemaining().isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * Check the number of arguments of a command, including the command name.
+     *
+     * @param args command and arguments
+     * @param minimum minimum count
+     * @param maximum maximum count
+     */
+    private static void expectArguments(String[] args, int minimum, int maximum) {
+        if (args.length < minimum || args.length > maximum) {
+            throw new UsageException("Wrong number of arguments for " + args[0] + ".");
+        }
+    }
+
+    /**
+     * Parse a slot number.
+     *
+     * @param value text to parse
+     * @return slot number
+     */
+    private static int parseSlot(String value) {
+        return parseNumber(value, 0, 510);
+    }
+
+    /**
+     * Parse a number within a range.
+     *
+     * @param value text to parse
+     * @param minimum minimum value
+     * @param maximum maximum value
+     * @return parsed number
+     */
+    static int parseNumber(String value, int minimum, int maximum) {
+        int number;
+
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException(value + " is not a number.");
+        }
+
+        if (number < minimum || number > maximum) {
+            throw new UsageException(value + " is not between " + minimum + " and " + maximum + ".");
+        }
+
+        return number;
+    }
+
+    /**
+     * Split a command line into arguments at spaces, honouring double quotes.
+     *
+     * @param line command line
+     * @return arguments
+     */
+    static String[] tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+
+        if (quoted) {
+            throw new UsageException("Unterminated quote in: " + line);
+        }
+
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * Read from a channel until the buffer is full or the end of stream is reached.
+     *
+     * @param channel channel to read
+     * @param buffer buffer to fill
+     * @throws IOException if the read failed
+     */
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            /* Keep reading until the buffer is full. */
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to a channel.
+     *
+     * @param channel channel to write to
+     * @param buffer buffer to write
+     * @throws IOException if the write failed
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Exception to indicate that a command of a batch failed.
+     */
+    public static final class BatchException extends RuntimeException {
+        /** Line number of the failed command. */
+        private final int line;
+
+        /**
+         * Construct a new batch exception.
+         *
+         * @param line line number of the failed command
+         * @param cause failure of the command
+         */
+        BatchException(int line, Exception cause) {
+            super("Line " + line + ": " + cause.getMessage(), cause);
+            this.line = line;
+        }
+
+        /**
+         * Get the line number of the failed command.
+         *
+         * @return line number, from 1
+         */
+        public int getLine() {
+            return line;
+        }
+    }
+}
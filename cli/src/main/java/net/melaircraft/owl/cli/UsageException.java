@@ -0,0 +1,15 @@
+package net.melaircraft.owl.cli;
+
+/**
+ * Exception to indicate that a command was given invalid arguments.
+ */
+public final class UsageException extends RuntimeException {
+    /**
+     * Construct a new usage exception.
+     *
+     * @param message description of the problem with the arguments
+     */
+    public UsageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,132 @@
+package net.melaircraft.owl.cli;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CommandRunnerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testInsertFromStandardInputAndExtractToStandardOutput() throws IOException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        new Random(1).nextBytes(image);
+
+        new CommandRunner(bundle, new ByteArrayInputStream(image), new ByteArrayOutputStream()).run(new String[]{"insert", "2", "-", "PIPED"});
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CommandRunner(bundle, new ByteArrayInputStream(new byte[0]), out).run(new String[]{"extract", "2"});
+
+        assertArrayEquals(image, out.toByteArray());
+        assertEquals("PIPED", bundle.getName(2));
+    }
+
+    @Test
+    public void testInsertFromFileNamesSlot() throws IOException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        Path image = temporaryFolder.getRoot().toPath().resolve("ELITE.ssd");
+        Files.write(image, new byte[]{1, 2, 3});
+
+        runner(bundle, new ByteArrayOutputStream()).run(new String[]{"insert", "1", image.toString()});
+
+        assertEquals("ELITE", bundle.getName(1));
+        assertEquals(3, bundle.extract(1).getImage()[2]);
+    }
+
+    @Test
+    public void testBatchRunsAgainstOneBundle() throws IOException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        bundle.activate(0);
+        bundle.activate(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        String script = "# set up\n"
+                + "unlock 0\n"
+                + "rename 0 \"GAMES\"\n"
+                + "\n"
+                + "rename 3 TOOLS\n"
+                + "list\n";
+
+        int status = runner(bundle, out).runBatch(new BufferedReader(new StringReader(script)));
+
+        assertEquals(0, status);
+        assertEquals("  0   GAMES\n  3 L TOOLS\n", out.toString().replace(System.lineSeparator(), "\n"));
+    }
+
+    @Test
+    public void testBatchStopsAtFailedLine() throws IOException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+
+        try {
+            runner(bundle, new ByteArrayOutputStream()).runBatch(new BufferedReader(new StringReader("resize 6\nlock 600\nresize 8\n")));
+            fail("Batch should stop at the invalid slot.");
+        } catch (CommandRunner.BatchException e) {
+            assertEquals(2, e.getLine());
+        }
+
+        assertEquals(6, bundle.getStorageSize());
+    }
+
+    @Test
+    public void testVerifyReportsProblems() throws IOException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        bundle.activate(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(1, runner(bundle, out).run(new String[]{"verify"}));
+        assertEquals(0, runner(bundle, out).run(new String[]{"verify", "--repair"}));
+        assertTrue(out.toString().contains("repaired: "));
+        assertEquals(0, runner(bundle, out).run(new String[]{"verify"}));
+    }
+
+    @Test
+    public void testTokenizeHonoursQuotes() {
+        assertEquals(Arrays.asList("rename", "1", "A B", ""), Arrays.asList(CommandRunner.tokenize("rename  1 \"A B\" \"\"")));
+    }
+
+    @Test
+    public void testCreateAndListThroughMain() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("new.mmb");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertEquals(CLI.EXIT_SUCCESS, CLI.run(new String[]{path.toString(), "create", "3"}, new PrintStream(out), new PrintStream(err)));
+        assertEquals(DiskBundle.INITIAL_OFFSET + (3 * DiskBundle.DISK_SIZE), Files.size(path));
+        assertEquals(CLI.EXIT_USAGE, CLI.run(new String[]{path.toString(), "frobnicate"}, new PrintStream(out), new PrintStream(err)));
+    }
+
+    @Test
+    public void testCreateRejectsSlotCountBeforeWriting() {
+        Path path = temporaryFolder.getRoot().toPath().resolve("large.mmb");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertEquals(CLI.EXIT_USAGE, CLI.run(new String[]{path.toString(), "create", "600"}, new PrintStream(out), new PrintStream(err)));
+        assertFalse(Files.exists(path));
+    }
+
+    private static CommandRunner runner(DiskBundle bundle, ByteArrayOutputStream out) {
+        return new CommandRunner(bundle, new ByteArrayInputStream(new byte[0]), out);
+    }
+}
@@ -0,0 +1,87 @@
+package net.melaircraft.owl.gui;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An immutable copy of the catalogue of a bundle, taken off the event dispatch thread and handed to the slot table.
+ */
+final class CatalogueSnapshot {
+    /** Size of a catalogue entry. */
+    private static final int ENTRY_SIZE = 16;
+    /** Snapshot of a bundle with no slots, every slot unformatted. */
+    static final CatalogueSnapshot EMPTY = new CatalogueSnapshot(emptyCatalogue(), 0);
+
+    /** Copy of the header and catalogue. */
+    private final ByteBuffer catalogue;
+    /** Number of slots with storage. */
+    private final int storageSize;
+
+    /**
+     * Construct a new catalogue snapshot.
+     *
+     * @param catalogue copy of the header and catalogue
+     * @param storageSize number of slots with storage
+     */
+    private CatalogueSnapshot(ByteBuffer catalogue, int storageSize) {
+        this.catalogue = catalogue;
+        this.storageSize = storageSize;
+    }
+
+    /**
+     * Take a snapshot of the catalogue of a bundle.
+     *
+     * @param bundle bundle to copy
+     * @return snapshot of catalogue
+     */
+    static CatalogueSnapshot take(DiskBundle bundle) {
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+
+        bundle.forEachEntry(entry -> {
+            int position = ENTRY_SIZE * (entry.getSlot() + 1);
+            CharSequence name = entry.getName();
+
+            for (int i = 0; i < name.length(); i++) {
+                catalogue.put(position + i, (byte) name.charAt(i));
+            }
+
+            catalogue.put(position + DiskBundle.HEADER_FLAG_OFFSET, entry.getFlags());
+        });
+
+        return new CatalogueSnapshot(catalogue, bundle.getStorageSize());
+    }
+
+    /**
+     * Build a catalogue with every slot unformatted.
+     *
+     * @return catalogue buffer
+     */
+    private static ByteBuffer emptyCatalogue() {
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+
+        for (int slot = 0; slot < 511; slot++) {
+            catalogue.put((ENTRY_SIZE * (slot + 1)) + DiskBundle.HEADER_FLAG_OFFSET, DiskBundle.HEADER_FLAG_DISK_UNFORMATTED);
+        }
+
+        return catalogue;
+    }
+
+    /**
+     * Get the copy of the header and catalogue, which must not be modified.
+     *
+     * @return catalogue buffer
+     */
+    ByteBuffer getCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Get the number of slots with storage.
+     *
+     * @return storage size
+     */
+    int getStorageSize() {
+        return storageSize;
+    }
+}
@@ -0,0 +1,80 @@
+package net.melaircraft.owl.gui;
+
+import net.melaircraft.owl.library.dfs.DfsFile;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table model of the files of a DFS catalogue.
+ */
+public class DfsFileTableModel extends AbstractTableModel {
+    /** Column titles. */
+    private static final String[] COLUMN_NAMES = {"File", "Load", "Exec", "Length", "Sector", "Locked"};
+
+    /** Files shown. */
+    private List<DfsFile> files = Collections.emptyList();
+
+    /**
+     * Show a new list of files, must be called on the event dispatch thread.
+     *
+     * @param newFiles files to show
+     */
+    void setFiles(List<DfsFile> newFiles) {
+        files = newFiles;
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return files.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        DfsFile file = files.get(row);
+
+        switch (column) {
+            case 0:
+                return file.getFullName();
+            case 1:
+                return toHex(file.getLoadAddress(), 6);
+            case 2:
+                return toHex(file.getExecAddress(), 6);
+            case 3:
+                return toHex(file.getLength(), 6);
+            case 4:
+                return toHex(file.getStartSector(), 3);
+            default:
+                return file.isLocked() ? "L" : "";
+        }
+    }
+
+    /**
+     * Format a value as upper case hexadecimal, padded with zeros.
+     *
+     * @param value value to format
+     * @param digits minimum number of digits
+     * @return formatted value
+     */
+    private static String toHex(int value, int digits) {
+        StringBuilder hex = new StringBuilder(Integer.toHexString(value).toUpperCase());
+
+        while (hex.length() < digits) {
+            hex.insert(0, '0');
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package net.melaircraft.owl.gui;
+
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.UnsupportedLookAndFeelException;
+
+/**
+ * Entry point of the desktop GUI.
+ */
+public final class GUI {
+    /**
+     * Utility class, not constructed.
+     */
+    private GUI() {
+    }
+
+    /**
+     * Main entry point, opens the main window on the event dispatch thread.
+     *
+     * @param args ignored
+     */
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(() -> {
+            try {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException e) {
+                /* Stay with the default look and feel. */
+            }
+
+            new MainWindow().setVisible(true);
+        });
+    }
+}
@@ -0,0 +1,545 @@
+package net.melaircraft.owl.gui;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.SparseDiskBundle;
+import net.melaircraft.owl.library.dfs.DfsCatalogue;
+import net.melaircraft.owl.library.dfs.DfsFile;
+import net.melaircraft.owl.library.event.BundleChangeEvent;
+import net.melaircraft.owl.library.event.BundleListener;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+import java.awt.BorderLayout;
+import java.awt.Cursor;
+import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Main window of the GUI, a table of every slot of the open bundle beside the DFS files of the selected slot.
+ *
+ * Bundles are held as sparse bundles so opening a large, mostly empty, bundle only allocates what it uses. Loading,
+ * saving, image transfer and DFS listings all run on background workers, the event dispatch thread only ever
+ * touches the catalogue.
+ */
+final class MainWindow extends JFrame {
+    /** Title of the window. */
+    private static final String TITLE = "Owl - BBC Micro Disk Manager";
+    /** Number of slots allocated to a new bundle. */
+    private static final int NEW_BUNDLE_SLOTS = 511;
+
+    /** Model of slot table. */
+    private final SlotTableModel slotModel = new SlotTableModel();
+    /** Model of file table. */
+    private final DfsFileTableModel fileModel = new DfsFileTableModel();
+    /** Table of slots. */
+    private final JTable slotTable = new JTable(slotModel);
+    /** Status line. */
+    private final JLabel status = new JLabel(" ");
+    /** Chooser for bundle and image files. */
+    private final JFileChooser chooser = new JFileChooser();
+    /** Listener refreshing the slot table as the bundle changes. */
+    private final BundleListener listener = this::bundleChanged;
+    /** Actions needing an open bundle. */
+    private final Action[] bundleActions;
+    /** Actions needing a selected slot. */
+    private final Action[] slotActions;
+    /** Open bundle, null if none. */
+    private SparseDiskBundle bundle;
+    /** Path of open bundle, null if never saved. */
+    private Path path;
+    /** True if the bundle has changed since last saved. */
+    private boolean modified;
+    /** Number of background tasks running. */
+    private int busy;
+    /** Worker listing the files of the selected slot, null if none. */
+    private SwingWorker<List<DfsFile>, Void> fileWorker;
+
+    /**
+     * Construct the main window.
+     */
+    MainWindow() {
+        super(TITLE);
+
+        Action newAction = action("New", e -> newBundle());
+        Action openAction = action("Open...", e -> openBundle());
+        Action saveAction = action("Save", e -> saveBundle(path));
+        Action saveAsAction = action("Save As...", e -> saveBundle(null));
+        Action renameAction = action("Rename...", e -> renameSlot());
+        Action lockAction = action("Lock / Unlock", e -> toggleLock());
+        Action formatAction = action("Activate", e -> activateSlot());
+        Action deleteAction = action("Deactivate", e -> deactivateSlot());
+        Action importAction = action("Import Image...", e -> importImage());
+        Action exportAction = action("Export Image...", e -> exportImage());
+
+        bundleActions = new Action[]{saveAction, saveAsAction};
+        slotActions = new Action[]{renameAction, lockAction, formatAction, deleteAction, importAction, exportAction};
+
+        JMenu fileMenu = new JMenu("File");
+        fileMenu.add(newAction);
+        fileMenu.add(openAction);
+        fileMenu.addSeparator();
+        fileMenu.add(saveAction);
+        fileMenu.add(saveAsAction);
+
+        JMenu slotMenu = new JMenu("Slot");
+        for (Action action : slotActions) {
+            slotMenu.add(action);
+        }
+
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(fileMenu);
+        menuBar.add(slotMenu);
+        setJMenuBar(menuBar);
+
+        /* Fixed row height and column widths, so the table never measures rows it does not paint. */
+        slotTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        slotTable.setFillsViewportHeight(true);
+        slotTable.setRowHeight(slotTable.getFontMetrics(slotTable.getFont()).getHeight() + 2);
+        slotTable.getColumnModel().getColumn(SlotTableModel.COLUMN_SLOT).setPreferredWidth(50);
+        slotTable.getColumnModel().getColumn(SlotTableModel.COLUMN_NAME).setPreferredWidth(160);
+        slotTable.getColumnModel().getColumn(SlotTableModel.COLUMN_STATUS).setPreferredWidth(90);
+        slotTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                selectionChanged();
+            }
+        });
+
+        JTable fileTable = new JTable(fileModel);
+        fileTable.setFillsViewportHeight(true);
+
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(slotTable), new JScrollPane(fileTable));
+        split.setResizeWeight(0.4);
+
+        getContentPane().add(split, BorderLayout.CENTER);
+        getContentPane().add(status, BorderLayout.SOUTH);
+
+        setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (confirmDiscard()) {
+                    dispose();
+                }
+            }
+        });
+
+        setSize(900, 600);
+        setLocationByPlatform(true);
+        updateActions();
+    }
+
+    /**
+     * Replace the open bundle with a new, empty, bundle.
+     */
+    private void newBundle() {
+        if (confirmDiscard()) {
+            setBundle(new SparseDiskBundle(NEW_BUNDLE_SLOTS), null);
+            modified = true;
+            updateTitle();
+        }
+    }
+
+    /**
+     * Choose and open a bundle file on a background worker.
+     */
+    private void openBundle() {
+        if (!confirmDiscard() || chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path chosen = chooser.getSelectedFile().toPath();
+
+        runInBackground("Opening " + chosen.getFileName() + "...", new SwingWorker<SparseDiskBundle, Void>() {
+            @Override
+            protected SparseDiskBundle doInBackground() throws IOException {
+                return SparseDiskBundle.read(chosen);
+            }
+        }, opened -> setBundle(opened, chosen));
+    }
+
+    /**
+     * Save the bundle on a background worker, writing a temporary file and moving it over the target.
+     *
+     * @param target path to save to, or null to choose one
+     */
+    private void saveBundle(Path target) {
+        if (target == null) {
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+
+            target = chooser.getSelectedFile().toPath();
+        }
+
+        SparseDiskBundle saving = bundle;
+        Path destination = target;
+
+        runInBackground("Saving " + destination.getFileName() + "...", new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                Path temporary = destination.resolveSibling(destination.getFileName() + ".tmp");
+                saving.save(temporary);
+                Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return null;
+            }
+        }, ignored -> {
+            path = destination;
+            modified = false;
+            updateTitle();
+        });
+    }
+
+    /**
+     * Rename the selected slot.
+     */
+    private void renameSlot() {
+        int slot = slotTable.getSelectedRow();
+        String name = JOptionPane.showInputDialog(this, "Name of slot " + slot + ":", bundle.getName(slot));
+
+        if (name != null) {
+            runAction(() -> bundle.setName(slot, name));
+        }
+    }
+
+    /**
+     * Toggle the lock of the selected slot.
+     */
+    private void toggleLock() {
+        int slot = slotTable.getSelectedRow();
+
+        runAction(() -> {
+            if (bundle.isLocked(slot)) {
+                bundle.unlock(slot);
+            } else {
+                bundle.lock(slot);
+            }
+        });
+    }
+
+    /**
+     * Activate the selected slot, leaving it writable.
+     */
+    private void activateSlot() {
+        int slot = slotTable.getSelectedRow();
+
+        runAction(() -> {
+            bundle.activate(slot);
+            bundle.unlock(slot);
+        });
+    }
+
+    /**
+     * Deactivate and wipe the selected slot.
+     */
+    private void deactivateSlot() {
+        int slot = slotTable.getSelectedRow();
+
+        if (JOptionPane.showConfirmDialog(this, "Deactivate and wipe slot " + slot + "?", TITLE, JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION) {
+            runAction(() -> bundle.deactivate(slot, true));
+        }
+    }
+
+    /**
+     * Import an image file into the selected slot, the file is read on a background worker and the slot changed on the
+     * event dispatch thread once it has been read.
+     */
+    private void importImage() {
+        int slot = slotTable.getSelectedRow();
+
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = chooser.getSelectedFile();
+        DiskBundle target = bundle;
+
+        runInBackground("Importing " + file.getName() + "...", new SwingWorker<ByteBuffer, Void>() {
+            @Override
+            protected ByteBuffer doInBackground() throws IOException {
+                ByteBuffer image = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    while (image.hasRemaining() && channel.read(image) >= 0) {
+                        /* Keep reading until the image is complete. */
+                    }
+                }
+
+                image.clear();
+                return image;
+            }
+        }, image -> {
+            if (target != bundle) {
+                return;
+            }
+
+            runAction(() -> {
+                if (!target.isOccupied(slot)) {
+                    target.activate(slot);
+                    target.unlock(slot);
+                }
+
+                target.write(slot, 0, image);
+
+                String name = file.getName();
+                int extension = name.lastIndexOf('.');
+                target.setName(slot, extension > 0 ? name.substring(0, extension) : name);
+            });
+        });
+    }
+
+    /**
+     * Export the image of the selected slot to a file on a background worker.
+     */
+    private void exportImage() {
+        int slot = slotTable.getSelectedRow();
+
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path destination = chooser.getSelectedFile().toPath();
+        DiskBundle source = bundle;
+
+        runInBackground("Exporting slot " + slot + "...", new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                ByteBuffer image = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+                source.read(slot, 0, image);
+                image.flip();
+
+                try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (image.hasRemaining()) {
+                        channel.write(image);
+                    }
+                }
+
+                return null;
+            }
+        }, ignored -> { });
+    }
+
+    /**
+     * Show a new bundle, replacing the listener on any previous bundle.
+     *
+     * @param newBundle bundle to show
+     * @param newPath path of bundle, or null if never saved
+     */
+    private void setBundle(SparseDiskBundle newBundle, Path newPath) {
+        if (bundle != null) {
+            bundle.removeListener(listener);
+        }
+
+        bundle = newBundle;
+        path = newPath;
+        modified = false;
+
+        bundle.addListener(listener);
+        slotModel.update(CatalogueSnapshot.take(bundle), null);
+        selectionChanged();
+        updateTitle();
+        updateActions();
+    }
+
+    /**
+     * Handle a change to the bundle, called on the event delivery thread. The catalogue snapshot is taken here so
+     * the event dispatch thread only swaps it in.
+     *
+     * @param event change event
+     */
+    private void bundleChanged(BundleChangeEvent event) {
+        DiskBundle changed = event.getBundle();
+        CatalogueSnapshot snapshot = CatalogueSnapshot.take(changed);
+        BitSet slots = event.getAffectedSlots();
+
+        SwingUtilities.invokeLater(() -> {
+            if (changed != bundle) {
+                return;
+            }
+
+            modified = true;
+            updateTitle();
+            slotModel.update(snapshot, slots);
+
+            int selected = slotTable.getSelectedRow();
+
+            if (selected >= 0 && slots.get(selected)) {
+                selectionChanged();
+            }
+        });
+    }
+
+    /**
+     * List the files of the selected slot on a background worker, cancelling any listing still running.
+     */
+    private void selectionChanged() {
+        updateActions();
+
+        if (fileWorker != null) {
+            fileWorker.cancel(true);
+            fileWorker = null;
+        }
+
+        int slot = slotTable.getSelectedRow();
+
+        if (bundle == null || slot < 0 || slot >= bundle.getStorageSize() || !bundle.isOccupied(slot)) {
+            fileModel.setFiles(Collections.emptyList());
+            return;
+        }
+
+        DiskBundle source = bundle;
+
+        fileWorker = new SwingWorker<List<DfsFile>, Void>() {
+            @Override
+            protected List<DfsFile> doInBackground() {
+                return DfsCatalogue.read(source, slot).getFiles();
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || fileWorker != this) {
+                    return;
+                }
+
+                fileWorker = null;
+
+                try {
+                    fileModel.setFiles(get());
+                    status.setText(" ");
+                } catch (ExecutionException e) {
+                    fileModel.setFiles(Collections.emptyList());
+                    status.setText("Slot " + slot + " is not a DFS disk: " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        fileWorker.execute();
+    }
+
+    /**
+     * Run a quick change to the bundle on the event dispatch thread, reporting any failure.
+     *
+     * @param change change to run
+     */
+    private void runAction(Runnable change) {
+        try {
+            change.run();
+        } catch (RuntimeException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), TITLE, JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Run a worker with the window marked busy, passing its result to a callback on the event dispatch thread.
+     *
+     * @param message status message while running
+     * @param worker worker to run
+     * @param completion callback given the result on success
+     * @param <T> type of result
+     */
+    private <T> void runInBackground(String message, SwingWorker<T, Void> worker, Consumer<T> completion) {
+        busy++;
+        status.setText(message);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        updateActions();
+
+        worker.addPropertyChangeListener(e -> {
+            if (!"state".equals(e.getPropertyName()) || worker.getState() != SwingWorker.StateValue.DONE) {
+                return;
+            }
+
+            busy--;
+            status.setText(" ");
+            setCursor(Cursor.getDefaultCursor());
+            updateActions();
+
+            try {
+                completion.accept(worker.get());
+            } catch (ExecutionException e2) {
+                JOptionPane.showMessageDialog(this, e2.getCause().getMessage(), TITLE, JOptionPane.ERROR_MESSAGE);
+            } catch (InterruptedException e2) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        worker.execute();
+    }
+
+    /**
+     * Ask whether unsaved changes may be discarded.
+     *
+     * @return true if there are no unsaved changes or they may be discarded
+     */
+    private boolean confirmDiscard() {
+        return !modified || JOptionPane.showConfirmDialog(this, "Discard unsaved changes?", TITLE, JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION;
+    }
+
+    /**
+     * Enable actions which are possible in the current state.
+     */
+    private void updateActions() {
+        boolean idle = busy == 0;
+        boolean open = bundle != null && idle;
+        boolean selected = open && slotTable.getSelectedRow() >= 0 && slotTable.getSelectedRow() < bundle.getStorageSize();
+
+        for (Action action : bundleActions) {
+            action.setEnabled(open);
+        }
+
+        for (Action action : slotActions) {
+            action.setEnabled(selected);
+        }
+    }
+
+    /**
+     * Show the bundle name and modified state in the title.
+     */
+    private void updateTitle() {
+        String name = path == null ? "Untitled" : path.getFileName().toString();
+        setTitle(TITLE + " - " + name + (modified ? " *" : ""));
+    }
+
+    /**
+     * Create an action.
+     *
+     * @param name name of action
+     * @param handler handler of action
+     * @return action
+     */
+    private static Action action(String name, Consumer<ActionEvent> handler) {
+        return new AbstractAction(name) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handler.accept(e);
+            }
+        };
+    }
+}
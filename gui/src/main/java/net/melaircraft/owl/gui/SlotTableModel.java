@@ -0,0 +1,151 @@
+package net.melaircraft.owl.gui;
+
+import net.melaircraft.owl.library.CatalogueEntry;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.BitSet;
+
+/**
+ * Table model of all 511 slots of a bundle, read from a catalogue snapshot.
+ *
+ * Cell values are read through a single reused catalogue entry and values shared between rows, so rendering rows
+ * allocates nothing in the model. The name returned is a view onto the snapshot, valid until the next call.
+ */
+public class SlotTableModel extends AbstractTableModel {
+    /** Column of the slot number. */
+    public static final int COLUMN_SLOT = 0;
+    /** Column of the slot name. */
+    public static final int COLUMN_NAME = 1;
+    /** Column of the slot status. */
+    public static final int COLUMN_STATUS = 2;
+    /** Number of rows, one per slot. */
+    private static final int ROW_COUNT = 511;
+    /** Column titles. */
+    private static final String[] COLUMN_NAMES = {"Slot", "Name", "Status"};
+    /** Boxed slot numbers, shared by every render. */
+    private static final Integer[] SLOT_NUMBERS = new Integer[ROW_COUNT];
+
+    static {
+        for (int slot = 0; slot < ROW_COUNT; slot++) {
+            SLOT_NUMBERS[slot] = slot;
+        }
+    }
+
+    /**
+     * Status of a slot.
+     */
+    public enum SlotStatus {
+        /** Slot is not occupied. */
+        EMPTY("Empty"),
+        /** Slot is occupied and writable. */
+        WRITABLE("Writable"),
+        /** Slot is occupied and locked. */
+        LOCKED("Locked"),
+        /** Slot has no storage allocated in the bundle. */
+        NO_STORAGE("No storage");
+
+        /** Text shown for the status. */
+        private final String text;
+
+        /**
+         * Construct a new slot status.
+         *
+         * @param text text shown for the status
+         */
+        SlotStatus(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    /** Snapshot being shown. */
+    private CatalogueSnapshot snapshot = CatalogueSnapshot.EMPTY;
+    /** Reused entry over the snapshot. */
+    private CatalogueEntry entry = new CatalogueEntry(snapshot.getCatalogue());
+
+    /**
+     * Show a new snapshot, must be called on the event dispatch thread.
+     *
+     * @param newSnapshot snapshot to show
+     * @param changed slots which changed, or null if every slot may have changed
+     */
+    void update(CatalogueSnapshot newSnapshot, BitSet changed) {
+        snapshot = newSnapshot;
+        entry = new CatalogueEntry(newSnapshot.getCatalogue());
+
+        if (changed == null) {
+            fireTableRowsUpdated(0, ROW_COUNT - 1);
+            return;
+        }
+
+        for (int slot = changed.nextSetBit(0); slot >= 0 && slot < ROW_COUNT; slot = changed.nextSetBit(slot + 1)) {
+            int last = changed.nextClearBit(slot) - 1;
+            fireTableRowsUpdated(slot, Math.min(last, ROW_COUNT - 1));
+            slot = last;
+        }
+    }
+
+    /**
+     * Get the status of a slot.
+     *
+     * @param slot slot number (0 - 510)
+     * @return status of slot
+     */
+    public SlotStatus getStatus(int slot) {
+        entry.moveTo(slot);
+
+        if (!entry.isOccupied()) {
+            return SlotStatus.EMPTY;
+        }
+
+        if (slot >= snapshot.getStorageSize()) {
+            return SlotStatus.NO_STORAGE;
+        }
+
+        return entry.isLocked() ? SlotStatus.LOCKED : SlotStatus.WRITABLE;
+    }
+
+    @Override
+    public int getRowCount() {
+        return ROW_COUNT;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case COLUMN_SLOT:
+                return Integer.class;
+            case COLUMN_STATUS:
+                return SlotStatus.class;
+            default:
+                return CharSequence.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case COLUMN_SLOT:
+                return SLOT_NUMBERS[row];
+            case COLUMN_NAME:
+                entry.moveTo(row);
+                return entry.isOccupied() ? entry.getName() : "";
+            default:
+                return getStatus(row);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package net.melaircraft.owl.gui;
+
+import net.melaircraft.owl.library.SparseDiskBundle;
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SlotTableModelTest {
+    @Test
+    public void testRowsReflectSnapshot() {
+        SparseDiskBundle bundle = new SparseDiskBundle(10);
+        bundle.activate(1);
+        bundle.setName(1, "LOCKED");
+        bundle.activate(2);
+        bundle.unlock(2);
+        bundle.setName(2, "OPEN");
+
+        SlotTableModel model = new SlotTableModel();
+        model.update(CatalogueSnapshot.take(bundle), null);
+
+        assertEquals(511, model.getRowCount());
+        assertEquals("LOCKED", model.getValueAt(1, SlotTableModel.COLUMN_NAME).toString());
+        assertEquals(SlotTableModel.SlotStatus.LOCKED, model.getValueAt(1, SlotTableModel.COLUMN_STATUS));
+        assertEquals(SlotTableModel.SlotStatus.WRITABLE, model.getValueAt(2, SlotTableModel.COLUMN_STATUS));
+        assertEquals(SlotTableModel.SlotStatus.EMPTY, model.getValueAt(3, SlotTableModel.COLUMN_STATUS));
+        assertEquals("", model.getValueAt(3, SlotTableModel.COLUMN_NAME));
+    }
+
+    @Test
+    public void testSlotNumbersAreShared() {
+        SlotTableModel model = new SlotTableModel();
+
+        assertSame(model.getValueAt(400, SlotTableModel.COLUMN_SLOT), model.getValueAt(400, SlotTableModel.COLUMN_SLOT));
+        assertEquals(400, model.getValueAt(400, SlotTableModel.COLUMN_SLOT));
+    }
+
+    @Test
+    public void testUpdateFiresChangedRanges() {
+        SlotTableModel model = new SlotTableModel();
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+
+        BitSet changed = new BitSet();
+        changed.set(3, 6);
+        changed.set(100);
+
+        model.update(CatalogueSnapshot.EMPTY, changed);
+
+        assertEquals(2, events.size());
+        assertEquals(3, events.get(0).getFirstRow());
+        assertEquals(5, events.get(0).getLastRow());
+        assertEquals(100, events.get(1).getFirstRow());
+        assertEquals(100, events.get(1).getLastRow());
+    }
+}
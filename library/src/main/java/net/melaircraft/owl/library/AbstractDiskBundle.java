@@ -0,0 +1,607 @@
+package net.melaircraft.owl.library;
+
+import net.melaircraft.owl.library.event.BundleEventDispatcher;
+import net.melaircraft.owl.library.event.BundleListener;
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.event.ChangeType;
+import net.melaircraft.owl.library.exception.drive.InvalidDriveException;
+import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotRegionException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+import net.melaircraft.owl.library.exception.slot.ResizeWouldTruncateSlotException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base implementation of a disk bundle, providing the header and catalogue handling shared by every storage backend.
+ *
+ * Subclasses provide a buffer holding the header and catalogue, and the storage of disk image data. All validation
+ * is carried out before the storage methods are called.
+ */
+public abstract class AbstractDiskBundle implements DiskBundle {
+    /** Read only disk image of 0x00, used to wipe slots. */
+    private static final ByteBuffer ZERO_DISK = ByteBuffer.allocate(DISK_SIZE).asReadOnlyBuffer();
+
+    /** Dispatcher of change events to listeners. */
+    private final BundleEventDispatcher eventDispatcher = new BundleEventDispatcher(this);
+
+    /**
+     * Get the buffer holding the header and catalogue, the header must start at position 0 of the buffer. Changes to
+     * the catalogue are made directly to this buffer.
+     *
+     * @return catalogue buffer
+     */
+    protected abstract ByteBuffer getCatalogue();
+
+    /**
+     * Read part of the disk image of a slot, the slot and region have already been validated.
+     *
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image
+     * @param target buffer to fill from its position to its limit
+     */
+    protected abstract void readData(int slot, int offset, ByteBuffer target);
+
+    /**
+     * Write part of the disk image of a slot, the slot, region and lock have already been validated.
+     *
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image
+     * @param source buffer to write from its position to its limit
+     */
+    protected abstract void writeData(int slot, int offset, ByteBuffer source);
+
+    /**
+     * Change the amount of storage allocated, the new size has already been validated and differs from the current.
+     *
+     * @param slots new number of slots with storage
+     */
+    protected abstract void resizeStorage(int slots);
+
+    /**
+     * Wipe the disk image of a slot to 0x00, the slot has already been validated.
+     *
+     * @param slot slot number (0 - 510)
+     */
+    protected void wipeData(int slot) {
+        writeData(slot, 0, ZERO_DISK.duplicate());
+    }
+
+    @Override
+    public void setBootSlot(int drive, int slot) throws InvalidDriveException, InvalidSlotException {
+        checkDrive(drive);
+        checkSlot(slot);
+
+        byte value = (byte) (slot & 0xff);
+        byte hiValue = (byte) ((slot >> 8) & 0xff);
+
+        ByteBuffer catalogue = getCatalogue();
+        catalogue.put(drive, value);
+        catalogue.put(drive + 4, hiValue);
+
+        eventDispatcher.fire(ChangeType.BOOT_SLOT_CHANGED, drive);
+    }
+
+    @Override
+    public int getBootSlot(int drive) throws InvalidDriveException {
+        checkDrive(drive);
+
+        ByteBuffer catalogue = getCatalogue();
+        int value = catalogue.get(drive) & 0xff;
+        int hiValue = (catalogue.get(drive + 4) & 0xff) << 8;
+
+        return hiValue + value;
+    }
+
+    @Override
+    public boolean isOccupied(int slot) throws InvalidSlotException {
+        checkSlot(slot);
+
+        byte value = getCatalogue().get(getSlotPos(slot) + HEADER_FLAG_OFFSET);
+        return (value & HEADER_FLAG_DISK_UNFORMATTED) != HEADER_FLAG_DISK_UNFORMATTED;
+    }
+
+    @Override
+    public void activate(int slot) throws InvalidSlotException {
+        checkSlot(slot);
+
+        if (slot >= getStorageSize()) {
+            throw new NoStorageSlotException(slot);
+        }
+
+        boolean wasOccupied = isOccupied(slot);
+
+        unsetFlag(slot, HEADER_FLAG_DISK_UNFORMATTED);
+
+        if (!wasOccupied) {
+            eventDispatcher.fire(ChangeType.ACTIVATED, slot);
+        }
+    }
+
+    @Override
+    public void deactivate(int slot, boolean wipe) throws InvalidSlotException, LockedSlotException {
+        checkSlot(slot);
+
+        boolean wasOccupied = isOccupied(slot);
+
+        if (wasOccupied && isLocked(slot)) {
+            throw new LockedSlotException(slot);
+        }
+
+        unsetFlag(slot, HEADER_FLAG_DISK_WRITEABLE);
+        setFlag(slot, HEADER_FLAG_DISK_UNFORMATTED);
+
+        if (wasOccupied) {
+            eventDispatcher.fire(ChangeType.DEACTIVATED, slot);
+        }
+
+        if (wipe && slot < getStorageSize()) {
+            wipeData(slot);
+
+            eventDispatcher.fire(ChangeType.INSERTED, slot);
+        }
+    }
+
+    @Override
+    public Disk extract(int slot) throws InvalidSlotException, InactivateSlotException, NoStorageSlotException {
+        checkSlot(slot);
+        checkSlotOccupied(slot);
+
+        if (slot >= getStorageSize()) {
+            throw new NoStorageSlotException(slot);
+        }
+
+        ByteBufferDisk disk = new ByteBufferDisk();
+        readData(slot, 0, disk.getByteBuffer().duplicate());
+
+        return disk;
+    }
+
+    @Override
+    public void insert(int slot, Disk disk) throws InvalidSlotException, LockedSlotException {
+        checkSlot(slot);
+
+        if (isOccupied(slot) && isLocked(slot)) {
+            throw new LockedSlotException(slot);
+        }
+
+        if (slot >= getStorageSize()) {
+            throw new NoStorageSlotException(slot);
+        }
+
+        byte[] image = disk.getImage();
+        writeData(slot, 0, ByteBuffer.wrap(image, 0, Math.min(image.length, DISK_SIZE)));
+
+        eventDispatcher.fire(ChangeType.INSERTED, slot);
+    }
+
+    @Override
+    public void read(int slot, int offset, ByteBuffer target) throws InvalidSlotException, NoStorageSlotException, InvalidSlotRegionException {
+        checkRegion(slot, offset, target.remaining());
+
+        readData(slot, offset, target);
+    }
+
+    @Override
+    public void write(int slot, int offset, ByteBuffer source) throws InvalidSlotException, NoStorageSlotException, InvalidSlotRegionException, LockedSlotException {
+        checkRegion(slot, offset, source.remaining());
+
+        if (isOccupied(slot) && isLocked(slot)) {
+            throw new LockedSlotException(slot);
+        }
+
+        writeData(slot, offset, source);
+
+        eventDispatcher.fire(ChangeType.INSERTED, slot);
+    }
+
+    @Override
+    public boolean isLocked(int slot) throws InvalidSlotException, InactivateSlotException {
+        checkSlot(slot);
+        checkSlotOccupied(slot);
+
+        byte value = getCatalogue().get(getSlotPos(slot) + HEADER_FLAG_OFFSET);
+        return (value & HEADER_FLAG_DISK_WRITEABLE) != HEADER_FLAG_DISK_WRITEABLE;
+    }
+
+    @Override
+    public void lock(int slot) throws InvalidSlotException, InactivateSlotException {
+        checkSlot(slot);
+        checkSlotOccupied(slot);
+
+        boolean wasLocked = isLocked(slot);
+
+        unsetFlag(slot, HEADER_FLAG_DISK_WRITEABLE);
+
+        if (!wasLocked) {
+            eventDispatcher.fire(ChangeType.LOCK_CHANGED, slot);
+        }
+    }
+
+    @Override
+    public void unlock(int slot) throws InvalidSlotException, InactivateSlotException {
+        checkSlot(slot);
+        checkSlotOccupied(slot);
+
+        boolean wasLocked = isLocked(slot);
+
+        setFlag(slot, HEADER_FLAG_DISK_WRITEABLE);
+
+        if (wasLocked) {
+            eventDispatcher.fire(ChangeType.LOCK_CHANGED, slot);
+        }
+    }
+
+    @Override
+    public String getName(int slot) throws InvalidSlotException {
+        checkSlot(slot);
+
+        return new CatalogueEntry(getCatalogue()).moveTo(slot).getName().toString();
+    }
+
+    @Override
+    public void setName(int slot, String name) throws InvalidSlotException {
+        checkSlot(slot);
+
+        putName(getCatalogue(), slot, name);
+
+        eventDispatcher.fire(ChangeType.RENAMED, slot);
+    }
+
+    @Override
+    public void forEachEntry(CatalogueVisitor visitor) {
+        CatalogueEntry entry = new CatalogueEntry(getCatalogue());
+
+        for (int slot = 0; slot < 511; slot++) {
+            visitor.visit(entry.moveTo(slot));
+        }
+    }
+
+    @Override
+    public void changeStorageSize(int slots) throws InvalidSlotException, ResizeWouldTruncateSlotException {
+        checkResize(slots);
+
+        if (getStorageSize() != slots) {
+            resizeStorage(slots);
+
+            eventDispatcher.fire(ChangeType.RESIZED);
+        }
+    }
+
+    @Override
+    public void addListener(BundleListener listener) {
+        eventDispatcher.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(BundleListener listener) {
+        eventDispatcher.removeListener(listener);
+    }
+
+    @Override
+    public ChangeBatch batchChanges() {
+        return eventDispatcher.batch();
+    }
+
+    /**
+     * Start a transaction, staging changes which are validated together and then applied with a single catalogue
+     * write when committed.
+     *
+     * @return new transaction
+     */
+    public BundleTransaction beginTransaction() {
+        return new BundleTransaction(this);
+    }
+
+    /**
+     * Start a bulk edit of the catalogue, changing flags and names of many slots in a copy of the catalogue which is
+     * then written back in one piece.
+     *
+     * @return new catalogue editor
+     */
+    public CatalogueEditor editCatalogue() {
+        return new CatalogueEditor(this);
+    }
+
+    /**
+     * Force any changes in the bundle to be written to the underlying storage device, bundles held only in memory do
+     * nothing.
+     */
+    public void flush() {
+    }
+
+    /**
+     * Replace the header and catalogue with a copy read from elsewhere, such as the bundle file after it was changed
+     * by another program. Locks are not checked, listeners are told of each entry which differs.
+     *
+     * @param catalogue buffer holding the header and catalogue from its position, the buffer is not modified
+     */
+    public void refreshCatalogue(ByteBuffer catalogue) {
+        ByteBuffer source = catalogue.duplicate();
+        source.limit(source.position() + INITIAL_OFFSET);
+
+        try (ChangeBatch ignored = eventDispatcher.batch()) {
+            if (eventDispatcher.hasListeners()) {
+                fireCatalogueDifferences(source.slice());
+            }
+
+            ByteBuffer target = getCatalogue().duplicate();
+            target.position(0);
+            target.put(source);
+        }
+    }
+
+    /**
+     * Replace the disk image of a slot with a copy read from elsewhere, such as the bundle file after it was changed by
+     * another program. Locks are not checked.
+     *
+     * @param slot slot number (0 - 510)
+     * @param data buffer holding a complete disk image from its position, the buffer is not modified
+     * @throws InvalidSlotException if the slot number provided is not valid
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     */
+    public void refreshSlot(int slot, ByteBuffer data) throws InvalidSlotException, NoStorageSlotException {
+        ByteBuffer source = data.duplicate();
+        source.limit(source.position() + DISK_SIZE);
+
+        refreshData(slot, 0, source);
+    }
+
+    /**
+     * Replace part of the disk image of a slot with a copy read from elsewhere, such as a patch. Locks are not
+     * checked.
+     *
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image
+     * @param data buffer holding the replacement from its position to its limit, the buffer is not modified
+     * @throws InvalidSlotException if the slot number provided is not valid
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     * @throws InvalidSlotRegionException if the region extends outside of the disk image
+     */
+    public void refreshData(int slot, int offset, ByteBuffer data) throws InvalidSlotException, NoStorageSlotException, InvalidSlotRegionException {
+        checkRegion(slot, offset, data.remaining());
+
+        writeData(slot, offset, data.duplicate());
+
+        eventDispatcher.fire(ChangeType.INSERTED, slot);
+    }
+
+    /**
+     * Get a read only view of the disk image of a slot without copying it, for backends which hold their data in
+     * memory. The view reflects later writes to the slot, and is only valid until the storage size is changed.
+     *
+     * @param slot slot number (0 - 510)
+     * @return buffer holding the disk image from position 0, or null if the backend cannot provide a view
+     * @throws InvalidSlotException if the slot number provided is not valid
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     */
+    public ByteBuffer viewData(int slot) throws InvalidSlotException, NoStorageSlotException {
+        checkRegion(slot, 0, DISK_SIZE);
+
+        return null;
+    }
+
+    /**
+     * Copy the header and catalogue into a buffer.
+     *
+     * @param target buffer to fill from its position, its position is advanced by the size of the catalogue
+     */
+    public void readCatalogue(ByteBuffer target) {
+        ByteBuffer source = getCatalogue().duplicate();
+        source.position(0);
+        source.limit(INITIAL_OFFSET);
+
+        target.put(source);
+    }
+
+    /**
+     * Check that the bundle can be resized to the slot count, if not throw an exception.
+     *
+     * @param slots new number of allocated slots
+     * @throws InvalidSlotException if the slot count provided is invalid
+     * @throws ResizeWouldTruncateSlotException if an occupied slot would be lost by the resize
+     */
+    protected void checkResize(int slots) throws InvalidSlotException, ResizeWouldTruncateSlotException {
+        if (slots < 0 || slots > 511) {
+            throw new InvalidSlotException(slots);
+        }
+
+        for (int i = slots; i < 511; i++) {
+            if (isOccupied(i)) {
+                throw new ResizeWouldTruncateSlotException(i);
+            }
+        }
+    }
+
+    /**
+     * Check that a region of a slot is valid and has storage, if not throw an exception.
+     *
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image
+     * @param length length of region in bytes
+     * @throws InvalidSlotException if the slot number provided is not valid
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     * @throws InvalidSlotRegionException if the region extends outside of the disk image
+     */
+    protected void checkRegion(int slot, int offset, int length) throws InvalidSlotException, NoStorageSlotException, InvalidSlotRegionException {
+        checkSlot(slot);
+
+        if (slot >= getStorageSize()) {
+            throw new NoStorageSlotException(slot);
+        }
+
+        if (offset < 0 || length < 0 || offset > DISK_SIZE - length) {
+            throw new InvalidSlotRegionException(slot, offset, length);
+        }
+    }
+
+    /**
+     * Check to see if a drive is valid, if not throw an exception.
+     *
+     * @param drive drive number to check
+     * @throws InvalidDriveException if the drive provided is invalid
+     */
+    protected void checkDrive(int drive) throws InvalidDriveException {
+        if (drive < 0 || drive > 3) {
+            throw new InvalidDriveException(drive);
+        }
+    }
+
+    /**
+     * Check to see if a slot is valid, if not throw an exception.
+     *
+     * @param slot slot number to check
+     * @throws InvalidSlotException if the slot provided is invalid
+     */
+    protected void checkSlot(int slot) throws InvalidSlotException {
+        if (slot < 0 || slot > 510) {
+            throw new InvalidSlotException(slot);
+        }
+    }
+
+    /**
+     * Check to see if a slot is occupied, if not throw an exception.
+     *
+     * @param slot slot number to check
+     * @throws InactivateSlotException if the slot provided is inactive
+     */
+    protected void checkSlotOccupied(int slot) throws InactivateSlotException {
+        if (!isOccupied(slot)) {
+            throw new InactivateSlotException(slot);
+        }
+    }
+
+    /**
+     * Calculate the byte size of a bundle with the slot count.
+     *
+     * @param slots number of allocated slots
+     * @return byte could of a bundle which can contain the slot count
+     */
+    protected static int calculateStorageSize(int slots) {
+        return INITIAL_OFFSET + (DISK_SIZE * slots);
+    }
+
+    /**
+     * Get the byte position in the catalogue of a slots entry.
+     *
+     * @param slot slot position
+     * @return byte position in catalogue
+     */
+    protected static int getSlotPos(int slot) {
+        return 16 * (slot + 1);
+    }
+
+    /**
+     * Write the name of a slot into a catalogue, the name ends at the first space and is truncated to the maximum
+     * title length.
+     *
+     * @param catalogue buffer holding the header and catalogue at position 0
+     * @param slot slot number (0 - 510)
+     * @param name new name of slot
+     */
+    static void putName(ByteBuffer catalogue, int slot, String name) {
+        String[] spaceSplitName = name.split(" ", 2);
+        byte[] nameBytes = spaceSplitName[0].getBytes(StandardCharsets.US_ASCII);
+
+        for (int i = 0; i < MAXIMUM_DISK_TITLE; i++) {
+            catalogue.put(getSlotPos(slot) + i, i < nameBytes.length ? nameBytes[i] : 0);
+        }
+    }
+
+    /**
+     * Reset a header and catalogue to that of a new bundle, with no boot slots, no names and every slot unformatted.
+     *
+     * @param catalogue buffer holding the header and catalogue at position 0
+     */
+    protected static void clearCatalogue(ByteBuffer catalogue) {
+        for (int i = 0; i < INITIAL_OFFSET; i++) {
+            catalogue.put(i, (byte) 0);
+        }
+
+        for (int slot = 0; slot < 511; slot++) {
+            catalogue.put(getSlotPos(slot) + HEADER_FLAG_OFFSET, HEADER_FLAG_DISK_UNFORMATTED);
+        }
+    }
+
+    /**
+     * Set a flag in the bundle catalogue.
+     *
+     * @param slot slot to set on
+     * @param flag flag to set
+     */
+    protected void setFlag(int slot, byte flag) {
+        ByteBuffer catalogue = getCatalogue();
+        int position = getSlotPos(slot) + HEADER_FLAG_OFFSET;
+
+        byte value = catalogue.get(position);
+        byte newValue = (byte) (value | flag);
+
+        catalogue.put(position, newValue);
+    }
+
+    /**
+     * Unset a flag in the bundle catalogue.
+     *
+     * @param slot slot to set on
+     * @param flag flag to unset
+     */
+    protected void unsetFlag(int slot, byte flag) {
+        ByteBuffer catalogue = getCatalogue();
+        int position = getSlotPos(slot) + HEADER_FLAG_OFFSET;
+
+        byte value = catalogue.get(position);
+        byte newValue = (byte) (value & ~flag);
+
+        catalogue.put(position, newValue);
+    }
+
+    /**
+     * Get the dispatcher of change events, used by subclasses to report their own changes.
+     *
+     * @return event dispatcher
+     */
+    protected BundleEventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * Compare the current catalogue with a replacement and report each difference to listeners.
+     *
+     * @param replacement buffer holding the replacement header and catalogue at position 0
+     */
+    private void fireCatalogueDifferences(ByteBuffer replacement) {
+        ByteBuffer catalogue = getCatalogue();
+
+        for (int drive = 0; drive < 4; drive++) {
+            if (catalogue.get(drive) != replacement.get(drive) || catalogue.get(drive + 4) != replacement.get(drive + 4)) {
+                eventDispatcher.fire(ChangeType.BOOT_SLOT_CHANGED, drive);
+            }
+        }
+
+        CatalogueEntry current = new CatalogueEntry(catalogue);
+        CatalogueEntry updated = new CatalogueEntry(replacement);
+
+        for (int slot = 0; slot < 511; slot++) {
+            current.moveTo(slot);
+            updated.moveTo(slot);
+
+            if (current.isOccupied() != updated.isOccupied()) {
+                eventDispatcher.fire(updated.isOccupied() ? ChangeType.ACTIVATED : ChangeType.DEACTIVATED, slot);
+            }
+
+            if (current.isLocked() != updated.isLocked()) {
+                eventDispatcher.fire(ChangeType.LOCK_CHANGED, slot);
+            }
+
+            for (int i = 0; i < MAXIMUM_DISK_TITLE; i++) {
+                if (catalogue.get(getSlotPos(slot) + i) != replacement.get(getSlotPos(slot) + i)) {
+                    eventDispatcher.fire(ChangeType.RENAMED, slot);
+                    break;
+                }
+            }
+        }
+    }
+}
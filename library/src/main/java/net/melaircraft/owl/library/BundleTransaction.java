@@ -0,0 +1,433 @@
+package net.melaircraft.owl.library;
+
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.event.ChangeType;
+import net.melaircraft.owl.library.exception.drive.InvalidDriveException;
+import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+import net.melaircraft.owl.library.exception.slot.ResizeWouldTruncateSlotException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of changes to a disk bundle, staged and then applied together.
+ *
+ * Nothing is changed until {@link #commit()}, which first validates every staged operation in order against a copy
+ * of the catalogue, throwing the same exceptions as the equivalent {@link DiskBundle} method if any is invalid. Only
+ * if all are valid is the bundle changed: storage is grown if needed, disk images are written, the new catalogue is
+ * written in one piece, storage is shrunk if needed and the bundle is flushed once. Listeners receive a single batch
+ * of events.
+ *
+ * Disk images are written before the catalogue, so a failure of the storage device part way through leaves the old
+ * catalogue in place. Transactions are not thread safe, and the bundle must not be changed by other means between
+ * staging and commit.
+ */
+public class BundleTransaction {
+    /**
+     * Type of a staged operation.
+     */
+    private enum OperationType {
+        /** Activate a slot. */
+        ACTIVATE,
+        /** Deactivate a slot, optionally wiping it. */
+        DEACTIVATE,
+        /** Insert a disk image into a slot. */
+        INSERT,
+        /** Rename a slot. */
+        SET_NAME,
+        /** Lock a slot. */
+        LOCK,
+        /** Unlock a slot. */
+        UNLOCK,
+        /** Set the boot slot of a drive. */
+        SET_BOOT_SLOT,
+        /** Change the number of slots with storage. */
+        CHANGE_STORAGE_SIZE
+    }
+
+    /**
+     * A staged operation, only the fields used by its type are set.
+     */
+    private static final class Operation {
+        /** Type of operation. */
+        private final OperationType type;
+        /** Slot changed, or the drive for a boot slot change, or the slot count for a resize. */
+        private final int slot;
+        /** Boot slot to set. */
+        private final int value;
+        /** True to wipe a deactivated slot. */
+        private final boolean wipe;
+        /** New name of slot. */
+        private final String name;
+        /** Disk to insert. */
+        private final Disk disk;
+
+        /**
+         * Construct a new operation.
+         *
+         * @param type type of operation
+         * @param slot slot changed, drive or slot count
+         * @param value boot slot to set
+         * @param wipe true to wipe a deactivated slot
+         * @param name new name of slot
+         * @param disk disk to insert
+         */
+        private Operation(OperationType type, int slot, int value, boolean wipe, String name, Disk disk) {
+            this.type = type;
+            this.slot = slot;
+            this.value = value;
+            this.wipe = wipe;
+            this.name = name;
+            this.disk = disk;
+        }
+    }
+
+    /** Bundle being changed. */
+    private final AbstractDiskBundle bundle;
+    /** Operations staged, in order. */
+    private final List<Operation> operations = new ArrayList<>();
+    /** True once committed. */
+    private boolean committed;
+
+    /**
+     * Construct a new transaction, use {@link AbstractDiskBundle#beginTransaction()}.
+     *
+     * @param bundle bundle to change
+     */
+    BundleTransaction(AbstractDiskBundle bundle) {
+        this.bundle = bundle;
+    }
+
+    /**
+     * Stage activation of a slot, see {@link DiskBundle#activate(int)}.
+     *
+     * @param slot slot number (0 - 510)
+     * @return this transaction
+     */
+    public BundleTransaction activate(int slot) {
+        return stage(new Operation(OperationType.ACTIVATE, slot, 0, false, null, null));
+    }
+
+    /**
+     * Stage deactivation of a slot, see {@link DiskBundle#deactivate(int, boolean)}.
+     *
+     * @param slot slot number (0 - 510)
+     * @param wipe true to wipe the disk image to 0x00
+     * @return this transaction
+     */
+    public BundleTransaction deactivate(int slot, boolean wipe) {
+        return stage(new Operation(OperationType.DEACTIVATE, slot, 0, wipe, null, null));
+    }
+
+    /**
+     * Stage insertion of a disk image into a slot, see {@link DiskBundle#insert(int, Disk)}. The image is read when
+     * the transaction is committed.
+     *
+     * @param slot slot number (0 - 510)
+     * @param disk disk to insert
+     * @return this transaction
+     */
+    public BundleTransaction insert(int slot, Disk disk) {
+        return stage(new Operation(OperationType.INSERT, slot, 0, false, null, disk));
+    }
+
+    /**
+     * Stage renaming of a slot, see {@link DiskBundle#setName(int, String)}.
+     *
+     * @param slot slot number (0 - 510)
+     * @param name new name of slot
+     * @return this transaction
+     */
+    public BundleTransaction setName(int slot, String name) {
+        return stage(new Operation(OperationType.SET_NAME, slot, 0, false, name, null));
+    }
+
+    /**
+     * Stage locking of a slot, see {@link DiskBundle#lock(int)}.
+     *
+     * @param slot slot number (0 - 510)
+     * @return this transaction
+     */
+    public BundleTransaction lock(int slot) {
+        return stage(new Operation(OperationType.LOCK, slot, 0, false, null, null));
+    }
+
+    /**
+     * Stage unlocking of a slot, see {@link DiskBundle#unlock(int)}.
+     *
+     * @param slot slot number (0 - 510)
+     * @return this transaction
+     */
+    public BundleTransaction unlock(int slot) {
+        return stage(new Operation(OperationType.UNLOCK, slot, 0, false, null, null));
+    }
+
+    /**
+     * Stage a change of the boot slot of a drive, see {@link DiskBundle#setBootSlot(int, int)}.
+     *
+     * @param drive drive number (0 - 3)
+     * @param slot slot number (0 - 510)
+     * @return this transaction
+     */
+    public BundleTransaction setBootSlot(int drive, int slot) {
+        return stage(new Operation(OperationType.SET_BOOT_SLOT, drive, slot, false, null, null));
+    }
+
+    /**
+     * Stage a change of the number of slots with storage, see {@link DiskBundle#changeStorageSize(int)}.
+     *
+     * @param slots new number of slots with storage
+     * @return this transaction
+     */
+    public BundleTransaction changeStorageSize(int slots) {
+        return stage(new Operation(OperationType.CHANGE_STORAGE_SIZE, slots, 0, false, null, null));
+    }
+
+    /**
+     * Get the number of operations staged.
+     *
+     * @return operation count
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Validate and apply every staged operation. If any operation is invalid its exception is thrown and the bundle
+     * is not changed.
+     *
+     * @throws InvalidSlotException if a slot number or slot count is invalid
+     * @throws InvalidDriveException if a drive number is invalid
+     * @throws InactivateSlotException if a slot is locked or unlocked while not occupied
+     * @throws LockedSlotException if a locked slot is deactivated or has a disk inserted
+     * @throws NoStorageSlotException if a slot without storage is activated or has a disk inserted
+     * @throws ResizeWouldTruncateSlotException if a storage change would lose an occupied slot
+     */
+    public void commit() throws InvalidSlotException, InvalidDriveException, InactivateSlotException, LockedSlotException, NoStorageSlotException, ResizeWouldTruncateSlotException {
+        if (committed) {
+            throw new IllegalStateException("Transaction has already been committed.");
+        }
+
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        ByteBuffer current = bundle.getCatalogue().duplicate();
+        current.position(0).limit(DiskBundle.INITIAL_OFFSET);
+        catalogue.put(current);
+
+        int originalStorage = bundle.getStorageSize();
+        int storage = originalStorage;
+        int maximumStorage = storage;
+
+        for (Operation operation : operations) {
+            storage = validate(catalogue, storage, operation);
+            maximumStorage = Math.max(maximumStorage, storage);
+        }
+
+        committed = true;
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            if (maximumStorage > originalStorage) {
+                bundle.resizeStorage(maximumStorage);
+            }
+
+            for (Operation operation : operations) {
+                applyData(operation);
+            }
+
+            catalogue.clear();
+            bundle.refreshCatalogue(catalogue);
+
+            if (storage < maximumStorage) {
+                bundle.resizeStorage(storage);
+            }
+
+            if (storage != originalStorage) {
+                bundle.getEventDispatcher().fire(ChangeType.RESIZED);
+            }
+
+            bundle.flush();
+        }
+    }
+
+    /**
+     * Stage an operation.
+     *
+     * @param operation operation to stage
+     * @return this transaction
+     */
+    private BundleTransaction stage(Operation operation) {
+        if (committed) {
+            throw new IllegalStateException("Transaction has already been committed.");
+        }
+
+        operations.add(operation);
+        return this;
+    }
+
+    /**
+     * Validate an operation and apply its effect to the copy of the catalogue.
+     *
+     * @param catalogue copy of the header and catalogue
+     * @param storage number of slots with storage before the operation
+     * @param operation operation to validate
+     * @return number of slots with storage after the operation
+     */
+    private int validate(ByteBuffer catalogue, int storage, Operation operation) {
+        int slot = operation.slot;
+
+        switch (operation.type) {
+            case ACTIVATE:
+                checkSlot(slot);
+
+                if (slot >= storage) {
+                    throw new NoStorageSlotException(slot);
+                }
+
+                setFlags(catalogue, slot, (byte) (getFlags(catalogue, slot) & ~DiskBundle.HEADER_FLAG_DISK_UNFORMATTED));
+                return storage;
+            case DEACTIVATE:
+                checkSlot(slot);
+
+                if (isLocked(catalogue, slot)) {
+                    throw new LockedSlotException(slot);
+                }
+
+                setFlags(catalogue, slot, DiskBundle.HEADER_FLAG_DISK_UNFORMATTED);
+                return storage;
+            case INSERT:
+                checkSlot(slot);
+
+                if (isLocked(catalogue, slot)) {
+                    throw new LockedSlotException(slot);
+                }
+
+                if (slot >= storage) {
+                    throw new NoStorageSlotException(slot);
+                }
+
+                return storage;
+            case SET_NAME:
+                checkSlot(slot);
+
+                AbstractDiskBundle.putName(catalogue, slot, operation.name);
+                return storage;
+            case LOCK:
+            case UNLOCK:
+                checkSlot(slot);
+
+                if (!isOccupied(catalogue, slot)) {
+                    throw new InactivateSlotException(slot);
+                }
+
+                byte flags = getFlags(catalogue, slot);
+
+                if (operation.type == OperationType.LOCK) {
+                    setFlags(catalogue, slot, (byte) (flags & ~DiskBundle.HEADER_FLAG_DISK_WRITEABLE));
+                } else {
+                    setFlags(catalogue, slot, (byte) (flags | DiskBundle.HEADER_FLAG_DISK_WRITEABLE));
+                }
+
+                return storage;
+            case SET_BOOT_SLOT:
+                if (slot < 0 || slot > 3) {
+                    throw new InvalidDriveException(slot);
+                }
+
+                checkSlot(operation.value);
+
+                catalogue.put(slot, (byte) (operation.value & 0xff));
+                catalogue.put(slot + 4, (byte) ((operation.value >> 8) & 0xff));
+                return storage;
+            default:
+                if (slot < 0 || slot > 511) {
+                    throw new InvalidSlotException(slot);
+                }
+
+                for (int i = slot; i < 511; i++) {
+                    if (isOccupied(catalogue, i)) {
+                        throw new ResizeWouldTruncateSlotException(i);
+                    }
+                }
+
+                return slot;
+        }
+    }
+
+    /**
+     * Apply the disk image change of an operation, if it has one.
+     *
+     * @param operation operation to apply
+     */
+    private void applyData(Operation operation) {
+        int slot = operation.slot;
+
+        if (operation.type == OperationType.INSERT) {
+            byte[] image = operation.disk.getImage();
+            bundle.writeData(slot, 0, ByteBuffer.wrap(image, 0, Math.min(image.length, DiskBundle.DISK_SIZE)));
+            bundle.getEventDispatcher().fire(ChangeType.INSERTED, slot);
+        } else if (operation.type == OperationType.DEACTIVATE && operation.wipe && slot < bundle.getStorageSize()) {
+            bundle.wipeData(slot);
+            bundle.getEventDispatcher().fire(ChangeType.INSERTED, slot);
+        }
+    }
+
+    /**
+     * Check to see if a slot is valid, if not throw an exception.
+     *
+     * @param slot slot number to check
+     * @throws InvalidSlotException if the slot provided is invalid
+     */
+    private static void checkSlot(int slot) throws InvalidSlotException {
+        if (slot < 0 || slot > 510) {
+            throw new InvalidSlotException(slot);
+        }
+    }
+
+    /**
+     * Get the flags of a slot from the copy of the catalogue.
+     *
+     * @param catalogue copy of the header and catalogue
+     * @param slot slot number (0 - 510)
+     * @return flags of slot
+     */
+    private static byte getFlags(ByteBuffer catalogue, int slot) {
+        return catalogue.get(AbstractDiskBundle.getSlotPos(slot) + DiskBundle.HEADER_FLAG_OFFSET);
+    }
+
+    /**
+     * Set the flags of a slot in the copy of the catalogue.
+     *
+     * @param catalogue copy of the header and catalogue
+     * @param slot slot number (0 - 510)
+     * @param flags new flags of slot
+     */
+    private static void setFlags(ByteBuffer catalogue, int slot, byte flags) {
+        catalogue.put(AbstractDiskBundle.getSlotPos(slot) + DiskBundle.HEADER_FLAG_OFFSET, flags);
+    }
+
+    /**
+     * Check to see if a slot is occupied in the copy of the catalogue.
+     *
+     * @param catalogue copy of the header and catalogue
+     * @param slot slot number (0 - 510)
+     * @return true if occupied
+     */
+    private static boolean isOccupied(ByteBuffer catalogue, int slot) {
+        return (getFlags(catalogue, slot) & DiskBundle.HEADER_FLAG_DISK_UNFORMATTED) != DiskBundle.HEADER_FLAG_DISK_UNFORMATTED;
+    }
+
+    /**
+     * Check to see if a slot is occupied and locked in the copy of the catalogue.
+     *
+     * @param catalogue copy of the header and catalogue
+     * @param slot slot number (0 - 510)
+     * @return true if occupied and locked
+     */
+    private static boolean isLocked(ByteBuffer catalogue, int slot) {
+        return isOccupied(catalogue, slot)
+                && (getFlags(catalogue, slot) & DiskBundle.HEADER_FLAG_DISK_WRITEABLE) != DiskBundle.HEADER_FLAG_DISK_WRITEABLE;
+    }
+}
@@ -1,20 +1,18 @@
 package net.melaircraft.owl.library;
 
-import net.melaircraft.owl.library.exception.drive.InvalidDriveException;
-import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
 import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
-import net.melaircraft.owl.library.exception.slot.LockedSlotException;
 import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
-import net.melaircraft.owl.library.exception.slot.ResizeWouldTruncateSlotException;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.util.stream.IntStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Implementation of a disk bundle backed by a byte buffer.
  */
-public class ByteBufferDiskBundle implements DiskBundle {
+public class ByteBufferDiskBundle extends AbstractDiskBundle {
     /** Underlying ByteBuffer for storage. */
     private ByteBuffer byteBuffer;
 
@@ -36,284 +34,125 @@ public class ByteBufferDiskBundle implements DiskBundle {
         }
 
         byteBuffer = ByteBuffer.allocate(calculateStorageSize(initialSlots));
-
-        for (int slot = 0; slot < 511; slot++) {
-            setFlag(slot, HEADER_FLAG_DISK_UNFORMATTED);
-        }
-    }
-
-    @Override
-    public void setBootSlot(int drive, int slot) throws InvalidDriveException, InvalidSlotException {
-        checkDrive(drive);
-        checkSlot(slot);
-
-        byte value = (byte) (slot & 0xff);
-        byte hiValue = (byte) ((slot >> 8) & 0xff);
-
-        byteBuffer.put(drive, value);
-        byteBuffer.put(drive + 4, hiValue);
+        clearCatalogue(byteBuffer);
     }
 
-    @Override
-    public int getBootSlot(int drive) throws InvalidDriveException {
-        checkDrive(drive);
-
-        int value = byteBuffer.get(drive) & 0xff;
-        int hiValue = (byteBuffer.get(drive + 4) & 0xff) << 8;
-
-        return hiValue + value;
-    }
-
-    @Override
-    public boolean isOccupied(int slot) throws InvalidSlotException {
-        checkSlot(slot);
-
-        byte value = byteBuffer.get(getSlotPos(slot) + HEADER_FLAG_OFFSET);
-        return (value & HEADER_FLAG_DISK_UNFORMATTED) != HEADER_FLAG_DISK_UNFORMATTED;
-    }
-
-    @Override
-    public void activate(int slot) throws InvalidSlotException {
-        checkSlot(slot);
-
-        if (slot >= getStorageSize()) {
-            throw new NoStorageSlotException(slot);
-        }
-
-        unsetFlag(slot, HEADER_FLAG_DISK_UNFORMATTED);
+    /**
+     * Construct a byte buffer disk bundle around an existing MMB image, the image is used as is and not initialised.
+     *
+     * @param byteBuffer buffer containing a complete MMB image
+     */
+    protected ByteBufferDiskBundle(ByteBuffer byteBuffer) {
+        this.byteBuffer = byteBuffer;
     }
 
-    @Override
-    public void deactivate(int slot, boolean wipe) throws InvalidSlotException, LockedSlotException {
-        checkSlot(slot);
-
-        if (isOccupied(slot) && isLocked(slot)) {
-            throw new LockedSlotException(slot);
-        }
-
-        unsetFlag(slot, HEADER_FLAG_DISK_WRITEABLE);
-        setFlag(slot, HEADER_FLAG_DISK_UNFORMATTED);
+    /**
+     * Read a complete MMB file into a new in memory disk bundle.
+     *
+     * @param path path to MMB file
+     * @return disk bundle holding a copy of the file
+     * @throws IOException if the file could not be read or is not a MMB file
+     */
+    public static ByteBufferDiskBundle read(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = fileChannel.size();
 
-        if (wipe) {
-            for (int i = 0; i < DISK_SIZE; i++) {
-                byteBuffer.put(INITIAL_OFFSET + (DISK_SIZE * slot) + i, (byte) 0);
+            if (size < INITIAL_OFFSET || size > calculateStorageSize(511)) {
+                throw new IOException(path + " is not a valid MMB file, size is " + size + ".");
             }
-        }
-    }
-
-    @Override
-    public Disk extract(int slot) throws InvalidSlotException, InactivateSlotException, NoStorageSlotException {
-        checkSlot(slot);
-        checkSlotOccupied(slot);
-
-        if (slot >= getStorageSize()) {
-            throw new NoStorageSlotException(slot);
-        }
-
-        byte[] diskRaw = new byte[DiskBundle.DISK_SIZE];
-
-        for (int i = 0; i < DiskBundle.DISK_SIZE; i++) {
-            diskRaw[i] = byteBuffer.get(INITIAL_OFFSET + (DISK_SIZE * slot) + i);
-        }
-
-        return new ByteBufferDisk(diskRaw);
-    }
 
-    @Override
-    public void insert(int slot, Disk disk) throws InvalidSlotException, LockedSlotException {
-        checkSlot(slot);
+            ByteBuffer image = ByteBuffer.allocate(calculateStorageSize((int) ((size - INITIAL_OFFSET) / DISK_SIZE)));
 
-        if (isOccupied(slot) && isLocked(slot)) {
-            throw new LockedSlotException(slot);
-        }
+            while (image.hasRemaining() && fileChannel.read(image) >= 0) {
+                /* Keep reading until the image is complete. */
+            }
 
-        for (int i = 0; i < disk.getImage().length && i < DiskBundle.DISK_SIZE; i++) {
-            byteBuffer.put(DiskBundle.INITIAL_OFFSET + (slot * DiskBundle.DISK_SIZE) + i, disk.getImage()[i]);
+            image.clear();
+            return new ByteBufferDiskBundle(image);
         }
     }
 
     @Override
-    public boolean isLocked(int slot) throws InvalidSlotException, InactivateSlotException {
-        checkSlot(slot);
-        checkSlotOccupied(slot);
-
-        byte value = byteBuffer.get(getSlotPos(slot) + HEADER_FLAG_OFFSET);
-        return (value & HEADER_FLAG_DISK_WRITEABLE) != HEADER_FLAG_DISK_WRITEABLE;
+    public int getStorageSize() {
+        return (byteBuffer.limit() - INITIAL_OFFSET) / DISK_SIZE;
     }
 
     @Override
-    public void lock(int slot) throws InvalidSlotException, InactivateSlotException {
-        checkSlot(slot);
-        checkSlotOccupied(slot);
-
-        unsetFlag(slot, HEADER_FLAG_DISK_WRITEABLE);
+    protected ByteBuffer getCatalogue() {
+        return byteBuffer;
     }
 
     @Override
-    public void unlock(int slot) throws InvalidSlotException, InactivateSlotException {
-        checkSlot(slot);
-        checkSlotOccupied(slot);
-
-        setFlag(slot, HEADER_FLAG_DISK_WRITEABLE);
+    protected void readData(int slot, int offset, ByteBuffer target) {
+        target.put(slotRegion(slot, offset, target.remaining()));
     }
 
     @Override
-    public String getName(int slot) throws InvalidSlotException {
-        checkSlot(slot);
-
-        byte[] nameBytes = new byte[MAXIMUM_DISK_TITLE];
-
-        byteBuffer.position(getSlotPos(slot));
-        byteBuffer.get(nameBytes);
-
-        int validLength = IntStream.range(0, nameBytes.length).filter(i -> nameBytes[i] == 0 || nameBytes[i] == 32).findFirst().orElse(nameBytes.length);
-
-        return new String(nameBytes, 0, validLength);
+    protected void writeData(int slot, int offset, ByteBuffer source) {
+        slotRegion(slot, offset, source.remaining()).put(source);
     }
 
     @Override
-    public void setName(int slot, String name) throws InvalidSlotException {
-        checkSlot(slot);
-
-        String[] spaceSplitName = name.split(" ", 2);
-        byte[] nameBytes = spaceSplitName[0].getBytes(StandardCharsets.US_ASCII);
+    public ByteBuffer viewData(int slot) throws InvalidSlotException, NoStorageSlotException {
+        checkRegion(slot, 0, DISK_SIZE);
 
-        for (int i = 0; i < nameBytes.length && i < MAXIMUM_DISK_TITLE; i++) {
-            byteBuffer.put(getSlotPos(slot) + i, nameBytes[i]);
-        }
-    }
-
-    @Override
-    public int getStorageSize() {
-        return (byteBuffer.limit() - INITIAL_OFFSET) / DISK_SIZE;
+        return slotRegion(slot, 0, DISK_SIZE).slice().asReadOnlyBuffer();
     }
 
     @Override
-    public void changeStorageSize(int slots) throws InvalidSlotException, ResizeWouldTruncateSlotException {
-        if (slots < 0 || slots > 511) {
-            throw new InvalidSlotException(slots);
-        }
-
-        for (int i = Math.max(0, (slots - 1)); i < 511; i++) {
-            if (isOccupied(slots)) {
-                throw new ResizeWouldTruncateSlotException(i);
-            }
-        }
-
+    protected void resizeStorage(int slots) {
         int currentSlots = getStorageSize();
+        int newSize = calculateStorageSize(slots);
 
-        if (currentSlots != slots) {
-            int newSize = calculateStorageSize(slots);
-
-            int originalLimit = byteBuffer.limit();
+        int originalLimit = byteBuffer.limit();
 
-            if (currentSlots > slots) {
-                byteBuffer.limit(newSize);
-            }
-
-            byteBuffer.position(0);
-
-            ByteBuffer newBuffer = ByteBuffer.allocate(newSize);
-            newBuffer.put(byteBuffer);
-
-            byteBuffer.limit(originalLimit);
-
-            byteBuffer = newBuffer;
+        if (currentSlots > slots) {
+            byteBuffer.limit(newSize);
         }
-    }
 
-    /**
-     * Calculate the byte size of a bundle with the slot count.
-     *
-     * @param slots number of allocated slots
-     * @return byte could of a bundle which can contain the slot count
-     */
-    private int calculateStorageSize(int slots) {
-        return INITIAL_OFFSET + (DISK_SIZE * slots);
-    }
+        byteBuffer.position(0);
 
-    /**
-     * Get the byte position in the byte buffer of the catalogue entry.
-     *
-     * @param slot slot position
-     * @return byte position in buffer
-     */
-    private int getSlotPos(int slot) {
-        return 16 * (slot + 1);
-    }
+        ByteBuffer newBuffer = ByteBuffer.allocate(newSize);
+        newBuffer.put(byteBuffer);
 
-    /**
-     * Check to see if a drive is valid, if not throw an exception.
-     *
-     * @param drive drive number to check
-     * @throws InvalidDriveException if the drive provided is invalid
-     */
-    private void checkDrive(int drive) throws InvalidDriveException {
-        if (drive < 0 || drive > 3) {
-            throw new InvalidDriveException(drive);
-        }
-    }
+        byteBuffer.limit(originalLimit);
 
-    /**
-     * Check to see if a slot is valid, if not throw an exception.
-     *
-     * @param slot slot number to check
-     * @throws InvalidSlotException if the slot provided is invalid
-     */
-    private void checkSlot(int slot) throws InvalidSlotException {
-        if (slot < 0 || slot > 510) {
-            throw new InvalidSlotException(slot);
-        }
-    }
-
-    /**
-     * Check to see if a slot is occupied, if not throw an exception.
-     *
-     * @param slot slot number to check
-     * @throws InactivateSlotException if the slot provided is inactive
-     */
-    private void checkSlotOccupied(int slot) throws InactivateSlotException {
-        if (!isOccupied(slot)) {
-            throw new InactivateSlotException(slot);
-        }
+        byteBuffer = newBuffer;
     }
 
     /**
-     * Set a flag in the bundle catalogue.
+     * Get an independent view of a region of a slots disk image, positioned at the start of the region.
      *
-     * @param slot slot to set on
-     * @param flag flag to set
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image
+     * @param length length of region in bytes
+     * @return view of the bundle buffer limited to the region
      */
-    private void setFlag(int slot, byte flag) {
-        int position = getSlotPos(slot) + HEADER_FLAG_OFFSET;
+    private ByteBuffer slotRegion(int slot, int offset, int length) {
+        int start = INITIAL_OFFSET + (DISK_SIZE * slot) + offset;
 
-        byte value = byteBuffer.get(position);
-        byte newValue = (byte) (value | flag);
+        ByteBuffer region = byteBuffer.duplicate();
+        region.limit(start + length);
+        region.position(start);
 
-        byteBuffer.put(position, newValue);
+        return region;
     }
 
     /**
-     * Unset a flag in the bundle catalogue.
+     * Get the byte buffer which backs this disk bundle, used to allow saving.
      *
-     * @param slot slot to set on
-     * @param flag flag to unset
+     * @return byte buffer backing bundle
      */
-    private void unsetFlag(int slot, byte flag) {
-        int position = getSlotPos(slot) + HEADER_FLAG_OFFSET;
-
-        byte value = byteBuffer.get(position);
-        byte newValue = (byte) (value & ~flag);
-
-        byteBuffer.put(position, newValue);
+    public ByteBuffer getByteBuffer() {
+        return byteBuffer;
     }
 
     /**
-     * Get the byte buffer which backs this disk bundle, used to allow saving.
+     * Replace the byte buffer which backs this disk bundle, used by subclasses which remap their storage.
      *
-     * @return byte buffer backing bundle
+     * @param byteBuffer new byte buffer backing bundle
      */
-    public ByteBuffer getByteBuffer() {
-        return byteBuffer;
+    protected void setByteBuffer(ByteBuffer byteBuffer) {
+        this.byteBuffer = byteBuffer;
     }
 }
@@ -0,0 +1,232 @@
+package net.melaircraft.owl.library;
+
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * A bulk edit of the catalogue of a disk bundle, for changing the flags or names of many slots at once.
+ *
+ * Edits are made to a copy of the header and catalogue, taken when the editor is created, and are applied immediately
+ * to the copy so each later edit sees the earlier ones. Nothing is changed in the bundle until {@link #apply()}, which
+ * writes the copy back in one piece and flushes the bundle once, with listeners receiving a single batch of events for
+ * the entries which differ.
+ *
+ * Flags are set and cleared as given, locks are not checked, as with {@link AbstractDiskBundle#refreshCatalogue}.
+ * Editors are not thread safe, and the bundle must not be changed by other means between creating and applying one.
+ */
+public class CatalogueEditor {
+    /** Bundle being changed. */
+    private final AbstractDiskBundle bundle;
+    /** Copy of the header and catalogue. */
+    private final ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+    /** True once applied. */
+    private boolean applied;
+
+    /**
+     * Construct a new catalogue editor, use {@link AbstractDiskBundle#editCatalogue()}.
+     *
+     * @param bundle bundle to change
+     */
+    CatalogueEditor(AbstractDiskBundle bundle) {
+        this.bundle = bundle;
+
+        bundle.readCatalogue(catalogue);
+        catalogue.clear();
+    }
+
+    /**
+     * Set flags on a range of slots.
+     *
+     * @param fromSlot first slot number, inclusive (0 - 510)
+     * @param toSlot last slot number, exclusive (0 - 511)
+     * @param flags flags to set, such as {@link DiskBundle#HEADER_FLAG_DISK_WRITEABLE}
+     * @return this editor
+     * @throws InvalidSlotException if the range is not within the catalogue
+     */
+    public CatalogueEditor setFlags(int fromSlot, int toSlot, byte flags) throws InvalidSlotException {
+        checkRange(fromSlot, toSlot);
+
+        for (int slot = fromSlot; slot < toSlot; slot++) {
+            int position = flagsPosition(slot);
+            catalogue.put(position, (byte) (catalogue.get(position) | flags));
+        }
+
+        return this;
+    }
+
+    /**
+     * Clear flags on a range of slots.
+     *
+     * @param fromSlot first slot number, inclusive (0 - 510)
+     * @param toSlot last slot number, exclusive (0 - 511)
+     * @param flags flags to clear, such as {@link DiskBundle#HEADER_FLAG_DISK_UNFORMATTED}
+     * @return this editor
+     * @throws InvalidSlotException if the range is not within the catalogue
+     */
+    public CatalogueEditor clearFlags(int fromSlot, int toSlot, byte flags) throws InvalidSlotException {
+        checkRange(fromSlot, toSlot);
+
+        for (int slot = fromSlot; slot < toSlot; slot++) {
+            int position = flagsPosition(slot);
+            catalogue.put(position, (byte) (catalogue.get(position) & ~flags));
+        }
+
+        return this;
+    }
+
+    /**
+     * Set flags on a set of slots.
+     *
+     * @param slots slot numbers (0 - 510)
+     * @param flags flags to set
+     * @return this editor
+     * @throws InvalidSlotException if a slot number is not valid, no slot is changed
+     */
+    public CatalogueEditor setFlags(BitSet slots, byte flags) throws InvalidSlotException {
+        checkSlots(slots);
+
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            int position = flagsPosition(slot);
+            catalogue.put(position, (byte) (catalogue.get(position) | flags));
+        }
+
+        return this;
+    }
+
+    /**
+     * Clear flags on a set of slots.
+     *
+     * @param slots slot numbers (0 - 510)
+     * @param flags flags to clear
+     * @return this editor
+     * @throws InvalidSlotException if a slot number is not valid, no slot is changed
+     */
+    public CatalogueEditor clearFlags(BitSet slots, byte flags) throws InvalidSlotException {
+        checkSlots(slots);
+
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            int position = flagsPosition(slot);
+            catalogue.put(position, (byte) (catalogue.get(position) & ~flags));
+        }
+
+        return this;
+    }
+
+    /**
+     * Rename slots, see {@link DiskBundle#setName(int, String)}.
+     *
+     * @param names new names by slot number (0 - 510)
+     * @return this editor
+     * @throws InvalidSlotException if a slot number is not valid, no slot is renamed
+     */
+    public CatalogueEditor rename(Map<Integer, String> names) throws InvalidSlotException {
+        for (int slot : names.keySet()) {
+            bundle.checkSlot(slot);
+        }
+
+        for (Map.Entry<Integer, String> entry : names.entrySet()) {
+            AbstractDiskBundle.putName(catalogue, entry.getKey(), entry.getValue());
+        }
+
+        return this;
+    }
+
+    /**
+     * Clear the catalogue to that of a new bundle, with no boot slots, no names and every slot unformatted.
+     *
+     * @return this editor
+     */
+    public CatalogueEditor clear() {
+        AbstractDiskBundle.clearCatalogue(catalogue);
+
+        return this;
+    }
+
+    /**
+     * Rebuild the catalogue from a list of occupied slots, every other slot being unformatted and the boot slots being
+     * cleared. Occupied slots are locked, as after {@link DiskBundle#activate(int)}.
+     *
+     * @param names names of the occupied slots by slot number (0 - 510)
+     * @return this editor
+     * @throws InvalidSlotException if a slot number is not valid, the catalogue is not changed
+     */
+    public CatalogueEditor rebuild(Map<Integer, String> names) throws InvalidSlotException {
+        BitSet occupied = new BitSet(511);
+
+        for (int slot : names.keySet()) {
+            bundle.checkSlot(slot);
+            occupied.set(slot);
+        }
+
+        return clear().clearFlags(occupied, DiskBundle.HEADER_FLAG_DISK_UNFORMATTED).rename(names);
+    }
+
+    /**
+     * Write the edited catalogue back to the bundle. If any slot without storage would become occupied, the bundle is
+     * not changed.
+     *
+     * @throws NoStorageSlotException if a slot without storage would become occupied
+     */
+    public void apply() throws NoStorageSlotException {
+        if (applied) {
+            throw new IllegalStateException("Catalogue edit has already been applied.");
+        }
+
+        for (int slot = bundle.getStorageSize(); slot < 511; slot++) {
+            if ((catalogue.get(flagsPosition(slot)) & DiskBundle.HEADER_FLAG_DISK_UNFORMATTED) != DiskBundle.HEADER_FLAG_DISK_UNFORMATTED && !bundle.isOccupied(slot)) {
+                throw new NoStorageSlotException(slot);
+            }
+        }
+
+        applied = true;
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            catalogue.clear();
+            bundle.refreshCatalogue(catalogue);
+            bundle.flush();
+        }
+    }
+
+    /**
+     * Check that a slot range is within the catalogue, if not throw an exception.
+     *
+     * @param fromSlot first slot number, inclusive
+     * @param toSlot last slot number, exclusive
+     * @throws InvalidSlotException if the range is not within the catalogue
+     */
+    private void checkRange(int fromSlot, int toSlot) throws InvalidSlotException {
+        if (toSlot > fromSlot) {
+            bundle.checkSlot(fromSlot);
+            bundle.checkSlot(toSlot - 1);
+        } else if (toSlot < fromSlot) {
+            throw new InvalidSlotException(toSlot);
+        }
+    }
+
+    /**
+     * Check that every slot in a set is valid, if not throw an exception.
+     *
+     * @param slots slot numbers
+     * @throws InvalidSlotException if a slot number is not valid
+     */
+    private void checkSlots(BitSet slots) throws InvalidSlotException {
+        if (slots.length() > 511) {
+            throw new InvalidSlotException(slots.length() - 1);
+        }
+    }
+
+    /**
+     * Get the position of the flags of a slot.
+     *
+     * @param slot slot number (0 - 510)
+     * @return byte position in catalogue
+     */
+    private static int flagsPosition(int slot) {
+        return AbstractDiskBundle.getSlotPos(slot) + DiskBundle.HEADER_FLAG_OFFSET;
+    }
+}
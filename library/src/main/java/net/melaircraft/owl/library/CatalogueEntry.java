@@ -0,0 +1,144 @@
+package net.melaircraft.owl.library;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable view of a single entry of a disk bundle catalogue, read directly from the catalogue bytes.
+ *
+ * The entry is repositioned onto each slot in turn while the catalogue is walked, no values are copied and no
+ * exceptions are thrown. The entry and its name are only valid until it is repositioned.
+ */
+public final class CatalogueEntry {
+    /** Buffer containing the bundle header and catalogue. */
+    private final ByteBuffer catalogue;
+    /** View of the entry name. */
+    private final Name name = new Name();
+    /** Slot number the entry is positioned on. */
+    private int slot;
+    /** Byte position of the entry within the catalogue. */
+    private int position;
+
+    /**
+     * Construct a new catalogue entry over a buffer containing the bundle header.
+     *
+     * @param catalogue buffer containing the bundle header and catalogue at position 0
+     */
+    public CatalogueEntry(ByteBuffer catalogue) {
+        this.catalogue = catalogue;
+    }
+
+    /**
+     * Reposition the entry onto a slot.
+     *
+     * @param slot slot number (0 - 510)
+     * @return this entry
+     */
+    public CatalogueEntry moveTo(int slot) {
+        this.slot = slot;
+        this.position = 16 * (slot + 1);
+        name.length = -1;
+        return this;
+    }
+
+    /**
+     * Get the slot number of the entry.
+     *
+     * @return slot number
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Get the raw flags byte of the entry.
+     *
+     * @return flags byte
+     */
+    public byte getFlags() {
+        return catalogue.get(position + DiskBundle.HEADER_FLAG_OFFSET);
+    }
+
+    /**
+     * Check to see if the slot is occupied.
+     *
+     * @return true if occupied
+     */
+    public boolean isOccupied() {
+        return (getFlags() & DiskBundle.HEADER_FLAG_DISK_UNFORMATTED) != DiskBundle.HEADER_FLAG_DISK_UNFORMATTED;
+    }
+
+    /**
+     * Check to see if the slot is occupied and write protected / locked.
+     *
+     * @return true if occupied and locked
+     */
+    public boolean isLocked() {
+        byte flags = getFlags();
+        return (flags & DiskBundle.HEADER_FLAG_DISK_UNFORMATTED) != DiskBundle.HEADER_FLAG_DISK_UNFORMATTED
+                && (flags & DiskBundle.HEADER_FLAG_DISK_WRITEABLE) != DiskBundle.HEADER_FLAG_DISK_WRITEABLE;
+    }
+
+    /**
+     * Get the name of the slot, as a view onto the catalogue bytes. The name ends at the first null or space, as
+     * with {@link DiskBundle#getName(int)}.
+     *
+     * @return name of slot, valid until the entry is repositioned
+     */
+    public CharSequence getName() {
+        return name;
+    }
+
+    /**
+     * Character sequence view of the name of the current entry.
+     */
+    private final class Name implements CharSequence {
+        /** Length of the name, or -1 if not yet calculated for the current entry. */
+        private int length = -1;
+
+        @Override
+        public int length() {
+            if (length < 0) {
+                int i = 0;
+
+                while (i < DiskBundle.MAXIMUM_DISK_TITLE) {
+                    byte value = catalogue.get(position + i);
+
+                    if (value == 0 || value == 32) {
+                        break;
+                    }
+
+                    i++;
+                }
+
+                length = i;
+            }
+
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException("Index " + index + " is outside of name.");
+            }
+
+            return (char) (catalogue.get(position + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            char[] characters = new char[length()];
+
+            for (int i = 0; i < characters.length; i++) {
+                characters[i] = charAt(i);
+            }
+
+            return new String(characters);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package net.melaircraft.owl.library;
+
+/**
+ * A visitor of the entries of a disk bundle catalogue.
+ */
+public interface CatalogueVisitor {
+    /**
+     * Visit a single catalogue entry.
+     *
+     * The entry is a reused view onto the catalogue, it is only valid for the duration of this call and must be
+     * copied if any of its values need to be kept.
+     *
+     * @param entry catalogue entry
+     */
+    void visit(CatalogueEntry entry);
+}
@@ -0,0 +1,749 @@
+package net.melaircraft.owl.library;
+
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Implementation of a disk bundle stored in a compressed container file.
+ *
+ * Every track of every slot is compressed independently and located through an offset index, so a single sector
+ * can be read by decompressing only its track. Tracks of 0x00 take no space. Changed tracks are appended to the
+ * file, and the header, catalogue and index are written on {@link #flush()}; {@link #compact()} reclaims the space
+ * of replaced tracks.
+ *
+ * The container holds a 16 byte header (magic, version, storage size), the 8 KB MMB header and catalogue, an index
+ * of 16 bytes per track (offset, length, type) and then the compressed track data.
+ */
+public class CompressedDiskBundle extends AbstractDiskBundle implements Closeable {
+    /** Magic number at the start of a compressed bundle, "OWLZ". */
+    private static final int MAGIC = 0x4f574c5a;
+    /** Version of the container format. */
+    private static final int VERSION = 1;
+    /** Size of the container header. */
+    private static final int HEADER_SIZE = 16;
+    /** Size of a single index entry. */
+    private static final int INDEX_ENTRY_SIZE = 16;
+    /** Number of tracks in the index. */
+    private static final int BLOCK_COUNT = 511 * TRACKS_PER_DISK;
+    /** Offset of the track index within the container. */
+    private static final int INDEX_OFFSET = HEADER_SIZE + INITIAL_OFFSET;
+    /** Offset of the first track data within the container. */
+    private static final long DATA_OFFSET = INDEX_OFFSET + ((long) BLOCK_COUNT * INDEX_ENTRY_SIZE);
+    /** Block type for a track of 0x00 with no data stored. */
+    private static final byte BLOCK_ZERO = 0;
+    /** Block type for a deflated track. */
+    private static final byte BLOCK_DEFLATED = 1;
+    /** Block type for a track stored without compression. */
+    private static final byte BLOCK_STORED = 2;
+
+    /** Path of the container file. */
+    private final Path path;
+    /** Header and catalogue. */
+    private final ByteBuffer catalogue = ByteBuffer.allocate(INITIAL_OFFSET);
+    /** File offset of each track. */
+    private final long[] blockOffsets = new long[BLOCK_COUNT];
+    /** Stored length of each track. */
+    private final int[] blockLengths = new int[BLOCK_COUNT];
+    /** Type of each track. */
+    private final byte[] blockTypes = new byte[BLOCK_COUNT];
+    /** Compressor for changed tracks. */
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    /** Decompressor for read tracks. */
+    private final Inflater inflater = new Inflater();
+    /** Decompressed copy of the most recently used track. */
+    private final byte[] cachedTrack = new byte[TRACK_SIZE];
+    /** Scratch space for compressed data. */
+    private final byte[] compressed = new byte[TRACK_SIZE];
+    /** Index of the track held in the cache, -1 if none. */
+    private int cachedBlock = -1;
+    /** Channel of the container file. */
+    private FileChannel fileChannel;
+    /** Number of slots with storage. */
+    private int storageSize;
+    /** File offset after the last track data. */
+    private long dataEnd;
+    /** Lowest index entry changed since the last flush. */
+    private int dirtyFrom = BLOCK_COUNT;
+    /** Highest index entry changed since the last flush, exclusive. */
+    private int dirtyTo;
+
+    /**
+     * Construct a new compressed disk bundle over an open container, the container must be loaded before use.
+     *
+     * @param path path of the container file
+     * @param fileChannel open channel to the container file
+     */
+    private CompressedDiskBundle(Path path, FileChannel fileChannel) {
+        this.path = path;
+        this.fileChannel = fileChannel;
+    }
+
+    /**
+     * Open an existing compressed bundle.
+     *
+     * @param path path of the container file
+     * @return opened disk bundle
+     * @throws IOException if the file could not be read or is not a compressed bundle
+     */
+    public static CompressedDiskBundle open(Path path) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            CompressedDiskBundle bundle = new CompressedDiskBundle(path, fileChannel);
+            bundle.load();
+            return bundle;
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a new, empty, compressed bundle, any existing file will be replaced.
+     *
+     * @param path path of the container file
+     * @param initialSlots initial slots allocated
+     * @return opened disk bundle
+     * @throws IOException if the file could not be created
+     * @throws InvalidSlotException if the number of slots is invalid
+     */
+    public static CompressedDiskBundle create(Path path, int initialSlots) throws IOException, InvalidSlotException {
+        if (initialSlots < 0 || initialSlots > 511) {
+            throw new InvalidSlotException(initialSlots);
+        }
+
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            CompressedDiskBundle bundle = new CompressedDiskBundle(path, fileChannel);
+
+            bundle.catalogue.put(new ByteBufferDiskBundle(0).getByteBuffer().duplicate());
+            bundle.catalogue.clear();
+            bundle.storageSize = initialSlots;
+            bundle.dataEnd = DATA_OFFSET;
+            bundle.markDirty(0, BLOCK_COUNT);
+            bundle.flush();
+
+            return bundle;
+        } catch (RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compress a disk bundle into a new container file, slots are compressed in parallel.
+     *
+     * @param source bundle to compress
+     * @param path path of the container file, any existing file will be replaced
+     * @return opened compressed bundle
+     * @throws IOException if the file could not be written
+     */
+    public static CompressedDiskBundle compress(AbstractDiskBundle source, Path path) throws IOException {
+        CompressedDiskBundle bundle = create(path, source.getStorageSize());
+
+        ByteBuffer sourceCatalogue = source.getCatalogue().duplicate();
+        sourceCatalogue.position(0);
+        sourceCatalogue.limit(INITIAL_OFFSET);
+        bundle.catalogue.put(sourceCatalogue);
+        bundle.catalogue.clear();
+
+        int group = Math.max(1, Runtime.getRuntime().availableProcessors() * 2);
+
+        for (int first = 0; first < source.getStorageSize(); first += group) {
+            List<byte[][]> slots = IntStream.range(first, Math.min(first + group, source.getStorageSize()))
+                    .parallel()
+                    .mapToObj(slot -> compressSlot(source, slot))
+                    .collect(Collectors.toList());
+
+            for (int i = 0; i < slots.size(); i++) {
+                byte[][] tracks = slots.get(i);
+
+                for (int track = 0; track < TRACKS_PER_DISK; track++) {
+                    bundle.appendBlock(((first + i) * TRACKS_PER_DISK) + track, tracks[track]);
+                }
+            }
+        }
+
+        bundle.flush();
+        return bundle;
+    }
+
+    /**
+     * Decompress the whole bundle into a new in memory bundle, in the plain MMB layout.
+     *
+     * @return in memory copy of the bundle
+     */
+    public synchronized ByteBufferDiskBundle toByteBufferDiskBundle() {
+        ByteBuffer image = ByteBuffer.allocate(calculateStorageSize(storageSize));
+        copyImage(image);
+        image.clear();
+
+        return new ByteBufferDiskBundle(image);
+    }
+
+    /**
+     * Write the whole bundle to a channel in the plain MMB layout, a track at a time.
+     *
+     * @param channel channel to write to
+     * @throws IOException if the bundle could not be written
+     */
+    public synchronized void writeTo(WritableByteChannel channel) throws IOException {
+        writeFully(channel, catalogue.duplicate());
+
+        byte[] track = new byte[TRACK_SIZE];
+
+        for (int block = 0; block < storageSize * TRACKS_PER_DISK; block++) {
+            readBlock(block, track);
+            writeFully(channel, ByteBuffer.wrap(track));
+        }
+    }
+
+    /**
+     * Write the header, catalogue and any changed index entries to the container, and force them to storage.
+     */
+    @Override
+    public synchronized void flush() {
+        try {
+            writeFully(createHeader(), 0);
+            writeFully(catalogue.duplicate(), HEADER_SIZE);
+
+            if (dirtyFrom < dirtyTo) {
+                writeFully(createIndex(blockOffsets, dirtyFrom, dirtyTo), INDEX_OFFSET + ((long) dirtyFrom * INDEX_ENTRY_SIZE));
+
+                dirtyFrom = BLOCK_COUNT;
+                dirtyTo = 0;
+            }
+
+            fileChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rewrite the container without the space held by replaced tracks.
+     *
+     * The new container is written in full, including its index, and forced to storage before it replaces the old one,
+     * so an interruption at any point leaves one complete container in place. The index held in memory is only changed
+     * once the new container is in place.
+     *
+     * @throws IOException if the container could not be rewritten
+     */
+    public synchronized void compact() throws IOException {
+        flush();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".compact");
+        long[] offsets = new long[BLOCK_COUNT];
+        long position = DATA_OFFSET;
+
+        try (FileChannel target = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int block = 0; block < BLOCK_COUNT; block++) {
+                if (blockTypes[block] != BLOCK_ZERO) {
+                    transferBlock(block, target, position);
+                    offsets[block] = position;
+                    position += blockLengths[block];
+                }
+            }
+
+            writeFully(target, createHeader(), 0);
+            writeFully(target, catalogue.duplicate(), HEADER_SIZE);
+            writeFully(target, createIndex(offsets, 0, BLOCK_COUNT), INDEX_OFFSET);
+            target.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        fileChannel.close();
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            /* If the move failed the old container is still in place, and matches the index held in memory. */
+            fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        System.arraycopy(offsets, 0, blockOffsets, 0, BLOCK_COUNT);
+        dataEnd = position;
+    }
+
+    /**
+     * Get the number of bytes in the container held by tracks which have since been replaced.
+     *
+     * @return reclaimable bytes
+     */
+    public synchronized long getWastedBytes() {
+        long live = 0;
+
+        for (int block = 0; block < BLOCK_COUNT; block++) {
+            live += blockLengths[block];
+        }
+
+        return dataEnd - DATA_OFFSET - live;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        fileChannel.close();
+        deflater.end();
+        inflater.end();
+    }
+
+    @Override
+    public synchronized int getStorageSize() {
+        return storageSize;
+    }
+
+    @Override
+    protected ByteBuffer getCatalogue() {
+        return catalogue;
+    }
+
+    @Override
+    protected synchronized void readData(int slot, int offset, ByteBuffer target) {
+        int position = offset;
+
+        while (target.hasRemaining()) {
+            int block = (slot * TRACKS_PER_DISK) + (position / TRACK_SIZE);
+            int trackOffset = position % TRACK_SIZE;
+            int length = Math.min(TRACK_SIZE - trackOffset, target.remaining());
+
+            cacheBlock(block);
+            target.put(cachedTrack, trackOffset, length);
+
+            position += length;
+        }
+    }
+
+    @Override
+    protected synchronized void writeData(int slot, int offset, ByteBuffer source) {
+        int position = offset;
+
+        while (source.hasRemaining()) {
+            int block = (slot * TRACKS_PER_DISK) + (position / TRACK_SIZE);
+            int trackOffset = position % TRACK_SIZE;
+            int length = Math.min(TRACK_SIZE - trackOffset, source.remaining());
+
+            if (length < TRACK_SIZE) {
+                cacheBlock(block);
+            }
+
+            source.get(cachedTrack, trackOffset, length);
+            cachedBlock = block;
+            storeBlock(block, cachedTrack);
+
+            position += length;
+        }
+    }
+
+    @Override
+    protected synchronized void wipeData(int slot) {
+        for (int block = slot * TRACKS_PER_DISK; block < (slot + 1) * TRACKS_PER_DISK; block++) {
+            setBlock(block, 0, 0, BLOCK_ZERO);
+        }
+    }
+
+    @Override
+    protected synchronized void resizeStorage(int slots) {
+        for (int slot = slots; slot < storageSize; slot++) {
+            wipeData(slot);
+        }
+
+        storageSize = slots;
+    }
+
+    /**
+     * Load the header, catalogue and index from the container.
+     *
+     * @throws IOException if the container could not be read or is invalid
+     */
+    private void load() throws IOException {
+        if (fileChannel.size() < DATA_OFFSET) {
+            throw new IOException(path + " is not a compressed disk bundle.");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException(path + " is not a compressed disk bundle.");
+        }
+
+        storageSize = header.getInt();
+
+        if (storageSize < 0 || storageSize > 511) {
+            throw new IOException(path + " has an invalid storage size of " + storageSize + ".");
+        }
+
+        readFully(catalogue, HEADER_SIZE);
+        catalogue.clear();
+
+        ByteBuffer index = ByteBuffer.allocate(BLOCK_COUNT * INDEX_ENTRY_SIZE);
+        readFully(index, INDEX_OFFSET);
+        index.flip();
+
+        dataEnd = DATA_OFFSET;
+
+        for (int block = 0; block < BLOCK_COUNT; block++) {
+            blockOffsets[block] = index.getLong();
+            blockLengths[block] = index.getInt();
+            blockTypes[block] = (byte) index.getInt();
+
+            dataEnd = Math.max(dataEnd, blockOffsets[block] + blockLengths[block]);
+        }
+
+        dataEnd = Math.max(dataEnd, fileChannel.size());
+    }
+
+    /**
+     * Make sure a track is held decompressed in the cache.
+     *
+     * @param block index of track
+     */
+    private void cacheBlock(int block) {
+        if (cachedBlock != block) {
+            /* A failed read leaves the cache partly overwritten, so it holds no track until the read completes. */
+            cachedBlock = -1;
+            readBlock(block, cachedTrack);
+            cachedBlock = block;
+        }
+    }
+
+    /**
+     * Read and decompress a track.
+     *
+     * @param block index of track
+     * @param target array to decompress the track into
+     */
+    private void readBlock(int block, byte[] target) {
+        try {
+            switch (blockTypes[block]) {
+                case BLOCK_DEFLATED:
+                    ByteBuffer data = ByteBuffer.allocate(blockLengths[block]);
+                    readFully(data, blockOffsets[block]);
+
+                    inflater.reset();
+                    inflater.setInput(data.array(), 0, blockLengths[block]);
+
+                    if (inflater.inflate(target, 0, TRACK_SIZE) != TRACK_SIZE) {
+                        throw new IOException("Track " + block + " of " + path + " is corrupt.");
+                    }
+                    break;
+                case BLOCK_STORED:
+                    readFully(ByteBuffer.wrap(target, 0, TRACK_SIZE), blockOffsets[block]);
+                    break;
+                default:
+                    Arrays.fill(target, (byte) 0);
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Track " + block + " of " + path + " is corrupt.", e));
+        }
+    }
+
+    /**
+     * Compress a track and append it to the container.
+     *
+     * @param block index of track
+     * @param track track data
+     */
+    private void storeBlock(int block, byte[] track) {
+        if (isZero(track)) {
+            setBlock(block, 0, 0, BLOCK_ZERO);
+            return;
+        }
+
+        appendBlock(block, compressTrack(deflater, track, compressed));
+    }
+
+    /**
+     * Append an already compressed track to the container.
+     *
+     * @param block index of track
+     * @param encoded encoded track, as produced by {@link #compressTrack(Deflater, byte[], byte[])}, or null for 0x00
+     */
+    private void appendBlock(int block, byte[] encoded) {
+        if (encoded == null) {
+            setBlock(block, 0, 0, BLOCK_ZERO);
+            return;
+        }
+
+        byte type = encoded[encoded.length - 1];
+        int length = encoded.length - 1;
+
+        try {
+            writeFully(ByteBuffer.wrap(encoded, 0, length), dataEnd);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        setBlock(block, dataEnd, length, type);
+        dataEnd += length;
+    }
+
+    /**
+     * Update the index entry of a track.
+     *
+     * @param block index of track
+     * @param offset file offset of data
+     * @param length length of data
+     * @param type block type
+     */
+    private void setBlock(int block, long offset, int length, byte type) {
+        blockOffsets[block] = offset;
+        blockLengths[block] = length;
+        blockTypes[block] = type;
+
+        if (cachedBlock == block && type == BLOCK_ZERO) {
+            cachedBlock = -1;
+        }
+
+        markDirty(block, block + 1);
+    }
+
+    /**
+     * Create the container header.
+     *
+     * @return buffer holding the header, ready to be written
+     */
+    private ByteBuffer createHeader() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(storageSize).putInt(0);
+        header.flip();
+
+        return header;
+    }
+
+    /**
+     * Create a range of index entries.
+     *
+     * @param offsets file offset of each track
+     * @param from first entry, inclusive
+     * @param to last entry, exclusive
+     * @return buffer holding the entries, ready to be written
+     */
+    private ByteBuffer createIndex(long[] offsets, int from, int to) {
+        ByteBuffer index = ByteBuffer.allocate((to - from) * INDEX_ENTRY_SIZE);
+
+        for (int block = from; block < to; block++) {
+            index.putLong(offsets[block]).putInt(blockLengths[block]).putInt(blockTypes[block]);
+        }
+
+        index.flip();
+
+        return index;
+    }
+
+    /**
+     * Copy the stored data of a track from the container to another file.
+     *
+     * @param block index of track
+     * @param target channel to copy to
+     * @param position file position to copy to
+     * @throws IOException if the copy failed or stopped making progress
+     */
+    private void transferBlock(int block, FileChannel target, long position) throws IOException {
+        long transferred = 0;
+        target.position(position);
+
+        while (transferred < blockLengths[block]) {
+            long count = fileChannel.transferTo(blockOffsets[block] + transferred, blockLengths[block] - transferred, target);
+
+            if (count <= 0) {
+                throw new IOException("Transfer of track " + block + " stopped after " + transferred + " of " + blockLengths[block] + " bytes.");
+            }
+
+            transferred += count;
+        }
+    }
+
+    /**
+     * Record a range of index entries as changed.
+     *
+     * @param from first entry, inclusive
+     * @param to last entry, exclusive
+     */
+    private void markDirty(int from, int to) {
+        dirtyFrom = Math.min(dirtyFrom, from);
+        dirtyTo = Math.max(dirtyTo, to);
+    }
+
+    /**
+     * Copy the whole bundle into a buffer in the plain MMB layout.
+     *
+     * @param image buffer to fill from position 0
+     */
+    private void copyImage(ByteBuffer image) {
+        image.put(catalogue.duplicate());
+
+        byte[] track = new byte[TRACK_SIZE];
+
+        for (int block = 0; block < storageSize * TRACKS_PER_DISK; block++) {
+            readBlock(block, track);
+            image.put(track);
+        }
+    }
+
+    /**
+     * Compress every track of a slot of a bundle, used when compressing bundles in parallel.
+     *
+     * @param source bundle to read
+     * @param slot slot number (0 - 510)
+     * @return encoded tracks, null entries for tracks of 0x00
+     */
+    private static byte[][] compressSlot(AbstractDiskBundle source, int slot) {
+        byte[] data = new byte[DISK_SIZE];
+        source.readData(slot, 0, ByteBuffer.wrap(data));
+
+        Deflater slotDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        byte[] track = new byte[TRACK_SIZE];
+        byte[] scratch = new byte[TRACK_SIZE];
+        byte[][] tracks = new byte[TRACKS_PER_DISK][];
+
+        try {
+            for (int i = 0; i < TRACKS_PER_DISK; i++) {
+                System.arraycopy(data, i * TRACK_SIZE, track, 0, TRACK_SIZE);
+                tracks[i] = isZero(track) ? null : compressTrack(slotDeflater, track, scratch);
+            }
+        } finally {
+            slotDeflater.end();
+        }
+
+        return tracks;
+    }
+
+    /**
+     * Encode a track, deflating it if that saves space.
+     *
+     * @param deflater deflater to use
+     * @param track track data
+     * @param scratch scratch space of at least a track
+     * @return encoded data followed by a single byte of block type
+     */
+    private static byte[] compressTrack(Deflater deflater, byte[] track, byte[] scratch) {
+        deflater.reset();
+        deflater.setInput(track, 0, TRACK_SIZE);
+        deflater.finish();
+
+        int length = deflater.deflate(scratch, 0, TRACK_SIZE - 1);
+
+        byte[] encoded;
+
+        if (deflater.finished()) {
+            encoded = new byte[length + 1];
+            System.arraycopy(scratch, 0, encoded, 0, length);
+            encoded[length] = BLOCK_DEFLATED;
+        } else {
+            encoded = new byte[TRACK_SIZE + 1];
+            System.arraycopy(track, 0, encoded, 0, TRACK_SIZE);
+            encoded[TRACK_SIZE] = BLOCK_STORED;
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Check to see if a track is entirely 0x00.
+     *
+     * @param track track data
+     * @return true if every byte is 0x00
+     */
+    private static boolean isZero(byte[] track) {
+        for (byte value : track) {
+            if (value != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Read from the container until the buffer is full.
+     *
+     * @param buffer buffer to fill
+     * @param position file position to read from
+     * @throws EOFException if the end of file is reached before the buffer is full
+     * @throws IOException if the read failed
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            int count = fileChannel.read(buffer, current);
+
+            if (count < 0) {
+                throw new EOFException(path + " ends unexpectedly at " + current + ".");
+            }
+
+            current += count;
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to the container.
+     *
+     * @param buffer buffer to write
+     * @param position file position to write at
+     * @throws IOException if the write failed
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            current += fileChannel.write(buffer, current);
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to a file.
+     *
+     * @param channel channel of the file
+     * @param buffer buffer to write
+     * @param position file position to write at
+     * @throws IOException if the write failed
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            current += channel.write(buffer, current);
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to a channel.
+     *
+     * @param channel channel to write to
+     * @param buffer buffer to write
+     * @throws IOException if the write failed
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package net.melaircraft.owl.library;
 
+import net.melaircraft.owl.library.event.BundleListener;
+import net.melaircraft.owl.library.event.ChangeBatch;
 import net.melaircraft.owl.library.exception.drive.InvalidDriveException;
 import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
 import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotRegionException;
 import net.melaircraft.owl.library.exception.slot.LockedSlotException;
 import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
 import net.melaircraft.owl.library.exception.slot.ResizeWouldTruncateSlotException;
 
+import java.nio.ByteBuffer;
+
 /**
  * A disk bundle (a MMB file).
  */
@@ -21,8 +26,10 @@ public interface DiskBundle {
     int SECTORS_PER_TRACK = 10;
     /** Number of tracks on a side of a disk. */
     int TRACKS_PER_DISK = 80;
+    /** Total number of bytes for a track. */
+    int TRACK_SIZE = SECTOR_SIZE * SECTORS_PER_TRACK;
     /** Total number of bytes for a disk. */
-    int DISK_SIZE = SECTOR_SIZE * SECTORS_PER_TRACK * TRACKS_PER_DISK;
+    int DISK_SIZE = TRACK_SIZE * TRACKS_PER_DISK;
     /** Number of sectors at start of MMB for header and catalogue. */
     int MMB_SECTOR_COUNT = 32;
     /** Offset until first disk. */
@@ -104,6 +111,33 @@ public interface DiskBundle {
      */
     void insert(int slot, Disk disk) throws InvalidSlotException, LockedSlotException;
 
+    /**
+     * Read part of a disk image directly from the bundle, filling the remaining space of the target buffer. The
+     * slot does not need to be active.
+     *
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image to start reading from
+     * @param target buffer to read into, its position is advanced by the number of bytes read
+     * @throws InvalidSlotException if the slot number provided is not valid
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     * @throws InvalidSlotRegionException if the region extends outside of the disk image
+     */
+    void read(int slot, int offset, ByteBuffer target) throws InvalidSlotException, NoStorageSlotException, InvalidSlotRegionException;
+
+    /**
+     * Write part of a disk image directly into the bundle from the remaining bytes of the source buffer. The slot
+     * flags are not changed.
+     *
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image to start writing at
+     * @param source buffer to write from, its position is advanced by the number of bytes written
+     * @throws InvalidSlotException if the slot number provided is not valid
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     * @throws InvalidSlotRegionException if the region extends outside of the disk image
+     * @throws LockedSlotException if the slot is in used and currently locked
+     */
+    void write(int slot, int offset, ByteBuffer source) throws InvalidSlotException, NoStorageSlotException, InvalidSlotRegionException, LockedSlotException;
+
     /**
      * Check to see if the slot is marked as write protected / locked.
      *
@@ -150,6 +184,14 @@ public interface DiskBundle {
      */
     void setName(int slot, String name) throws InvalidSlotException;
 
+    /**
+     * Walk every entry of the catalogue in slot order in a single pass, without validation or exceptions. The visitor
+     * is handed a reused entry for each slot from 0 to 510, whether occupied or not.
+     *
+     * @param visitor visitor to call for each entry
+     */
+    void forEachEntry(CatalogueVisitor visitor);
+
     /**
      * Get the current storage size allocated for this bundle in slots.
      *
@@ -165,4 +207,26 @@ public interface DiskBundle {
      * @throws ResizeWouldTruncateSlotException if the new size would truncate an existing in use slot
      */
     void changeStorageSize(int slot) throws InvalidSlotException, ResizeWouldTruncateSlotException;
+
+    /**
+     * Register a listener to be notified asynchronously of changes to the bundle.
+     *
+     * @param listener listener to add
+     */
+    void addListener(BundleListener listener);
+
+    /**
+     * Unregister a listener previously added.
+     *
+     * @param listener listener to remove
+     */
+    void removeListener(BundleListener listener);
+
+    /**
+     * Start a batch of changes, listeners are notified of every change made during the batch with a single event
+     * once the batch is closed.
+     *
+     * @return batch to close once the changes are complete
+     */
+    ChangeBatch batchChanges();
 }
@@ -1,11 +1,151 @@
 package net.melaircraft.owl.library;
 
 import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
-import net.melaircraft.owl.library.exception.slot.ResizeWouldTruncateSlotException;
 
-public class FileChannelDiskBundle extends ByteBufferDiskBundle {
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementation of a disk bundle backed by a memory mapped MMB file, changes are written through to the file.
+ */
+public class FileChannelDiskBundle extends ByteBufferDiskBundle implements Closeable {
+    /** File channel of the bundle file. */
+    private final FileChannel fileChannel;
+    /** Path of the bundle file. */
+    private final Path path;
+
+    /**
+     * Construct a new file channel disk bundle over an open channel.
+     *
+     * @param path path of the bundle file
+     * @param fileChannel open read/write channel to the bundle file
+     * @throws IOException if the file could not be mapped
+     */
+    private FileChannelDiskBundle(Path path, FileChannel fileChannel) throws IOException {
+        super(map(fileChannel, fileChannel.size()));
+        this.path = path;
+        this.fileChannel = fileChannel;
+    }
+
+    /**
+     * Open an existing MMB file.
+     *
+     * @param path path to MMB file
+     * @return opened disk bundle
+     * @throws IOException if the file could not be opened or is not a MMB file
+     */
+    public static FileChannelDiskBundle open(Path path) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            if (fileChannel.size() < INITIAL_OFFSET || fileChannel.size() > calculateStorageSize(511)) {
+                throw new IOException(path + " is not a valid MMB file, size is " + fileChannel.size() + ".");
+            }
+
+            return new FileChannelDiskBundle(path, fileChannel);
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a new MMB file with a specified number of slots allocated, any existing file will be replaced.
+     *
+     * @param path path to MMB file
+     * @param initialSlots initial slots allocated
+     * @return opened disk bundle
+     * @throws IOException if the file could not be created
+     * @throws InvalidSlotException if the number of slots is invalid
+     */
+    public static FileChannelDiskBundle create(Path path, int initialSlots) throws IOException, InvalidSlotException {
+        ByteBufferDiskBundle template = new ByteBufferDiskBundle(0);
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = template.getByteBuffer().duplicate();
+
+            while (header.hasRemaining()) {
+                fileChannel.write(header);
+            }
+        }
+
+        FileChannelDiskBundle bundle = open(path);
+
+        try {
+            bundle.changeStorageSize(initialSlots);
+        } catch (RuntimeException e) {
+            bundle.close();
+            throw e;
+        }
+
+        return bundle;
+    }
+
     @Override
-    public void changeStorageSize(int slots) throws InvalidSlotException, ResizeWouldTruncateSlotException {
+    protected void resizeStorage(int slots) {
+        long newSize = calculateStorageSize(slots);
+
+        try {
+            flush();
+
+            /* Mapping beyond the end of the file extends it, a shrink needs the file truncating after remapping. */
+            setByteBuffer(map(fileChannel, newSize));
+
+            if (fileChannel.size() > newSize) {
+                fileChannel.truncate(newSize);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Force any changes in the bundle to be written to the underlying storage device.
+     */
+    @Override
+    public void flush() {
+        ((MappedByteBuffer) getByteBuffer()).force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        fileChannel.close();
+    }
+
+    /**
+     * Get the file channel backing this bundle, used to allow direct transfers to and from the bundle file.
+     *
+     * @return file channel of bundle
+     */
+    public FileChannel getFileChannel() {
+        return fileChannel;
+    }
+
+    /**
+     * Get the path of the bundle file.
+     *
+     * @return path to MMB file
+     */
+    public Path getPath() {
+        return path;
+    }
 
+    /**
+     * Map a region of the file channel from the start of the file.
+     *
+     * @param fileChannel channel to map
+     * @param size number of bytes to map
+     * @return mapped byte buffer
+     * @throws IOException if the map failed
+     */
+    private static MappedByteBuffer map(FileChannel fileChannel, long size) throws IOException {
+        return fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
     }
 }
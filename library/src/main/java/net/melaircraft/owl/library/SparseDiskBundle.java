@@ -0,0 +1,260 @@
+package net.melaircraft.owl.library;
+
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Implementation of a disk bundle held in memory which only allocates storage for tracks holding data.
+ *
+ * Every track is an independently allocated chunk, created on the first write of data other than 0x00. Tracks which
+ * have never been written, or whose slot has been wiped, are read from a single shared page of 0x00, so memory
+ * scales with the content of the bundle rather than its storage size. The full MMB image is produced on save.
+ */
+public class SparseDiskBundle extends AbstractDiskBundle {
+    /** Shared page of 0x00 for tracks without storage. */
+    private static final ByteBuffer ZERO_TRACK = ByteBuffer.allocate(TRACK_SIZE).asReadOnlyBuffer();
+
+    /** Header and catalogue. */
+    private final ByteBuffer catalogue = ByteBuffer.allocate(INITIAL_OFFSET);
+    /** Storage of each track, null if the track is 0x00. */
+    private final ByteBuffer[] tracks = new ByteBuffer[511 * TRACKS_PER_DISK];
+    /** Number of slots with storage. */
+    private int storageSize;
+
+    /**
+     * Construct an empty, zero disk storage sparse disk bundle.
+     */
+    public SparseDiskBundle() {
+        this(0);
+    }
+
+    /**
+     * Construct a new sparse disk bundle with a specified number of disks allocated, no track storage is allocated.
+     *
+     * @param initialSlots initial slots allocated
+     */
+    public SparseDiskBundle(int initialSlots) {
+        if (initialSlots < 0 || initialSlots > 511) {
+            throw new InvalidSlotException(initialSlots);
+        }
+
+        storageSize = initialSlots;
+        clearCatalogue(catalogue);
+    }
+
+    /**
+     * Read a complete MMB file into a new sparse disk bundle, only tracks holding data are allocated.
+     *
+     * @param path path to MMB file
+     * @return disk bundle holding a copy of the file
+     * @throws IOException if the file could not be read or is not a MMB file
+     */
+    public static SparseDiskBundle read(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = fileChannel.size();
+
+            if (size < INITIAL_OFFSET || size > calculateStorageSize(511)) {
+                throw new IOException(path + " is not a valid MMB file, size is " + size + ".");
+            }
+
+            SparseDiskBundle bundle = new SparseDiskBundle((int) ((size - INITIAL_OFFSET) / DISK_SIZE));
+
+            bundle.catalogue.clear();
+            readFully(fileChannel, bundle.catalogue);
+            bundle.catalogue.clear();
+
+            ByteBuffer track = ByteBuffer.allocate(TRACK_SIZE);
+
+            for (int block = 0; block < bundle.storageSize * TRACKS_PER_DISK; block++) {
+                track.clear();
+                readFully(fileChannel, track);
+                track.flip();
+
+                bundle.storeTrack(block, 0, track);
+            }
+
+            return bundle;
+        }
+    }
+
+    /**
+     * Write the complete MMB image of the bundle to a channel, tracks without storage are written as 0x00.
+     *
+     * @param channel channel to write to
+     * @throws IOException if the image could not be written
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        writeFully(channel, catalogue.duplicate());
+
+        for (int block = 0; block < storageSize * TRACKS_PER_DISK; block++) {
+            writeFully(channel, tracks[block] == null ? ZERO_TRACK.duplicate() : tracks[block].duplicate());
+        }
+    }
+
+    /**
+     * Save the complete MMB image of the bundle to a file, any existing file will be replaced.
+     *
+     * @param path path to MMB file
+     * @throws IOException if the file could not be written
+     */
+    public void save(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeTo(fileChannel);
+        }
+    }
+
+    /**
+     * Get the number of bytes of track storage currently allocated.
+     *
+     * @return allocated bytes, excluding the catalogue
+     */
+    public long getAllocatedBytes() {
+        long allocated = 0;
+
+        for (ByteBuffer track : tracks) {
+            if (track != null) {
+                allocated += TRACK_SIZE;
+            }
+        }
+
+        return allocated;
+    }
+
+    @Override
+    public int getStorageSize() {
+        return storageSize;
+    }
+
+    @Override
+    protected ByteBuffer getCatalogue() {
+        return catalogue;
+    }
+
+    @Override
+    protected void readData(int slot, int offset, ByteBuffer target) {
+        int position = offset;
+
+        while (target.hasRemaining()) {
+            int block = (slot * TRACKS_PER_DISK) + (position / TRACK_SIZE);
+            int trackOffset = position % TRACK_SIZE;
+            int length = Math.min(TRACK_SIZE - trackOffset, target.remaining());
+
+            ByteBuffer track = (tracks[block] == null ? ZERO_TRACK : tracks[block]).duplicate();
+            track.limit(trackOffset + length);
+            track.position(trackOffset);
+            target.put(track);
+
+            position += length;
+        }
+    }
+
+    @Override
+    protected void writeData(int slot, int offset, ByteBuffer source) {
+        int position = offset;
+
+        while (source.hasRemaining()) {
+            int block = (slot * TRACKS_PER_DISK) + (position / TRACK_SIZE);
+            int trackOffset = position % TRACK_SIZE;
+            int length = Math.min(TRACK_SIZE - trackOffset, source.remaining());
+
+            ByteBuffer region = source.duplicate();
+            region.limit(region.position() + length);
+            storeTrack(block, trackOffset, region);
+
+            source.position(source.position() + length);
+            position += length;
+        }
+    }
+
+    @Override
+    protected void wipeData(int slot) {
+        Arrays.fill(tracks, slot * TRACKS_PER_DISK, (slot + 1) * TRACKS_PER_DISK, null);
+    }
+
+    @Override
+    protected void resizeStorage(int slots) {
+        if (slots < storageSize) {
+            Arrays.fill(tracks, slots * TRACKS_PER_DISK, storageSize * TRACKS_PER_DISK, null);
+        }
+
+        storageSize = slots;
+    }
+
+    /**
+     * Store data into part of a track, allocating the track only if the data is not 0x00. A whole track of 0x00
+     * releases the storage of the track.
+     *
+     * @param block index of track
+     * @param trackOffset offset within the track
+     * @param data data to store, consumed
+     */
+    private void storeTrack(int block, int trackOffset, ByteBuffer data) {
+        boolean zero = isZero(data);
+
+        if (tracks[block] == null) {
+            if (zero) {
+                data.position(data.limit());
+                return;
+            }
+
+            tracks[block] = ByteBuffer.allocate(TRACK_SIZE);
+        } else if (zero && trackOffset == 0 && data.remaining() == TRACK_SIZE) {
+            tracks[block] = null;
+            data.position(data.limit());
+            return;
+        }
+
+        ByteBuffer track = tracks[block].duplicate();
+        track.position(trackOffset);
+        track.put(data);
+    }
+
+    /**
+     * Check to see if the remaining bytes of a buffer are all 0x00.
+     *
+     * @param data buffer to check, position is not changed
+     * @return true if every remaining byte is 0x00
+     */
+    private static boolean isZero(ByteBuffer data) {
+        for (int i = data.position(); i < data.limit(); i++) {
+            if (data.get(i) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Read from a file channel until the buffer is full or the end of file is reached.
+     *
+     * @param fileChannel channel to read
+     * @param buffer buffer to fill
+     * @throws IOException if the read failed
+     */
+    private static void readFully(FileChannel fileChannel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && fileChannel.read(buffer) >= 0) {
+            /* Keep reading until the buffer is full. */
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer to a channel.
+     *
+     * @param channel channel to write to
+     * @param buffer buffer to write
+     * @throws IOException if the write failed
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
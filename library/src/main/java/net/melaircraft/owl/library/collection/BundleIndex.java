@@ -0,0 +1,220 @@
+package net.melaircraft.owl.library.collection;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+
+/**
+ * The catalogue index of a single bundle within a library, a summary of its occupied slots and their digests.
+ */
+final class BundleIndex {
+    /** Length of a SHA-1 digest. */
+    static final int HASH_LENGTH = 20;
+
+    /** Path of the bundle file. */
+    private final Path path;
+    /** Entries for each occupied slot, null if unoccupied. */
+    private final LibraryEntry[] entries = new LibraryEntry[511];
+    /** Occupied slots. */
+    private final BitSet occupied = new BitSet(511);
+    /** Number of slots with storage in the bundle. */
+    private int storageSize;
+    /** File size of the bundle when indexed. */
+    private long fileSize;
+    /** Last modification time of the bundle when indexed. */
+    private long lastModified;
+
+    /**
+     * Construct a new, empty, bundle index.
+     *
+     * @param path path of the bundle file
+     */
+    BundleIndex(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Build an index by scanning an open bundle.
+     *
+     * @param bundle bundle to scan
+     * @return index of bundle
+     * @throws IOException if the bundle file attributes could not be read
+     */
+    static BundleIndex scan(FileChannelDiskBundle bundle) throws IOException {
+        BundleIndex index = new BundleIndex(bundle.getPath());
+        index.storageSize = bundle.getStorageSize();
+
+        bundle.forEachEntry(entry -> {
+            if (entry.isOccupied()) {
+                int slot = entry.getSlot();
+                index.put(slot, entry.getName().toString(), entry.isLocked(), slot < index.storageSize ? digest(bundle, slot) : new byte[HASH_LENGTH]);
+            }
+        });
+
+        index.updateAttributes();
+        return index;
+    }
+
+    /**
+     * Calculate the SHA-1 digest of the data held in a slot.
+     *
+     * @param bundle bundle to read from
+     * @param slot slot number (0 - 510)
+     * @return digest of slot data
+     */
+    static byte[] digest(FileChannelDiskBundle bundle, int slot) {
+        ByteBuffer data = bundle.getByteBuffer().duplicate();
+        data.position(DiskBundle.INITIAL_OFFSET + (slot * DiskBundle.DISK_SIZE));
+        data.limit(DiskBundle.INITIAL_OFFSET + ((slot + 1) * DiskBundle.DISK_SIZE));
+
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            messageDigest.update(data);
+            return messageDigest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
+    }
+
+    /**
+     * Read an index previously written by {@link #write(DataOutput)}.
+     *
+     * @param input input to read from
+     * @return index read
+     * @throws IOException if the index could not be read
+     */
+    static BundleIndex read(DataInput input) throws IOException {
+        BundleIndex index = new BundleIndex(Paths.get(input.readUTF()));
+        index.storageSize = input.readUnsignedShort();
+        index.fileSize = input.readLong();
+        index.lastModified = input.readLong();
+
+        int count = input.readUnsignedShort();
+
+        for (int i = 0; i < count; i++) {
+            int slot = input.readUnsignedShort();
+            boolean locked = input.readBoolean();
+            String name = input.readUTF();
+            byte[] hash = new byte[HASH_LENGTH];
+            input.readFully(hash);
+
+            index.put(slot, name, locked, hash);
+        }
+
+        return index;
+    }
+
+    /**
+     * Write the index.
+     *
+     * @param output output to write to
+     * @throws IOException if the index could not be written
+     */
+    void write(DataOutput output) throws IOException {
+        output.writeUTF(path.toString());
+        output.writeShort(storageSize);
+        output.writeLong(fileSize);
+        output.writeLong(lastModified);
+        output.writeShort(occupied.cardinality());
+
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            LibraryEntry entry = entries[slot];
+
+            output.writeShort(slot);
+            output.writeBoolean(entry.isLocked());
+            output.writeUTF(entry.getName());
+            output.write(entry.getHash());
+        }
+    }
+
+    /**
+     * Record an occupied slot in the index.
+     *
+     * @param slot slot number (0 - 510)
+     * @param name name of slot
+     * @param locked true if slot is locked
+     * @param hash digest of slot data
+     */
+    void put(int slot, String name, boolean locked, byte[] hash) {
+        entries[slot] = new LibraryEntry(new SlotLocation(path, slot), name, locked, hash);
+        occupied.set(slot);
+    }
+
+    /**
+     * Remove a slot from the index, marking it unoccupied.
+     *
+     * @param slot slot number (0 - 510)
+     */
+    void remove(int slot) {
+        entries[slot] = null;
+        occupied.clear(slot);
+    }
+
+    /**
+     * Check to see if the bundle file has changed since it was indexed.
+     *
+     * @return true if the index is out of date
+     * @throws IOException if the bundle file attributes could not be read
+     */
+    boolean isStale() throws IOException {
+        return !Files.exists(path) || Files.size(path) != fileSize || Files.getLastModifiedTime(path).toMillis() != lastModified;
+    }
+
+    /**
+     * Update the recorded file attributes after the bundle has been changed by the library.
+     *
+     * @throws IOException if the bundle file attributes could not be read
+     */
+    void updateAttributes() throws IOException {
+        fileSize = Files.size(path);
+        lastModified = Files.getLastModifiedTime(path).toMillis();
+    }
+
+    /**
+     * Find the lowest free slot with storage.
+     *
+     * @return slot number, or -1 if there are no free slots
+     */
+    int firstFreeSlot() {
+        int slot = occupied.nextClearBit(0);
+        return slot < storageSize ? slot : -1;
+    }
+
+    /**
+     * Get the path of the bundle file.
+     *
+     * @return bundle path
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get the entry for a slot.
+     *
+     * @param slot slot number (0 - 510)
+     * @return entry of slot, or null if unoccupied
+     */
+    LibraryEntry getEntry(int slot) {
+        return entries[slot];
+    }
+
+    /**
+     * Get all entries of occupied slots.
+     *
+     * @return entries array, unoccupied slots are null
+     */
+    LibraryEntry[] getEntries() {
+        return entries;
+    }
+}
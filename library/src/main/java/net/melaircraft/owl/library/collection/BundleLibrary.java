@@ -0,0 +1,423 @@
+package net.melaircraft.owl.library.collection;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+import net.melaircraft.owl.library.exception.slot.OccupiedSlotException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A library of many disk bundles, with a persisted global catalogue of every occupied slot.
+ *
+ * Queries are answered from the index without opening the bundle files, bundles are only opened when their
+ * content is accessed or changed through the library.
+ */
+public class BundleLibrary implements Closeable {
+    /** Magic number at the start of a persisted index. */
+    private static final int INDEX_MAGIC = 0x4f574c49;
+    /** Version of the persisted index format. */
+    private static final int INDEX_VERSION = 1;
+
+    /** Path of the persisted index. */
+    private final Path indexPath;
+    /** Index of each bundle in the library, in the order they were added. */
+    private final Map<Path, BundleIndex> indexes = new LinkedHashMap<>();
+    /** Bundles currently opened by the library. */
+    private final Map<Path, FileChannelDiskBundle> openBundles = new HashMap<>();
+    /** Entries by upper case name, rebuilt lazily after changes. */
+    private Map<String, List<LibraryEntry>> nameIndex;
+
+    /**
+     * Construct a new, empty, bundle library.
+     *
+     * @param indexPath path the global index is persisted to
+     */
+    public BundleLibrary(Path indexPath) {
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * Load a bundle library from its persisted index, if no index exists an empty library is returned.
+     *
+     * The index is read in a single read, bundles whose files have changed since they were indexed are rescanned.
+     *
+     * @param indexPath path the global index is persisted to
+     * @return loaded library
+     * @throws IOException if the index could not be read
+     */
+    public static BundleLibrary load(Path indexPath) throws IOException {
+        BundleLibrary library = new BundleLibrary(indexPath);
+
+        if (Files.exists(indexPath)) {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(indexPath)));
+
+            if (input.readInt() != INDEX_MAGIC || input.readInt() != INDEX_VERSION) {
+                throw new IOException(indexPath + " is not a bundle library index.");
+            }
+
+            int count = input.readInt();
+
+            for (int i = 0; i < count; i++) {
+                BundleIndex index = BundleIndex.read(input);
+                library.indexes.put(index.getPath(), index);
+            }
+
+            library.refresh();
+        }
+
+        return library;
+    }
+
+    /**
+     * Persist the global index.
+     *
+     * @throws IOException if the index could not be written
+     */
+    public synchronized void save() throws IOException {
+        Path temporary = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(INDEX_VERSION);
+            output.writeInt(indexes.size());
+
+            for (BundleIndex index : indexes.values()) {
+                index.write(output);
+            }
+        }
+
+        Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Add a bundle file to the library, indexing it if it is new or has changed.
+     *
+     * @param bundle path to MMB file
+     * @throws IOException if the bundle could not be indexed
+     */
+    public synchronized void addBundle(Path bundle) throws IOException {
+        Path path = bundle.toAbsolutePath().normalize();
+        BundleIndex existing = indexes.get(path);
+
+        if (existing == null || existing.isStale()) {
+            reindex(path);
+        }
+    }
+
+    /**
+     * Remove a bundle file from the library, the file itself is left untouched.
+     *
+     * @param bundle path to MMB file
+     * @throws IOException if the bundle was open and could not be closed
+     */
+    public synchronized void removeBundle(Path bundle) throws IOException {
+        Path path = bundle.toAbsolutePath().normalize();
+        indexes.remove(path);
+        nameIndex = null;
+
+        FileChannelDiskBundle open = openBundles.remove(path);
+
+        if (open != null) {
+            open.close();
+        }
+    }
+
+    /**
+     * Rescan any bundle whose file has changed since it was indexed.
+     *
+     * @throws IOException if a bundle could not be indexed
+     */
+    public synchronized void refresh() throws IOException {
+        for (BundleIndex index : new ArrayList<>(indexes.values())) {
+            if (index.isStale()) {
+                reindex(index.getPath());
+            }
+        }
+    }
+
+    /**
+     * Get the paths of every bundle in the library.
+     *
+     * @return bundle paths, in the order they were added
+     */
+    public synchronized List<Path> getBundles() {
+        return new ArrayList<>(indexes.keySet());
+    }
+
+    /**
+     * Get every occupied slot across all bundles.
+     *
+     * @return library entries
+     */
+    public synchronized List<LibraryEntry> getEntries() {
+        List<LibraryEntry> result = new ArrayList<>();
+
+        for (BundleIndex index : indexes.values()) {
+            for (LibraryEntry entry : index.getEntries()) {
+                if (entry != null) {
+                    result.add(entry);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Find all disks with a name, names are compared ignoring case.
+     *
+     * @param name name of disk
+     * @return matching library entries
+     */
+    public synchronized List<LibraryEntry> findByName(String name) {
+        if (nameIndex == null) {
+            nameIndex = new HashMap<>();
+
+            for (LibraryEntry entry : getEntries()) {
+                nameIndex.computeIfAbsent(entry.getName().toUpperCase(Locale.ROOT), k -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        return Collections.unmodifiableList(nameIndex.getOrDefault(name.toUpperCase(Locale.ROOT), Collections.emptyList()));
+    }
+
+    /**
+     * Find all disks whose data has a SHA-1 digest.
+     *
+     * @param hash SHA-1 digest of slot data
+     * @return matching library entries
+     */
+    public synchronized List<LibraryEntry> findByHash(byte[] hash) {
+        List<LibraryEntry> result = new ArrayList<>();
+
+        for (LibraryEntry entry : getEntries()) {
+            if (entry.hasHash(hash)) {
+                result.add(entry);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Find the first unoccupied slot with storage in any bundle of the library.
+     *
+     * @return location of a free slot, empty if every bundle is full
+     */
+    public synchronized Optional<SlotLocation> nextFreeSlot() {
+        for (BundleIndex index : indexes.values()) {
+            int slot = index.firstFreeSlot();
+
+            if (slot >= 0) {
+                return Optional.of(new SlotLocation(index.getPath(), slot));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Get a bundle of the library, opening it if it is not already open.
+     *
+     * Changes made directly to the bundle are not reflected in the index until {@link #refresh()} is called.
+     *
+     * @param bundle path to MMB file
+     * @return opened disk bundle
+     * @throws IOException if the bundle could not be opened
+     */
+    public synchronized DiskBundle getBundle(Path bundle) throws IOException {
+        return open(bundle.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Move a disk between slots, possibly in different bundles. The data is transferred directly between the bundle
+     * files, the name and lock state are carried over and the source slot is left deactivated.
+     *
+     * @param from location of the disk to move
+     * @param to unoccupied location to move the disk into
+     * @throws IOException if either bundle could not be accessed
+     * @throws InactivateSlotException if the source slot is not occupied
+     * @throws LockedSlotException if the source slot is locked
+     * @throws OccupiedSlotException if the destination slot is occupied
+     * @throws NoStorageSlotException if either slot has no storage
+     */
+    public synchronized void move(SlotLocation from, SlotLocation to) throws IOException {
+        Path fromPath = from.getBundle().toAbsolutePath().normalize();
+        Path toPath = to.getBundle().toAbsolutePath().normalize();
+
+        FileChannelDiskBundle source = open(fromPath);
+        FileChannelDiskBundle target = open(toPath);
+
+        if (!source.isOccupied(from.getSlot())) {
+            throw new InactivateSlotException(from.getSlot());
+        }
+
+        if (source.isLocked(from.getSlot())) {
+            throw new LockedSlotException(from.getSlot());
+        }
+
+        if (target.isOccupied(to.getSlot())) {
+            throw new OccupiedSlotException(to.getSlot());
+        }
+
+        if (from.getSlot() >= source.getStorageSize()) {
+            throw new NoStorageSlotException(from.getSlot());
+        }
+
+        if (to.getSlot() >= target.getStorageSize()) {
+            throw new NoStorageSlotException(to.getSlot());
+        }
+
+        long sourcePosition = DiskBundle.INITIAL_OFFSET + ((long) from.getSlot() * DiskBundle.DISK_SIZE);
+        long targetPosition = DiskBundle.INITIAL_OFFSET + ((long) to.getSlot() * DiskBundle.DISK_SIZE);
+
+        if (source == target) {
+            ByteBuffer data = source.getByteBuffer().duplicate();
+            data.position((int) sourcePosition);
+            data.limit((int) sourcePosition + DiskBundle.DISK_SIZE);
+
+            ByteBuffer destination = target.getByteBuffer().duplicate();
+            destination.position((int) targetPosition);
+            destination.put(data);
+        } else {
+            source.flush();
+            transfer(source.getFileChannel(), sourcePosition, target.getFileChannel(), targetPosition);
+        }
+
+        String name = source.getName(from.getSlot());
+
+        target.activate(to.getSlot());
+        target.unlock(to.getSlot());
+        target.setName(to.getSlot(), name);
+        source.deactivate(from.getSlot(), false);
+
+        source.flush();
+        target.flush();
+
+        BundleIndex sourceIndex = index(fromPath);
+        BundleIndex targetIndex = index(toPath);
+
+        LibraryEntry moved = sourceIndex.getEntry(from.getSlot());
+        byte[] hash = moved != null ? moved.getHash() : BundleIndex.digest(target, to.getSlot());
+
+        sourceIndex.remove(from.getSlot());
+        targetIndex.put(to.getSlot(), name, false, hash);
+
+        sourceIndex.updateAttributes();
+        targetIndex.updateAttributes();
+        nameIndex = null;
+    }
+
+    /**
+     * Close all bundles opened by the library.
+     *
+     * @throws IOException if a bundle could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+
+        for (FileChannelDiskBundle bundle : openBundles.values()) {
+            try {
+                bundle.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        openBundles.clear();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Transfer a disk worth of data between two file channels.
+     *
+     * @param source source channel
+     * @param sourcePosition position in source
+     * @param target target channel
+     * @param targetPosition position in target
+     * @throws IOException if the transfer failed
+     */
+    private void transfer(FileChannel source, long sourcePosition, FileChannel target, long targetPosition) throws IOException {
+        long transferred = 0;
+        target.position(targetPosition);
+
+        while (transferred < DiskBundle.DISK_SIZE) {
+            long count = source.transferTo(sourcePosition + transferred, DiskBundle.DISK_SIZE - transferred, target);
+
+            if (count <= 0) {
+                throw new IOException("Transfer from bundle stalled after " + transferred + " bytes.");
+            }
+
+            transferred += count;
+        }
+    }
+
+    /**
+     * Rescan a bundle and replace its index.
+     *
+     * @param path normalised path to MMB file
+     * @throws IOException if the bundle could not be scanned
+     */
+    private void reindex(Path path) throws IOException {
+        indexes.put(path, BundleIndex.scan(open(path)));
+        nameIndex = null;
+    }
+
+    /**
+     * Get the index of a bundle, indexing it if it is not yet part of the library.
+     *
+     * @param path normalised path to MMB file
+     * @return index of bundle
+     * @throws IOException if the bundle could not be indexed
+     */
+    private BundleIndex index(Path path) throws IOException {
+        if (!indexes.containsKey(path)) {
+            reindex(path);
+        }
+
+        return indexes.get(path);
+    }
+
+    /**
+     * Open a bundle, reusing an existing open bundle.
+     *
+     * @param path normalised path to MMB file
+     * @return opened bundle
+     * @throws IOException if the bundle could not be opened
+     */
+    private FileChannelDiskBundle open(Path path) throws IOException {
+        FileChannelDiskBundle bundle = openBundles.get(path);
+
+        if (bundle == null) {
+            bundle = FileChannelDiskBundle.open(path);
+            openBundles.put(path, bundle);
+        }
+
+        return bundle;
+    }
+}
@@ -0,0 +1,83 @@
+package net.melaircraft.owl.library.collection;
+
+import java.util.Arrays;
+
+/**
+ * An occupied slot as recorded in the global catalogue of a bundle library.
+ */
+public final class LibraryEntry {
+    /** Location of the slot. */
+    private final SlotLocation location;
+    /** Name of the slot. */
+    private final String name;
+    /** True if the slot is locked. */
+    private final boolean locked;
+    /** SHA-1 digest of the slot data. */
+    private final byte[] hash;
+
+    /**
+     * Construct a new library entry.
+     *
+     * @param location location of the slot
+     * @param name name of the slot
+     * @param locked true if the slot is locked
+     * @param hash SHA-1 digest of the slot data
+     */
+    public LibraryEntry(SlotLocation location, String name, boolean locked, byte[] hash) {
+        this.location = location;
+        this.name = name;
+        this.locked = locked;
+        this.hash = hash.clone();
+    }
+
+    /**
+     * Get the location of the slot.
+     *
+     * @return slot location
+     */
+    public SlotLocation getLocation() {
+        return location;
+    }
+
+    /**
+     * Get the name of the slot.
+     *
+     * @return slot name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Check to see if the slot is locked.
+     *
+     * @return true if the slot is locked
+     */
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * Get the SHA-1 digest of the slot data.
+     *
+     * @return digest bytes
+     */
+    public byte[] getHash() {
+        return hash.clone();
+    }
+
+    /**
+     * Check to see if the slot data has the provided digest.
+     *
+     * @param digest SHA-1 digest to compare with
+     * @return true if the digests are equal
+     */
+    public boolean hasHash(byte[] digest) {
+        return Arrays.equals(hash, digest);
+    }
+
+    @Override
+    public String toString() {
+        return location + " " + name;
+    }
+}
@@ -0,0 +1,67 @@
+package net.melaircraft.owl.library.collection;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * The location of a slot within a bundle library.
+ */
+public final class SlotLocation {
+    /** Path of the bundle file. */
+    private final Path bundle;
+    /** Slot number within the bundle. */
+    private final int slot;
+
+    /**
+     * Construct a new slot location.
+     *
+     * @param bundle path of the bundle file
+     * @param slot slot number (0 - 510)
+     */
+    public SlotLocation(Path bundle, int slot) {
+        this.bundle = bundle;
+        this.slot = slot;
+    }
+
+    /**
+     * Get the path of the bundle file.
+     *
+     * @return bundle path
+     */
+    public Path getBundle() {
+        return bundle;
+    }
+
+    /**
+     * Get the slot number within the bundle.
+     *
+     * @return slot number
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof SlotLocation)) {
+            return false;
+        }
+
+        SlotLocation that = (SlotLocation) o;
+        return slot == that.slot && bundle.equals(that.bundle);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bundle, slot);
+    }
+
+    @Override
+    public String toString() {
+        return bundle + ":" + slot;
+    }
+}
@@ -0,0 +1,258 @@
+package net.melaircraft.owl.library.dfs;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.exception.dfs.InvalidCatalogueException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A parsed Acorn DFS catalogue, held in the first two sectors of a disk.
+ *
+ * Sector 0 holds the first eight characters of the title followed by the name and directory of up to 31 files.
+ * Sector 1 holds the rest of the title, the cycle number, the file count, the boot option and the number of sectors
+ * on the disk, followed by the addresses, length and start sector of each file.
+ */
+public final class DfsCatalogue {
+    /** Number of bytes in a DFS catalogue. */
+    public static final int CATALOGUE_SIZE = DiskBundle.SECTOR_SIZE * 2;
+    /** Number of sectors used by the catalogue. */
+    public static final int CATALOGUE_SECTORS = 2;
+    /** Maximum number of files in a catalogue. */
+    public static final int MAX_FILES = 31;
+    /** Number of sectors in a disk image. */
+    public static final int DISK_SECTORS = DiskBundle.SECTORS_PER_TRACK * DiskBundle.TRACKS_PER_DISK;
+    /** Size of a file entry in each catalogue sector. */
+    private static final int ENTRY_SIZE = 8;
+
+    /** Title of disk, without trailing spaces or 0x00. */
+    private final String title;
+    /** Cycle number of catalogue. */
+    private final int cycle;
+    /** Boot option (0 - 3). */
+    private final int bootOption;
+    /** Number of sectors on disk as recorded by the catalogue. */
+    private final int sectorCount;
+    /** Files, in catalogue order. */
+    private final List<DfsFile> files;
+
+    /**
+     * Construct a new parsed DFS catalogue.
+     *
+     * @param title title of disk
+     * @param cycle cycle number
+     * @param bootOption boot option
+     * @param sectorCount number of sectors on disk
+     * @param files files in catalogue order
+     */
+    private DfsCatalogue(String title, int cycle, int bootOption, int sectorCount, List<DfsFile> files) {
+        this.title = title;
+        this.cycle = cycle;
+        this.bootOption = bootOption;
+        this.sectorCount = sectorCount;
+        this.files = Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Read and parse the DFS catalogue of a slot.
+     *
+     * @param bundle bundle to read from
+     * @param slot slot number (0 - 510)
+     * @return parsed catalogue
+     * @throws InvalidSlotException if slot is invalid
+     * @throws NoStorageSlotException if slot has no storage allocated
+     * @throws InvalidCatalogueException if the catalogue could not be parsed
+     */
+    public static DfsCatalogue read(DiskBundle bundle, int slot) throws InvalidSlotException, NoStorageSlotException, InvalidCatalogueException {
+        ByteBuffer catalogue = ByteBuffer.allocate(CATALOGUE_SIZE);
+        bundle.read(slot, 0, catalogue);
+        catalogue.flip();
+
+        return parse(catalogue);
+    }
+
+    /**
+     * Parse a DFS catalogue.
+     *
+     * @param catalogue buffer holding the two catalogue sectors from its position, the buffer is not modified
+     * @return parsed catalogue
+     * @throws InvalidCatalogueException if the catalogue could not be parsed
+     */
+    public static DfsCatalogue parse(ByteBuffer catalogue) throws InvalidCatalogueException {
+        if (catalogue.remaining() < CATALOGUE_SIZE) {
+            throw new InvalidCatalogueException("Catalogue is " + catalogue.remaining() + " bytes, expected " + CATALOGUE_SIZE + ".");
+        }
+
+        int sector0 = catalogue.position();
+        int sector1 = sector0 + DiskBundle.SECTOR_SIZE;
+
+        int fileOffset = catalogue.get(sector1 + 5) & 0xff;
+
+        if (fileOffset % ENTRY_SIZE != 0) {
+            throw new InvalidCatalogueException("File offset " + fileOffset + " is not a multiple of " + ENTRY_SIZE + ".");
+        }
+
+        StringBuilder title = new StringBuilder();
+        appendText(title, catalogue, sector0, 8);
+        appendText(title, catalogue, sector1, 4);
+
+        int cycle = catalogue.get(sector1 + 4) & 0xff;
+        int options = catalogue.get(sector1 + 6) & 0xff;
+        int sectorCount = ((options & 0x03) << 8) | (catalogue.get(sector1 + 7) & 0xff);
+
+        List<DfsFile> files = new ArrayList<>();
+
+        for (int entry = ENTRY_SIZE; entry <= fileOffset; entry += ENTRY_SIZE) {
+            files.add(parseFile(catalogue, sector0 + entry, sector1 + entry));
+        }
+
+        return new DfsCatalogue(trimTitle(title), cycle, (options >> 4) & 0x03, sectorCount, files);
+    }
+
+    /**
+     * Parse a single file entry.
+     *
+     * @param catalogue buffer holding catalogue
+     * @param nameEntry absolute position of the entry in sector 0
+     * @param infoEntry absolute position of the entry in sector 1
+     * @return parsed file
+     */
+    private static DfsFile parseFile(ByteBuffer catalogue, int nameEntry, int infoEntry) {
+        StringBuilder name = new StringBuilder();
+        appendText(name, catalogue, nameEntry, 7);
+
+        int directoryByte = catalogue.get(nameEntry + 7) & 0xff;
+        int mixed = catalogue.get(infoEntry + 6) & 0xff;
+
+        int loadAddress = readShort(catalogue, infoEntry) | (((mixed >> 2) & 0x03) << 16);
+        int execAddress = readShort(catalogue, infoEntry + 2) | (((mixed >> 6) & 0x03) << 16);
+        int length = readShort(catalogue, infoEntry + 4) | (((mixed >> 4) & 0x03) << 16);
+        int startSector = ((mixed & 0x03) << 8) | (catalogue.get(infoEntry + 7) & 0xff);
+
+        return new DfsFile((char) (directoryByte & 0x7f), name.toString().trim(), (directoryByte & 0x80) != 0, loadAddress, execAddress, length, startSector);
+    }
+
+    /**
+     * Append characters from the catalogue, ignoring the top bit of each.
+     *
+     * @param builder builder to append to
+     * @param catalogue buffer holding catalogue
+     * @param position absolute position of first character
+     * @param length number of characters
+     */
+    private static void appendText(StringBuilder builder, ByteBuffer catalogue, int position, int length) {
+        for (int i = 0; i < length; i++) {
+            builder.append((char) (catalogue.get(position + i) & 0x7f));
+        }
+    }
+
+    /**
+     * Trim a title at its first 0x00 and remove trailing spaces.
+     *
+     * @param title untrimmed title
+     * @return trimmed title
+     */
+    private static String trimTitle(StringBuilder title) {
+        int end = title.indexOf("\0");
+        return (end < 0 ? title.toString() : title.substring(0, end)).trim();
+    }
+
+    /**
+     * Read a little endian 16 bit value.
+     *
+     * @param catalogue buffer holding catalogue
+     * @param position absolute position of the low byte
+     * @return unsigned value
+     */
+    private static int readShort(ByteBuffer catalogue, int position) {
+        return (catalogue.get(position) & 0xff) | ((catalogue.get(position + 1) & 0xff) << 8);
+    }
+
+    /**
+     * Get the title of the disk.
+     *
+     * @return disk title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Get the cycle number of the catalogue, incremented by DFS on each catalogue write.
+     *
+     * @return cycle number
+     */
+    public int getCycle() {
+        return cycle;
+    }
+
+    /**
+     * Get the boot option of the disk.
+     *
+     * @return boot option (0 - 3)
+     */
+    public int getBootOption() {
+        return bootOption;
+    }
+
+    /**
+     * Get the number of sectors on the disk, as recorded by the catalogue.
+     *
+     * @return sector count
+     */
+    public int getSectorCount() {
+        return sectorCount;
+    }
+
+    /**
+     * Get the files of the catalogue, in catalogue order.
+     *
+     * @return unmodifiable list of files
+     */
+    public List<DfsFile> getFiles() {
+        return files;
+    }
+
+    /**
+     * Check to see if the catalogue is plausibly DFS, its sector count being within a disk image and every file lying
+     * between the catalogue and the end of the disk. Parsing only checks the file count, so garbage data often
+     * parses.
+     *
+     * @return true if the catalogue can be trusted
+     */
+    public boolean isPlausible() {
+        if (sectorCount < CATALOGUE_SECTORS || sectorCount > DISK_SECTORS) {
+            return false;
+        }
+
+        for (DfsFile file : files) {
+            if (file.getStartSector() < CATALOGUE_SECTORS || file.getEndSector() > sectorCount) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Calculate which sectors of the disk are used by the catalogue or by files. Sectors of files which lie beyond
+     * the disk image are ignored.
+     *
+     * @return used sectors
+     */
+    public BitSet getUsedSectors() {
+        BitSet used = new BitSet(DISK_SECTORS);
+        used.set(0, CATALOGUE_SECTORS);
+
+        for (DfsFile file : files) {
+            used.set(Math.min(file.getStartSector(), DISK_SECTORS), Math.min(file.getEndSector(), DISK_SECTORS));
+        }
+
+        return used;
+    }
+}
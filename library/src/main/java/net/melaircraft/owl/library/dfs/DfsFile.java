@@ -0,0 +1,139 @@
+package net.melaircraft.owl.library.dfs;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+/**
+ * A single file entry of a DFS catalogue.
+ */
+public final class DfsFile {
+    /** Directory character of file. */
+    private final char directory;
+    /** Name of file, without trailing spaces. */
+    private final String name;
+    /** True if the file is locked. */
+    private final boolean locked;
+    /** Load address of file, 18 bits. */
+    private final int loadAddress;
+    /** Execution address of file, 18 bits. */
+    private final int execAddress;
+    /** Length of file in bytes. */
+    private final int length;
+    /** First sector of file. */
+    private final int startSector;
+
+    /**
+     * Construct a new DFS file entry.
+     *
+     * @param directory directory character of file
+     * @param name name of file, without trailing spaces
+     * @param locked true if the file is locked
+     * @param loadAddress load address of file
+     * @param execAddress execution address of file
+     * @param length length of file in bytes
+     * @param startSector first sector of file
+     */
+    public DfsFile(char directory, String name, boolean locked, int loadAddress, int execAddress, int length, int startSector) {
+        this.directory = directory;
+        this.name = name;
+        this.locked = locked;
+        this.loadAddress = loadAddress;
+        this.execAddress = execAddress;
+        this.length = length;
+        this.startSector = startSector;
+    }
+
+    /**
+     * Get the directory character of the file.
+     *
+     * @return directory character
+     */
+    public char getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the name of the file, without its directory.
+     *
+     * @return file name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the name of the file qualified with its directory, such as "$.BOOT".
+     *
+     * @return qualified file name
+     */
+    public String getFullName() {
+        return directory + "." + name;
+    }
+
+    /**
+     * Check to see if the file is locked.
+     *
+     * @return true if locked
+     */
+    public boolean isLocked() {
+        return locked;
+    }
+
+    /**
+     * Get the load address of the file.
+     *
+     * @return load address
+     */
+    public int getLoadAddress() {
+        return loadAddress;
+    }
+
+    /**
+     * Get the execution address of the file.
+     *
+     * @return execution address
+     */
+    public int getExecAddress() {
+        return execAddress;
+    }
+
+    /**
+     * Get the length of the file in bytes.
+     *
+     * @return length of file
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the first sector of the file.
+     *
+     * @return sector number
+     */
+    public int getStartSector() {
+        return startSector;
+    }
+
+    /**
+     * Get the number of sectors occupied by the file.
+     *
+     * @return sector count
+     */
+    public int getSectorCount() {
+        return (length + DiskBundle.SECTOR_SIZE - 1) / DiskBundle.SECTOR_SIZE;
+    }
+
+    /**
+     * Get the sector following the last sector of the file.
+     *
+     * @return sector number, exclusive
+     */
+    public int getEndSector() {
+        return startSector + getSectorCount();
+    }
+
+    @Override
+    public String toString() {
+        return getFullName();
+    }
+}
@@ -0,0 +1,111 @@
+package net.melaircraft.owl.library.diff;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Differences between two disk images, by sector and, where both hold DFS file systems, by file.
+ */
+public final class DiskDiff {
+    /** Sectors which differ. */
+    private final BitSet changedSectors;
+    /** Changed files, empty if neither disk holds a DFS catalogue. */
+    private final List<FileChange> fileChanges;
+    /** Whether either disk holds a valid DFS catalogue. */
+    private final boolean fileSystem;
+
+    /**
+     * Construct a new disk diff.
+     *
+     * @param changedSectors sectors which differ
+     * @param fileChanges changed files
+     * @param fileSystem whether either disk holds a valid DFS catalogue
+     */
+    DiskDiff(BitSet changedSectors, List<FileChange> fileChanges, boolean fileSystem) {
+        this.changedSectors = changedSectors;
+        this.fileChanges = Collections.unmodifiableList(fileChanges);
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Check to see if the disk images are identical.
+     *
+     * @return true if no sector differs
+     */
+    public boolean isIdentical() {
+        return changedSectors.isEmpty();
+    }
+
+    /**
+     * Get the sectors which differ.
+     *
+     * @return copy of the set of changed sector numbers
+     */
+    public BitSet getChangedSectors() {
+        return (BitSet) changedSectors.clone();
+    }
+
+    /**
+     * Get the number of sectors which differ.
+     *
+     * @return sector count
+     */
+    public int getChangedSectorCount() {
+        return changedSectors.cardinality();
+    }
+
+    /**
+     * Get the runs of consecutive sectors which differ.
+     *
+     * @return sector ranges, in sector order
+     */
+    public List<SectorRange> getChangedRanges() {
+        List<SectorRange> ranges = new ArrayList<>();
+
+        for (int start = changedSectors.nextSetBit(0); start >= 0; ) {
+            int end = changedSectors.nextClearBit(start);
+            ranges.add(new SectorRange(start, end - start));
+            start = changedSectors.nextSetBit(end);
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Get the tracks holding at least one sector which differs.
+     *
+     * @return set of changed track numbers
+     */
+    public BitSet getChangedTracks() {
+        BitSet tracks = new BitSet(DiskBundle.TRACKS_PER_DISK);
+
+        for (int sector = changedSectors.nextSetBit(0); sector >= 0; sector = changedSectors.nextSetBit(sector + 1)) {
+            tracks.set(sector / DiskBundle.SECTORS_PER_TRACK);
+        }
+
+        return tracks;
+    }
+
+    /**
+     * Check to see if either disk holds a valid DFS catalogue, so that file changes were found.
+     *
+     * @return true if file changes are available
+     */
+    public boolean hasFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * Get the files which were added, removed or modified, a file on a disk without a valid catalogue being treated
+     * as absent.
+     *
+     * @return file changes in name order, empty if neither disk holds a DFS catalogue
+     */
+    public List<FileChange> getFileChanges() {
+        return fileChanges;
+    }
+}
@@ -0,0 +1,284 @@
+package net.melaircraft.owl.library.diff;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.Disk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsCatalogue;
+import net.melaircraft.owl.library.dfs.DfsFile;
+import net.melaircraft.owl.library.exception.dfs.InvalidCatalogueException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Compares disk images sector by sector without extracting them.
+ *
+ * Where a bundle can provide a view of a slot, the slot is compared in place, otherwise it is read one track at a time
+ * into a reused buffer. Sectors are compared eight bytes at a time, moving to the next sector at the first difference.
+ * When either disk holds a DFS catalogue, the files added, removed or modified are found from the catalogues and the
+ * changed sectors, without reading the files.
+ */
+public final class DiskDiffer {
+    /**
+     * Utility class, not constructed.
+     */
+    private DiskDiffer() {
+    }
+
+    /**
+     * Compare two slots of a bundle.
+     *
+     * @param bundle bundle holding the slots
+     * @param firstSlot slot compared from (0 - 510)
+     * @param secondSlot slot compared to (0 - 510)
+     * @return differences, files only on the second slot being added
+     * @throws InvalidSlotException if either slot number is invalid
+     * @throws NoStorageSlotException if either slot has no storage
+     */
+    public static DiskDiff compare(DiskBundle bundle, int firstSlot, int secondSlot) throws InvalidSlotException, NoStorageSlotException {
+        return compare(bundle, firstSlot, bundle, secondSlot);
+    }
+
+    /**
+     * Compare slots of two bundles.
+     *
+     * @param firstBundle bundle holding the slot compared from
+     * @param firstSlot slot compared from (0 - 510)
+     * @param secondBundle bundle holding the slot compared to
+     * @param secondSlot slot compared to (0 - 510)
+     * @return differences, files only on the second slot being added
+     * @throws InvalidSlotException if either slot number is invalid
+     * @throws NoStorageSlotException if either slot has no storage
+     */
+    public static DiskDiff compare(DiskBundle firstBundle, int firstSlot, DiskBundle secondBundle, int secondSlot) throws InvalidSlotException, NoStorageSlotException {
+        return compare(TrackSource.of(firstBundle, firstSlot), TrackSource.of(secondBundle, secondSlot));
+    }
+
+    /**
+     * Compare a slot of a bundle with a disk, such as one about to be inserted. A short disk image is compared as if
+     * padded with 0x00.
+     *
+     * @param bundle bundle holding the slot
+     * @param slot slot compared from (0 - 510)
+     * @param disk disk compared to
+     * @return differences, files only on the disk being added
+     * @throws InvalidSlotException if the slot number is invalid
+     * @throws NoStorageSlotException if the slot has no storage
+     */
+    public static DiskDiff compare(DiskBundle bundle, int slot, Disk disk) throws InvalidSlotException, NoStorageSlotException {
+        return compare(TrackSource.of(bundle, slot), TrackSource.of(disk));
+    }
+
+    /**
+     * Compare two disk images.
+     *
+     * @param first source of the image compared from
+     * @param second source of the image compared to
+     * @return differences
+     */
+    private static DiskDiff compare(TrackSource first, TrackSource second) {
+        BitSet changed = new BitSet(DfsCatalogue.DISK_SECTORS);
+        DfsCatalogue firstCatalogue = null;
+        DfsCatalogue secondCatalogue = null;
+
+        for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+            ByteBuffer firstTrack = first.track(track);
+            ByteBuffer secondTrack = second.track(track);
+
+            for (int sector = 0; sector < DiskBundle.SECTORS_PER_TRACK; sector++) {
+                int start = sector * DiskBundle.SECTOR_SIZE;
+
+                for (int i = start; i < start + DiskBundle.SECTOR_SIZE; i += Long.BYTES) {
+                    if (firstTrack.getLong(i) != secondTrack.getLong(i)) {
+                        changed.set((track * DiskBundle.SECTORS_PER_TRACK) + sector);
+                        break;
+                    }
+                }
+            }
+
+            if (track == 0) {
+                firstCatalogue = parseCatalogue(firstTrack);
+                secondCatalogue = parseCatalogue(secondTrack);
+            }
+        }
+
+        if (firstCatalogue == null && secondCatalogue == null) {
+            return new DiskDiff(changed, Collections.emptyList(), false);
+        }
+
+        return new DiskDiff(changed, compareFiles(firstCatalogue, secondCatalogue, changed), true);
+    }
+
+    /**
+     * Find the files which differ between two catalogues.
+     *
+     * @param first catalogue compared from, or null if there is none
+     * @param second catalogue compared to, or null if there is none
+     * @param changed sectors which differ
+     * @return file changes in name order
+     */
+    private static List<FileChange> compareFiles(DfsCatalogue first, DfsCatalogue second, BitSet changed) {
+        Map<String, DfsFile> firstFiles = filesByName(first);
+        Map<String, DfsFile> secondFiles = filesByName(second);
+        TreeSet<String> names = new TreeSet<>(firstFiles.keySet());
+        names.addAll(secondFiles.keySet());
+
+        List<FileChange> changes = new ArrayList<>();
+
+        for (String name : names) {
+            DfsFile before = firstFiles.get(name);
+            DfsFile after = secondFiles.get(name);
+
+            if (before == null) {
+                changes.add(new FileChange(name, FileChange.Kind.ADDED));
+            } else if (after == null) {
+                changes.add(new FileChange(name, FileChange.Kind.REMOVED));
+            } else if (!sameAttributes(before, after) || intersects(changed, after)) {
+                changes.add(new FileChange(name, FileChange.Kind.MODIFIED));
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Index the files of a catalogue by qualified name.
+     *
+     * @param catalogue catalogue, or null for none
+     * @return files by name
+     */
+    private static Map<String, DfsFile> filesByName(DfsCatalogue catalogue) {
+        Map<String, DfsFile> files = new TreeMap<>();
+
+        if (catalogue != null) {
+            for (DfsFile file : catalogue.getFiles()) {
+                files.put(file.getFullName(), file);
+            }
+        }
+
+        return files;
+    }
+
+    /**
+     * Check to see if two files have the same attributes and position.
+     *
+     * @param first first file
+     * @param second second file
+     * @return true if the lock, addresses, length and start sector match
+     */
+    private static boolean sameAttributes(DfsFile first, DfsFile second) {
+        return first.isLocked() == second.isLocked()
+                && first.getLoadAddress() == second.getLoadAddress()
+                && first.getExecAddress() == second.getExecAddress()
+                && first.getLength() == second.getLength()
+                && first.getStartSector() == second.getStartSector();
+    }
+
+    /**
+     * Check to see if any sector of a file differs.
+     *
+     * @param changed sectors which differ
+     * @param file file to check
+     * @return true if a sector of the file is in the changed set
+     */
+    private static boolean intersects(BitSet changed, DfsFile file) {
+        int next = changed.nextSetBit(file.getStartSector());
+
+        return next >= 0 && next < file.getEndSector();
+    }
+
+    /**
+     * Parse the catalogue at the start of track 0.
+     *
+     * @param track buffer holding track 0 from position 0
+     * @return catalogue, or null if it is not a valid DFS catalogue
+     */
+    private static DfsCatalogue parseCatalogue(ByteBuffer track) {
+        try {
+            return DfsCatalogue.parse(track.duplicate());
+        } catch (InvalidCatalogueException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Source of the tracks of a disk image, each track being valid until the next is requested.
+     */
+    private interface TrackSource {
+        /**
+         * Get a track.
+         *
+         * @param track track number
+         * @return buffer holding the track from position 0 to its limit
+         */
+        ByteBuffer track(int track);
+
+        /**
+         * Create a source for a slot, viewing it in place if the bundle allows or reading it a track at a time.
+         *
+         * @param bundle bundle holding the slot
+         * @param slot slot number
+         * @return track source
+         */
+        static TrackSource of(DiskBundle bundle, int slot) {
+            ByteBuffer view = bundle instanceof AbstractDiskBundle ? ((AbstractDiskBundle) bundle).viewData(slot) : null;
+
+            if (view != null) {
+                return track -> slice(view, track);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(DiskBundle.TRACK_SIZE);
+
+            return track -> {
+                buffer.clear();
+                bundle.read(slot, track * DiskBundle.TRACK_SIZE, buffer);
+                buffer.flip();
+
+                return buffer;
+            };
+        }
+
+        /**
+         * Create a source for a disk, padding a short image with 0x00.
+         *
+         * @param disk disk
+         * @return track source
+         */
+        static TrackSource of(Disk disk) {
+            byte[] image = disk.getImage();
+
+            if (image.length < DiskBundle.DISK_SIZE) {
+                byte[] padded = new byte[DiskBundle.DISK_SIZE];
+                System.arraycopy(image, 0, padded, 0, image.length);
+                image = padded;
+            }
+
+            ByteBuffer view = ByteBuffer.wrap(image);
+
+            return track -> slice(view, track);
+        }
+
+        /**
+         * Slice a track from a disk image.
+         *
+         * @param image buffer holding the disk image from position 0
+         * @param track track number
+         * @return buffer holding only the track
+         */
+        static ByteBuffer slice(ByteBuffer image, int track) {
+            ByteBuffer slice = image.duplicate();
+            slice.limit((track + 1) * DiskBundle.TRACK_SIZE);
+            slice.position(track * DiskBundle.TRACK_SIZE);
+
+            return slice.slice();
+        }
+    }
+}
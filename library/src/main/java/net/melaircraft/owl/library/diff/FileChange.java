@@ -0,0 +1,78 @@
+package net.melaircraft.owl.library.diff;
+
+import java.util.Locale;
+
+/**
+ * A file of a DFS catalogue which differs between two disks.
+ */
+public final class FileChange {
+    /**
+     * How a file differs.
+     */
+    public enum Kind {
+        /** The file is only on the second disk. */
+        ADDED,
+        /** The file is only on the first disk. */
+        REMOVED,
+        /** The file is on both disks, but its attributes or content differ. */
+        MODIFIED
+    }
+
+    /** Qualified name of the file, such as "$.BOOT". */
+    private final String name;
+    /** How the file differs. */
+    private final Kind kind;
+
+    /**
+     * Construct a new file change.
+     *
+     * @param name qualified name of the file
+     * @param kind how the file differs
+     */
+    public FileChange(String name, Kind kind) {
+        this.name = name;
+        this.kind = kind;
+    }
+
+    /**
+     * Get the qualified name of the file.
+     *
+     * @return file name, such as "$.BOOT"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get how the file differs.
+     *
+     * @return kind of change
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof FileChange)) {
+            return false;
+        }
+
+        FileChange that = (FileChange) o;
+        return name.equals(that.name) && kind == that.kind;
+    }
+
+    @Override
+    public int hashCode() {
+        return (name.hashCode() * 31) + kind.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase(Locale.ROOT) + " " + name;
+    }
+}
@@ -0,0 +1,93 @@
+package net.melaircraft.owl.library.diff;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+/**
+ * A run of consecutive sectors of a disk.
+ */
+public final class SectorRange {
+    /** First sector of the run. */
+    private final int firstSector;
+    /** Number of sectors in the run. */
+    private final int sectorCount;
+
+    /**
+     * Construct a new sector range.
+     *
+     * @param firstSector first sector of the run
+     * @param sectorCount number of sectors in the run
+     */
+    public SectorRange(int firstSector, int sectorCount) {
+        this.firstSector = firstSector;
+        this.sectorCount = sectorCount;
+    }
+
+    /**
+     * Get the first sector of the run.
+     *
+     * @return sector number
+     */
+    public int getFirstSector() {
+        return firstSector;
+    }
+
+    /**
+     * Get the number of sectors in the run.
+     *
+     * @return sector count
+     */
+    public int getSectorCount() {
+        return sectorCount;
+    }
+
+    /**
+     * Get the sector following the last sector of the run.
+     *
+     * @return sector number, exclusive
+     */
+    public int getEndSector() {
+        return firstSector + sectorCount;
+    }
+
+    /**
+     * Get the track holding the first sector of the run.
+     *
+     * @return track number
+     */
+    public int getFirstTrack() {
+        return firstSector / DiskBundle.SECTORS_PER_TRACK;
+    }
+
+    /**
+     * Get the track holding the last sector of the run.
+     *
+     * @return track number
+     */
+    public int getLastTrack() {
+        return (getEndSector() - 1) / DiskBundle.SECTORS_PER_TRACK;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof SectorRange)) {
+            return false;
+        }
+
+        SectorRange that = (SectorRange) o;
+        return firstSector == that.firstSector && sectorCount == that.sectorCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return (firstSector * 31) + sectorCount;
+    }
+
+    @Override
+    public String toString() {
+        return sectorCount == 1 ? "sector " + firstSector : "sectors " + firstSector + "-" + (getEndSector() - 1);
+    }
+}
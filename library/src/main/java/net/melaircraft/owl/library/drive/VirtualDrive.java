@@ -0,0 +1,240 @@
+package net.melaircraft.owl.library.drive;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.exception.drive.DriveNotMountedException;
+import net.melaircraft.owl.library.exception.drive.InvalidSectorException;
+import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+import net.melaircraft.owl.library.exception.slot.SlotException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A drive with a slot of a bundle mounted, accessed sector by sector as an emulated disk drive would.
+ *
+ * The drive holds one track in memory. Reading any sector reads the whole track from the bundle, so further sectors
+ * of the same track are served without touching the bundle. Writes are made to the held track and written back as a
+ * single write covering the changed sectors when another track is accessed, the drive is flushed or the slot is
+ * remounted. The slot is validated once when mounted rather than on every access, {@link VirtualDrives} refreshes
+ * the drive when the mounted slot is locked, unlocked or written other than through the drive.
+ *
+ * Changes which can not be written back when another track is accessed, the slot is remounted or the drive is
+ * refreshed, as the slot has been locked or deactivated since they were made, are discarded as a write protected
+ * drive would refuse them.
+ */
+public class VirtualDrive {
+    /** Slot number meaning no slot is mounted. */
+    public static final int NOT_MOUNTED = -1;
+
+    /** Bundle holding the slots. */
+    private final DiskBundle bundle;
+    /** Drive number (0 - 3). */
+    private final int drive;
+    /** Held track. */
+    private final ByteBuffer track = ByteBuffer.allocate(DiskBundle.TRACK_SIZE);
+    /** Slot mounted, or NOT_MOUNTED. */
+    private int slot = NOT_MOUNTED;
+    /** True if the mounted slot was locked when mounted or last refreshed. */
+    private boolean writeProtected;
+    /** Number of the held track, or -1 if none. */
+    private int heldTrack = -1;
+    /** Bit set of sectors of the held track changed since it was last written back. */
+    private int dirtySectors;
+
+    /**
+     * Construct a new drive with no slot mounted.
+     *
+     * @param bundle bundle holding the slots
+     * @param drive drive number (0 - 3)
+     */
+    VirtualDrive(DiskBundle bundle, int drive) {
+        this.bundle = bundle;
+        this.drive = drive;
+    }
+
+    /**
+     * Mount a slot in the drive, writing back any changes to the slot previously mounted.
+     *
+     * @param newSlot slot number (0 - 510)
+     * @throws InactivateSlotException if the slot is not occupied
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     */
+    synchronized void mount(int newSlot) throws InactivateSlotException, NoStorageSlotException {
+        if (!bundle.isOccupied(newSlot)) {
+            throw new InactivateSlotException(newSlot);
+        }
+
+        if (newSlot >= bundle.getStorageSize()) {
+            throw new NoStorageSlotException(newSlot);
+        }
+
+        writeBack();
+
+        slot = newSlot;
+        writeProtected = bundle.isLocked(newSlot);
+        heldTrack = -1;
+    }
+
+    /**
+     * Unmount the slot in the drive, writing back any changes.
+     */
+    synchronized void unmount() {
+        writeBack();
+
+        slot = NOT_MOUNTED;
+        heldTrack = -1;
+    }
+
+    /**
+     * Read a sector from the disk in the drive.
+     *
+     * @param trackNumber track number (0 - 79)
+     * @param sector sector number within the track (0 - 9)
+     * @param target buffer to fill with the sector, its position is advanced by the sector size
+     * @throws DriveNotMountedException if no slot is mounted
+     * @throws InvalidSectorException if the track or sector is invalid
+     */
+    public synchronized void readSector(int trackNumber, int sector, ByteBuffer target) throws DriveNotMountedException, InvalidSectorException {
+        hold(trackNumber, sector);
+
+        ByteBuffer source = track.duplicate();
+        source.position(sector * DiskBundle.SECTOR_SIZE).limit((sector + 1) * DiskBundle.SECTOR_SIZE);
+        target.put(source);
+    }
+
+    /**
+     * Write a sector to the disk in the drive, the change is held until the track is written back.
+     *
+     * @param trackNumber track number (0 - 79)
+     * @param sector sector number within the track (0 - 9)
+     * @param source buffer holding the sector, its position is advanced by the sector size
+     * @throws DriveNotMountedException if no slot is mounted
+     * @throws InvalidSectorException if the track or sector is invalid
+     * @throws LockedSlotException if the mounted slot is locked
+     */
+    public synchronized void writeSector(int trackNumber, int sector, ByteBuffer source) throws DriveNotMountedException, InvalidSectorException, LockedSlotException {
+        if (slot != NOT_MOUNTED && writeProtected) {
+            throw new LockedSlotException(slot);
+        }
+
+        hold(trackNumber, sector);
+
+        ByteBuffer data = source.duplicate();
+        data.limit(data.position() + DiskBundle.SECTOR_SIZE);
+
+        ByteBuffer target = track.duplicate();
+        target.position(sector * DiskBundle.SECTOR_SIZE);
+        target.put(data);
+
+        source.position(data.position());
+        dirtySectors |= 1 << sector;
+    }
+
+    /**
+     * Write back any changed sectors of the held track to the bundle, as a single write from the first changed sector
+     * to the last. If the write back fails, for example as the slot has since been locked, the changes are discarded
+     * before the exception is thrown.
+     *
+     * @throws SlotException if the mounted slot can no longer be written
+     */
+    public synchronized void flush() throws SlotException {
+        if (dirtySectors == 0) {
+            return;
+        }
+
+        int first = Integer.numberOfTrailingZeros(dirtySectors);
+        int last = 31 - Integer.numberOfLeadingZeros(dirtySectors);
+
+        ByteBuffer source = track.duplicate();
+        source.position(first * DiskBundle.SECTOR_SIZE).limit((last + 1) * DiskBundle.SECTOR_SIZE);
+
+        dirtySectors = 0;
+        bundle.write(slot, (heldTrack * DiskBundle.TRACK_SIZE) + source.position(), source);
+    }
+
+    /**
+     * Write back any changes, then discard the held track and reread the lock flag of the mounted slot, used after
+     * the slot has been changed other than through this drive. Changes which can not be written back are discarded.
+     */
+    public synchronized void refresh() {
+        writeBack();
+
+        heldTrack = -1;
+
+        if (slot != NOT_MOUNTED) {
+            writeProtected = bundle.isLocked(slot);
+        }
+    }
+
+    /**
+     * Get the drive number.
+     *
+     * @return drive number (0 - 3)
+     */
+    public int getDrive() {
+        return drive;
+    }
+
+    /**
+     * Get the slot mounted in the drive.
+     *
+     * @return slot number, or NOT_MOUNTED
+     */
+    public synchronized int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Check to see if the disk in the drive is write protected, as the mounted slot was locked.
+     *
+     * @return true if write protected
+     */
+    public synchronized boolean isWriteProtected() {
+        return writeProtected;
+    }
+
+    /**
+     * Write back any changed sectors of the held track, discarding them if the slot can no longer be written.
+     */
+    private void writeBack() {
+        try {
+            flush();
+        } catch (LockedSlotException e) {
+            writeProtected = true;
+        } catch (SlotException e) {
+            /* The slot was deactivated since mounting, the changes have nowhere to go. */
+        }
+    }
+
+    /**
+     * Make a track the held track, writing back the previously held track if it has changed.
+     *
+     * @param trackNumber track number (0 - 79)
+     * @param sector sector number to be accessed (0 - 9)
+     * @throws DriveNotMountedException if no slot is mounted
+     * @throws InvalidSectorException if the track or sector is invalid
+     */
+    private void hold(int trackNumber, int sector) throws DriveNotMountedException, InvalidSectorException {
+        if (slot == NOT_MOUNTED) {
+            throw new DriveNotMountedException(drive);
+        }
+
+        if (trackNumber < 0 || trackNumber >= DiskBundle.TRACKS_PER_DISK || sector < 0 || sector >= DiskBundle.SECTORS_PER_TRACK) {
+            throw new InvalidSectorException(drive, trackNumber, sector);
+        }
+
+        if (heldTrack == trackNumber) {
+            return;
+        }
+
+        writeBack();
+
+        heldTrack = -1;
+        track.clear();
+        bundle.read(slot, trackNumber * DiskBundle.TRACK_SIZE, track);
+        track.clear();
+
+        heldTrack = trackNumber;
+    }
+}
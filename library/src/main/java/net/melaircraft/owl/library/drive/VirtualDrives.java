@@ -0,0 +1,158 @@
+package net.melaircraft.owl.library.drive;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.event.BundleChangeEvent;
+import net.melaircraft.owl.library.event.BundleListener;
+import net.melaircraft.owl.library.event.ChangeType;
+import net.melaircraft.owl.library.exception.drive.InvalidDriveException;
+import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+import net.melaircraft.owl.library.exception.slot.SlotException;
+
+import java.util.BitSet;
+
+/**
+ * The four drives of an emulated machine, each of which can have a slot of a bundle mounted.
+ *
+ * Drives can be remounted at any time without reopening the bundle. Mounting does not change the boot slots stored in
+ * the bundle, {@link #mountBootSlots()} mounts the slots the bundle would boot with. Drives listen to the bundle,
+ * refreshing a drive when its mounted slot is locked, unlocked or written other than through the drive, until closed.
+ */
+public class VirtualDrives implements AutoCloseable {
+    /** Number of drives. */
+    public static final int DRIVE_COUNT = 4;
+
+    /** Bundle holding the slots. */
+    private final DiskBundle bundle;
+    /** Drives, indexed by drive number. */
+    private final VirtualDrive[] drives = new VirtualDrive[DRIVE_COUNT];
+    /** Listener refreshing drives as their slots change. */
+    private final BundleListener listener = this::bundleChanged;
+
+    /**
+     * Construct a new set of drives over a bundle, with no slots mounted.
+     *
+     * @param bundle bundle holding the slots
+     */
+    public VirtualDrives(DiskBundle bundle) {
+        this.bundle = bundle;
+
+        for (int drive = 0; drive < DRIVE_COUNT; drive++) {
+            drives[drive] = new VirtualDrive(bundle, drive);
+        }
+
+        bundle.addListener(listener);
+    }
+
+    /**
+     * Mount a slot in a drive, replacing any slot already mounted.
+     *
+     * @param drive drive number (0 - 3)
+     * @param slot slot number (0 - 510)
+     * @return drive mounted
+     * @throws InvalidDriveException if the drive number is invalid
+     * @throws InvalidSlotException if the slot number is invalid
+     * @throws InactivateSlotException if the slot is not occupied
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     */
+    public VirtualDrive mount(int drive, int slot) throws InvalidDriveException, InvalidSlotException, InactivateSlotException, NoStorageSlotException {
+        VirtualDrive virtualDrive = getDrive(drive);
+        virtualDrive.mount(slot);
+
+        return virtualDrive;
+    }
+
+    /**
+     * Mount the boot slot of each drive held in the bundle, drives whose boot slot is not occupied or has no storage
+     * are left unmounted.
+     */
+    public void mountBootSlots() {
+        for (int drive = 0; drive < DRIVE_COUNT; drive++) {
+            int slot = bundle.getBootSlot(drive);
+
+            if (slot <= 510 && slot < bundle.getStorageSize() && bundle.isOccupied(slot)) {
+                drives[drive].mount(slot);
+            } else {
+                drives[drive].unmount();
+            }
+        }
+    }
+
+    /**
+     * Unmount the slot in a drive, writing back any changes.
+     *
+     * @param drive drive number (0 - 3)
+     * @throws InvalidDriveException if the drive number is invalid
+     */
+    public void unmount(int drive) throws InvalidDriveException {
+        getDrive(drive).unmount();
+    }
+
+    /**
+     * Get a drive.
+     *
+     * @param drive drive number (0 - 3)
+     * @return drive
+     * @throws InvalidDriveException if the drive number is invalid
+     */
+    public VirtualDrive getDrive(int drive) throws InvalidDriveException {
+        if (drive < 0 || drive >= DRIVE_COUNT) {
+            throw new InvalidDriveException(drive);
+        }
+
+        return drives[drive];
+    }
+
+    /**
+     * Write back the changes held by every drive, then flush the bundle to storage.
+     *
+     * @throws SlotException if a mounted slot can no longer be written, that drive's changes are discarded
+     */
+    public void flush() throws SlotException {
+        for (VirtualDrive drive : drives) {
+            drive.flush();
+        }
+
+        if (bundle instanceof AbstractDiskBundle) {
+            ((AbstractDiskBundle) bundle).flush();
+        }
+    }
+
+    /**
+     * Write back the changes held by every drive and unmount them all, the bundle is not closed.
+     *
+     * @throws SlotException if a mounted slot can no longer be written, the drives are still unmounted
+     */
+    @Override
+    public void close() throws SlotException {
+        bundle.removeListener(listener);
+
+        try {
+            flush();
+        } finally {
+            for (VirtualDrive drive : drives) {
+                drive.unmount();
+            }
+        }
+    }
+
+    /**
+     * Refresh the drives whose mounted slot has been locked, unlocked or written.
+     *
+     * @param event changes to the bundle
+     */
+    private void bundleChanged(BundleChangeEvent event) {
+        BitSet changed = event.getSlots(ChangeType.LOCK_CHANGED);
+        changed.or(event.getSlots(ChangeType.INSERTED));
+
+        for (VirtualDrive drive : drives) {
+            int slot = drive.getSlot();
+
+            if (slot != VirtualDrive.NOT_MOUNTED && changed.get(slot)) {
+                drive.refresh();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package net.melaircraft.owl.library.event;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A set of coalesced changes made to a disk bundle.
+ */
+public final class BundleChangeEvent {
+    /** Bundle which was changed. */
+    private final DiskBundle bundle;
+    /** Slots, or drives for boot slot changes, affected by each change type. */
+    private final Map<ChangeType, BitSet> changes;
+
+    /**
+     * Construct a new bundle change event, the change map is owned by the event after construction.
+     *
+     * @param bundle bundle which was changed
+     * @param changes slots affected by each change type
+     */
+    BundleChangeEvent(DiskBundle bundle, EnumMap<ChangeType, BitSet> changes) {
+        this.bundle = bundle;
+        this.changes = changes;
+    }
+
+    /**
+     * Get the bundle which was changed.
+     *
+     * @return disk bundle
+     */
+    public DiskBundle getBundle() {
+        return bundle;
+    }
+
+    /**
+     * Get the types of change which were made.
+     *
+     * @return change types
+     */
+    public Set<ChangeType> getTypes() {
+        return changes.isEmpty() ? EnumSet.noneOf(ChangeType.class) : Collections.unmodifiableSet(EnumSet.copyOf(changes.keySet()));
+    }
+
+    /**
+     * Check to see if a type of change was made.
+     *
+     * @param type change type
+     * @return true if the change was made
+     */
+    public boolean contains(ChangeType type) {
+        return changes.containsKey(type);
+    }
+
+    /**
+     * Get the slots affected by a type of change, for {@link ChangeType#BOOT_SLOT_CHANGED} this is the drive numbers.
+     *
+     * @param type change type
+     * @return affected slots, empty if the change was not made
+     */
+    public BitSet getSlots(ChangeType type) {
+        BitSet slots = changes.get(type);
+        return slots == null ? new BitSet() : (BitSet) slots.clone();
+    }
+
+    /**
+     * Get every slot affected by any change, excluding boot slot drive numbers.
+     *
+     * @return affected slots
+     */
+    public BitSet getAffectedSlots() {
+        BitSet affected = new BitSet();
+
+        for (Map.Entry<ChangeType, BitSet> entry : changes.entrySet()) {
+            if (entry.getKey() != ChangeType.BOOT_SLOT_CHANGED) {
+                affected.or(entry.getValue());
+            }
+        }
+
+        return affected;
+    }
+
+    @Override
+    public String toString() {
+        return "BundleChangeEvent" + changes;
+    }
+}
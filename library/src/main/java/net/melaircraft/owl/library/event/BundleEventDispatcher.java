@@ -0,0 +1,225 @@
+package net.melaircraft.owl.library.event;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Collects changes made to a disk bundle and dispatches them to listeners asynchronously.
+ *
+ * Changes are accumulated into a pending event, only one dispatch per bundle is in flight at a time so any changes
+ * made while listeners are busy are coalesced into the next event. Recording a change when there are no listeners
+ * costs a single check.
+ */
+public final class BundleEventDispatcher {
+    /** Executor shared by all dispatchers to deliver events. */
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "owl-bundle-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Bundle whose changes are dispatched. */
+    private final DiskBundle bundle;
+    /** Executor used to deliver events. */
+    private final Executor executor;
+    /** Registered listeners. */
+    private final List<BundleListener> listeners = new CopyOnWriteArrayList<>();
+    /** Lock guarding pending changes and dispatch state. */
+    private final Object lock = new Object();
+    /** Changes recorded but not yet dispatched. */
+    private EnumMap<ChangeType, BitSet> pending = new EnumMap<>(ChangeType.class);
+    /** Number of open batches, dispatch is held back while non zero. */
+    private int batchDepth;
+    /** True if a dispatch has been submitted to the executor and not yet completed. */
+    private boolean dispatching;
+
+    /**
+     * Construct a new dispatcher delivering events on the shared event threads.
+     *
+     * @param bundle bundle whose changes are dispatched
+     */
+    public BundleEventDispatcher(DiskBundle bundle) {
+        this(bundle, SHARED_EXECUTOR);
+    }
+
+    /**
+     * Construct a new dispatcher delivering events with an executor.
+     *
+     * @param bundle bundle whose changes are dispatched
+     * @param executor executor used to deliver events
+     */
+    public BundleEventDispatcher(DiskBundle bundle, Executor executor) {
+        this.bundle = bundle;
+        this.executor = executor;
+    }
+
+    /**
+     * Register a listener.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(BundleListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener listener to remove
+     */
+    public void removeListener(BundleListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Check to see if any listeners are registered, allowing callers to skip working out what changed.
+     *
+     * @return true if there are listeners
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Record a change to a slot.
+     *
+     * @param type type of change
+     * @param slot slot number, or drive number for boot slot changes
+     */
+    public void fire(ChangeType type, int slot) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        synchronized (lock) {
+            pending(type).set(slot);
+            schedule();
+        }
+    }
+
+    /**
+     * Record a change to a range of slots.
+     *
+     * @param type type of change
+     * @param fromSlot first slot changed, inclusive
+     * @param toSlot last slot changed, exclusive
+     */
+    public void fire(ChangeType type, int fromSlot, int toSlot) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        synchronized (lock) {
+            pending(type).set(fromSlot, toSlot);
+            schedule();
+        }
+    }
+
+    /**
+     * Record a change which does not affect individual slots.
+     *
+     * @param type type of change
+     */
+    public void fire(ChangeType type) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        synchronized (lock) {
+            pending(type);
+            schedule();
+        }
+    }
+
+    /**
+     * Start a batch of changes, no events are delivered until every open batch is closed.
+     *
+     * @return batch to close once the changes are complete
+     */
+    public ChangeBatch batch() {
+        synchronized (lock) {
+            batchDepth++;
+        }
+
+        return new ChangeBatch() {
+            /** True once this batch has been closed. */
+            private boolean closed;
+
+            @Override
+            public void close() {
+                synchronized (lock) {
+                    if (!closed) {
+                        closed = true;
+                        batchDepth--;
+                        schedule();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Get the pending slot set for a change type, creating it if needed. Must be called holding the lock.
+     *
+     * @param type type of change
+     * @return pending slots for the change type
+     */
+    private BitSet pending(ChangeType type) {
+        BitSet slots = pending.get(type);
+
+        if (slots == null) {
+            slots = new BitSet(511);
+            pending.put(type, slots);
+        }
+
+        return slots;
+    }
+
+    /**
+     * Submit a dispatch if there are pending changes, no batch is open and no dispatch is in flight. Must be called
+     * holding the lock.
+     */
+    private void schedule() {
+        if (!dispatching && batchDepth == 0 && !pending.isEmpty()) {
+            dispatching = true;
+            executor.execute(this::dispatch);
+        }
+    }
+
+    /**
+     * Deliver pending changes to listeners until none remain.
+     */
+    private void dispatch() {
+        while (true) {
+            EnumMap<ChangeType, BitSet> changes;
+
+            synchronized (lock) {
+                if (pending.isEmpty() || batchDepth > 0) {
+                    dispatching = false;
+                    return;
+                }
+
+                changes = pending;
+                pending = new EnumMap<>(ChangeType.class);
+            }
+
+            BundleChangeEvent event = new BundleChangeEvent(bundle, changes);
+
+            for (BundleListener listener : listeners) {
+                try {
+                    listener.bundleChanged(event);
+                } catch (RuntimeException e) {
+                    /* A failing listener must not prevent delivery to the others. */
+                    Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package net.melaircraft.owl.library.event;
+
+/**
+ * A listener which is notified of changes to a disk bundle.
+ *
+ * Listeners are called asynchronously from a dispatch thread, never from the thread making the change. Changes made
+ * while a previous notification is pending are coalesced into a single event.
+ */
+public interface BundleListener {
+    /**
+     * Called after one or more changes have been made to a bundle.
+     *
+     * @param event the coalesced changes
+     */
+    void bundleChanged(BundleChangeEvent event);
+}
@@ -0,0 +1,13 @@
+package net.melaircraft.owl.library.event;
+
+/**
+ * A batch of changes to a disk bundle, notifications are held back until the batch is closed and then delivered as
+ * a single event.
+ */
+public interface ChangeBatch extends AutoCloseable {
+    /**
+     * End the batch, releasing any held notifications.
+     */
+    @Override
+    void close();
+}
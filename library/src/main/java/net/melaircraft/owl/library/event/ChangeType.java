@@ -0,0 +1,21 @@
+package net.melaircraft.owl.library.event;
+
+/**
+ * Type of change made to a disk bundle.
+ */
+public enum ChangeType {
+    /** A slot was activated. */
+    ACTIVATED,
+    /** A slot was deactivated. */
+    DEACTIVATED,
+    /** The disk image data of a slot was inserted, written or wiped. */
+    INSERTED,
+    /** A slot was renamed. */
+    RENAMED,
+    /** A slot was locked or unlocked. */
+    LOCK_CHANGED,
+    /** The boot slot of a drive was changed, the event records drive numbers rather than slot numbers. */
+    BOOT_SLOT_CHANGED,
+    /** The storage size of the bundle was changed, no slots are recorded. */
+    RESIZED
+}
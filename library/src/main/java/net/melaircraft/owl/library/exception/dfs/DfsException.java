@@ -0,0 +1,15 @@
+package net.melaircraft.owl.library.exception.dfs;
+
+/**
+ * An exception which relates to the DFS structure of a disk image.
+ */
+public abstract class DfsException extends RuntimeException {
+    /**
+     * Construct a new DfsException.
+     *
+     * @param message message of exception
+     */
+    protected DfsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,29 @@
+package net.melaircraft.owl.library.exception.dfs;
+
+/**
+ * Exception to indicate that a file is not present in a DFS catalogue.
+ */
+public final class DfsFileNotFoundException extends DfsException {
+    /** Qualified name of the file which was not found. */
+    private final String fileName;
+
+    /**
+     * Construct a new DFS file not found exception.
+     *
+     * @param slot slot searched
+     * @param fileName qualified name of the file, such as "$.BOOT"
+     */
+    public DfsFileNotFoundException(int slot, String fileName) {
+        super("File " + fileName + " is not present on the disk in slot " + slot + ".");
+        this.fileName = fileName;
+    }
+
+    /**
+     * Get the qualified name of the file which was not found.
+     *
+     * @return file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+}
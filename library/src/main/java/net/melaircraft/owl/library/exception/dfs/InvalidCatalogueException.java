@@ -0,0 +1,15 @@
+package net.melaircraft.owl.library.exception.dfs;
+
+/**
+ * Exception to indicate that a DFS catalogue could not be parsed.
+ */
+public final class InvalidCatalogueException extends DfsException {
+    /**
+     * Construct a new invalid catalogue exception.
+     *
+     * @param message description of the fault in the catalogue
+     */
+    public InvalidCatalogueException(String message) {
+        super(message);
+    }
+}
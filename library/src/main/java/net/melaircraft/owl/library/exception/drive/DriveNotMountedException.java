@@ -0,0 +1,15 @@
+package net.melaircraft.owl.library.exception.drive;
+
+/**
+ * Exception to indicate that a drive has no slot mounted.
+ */
+public final class DriveNotMountedException extends DriveException {
+    /**
+     * Construct a new drive not mounted exception.
+     *
+     * @param drive drive number
+     */
+    public DriveNotMountedException(int drive) {
+        super(drive, "Drive " + drive + " has no slot mounted.");
+    }
+}
@@ -0,0 +1,42 @@
+package net.melaircraft.owl.library.exception.drive;
+
+/**
+ * Exception to indicate that a track or sector is outside of the disk in a drive.
+ */
+public final class InvalidSectorException extends DriveException {
+    /** Track number requested. */
+    private final int track;
+    /** Sector number requested. */
+    private final int sector;
+
+    /**
+     * Construct a new invalid sector exception.
+     *
+     * @param drive drive number
+     * @param track track number
+     * @param sector sector number within the track
+     */
+    public InvalidSectorException(int drive, int track, int sector) {
+        super(drive, "Track " + track + " sector " + sector + " is invalid on drive " + drive + ".");
+        this.track = track;
+        this.sector = sector;
+    }
+
+    /**
+     * Get the track number this exception is about.
+     *
+     * @return track number
+     */
+    public int getTrack() {
+        return track;
+    }
+
+    /**
+     * Get the sector number this exception is about.
+     *
+     * @return sector number within the track
+     */
+    public int getSector() {
+        return sector;
+    }
+}
@@ -0,0 +1,15 @@
+package net.melaircraft.owl.library.exception.patch;
+
+/**
+ * Exception to indicate that a patch could not be parsed.
+ */
+public final class InvalidPatchException extends PatchException {
+    /**
+     * Construct a new invalid patch exception.
+     *
+     * @param message description of the fault in the patch
+     */
+    public InvalidPatchException(String message) {
+        super(message);
+    }
+}
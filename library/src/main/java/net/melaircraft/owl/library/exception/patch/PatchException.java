@@ -0,0 +1,15 @@
+package net.melaircraft.owl.library.exception.patch;
+
+/**
+ * An exception which relates to a bundle patch.
+ */
+public abstract class PatchException extends RuntimeException {
+    /**
+     * Construct a new PatchException.
+     *
+     * @param message message of exception
+     */
+    protected PatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package net.melaircraft.owl.library.exception.patch;
+
+/**
+ * Exception to indicate that a bundle is not the one a patch was generated against.
+ */
+public final class PreImageMismatchException extends PatchException {
+    /**
+     * Construct a new pre-image mismatch exception.
+     *
+     * @param message description of the mismatch
+     */
+    public PreImageMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package net.melaircraft.owl.library.exception.slot;
+
+/**
+ * Exception to indicate that a region of a slot extends beyond the disk image.
+ */
+public final class InvalidSlotRegionException extends SlotException {
+    /**
+     * Construct a new invalid slot region exception.
+     *
+     * @param slot slot number
+     * @param offset offset of region within disk image
+     * @param length length of region
+     */
+    public InvalidSlotRegionException(int slot, int offset, int length) {
+        super(slot, "Region of " + length + " bytes at offset " + offset + " of slot " + slot + " is outside of the disk image.");
+    }
+}
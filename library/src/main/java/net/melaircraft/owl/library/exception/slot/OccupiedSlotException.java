@@ -0,0 +1,15 @@
+package net.melaircraft.owl.library.exception.slot;
+
+/**
+ * Exception to indicate that a slot is already occupied and can not be used as a destination.
+ */
+public final class OccupiedSlotException extends SlotException {
+    /**
+     * Construct a new occupied slot exception.
+     *
+     * @param slot slot number
+     */
+    public OccupiedSlotException(int slot) {
+        super(slot, "Slot number " + slot + " is already occupied.");
+    }
+}
@@ -0,0 +1,323 @@
+package net.melaircraft.owl.library.fsck;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsCatalogue;
+import net.melaircraft.owl.library.dfs.DfsFile;
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.exception.dfs.InvalidCatalogueException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Checks the structure of a bundle: the boot slots and catalogue of the MMB header, and the DFS catalogue of every
+ * occupied disk.
+ *
+ * Catalogue flags are collected in a single pass, then slots are split across a fork join pool to check their DFS
+ * catalogues. Problems with the MMB header can optionally be repaired through the public bundle API, DFS problems
+ * are only reported.
+ */
+public final class BundleChecker {
+    /** Number of slots below which a check task is not split further. */
+    private static final int SPLIT_THRESHOLD = 16;
+
+    /** Pool to run slot checks in. */
+    private final ForkJoinPool pool;
+
+    /**
+     * Construct a new bundle checker using the common fork join pool.
+     */
+    public BundleChecker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construct a new bundle checker.
+     *
+     * @param pool pool to run slot checks in
+     */
+    public BundleChecker(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Check a bundle without changing it.
+     *
+     * @param bundle bundle to check
+     * @return report of problems found
+     */
+    public CheckReport check(DiskBundle bundle) {
+        return check(bundle, false);
+    }
+
+    /**
+     * Check a bundle, optionally repairing problems with its MMB header.
+     *
+     * Invalid flags are reset to locked or writable as {@link DiskBundle#isLocked(int)} reports them, or to
+     * unformatted if the slot is not occupied. Occupied slots without storage are deactivated. Boot slots which are
+     * invalid, or refer to an inactive slot or one without storage, are reset to the default of the drive number if
+     * that slot is occupied and has storage, otherwise to the lowest such slot. If no slot is occupied the boot slot is
+     * left as it is and not counted as repaired.
+     *
+     * @param bundle bundle to check
+     * @param repair true to repair problems where possible
+     * @return report of problems found and repaired
+     */
+    public CheckReport check(DiskBundle bundle, boolean repair) {
+        byte[] flags = new byte[511];
+        bundle.forEachEntry(entry -> flags[entry.getSlot()] = entry.getFlags());
+
+        List<Problem> problems = new ArrayList<>();
+        checkFlags(bundle, flags, problems);
+        checkBootSlots(bundle, problems);
+        problems.addAll(pool.invoke(new SlotCheckTask(bundle, 0, Math.min(bundle.getStorageSize(), 511))));
+
+        List<Problem> repaired = new ArrayList<>();
+
+        if (repair) {
+            try (ChangeBatch ignored = bundle.batchChanges()) {
+                for (Problem problem : problems) {
+                    if (repair(bundle, problem)) {
+                        repaired.add(problem);
+                    }
+                }
+            }
+        }
+
+        return new CheckReport(problems, repaired);
+    }
+
+    /**
+     * Check the flags of every slot, and that occupied slots have storage.
+     *
+     * @param bundle bundle being checked
+     * @param flags flag byte of each slot
+     * @param problems list to add problems to
+     */
+    private static void checkFlags(DiskBundle bundle, byte[] flags, List<Problem> problems) {
+        for (int slot = 0; slot < 511; slot++) {
+            byte flag = flags[slot];
+
+            if (flag != DiskBundle.HEADER_FLAG_DISK_UNFORMATTED && flag != DiskBundle.HEADER_FLAG_DISK_WRITEABLE && flag != 0) {
+                problems.add(new Problem(slot, ProblemType.INVALID_FLAGS, String.format("Slot %d has invalid flags 0x%02x.", slot, flag & 0xff)));
+            }
+
+            if (slot >= bundle.getStorageSize() && bundle.isOccupied(slot)) {
+                problems.add(new Problem(slot, ProblemType.OCCUPIED_WITHOUT_STORAGE, "Slot " + slot + " is occupied but has no storage."));
+            }
+        }
+    }
+
+    /**
+     * Check the boot slot of each drive.
+     *
+     * @param bundle bundle being checked
+     * @param problems list to add problems to
+     */
+    private static void checkBootSlots(DiskBundle bundle, List<Problem> problems) {
+        for (int drive = 0; drive < 4; drive++) {
+            int slot = bundle.getBootSlot(drive);
+
+            if (slot > 510) {
+                problems.add(new Problem(drive, ProblemType.BOOT_SLOT_INVALID, "Drive " + drive + " boots from invalid slot " + slot + "."));
+            } else if (!bundle.isOccupied(slot)) {
+                problems.add(new Problem(drive, ProblemType.BOOT_SLOT_INACTIVE, "Drive " + drive + " boots from inactive slot " + slot + "."));
+            } else if (slot >= bundle.getStorageSize()) {
+                problems.add(new Problem(drive, ProblemType.BOOT_SLOT_NO_STORAGE, "Drive " + drive + " boots from slot " + slot + " which has no storage."));
+            }
+        }
+    }
+
+    /**
+     * Check the DFS catalogue of an occupied slot. Slots whose catalogue sectors are entirely 0x00 are blank and
+     * not checked.
+     *
+     * @param bundle bundle being checked
+     * @param slot slot number (0 - 510)
+     * @param problems list to add problems to
+     */
+    private static void checkDfs(DiskBundle bundle, int slot, List<Problem> problems) {
+        ByteBuffer data = ByteBuffer.allocate(DfsCatalogue.CATALOGUE_SIZE);
+        bundle.read(slot, 0, data);
+        data.flip();
+
+        if (data.equals(ByteBuffer.allocate(DfsCatalogue.CATALOGUE_SIZE))) {
+            return;
+        }
+
+        DfsCatalogue catalogue;
+
+        try {
+            catalogue = DfsCatalogue.parse(data);
+        } catch (InvalidCatalogueException e) {
+            problems.add(new Problem(slot, ProblemType.DFS_INVALID_CATALOGUE, "Slot " + slot + ": " + e.getMessage()));
+            return;
+        }
+
+        int sectorCount = catalogue.getSectorCount();
+
+        if (sectorCount < DfsCatalogue.CATALOGUE_SECTORS || sectorCount > DfsCatalogue.DISK_SECTORS) {
+            problems.add(new Problem(slot, ProblemType.DFS_BAD_SECTOR_COUNT, "Slot " + slot + " has a sector count of " + sectorCount + "."));
+            sectorCount = DfsCatalogue.DISK_SECTORS;
+        }
+
+        List<DfsFile> files = new ArrayList<>(catalogue.getFiles());
+
+        for (DfsFile file : files) {
+            if (file.getStartSector() < DfsCatalogue.CATALOGUE_SECTORS || file.getEndSector() > sectorCount) {
+                problems.add(new Problem(slot, ProblemType.DFS_FILE_OUT_OF_RANGE, "Slot " + slot + " file " + file + " occupies sectors " + file.getStartSector() + " to " + (file.getEndSector() - 1) + "."));
+            }
+        }
+
+        files.removeIf(file -> file.getSectorCount() == 0);
+        files.sort(Comparator.comparingInt(DfsFile::getStartSector));
+
+        DfsFile previous = null;
+
+        for (DfsFile file : files) {
+            if (previous != null && previous.getEndSector() > file.getStartSector()) {
+                problems.add(new Problem(slot, ProblemType.DFS_OVERLAPPING_FILES, "Slot " + slot + " files " + previous + " and " + file + " overlap."));
+            }
+
+            if (previous == null || file.getEndSector() > previous.getEndSector()) {
+                previous = file;
+            }
+        }
+    }
+
+    /**
+     * Repair a problem if it is repairable.
+     *
+     * @param bundle bundle being repaired
+     * @param problem problem to repair
+     * @return true if repaired
+     */
+    private static boolean repair(DiskBundle bundle, Problem problem) {
+        int location = problem.getLocation();
+
+        switch (problem.getType()) {
+            case INVALID_FLAGS:
+                if (bundle.isOccupied(location) && location < bundle.getStorageSize()) {
+                    boolean locked = bundle.isLocked(location);
+
+                    bundle.unlock(location);
+                    bundle.deactivate(location, false);
+                    bundle.activate(location);
+
+                    if (!locked) {
+                        bundle.unlock(location);
+                    }
+                } else {
+                    deactivate(bundle, location);
+                }
+                return true;
+            case OCCUPIED_WITHOUT_STORAGE:
+                deactivate(bundle, location);
+                return true;
+            case BOOT_SLOT_INVALID:
+            case BOOT_SLOT_INACTIVE:
+            case BOOT_SLOT_NO_STORAGE:
+                int bootSlot = findBootableSlot(bundle, location);
+
+                if (bootSlot < 0) {
+                    return false;
+                }
+
+                bundle.setBootSlot(location, bootSlot);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Find a slot a drive can boot from, the slot numbered as the drive if possible, otherwise the lowest occupied slot
+     * with storage.
+     *
+     * @param bundle bundle being repaired
+     * @param drive drive number (0 - 3)
+     * @return slot number, or -1 if no slot is occupied
+     */
+    private static int findBootableSlot(DiskBundle bundle, int drive) {
+        int storageSize = Math.min(bundle.getStorageSize(), 511);
+
+        if (drive < storageSize && bundle.isOccupied(drive)) {
+            return drive;
+        }
+
+        for (int slot = 0; slot < storageSize; slot++) {
+            if (bundle.isOccupied(slot)) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Deactivate a slot without wiping it, unlocking it first if needed.
+     *
+     * @param bundle bundle being repaired
+     * @param slot slot number (0 - 510)
+     */
+    private static void deactivate(DiskBundle bundle, int slot) {
+        if (bundle.isOccupied(slot)) {
+            bundle.unlock(slot);
+        }
+
+        bundle.deactivate(slot, false);
+    }
+
+    /**
+     * Task checking the DFS catalogues of a range of slots, split in half until below the threshold.
+     */
+    private static final class SlotCheckTask extends RecursiveTask<List<Problem>> {
+        /** Bundle being checked. */
+        private final DiskBundle bundle;
+        /** First slot of range, inclusive. */
+        private final int from;
+        /** Last slot of range, exclusive. */
+        private final int to;
+
+        /**
+         * Construct a new slot check task.
+         *
+         * @param bundle bundle being checked
+         * @param from first slot of range, inclusive
+         * @param to last slot of range, exclusive
+         */
+        SlotCheckTask(DiskBundle bundle, int from, int to) {
+            this.bundle = bundle;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Problem> compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+
+                SlotCheckTask upper = new SlotCheckTask(bundle, middle, to);
+                upper.fork();
+
+                List<Problem> problems = new SlotCheckTask(bundle, from, middle).compute();
+                problems.addAll(upper.join());
+                return problems;
+            }
+
+            List<Problem> problems = new ArrayList<>();
+
+            for (int slot = from; slot < to; slot++) {
+                if (bundle.isOccupied(slot)) {
+                    checkDfs(bundle, slot, problems);
+                }
+            }
+
+            return problems;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package net.melaircraft.owl.library.fsck;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of checking a bundle.
+ */
+public final class CheckReport {
+    /** Problems found, header problems first and then in slot order. */
+    private final List<Problem> problems;
+    /** Problems which were repaired. */
+    private final List<Problem> repaired;
+
+    /**
+     * Construct a new check report.
+     *
+     * @param problems problems found
+     * @param repaired problems which were repaired
+     */
+    CheckReport(List<Problem> problems, List<Problem> repaired) {
+        this.problems = Collections.unmodifiableList(problems);
+        this.repaired = Collections.unmodifiableList(repaired);
+    }
+
+    /**
+     * Check to see if no problems were found.
+     *
+     * @return true if the bundle is clean
+     */
+    public boolean isClean() {
+        return problems.isEmpty();
+    }
+
+    /**
+     * Get every problem found, including those since repaired.
+     *
+     * @return unmodifiable list of problems
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Get the problems found of a type.
+     *
+     * @param type type of problem
+     * @return problems of type
+     */
+    public List<Problem> getProblems(ProblemType type) {
+        List<Problem> matching = new ArrayList<>();
+
+        for (Problem problem : problems) {
+            if (problem.getType() == type) {
+                matching.add(problem);
+            }
+        }
+
+        return matching;
+    }
+
+    /**
+     * Get the problems which were repaired.
+     *
+     * @return unmodifiable list of repaired problems
+     */
+    public List<Problem> getRepaired() {
+        return repaired;
+    }
+
+    /**
+     * Get the problems which remain after any repair.
+     *
+     * @return problems not repaired
+     */
+    public List<Problem> getRemaining() {
+        List<Problem> remaining = new ArrayList<>(problems);
+        remaining.removeAll(repaired);
+        return remaining;
+    }
+}
@@ -0,0 +1,58 @@
+package net.melaircraft.owl.library.fsck;
+
+/**
+ * A single problem found in a bundle.
+ */
+public final class Problem {
+    /** Slot the problem was found in, or the drive for boot slot problems. */
+    private final int location;
+    /** Type of problem. */
+    private final ProblemType type;
+    /** Description of problem. */
+    private final String message;
+
+    /**
+     * Construct a new problem.
+     *
+     * @param location slot the problem was found in, or the drive for boot slot problems
+     * @param type type of problem
+     * @param message description of problem
+     */
+    public Problem(int location, ProblemType type, String message) {
+        this.location = location;
+        this.type = type;
+        this.message = message;
+    }
+
+    /**
+     * Get the slot the problem was found in, or the drive for boot slot problems.
+     *
+     * @return slot or drive number
+     */
+    public int getLocation() {
+        return location;
+    }
+
+    /**
+     * Get the type of problem.
+     *
+     * @return problem type
+     */
+    public ProblemType getType() {
+        return type;
+    }
+
+    /**
+     * Get the description of the problem.
+     *
+     * @return problem description
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return type + ": " + message;
+    }
+}
@@ -0,0 +1,46 @@
+package net.melaircraft.owl.library.fsck;
+
+/**
+ * Types of problem which can be found in a bundle.
+ */
+public enum ProblemType {
+    /** A boot slot is beyond the last slot of the bundle. */
+    BOOT_SLOT_INVALID(true),
+    /** A boot slot refers to a slot which is not occupied. */
+    BOOT_SLOT_INACTIVE(true),
+    /** A boot slot refers to a slot with no storage allocated. */
+    BOOT_SLOT_NO_STORAGE(true),
+    /** The flag byte of a slot is not one of unformatted, writable or locked. */
+    INVALID_FLAGS(true),
+    /** An occupied slot has no storage allocated. */
+    OCCUPIED_WITHOUT_STORAGE(true),
+    /** The DFS catalogue of a slot could not be parsed. */
+    DFS_INVALID_CATALOGUE(false),
+    /** The sector count of a DFS catalogue is smaller than the catalogue or larger than the disk. */
+    DFS_BAD_SECTOR_COUNT(false),
+    /** A DFS file lies over the catalogue or beyond the end of the disk. */
+    DFS_FILE_OUT_OF_RANGE(false),
+    /** Two DFS files share sectors. */
+    DFS_OVERLAPPING_FILES(false);
+
+    /** True if the problem can be repaired automatically. */
+    private final boolean repairable;
+
+    /**
+     * Construct a new problem type.
+     *
+     * @param repairable true if the problem can be repaired automatically
+     */
+    ProblemType(boolean repairable) {
+        this.repairable = repairable;
+    }
+
+    /**
+     * Check to see if problems of this type can be repaired automatically.
+     *
+     * @return true if repairable
+     */
+    public boolean isRepairable() {
+        return repairable;
+    }
+}
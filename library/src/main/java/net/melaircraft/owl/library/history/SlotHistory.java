@@ -0,0 +1,419 @@
+package net.melaircraft.owl.library.history;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A persistent history of the versions of the slots of a bundle, kept in a directory beside it.
+ *
+ * Each version is split into tracks, and each track is stored once as a chunk file named by the SHA-256 digest of its
+ * content, so tracks which are identical across versions and slots share storage. The history of each slot is a log
+ * of fixed size records holding the time, the slot name and the digest of every track. Chunks are written before the
+ * record referring to them, and a partly written record left by a crash is ignored, so the history remains readable
+ * after an interrupted save.
+ *
+ * The directory holds "chunks", with chunk files in subdirectories named by the first byte of their digest, and
+ * "slots", with one log per slot named by its slot number.
+ */
+public class SlotHistory {
+    /** Digest algorithm naming chunks. */
+    private static final String ALGORITHM = "SHA-256";
+    /** Length of a chunk digest. */
+    private static final int DIGEST_LENGTH = 32;
+    /** Magic number at the start of each log record, "OWLH". */
+    private static final int RECORD_MAGIC = 0x4F574C48;
+    /** Length of the name field of a log record. */
+    private static final int NAME_LENGTH = 12;
+    /** Size of a log record: magic, time, name and track digests. */
+    private static final int RECORD_SIZE = 4 + 8 + NAME_LENGTH + (DiskBundle.TRACKS_PER_DISK * DIGEST_LENGTH);
+    /** Hexadecimal digits. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Directory holding chunk files. */
+    private final Path chunkDirectory;
+    /** Directory holding slot logs. */
+    private final Path slotDirectory;
+
+    /**
+     * Construct a new slot history, use {@link #open(Path)}.
+     *
+     * @param directory directory holding the history
+     */
+    private SlotHistory(Path directory) {
+        this.chunkDirectory = directory.resolve("chunks");
+        this.slotDirectory = directory.resolve("slots");
+    }
+
+    /**
+     * Open a history directory, creating it if it does not exist.
+     *
+     * @param directory directory holding the history
+     * @return slot history
+     * @throws IOException if the directory could not be created
+     */
+    public static SlotHistory open(Path directory) throws IOException {
+        SlotHistory history = new SlotHistory(directory);
+        Files.createDirectories(history.chunkDirectory);
+        Files.createDirectories(history.slotDirectory);
+
+        return history;
+    }
+
+    /**
+     * Record the current contents of a slot as a new version, storing only tracks not already held. If the slot is
+     * unchanged since its latest version, no version is added.
+     *
+     * @param bundle bundle holding the slot
+     * @param slot slot number (0 - 510)
+     * @return the new version, or the latest version if the slot is unchanged
+     * @throws IOException if the history could not be written
+     * @throws InvalidSlotException if slot number is invalid
+     * @throws NoStorageSlotException if the slot has no storage
+     */
+    public SlotVersion record(DiskBundle bundle, int slot) throws IOException, InvalidSlotException, NoStorageSlotException {
+        ByteBuffer image = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+        bundle.read(slot, 0, image);
+
+        MessageDigest messageDigest = newDigest();
+        byte[] trackDigests = new byte[DiskBundle.TRACKS_PER_DISK * DIGEST_LENGTH];
+
+        for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+            ByteBuffer chunk = trackOf(image, track);
+            messageDigest.update(chunk.duplicate());
+
+            byte[] digest = messageDigest.digest();
+            System.arraycopy(digest, 0, trackDigests, track * DIGEST_LENGTH, DIGEST_LENGTH);
+            storeChunk(digest, chunk);
+        }
+
+        List<SlotVersion> versions = getVersions(slot);
+        SlotVersion version = new SlotVersion(slot, versions.size(), Instant.ofEpochMilli(System.currentTimeMillis()), bundle.getName(slot), trackDigests);
+
+        if (!versions.isEmpty() && versions.get(versions.size() - 1).hasSameContent(version)) {
+            return versions.get(versions.size() - 1);
+        }
+
+        appendRecord(version);
+
+        return version;
+    }
+
+    /**
+     * Record a version of every occupied slot of a bundle which has changed since its latest version.
+     *
+     * @param bundle bundle to record
+     * @return number of versions added
+     * @throws IOException if the history could not be written
+     */
+    public int recordAll(DiskBundle bundle) throws IOException {
+        int added = 0;
+
+        for (int slot = 0; slot < bundle.getStorageSize(); slot++) {
+            if (bundle.isOccupied(slot)) {
+                int before = getVersionCount(slot);
+
+                if (record(bundle, slot).getIndex() == before) {
+                    added++;
+                }
+            }
+        }
+
+        return added;
+    }
+
+    /**
+     * Get every version recorded of a slot, oldest first.
+     *
+     * @param slot slot number
+     * @return versions of the slot, empty if none have been recorded
+     * @throws IOException if the log of the slot could not be read
+     */
+    public List<SlotVersion> getVersions(int slot) throws IOException {
+        Path log = logOf(slot);
+
+        if (!Files.exists(log)) {
+            return Collections.emptyList();
+        }
+
+        List<SlotVersion> versions = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            long count = channel.size() / RECORD_SIZE;
+
+            for (int index = 0; index < count; index++) {
+                record.clear();
+
+                while (record.hasRemaining() && channel.read(record, ((long) index * RECORD_SIZE) + record.position()) >= 0) {
+                    /* Read until the record is full. */
+                }
+
+                if (record.hasRemaining() || record.getInt(0) != RECORD_MAGIC) {
+                    throw new IOException("Record " + index + " of " + log + " is corrupt.");
+                }
+
+                versions.add(parseRecord(slot, index, record));
+            }
+        }
+
+        return versions;
+    }
+
+    /**
+     * Get a version of a slot.
+     *
+     * @param slot slot number
+     * @param index index of the version, the oldest being 0
+     * @return slot version
+     * @throws IOException if the log of the slot could not be read
+     * @throws IllegalArgumentException if the slot has no such version
+     */
+    public SlotVersion getVersion(int slot, int index) throws IOException {
+        List<SlotVersion> versions = getVersions(slot);
+
+        if (index < 0 || index >= versions.size()) {
+            throw new IllegalArgumentException("Slot " + slot + " has no version " + index + ", " + versions.size() + " recorded.");
+        }
+
+        return versions.get(index);
+    }
+
+    /**
+     * Restore a version into a slot of a bundle, replacing its disk image and name. An unoccupied slot is activated,
+     * which leaves it locked. Every chunk is read and verified before the bundle is changed.
+     *
+     * @param version version to restore
+     * @param bundle bundle to restore into
+     * @param slot slot number (0 - 510), which need not be the slot the version was recorded from
+     * @throws IOException if a chunk is missing or does not match its digest
+     * @throws InvalidSlotException if slot number is invalid
+     * @throws NoStorageSlotException if the slot has no storage
+     * @throws LockedSlotException if the slot is occupied and locked
+     */
+    public void restore(SlotVersion version, DiskBundle bundle, int slot) throws IOException, InvalidSlotException, NoStorageSlotException, LockedSlotException {
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        byte[] trackDigests = version.getTrackDigests();
+        MessageDigest messageDigest = newDigest();
+
+        for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+            byte[] digest = Arrays.copyOfRange(trackDigests, track * DIGEST_LENGTH, (track + 1) * DIGEST_LENGTH);
+            Path chunk = chunkOf(digest);
+
+            if (!Files.exists(chunk)) {
+                throw new IOException("Chunk " + chunk + " for track " + track + " of " + version + " is missing.");
+            }
+
+            byte[] content = Files.readAllBytes(chunk);
+
+            if (content.length != DiskBundle.TRACK_SIZE || !Arrays.equals(digest, messageDigest.digest(content))) {
+                throw new IOException("Chunk " + chunk + " for track " + track + " of " + version + " is corrupt.");
+            }
+
+            System.arraycopy(content, 0, image, track * DiskBundle.TRACK_SIZE, DiskBundle.TRACK_SIZE);
+        }
+
+        boolean wasOccupied = bundle.isOccupied(slot);
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            bundle.insert(slot, new ByteBufferDisk(image));
+            bundle.setName(slot, version.getName());
+
+            if (!wasOccupied) {
+                bundle.activate(slot);
+            }
+        }
+    }
+
+    /**
+     * Get the number of distinct tracks stored.
+     *
+     * @return chunk count
+     * @throws IOException if the chunk directory could not be read
+     */
+    public long getChunkCount() throws IOException {
+        try (Stream<Path> files = Files.walk(chunkDirectory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    /**
+     * Get the number of complete versions recorded of a slot, without parsing them.
+     *
+     * @param slot slot number
+     * @return version count
+     * @throws IOException if the log could not be read
+     */
+    private int getVersionCount(int slot) throws IOException {
+        Path log = logOf(slot);
+
+        return Files.exists(log) ? (int) (Files.size(log) / RECORD_SIZE) : 0;
+    }
+
+    /**
+     * Store a chunk unless a chunk with the same digest is already held. The chunk is written to a temporary file and
+     * moved into place, so a chunk file is never seen partly written.
+     *
+     * @param digest digest of chunk
+     * @param chunk buffer holding the chunk, the buffer is not modified
+     * @throws IOException if the chunk could not be written
+     */
+    private void storeChunk(byte[] digest, ByteBuffer chunk) throws IOException {
+        Path path = chunkOf(digest);
+
+        if (Files.exists(path)) {
+            return;
+        }
+
+        Files.createDirectories(path.getParent());
+        Path temporary = Files.createTempFile(path.getParent(), "chunk", ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer source = chunk.duplicate();
+
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+
+                channel.force(true);
+            }
+
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            /* Stored concurrently with identical content. */
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Append a version to the log of its slot. A partly written record from an earlier crash is overwritten.
+     *
+     * @param version version to append
+     * @throws IOException if the log could not be written
+     */
+    private void appendRecord(SlotVersion version) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.putInt(RECORD_MAGIC);
+        record.putLong(version.getRecorded().toEpochMilli());
+
+        byte[] name = version.getName().getBytes(StandardCharsets.ISO_8859_1);
+        record.put(name, 0, Math.min(name.length, NAME_LENGTH));
+        record.position(4 + 8 + NAME_LENGTH);
+        record.put(version.getTrackDigests());
+        record.flip();
+
+        try (FileChannel channel = FileChannel.open(logOf(version.getSlot()), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long position = (long) version.getIndex() * RECORD_SIZE;
+            channel.truncate(position);
+
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Parse a log record.
+     *
+     * @param slot slot number
+     * @param index index of record
+     * @param record buffer holding the record
+     * @return slot version
+     */
+    private static SlotVersion parseRecord(int slot, int index, ByteBuffer record) {
+        Instant recorded = Instant.ofEpochMilli(record.getLong(4));
+
+        int nameLength = 0;
+
+        while (nameLength < NAME_LENGTH && record.get(4 + 8 + nameLength) != 0) {
+            nameLength++;
+        }
+
+        String name = new String(record.array(), 4 + 8, nameLength, StandardCharsets.ISO_8859_1);
+        byte[] trackDigests = Arrays.copyOfRange(record.array(), 4 + 8 + NAME_LENGTH, RECORD_SIZE);
+
+        return new SlotVersion(slot, index, recorded, name, trackDigests);
+    }
+
+    /**
+     * Get a track of a disk image.
+     *
+     * @param image buffer holding the disk image
+     * @param track track number
+     * @return buffer holding only the track
+     */
+    private static ByteBuffer trackOf(ByteBuffer image, int track) {
+        ByteBuffer chunk = image.duplicate();
+        chunk.position(track * DiskBundle.TRACK_SIZE);
+        chunk.limit((track + 1) * DiskBundle.TRACK_SIZE);
+
+        return chunk.slice();
+    }
+
+    /**
+     * Get the path of the chunk with a digest.
+     *
+     * @param digest digest of chunk
+     * @return chunk path
+     */
+    private Path chunkOf(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            hex[(i * 2) + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+
+        String name = new String(hex);
+
+        return chunkDirectory.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    /**
+     * Get the path of the log of a slot.
+     *
+     * @param slot slot number
+     * @return log path
+     */
+    private Path logOf(int slot) {
+        return slotDirectory.resolve(Integer.toString(slot));
+    }
+
+    /**
+     * Create a digest of the chunk algorithm.
+     *
+     * @return message digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available.", e);
+        }
+    }
+}
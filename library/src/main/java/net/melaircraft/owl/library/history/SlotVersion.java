@@ -0,0 +1,97 @@
+package net.melaircraft.owl.library.history;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * A version of a slot recorded in a {@link SlotHistory}.
+ */
+public final class SlotVersion {
+    /** Slot the version was recorded from. */
+    private final int slot;
+    /** Position of the version in the history of the slot, starting at 0. */
+    private final int index;
+    /** Time the version was recorded. */
+    private final Instant recorded;
+    /** Name of the slot when recorded. */
+    private final String name;
+    /** Digest of each track of the disk image, concatenated. */
+    private final byte[] trackDigests;
+
+    /**
+     * Construct a new slot version.
+     *
+     * @param slot slot the version was recorded from
+     * @param index position of the version in the history of the slot
+     * @param recorded time the version was recorded
+     * @param name name of the slot when recorded
+     * @param trackDigests digest of each track of the disk image, concatenated
+     */
+    SlotVersion(int slot, int index, Instant recorded, String name, byte[] trackDigests) {
+        this.slot = slot;
+        this.index = index;
+        this.recorded = recorded;
+        this.name = name;
+        this.trackDigests = trackDigests;
+    }
+
+    /**
+     * Get the slot the version was recorded from.
+     *
+     * @return slot number
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Get the position of the version in the history of the slot, the oldest version being 0.
+     *
+     * @return version index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Get the time the version was recorded.
+     *
+     * @return recorded time
+     */
+    public Instant getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Get the name of the slot when the version was recorded.
+     *
+     * @return slot name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the digest of each track of the disk image, concatenated.
+     *
+     * @return track digests, not to be modified
+     */
+    byte[] getTrackDigests() {
+        return trackDigests;
+    }
+
+    /**
+     * Check to see if this version holds the same name and disk image as another.
+     *
+     * @param other other version
+     * @return true if the name and every track match
+     */
+    boolean hasSameContent(SlotVersion other) {
+        return name.equals(other.name) && Arrays.equals(trackDigests, other.trackDigests);
+    }
+
+    @Override
+    public String toString() {
+        return "SlotVersion{slot=" + slot + ", index=" + index + ", recorded=" + recorded + ", name='" + name + "'}";
+    }
+}
@@ -0,0 +1,349 @@
+package net.melaircraft.owl.library.image;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Conversion between interleaved double sided DFS images (.dsd) and pairs of bundle slots.
+ *
+ * A DSD image holds track 0 of side 0, then track 0 of side 2, then track 1 of side 0 and so on. Images are
+ * converted a track at a time directly between the image and the bundle, without building intermediate disks.
+ */
+public final class DsdConverter {
+    /** Number of bytes in a complete double sided image. */
+    public static final int DSD_SIZE = DiskBundle.DISK_SIZE * 2;
+    /** File extension of double sided images. */
+    private static final String EXTENSION = ".dsd";
+
+    /**
+     * Utility class, not constructed.
+     */
+    private DsdConverter() {
+    }
+
+    /**
+     * Import a double sided image held in memory into a pair of slots. A short image is padded with 0x00, slots which
+     * were unused are activated and left unlocked.
+     *
+     * @param image buffer holding the image from its position to its limit, the buffer is not modified
+     * @param bundle bundle to import into
+     * @param slots slots to receive each side
+     * @throws LockedSlotException if either slot is in use and locked
+     * @throws NoStorageSlotException if either slot has no storage allocated
+     */
+    public static void importImage(ByteBuffer image, DiskBundle bundle, SlotPair slots) throws LockedSlotException, NoStorageSlotException {
+        checkWritable(bundle, slots);
+
+        ByteBuffer source = image.duplicate();
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+                writeTrack(bundle, slots.getSide0(), track, nextTrack(source));
+                writeTrack(bundle, slots.getSide2(), track, nextTrack(source));
+            }
+
+            activate(bundle, slots);
+        }
+    }
+
+    /**
+     * Import a double sided image from a channel into a pair of slots, holding only two tracks in memory at a time.
+     * A short image is padded with 0x00, slots which were unused are activated and left unlocked.
+     *
+     * @param channel channel to read the image from, read until end of stream or a full image has been read
+     * @param bundle bundle to import into
+     * @param slots slots to receive each side
+     * @throws IOException if the image could not be read
+     * @throws LockedSlotException if either slot is in use and locked
+     * @throws NoStorageSlotException if either slot has no storage allocated
+     */
+    public static void importImage(ReadableByteChannel channel, DiskBundle bundle, SlotPair slots) throws IOException, LockedSlotException, NoStorageSlotException {
+        checkWritable(bundle, slots);
+
+        ByteBuffer tracks = ByteBuffer.allocate(DiskBundle.TRACK_SIZE * 2);
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+                tracks.clear();
+
+                while (tracks.hasRemaining() && channel.read(tracks) >= 0) {
+                    /* Keep reading until the pair of tracks is complete or the stream ends. */
+                }
+
+                tracks.flip();
+
+                writeTrack(bundle, slots.getSide0(), track, nextTrack(tracks));
+                writeTrack(bundle, slots.getSide2(), track, nextTrack(tracks));
+            }
+
+            activate(bundle, slots);
+        }
+    }
+
+    /**
+     * Export a pair of slots as a double sided image held in memory.
+     *
+     * @param bundle bundle to export from
+     * @param slots slots holding each side
+     * @return buffer containing the complete image
+     * @throws NoStorageSlotException if either slot has no storage allocated
+     */
+    public static ByteBuffer exportImage(DiskBundle bundle, SlotPair slots) throws NoStorageSlotException {
+        ByteBuffer image = ByteBuffer.allocate(DSD_SIZE);
+
+        for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+            readTrack(bundle, slots.getSide0(), track, image);
+            readTrack(bundle, slots.getSide2(), track, image);
+        }
+
+        image.flip();
+        return image;
+    }
+
+    /**
+     * Export a pair of slots as a double sided image to a channel, holding only two tracks in memory at a time.
+     *
+     * @param bundle bundle to export from
+     * @param slots slots holding each side
+     * @param channel channel to write the image to
+     * @throws IOException if the image could not be written
+     * @throws NoStorageSlotException if either slot has no storage allocated
+     */
+    public static void exportImage(DiskBundle bundle, SlotPair slots, WritableByteChannel channel) throws IOException, NoStorageSlotException {
+        ByteBuffer tracks = ByteBuffer.allocate(DiskBundle.TRACK_SIZE * 2);
+
+        for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+            tracks.clear();
+
+            readTrack(bundle, slots.getSide0(), track, tracks);
+            readTrack(bundle, slots.getSide2(), track, tracks);
+
+            tracks.flip();
+
+            while (tracks.hasRemaining()) {
+                channel.write(tracks);
+            }
+        }
+    }
+
+    /**
+     * Import every double sided image in a directory into the lowest free pairs of slots of a bundle. Each slot is
+     * named after the image file.
+     *
+     * @param directory directory containing .dsd files
+     * @param bundle bundle to import into
+     * @return slots each image was imported into, in the order imported
+     * @throws IOException if the directory or an image could not be read
+     * @throws NoStorageSlotException if the bundle runs out of free slots
+     */
+    public static Map<Path, SlotPair> importDirectory(Path directory, DiskBundle bundle) throws IOException, NoStorageSlotException {
+        Map<Path, SlotPair> imported = new LinkedHashMap<>();
+        int nextSlot = 0;
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            for (Path file : listImages(directory)) {
+                int side0 = findFreeSlot(bundle, nextSlot);
+                int side2 = findFreeSlot(bundle, side0 + 1);
+                nextSlot = side2 + 1;
+
+                SlotPair slots = new SlotPair(side0, side2);
+
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    importImage(channel, bundle, slots);
+                }
+
+                String name = baseName(file);
+                bundle.setName(side0, name);
+                bundle.setName(side2, name);
+
+                imported.put(file, slots);
+            }
+        }
+
+        return imported;
+    }
+
+    /**
+     * Export pairs of slots as double sided images into a directory, each file is named after the side 0 slot, or
+     * "SLOT" and the slot number if unnamed. Characters unsafe in a file name are replaced with "_", and the slot
+     * number is appended when a name is repeated.
+     *
+     * @param bundle bundle to export from
+     * @param pairs slot pairs to export
+     * @param directory directory to write .dsd files to
+     * @return paths of the files written, in the same order as the pairs
+     * @throws IOException if an image could not be written
+     * @throws NoStorageSlotException if a slot has no storage allocated
+     */
+    public static List<Path> exportDirectory(DiskBundle bundle, List<SlotPair> pairs, Path directory) throws IOException, NoStorageSlotException {
+        List<Path> written = new ArrayList<>();
+        ExportFileNames names = new ExportFileNames(directory, EXTENSION);
+
+        for (SlotPair slots : pairs) {
+            Path file = names.next(bundle.getName(slots.getSide0()), slots.getSide0());
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                exportImage(bundle, slots, channel);
+            }
+
+            written.add(file);
+        }
+
+        return written;
+    }
+
+    /**
+     * Check that both slots of a pair can be written before any data is changed.
+     *
+     * @param bundle bundle being written
+     * @param slots slots to check
+     * @throws LockedSlotException if either slot is in use and locked
+     * @throws NoStorageSlotException if either slot has no storage allocated
+     */
+    private static void checkWritable(DiskBundle bundle, SlotPair slots) throws LockedSlotException, NoStorageSlotException {
+        for (int slot : new int[]{slots.getSide0(), slots.getSide2()}) {
+            if (slot >= bundle.getStorageSize()) {
+                throw new NoStorageSlotException(slot);
+            }
+
+            if (bundle.isOccupied(slot) && bundle.isLocked(slot)) {
+                throw new LockedSlotException(slot);
+            }
+        }
+    }
+
+    /**
+     * Activate any unused slot of a pair after an import, leaving it unlocked.
+     *
+     * @param bundle bundle imported into
+     * @param slots slots imported into
+     */
+    private static void activate(DiskBundle bundle, SlotPair slots) {
+        for (int slot : new int[]{slots.getSide0(), slots.getSide2()}) {
+            if (!bundle.isOccupied(slot)) {
+                bundle.activate(slot);
+                bundle.unlock(slot);
+            }
+        }
+    }
+
+    /**
+     * Take the next track from a source buffer, as a view without copying.
+     *
+     * @param source source buffer, advanced past the track
+     * @return view of up to one track of data, may be short or empty at the end of the source
+     */
+    private static ByteBuffer nextTrack(ByteBuffer source) {
+        int length = Math.min(DiskBundle.TRACK_SIZE, source.remaining());
+
+        ByteBuffer track = source.duplicate();
+        track.limit(track.position() + length);
+        source.position(source.position() + length);
+
+        return track;
+    }
+
+    /**
+     * Write a track into a slot, padding a short track with 0x00.
+     *
+     * @param bundle bundle to write to
+     * @param slot slot number (0 - 510)
+     * @param track track number
+     * @param data track data, up to one track in length
+     */
+    private static void writeTrack(DiskBundle bundle, int slot, int track, ByteBuffer data) {
+        int offset = track * DiskBundle.TRACK_SIZE;
+        int length = data.remaining();
+
+        bundle.write(slot, offset, data);
+
+        if (length < DiskBundle.TRACK_SIZE) {
+            bundle.write(slot, offset + length, ByteBuffer.allocate(DiskBundle.TRACK_SIZE - length));
+        }
+    }
+
+    /**
+     * Read a track from a slot into a buffer.
+     *
+     * @param bundle bundle to read from
+     * @param slot slot number (0 - 510)
+     * @param track track number
+     * @param target buffer to read into, advanced by one track
+     */
+    private static void readTrack(DiskBundle bundle, int slot, int track, ByteBuffer target) {
+        ByteBuffer region = target.duplicate();
+        region.limit(region.position() + DiskBundle.TRACK_SIZE);
+
+        bundle.read(slot, track * DiskBundle.TRACK_SIZE, region);
+        target.position(region.position());
+    }
+
+    /**
+     * Find the lowest unoccupied slot with storage at or above a slot number.
+     *
+     * @param bundle bundle to search
+     * @param from lowest slot number to consider
+     * @return free slot number
+     * @throws NoStorageSlotException if there is no free slot
+     */
+    private static int findFreeSlot(DiskBundle bundle, int from) throws NoStorageSlotException {
+        for (int slot = from; slot < bundle.getStorageSize(); slot++) {
+            if (!bundle.isOccupied(slot)) {
+                return slot;
+            }
+        }
+
+        throw new NoStorageSlotException(Math.min(from, 510));
+    }
+
+    /**
+     * List the double sided images in a directory, sorted by file name.
+     *
+     * @param directory directory to list
+     * @return image paths
+     * @throws IOException if the directory could not be read
+     */
+    private static List<Path> listImages(Path directory) throws IOException {
+        List<Path> images = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file) && file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(EXTENSION)) {
+                    images.add(file);
+                }
+            }
+        }
+
+        Collections.sort(images);
+        return images;
+    }
+
+    /**
+     * Get the name of an image file without its extension, suitable for a slot name.
+     *
+     * @param file image path
+     * @return base name of file
+     */
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - EXTENSION.length()).replace(' ', '_');
+    }
+}
@@ -0,0 +1,90 @@
+package net.melaircraft.owl.library.image;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Chooses the names of image files exported into a directory from slot titles.
+ *
+ * Titles are set by whatever wrote the bundle, so may hold characters which are not safe in a file name. Path
+ * separators, drive separators, control characters and leading dots are replaced with "_", and a slot without a title
+ * is named "SLOT" and its slot number. A name already chosen, ignoring case, has "_" and the slot number appended,
+ * followed by a counter if that is taken too.
+ */
+final class ExportFileNames {
+    /** Directory files are written into. */
+    private final Path directory;
+    /** Directory files are written into, absolute and normalised for containment checks. */
+    private final Path normalisedDirectory;
+    /** File extension, including the dot. */
+    private final String extension;
+    /** Names chosen so far, in upper case. */
+    private final Set<String> used = new HashSet<>();
+
+    /**
+     * Construct a new chooser of file names for a directory.
+     *
+     * @param directory directory files are written into
+     * @param extension file extension, including the dot
+     */
+    ExportFileNames(Path directory, String extension) {
+        this.directory = directory;
+        this.normalisedDirectory = directory.toAbsolutePath().normalize();
+        this.extension = extension;
+    }
+
+    /**
+     * Choose the file for a slot, unique among the files chosen so far.
+     *
+     * @param title title of the slot, may be empty
+     * @param slot slot number
+     * @return path of the file within the directory
+     * @throws IOException if the file would not be within the directory
+     */
+    Path next(String title, int slot) throws IOException {
+        String base = title.isEmpty() ? "SLOT" + slot : sanitise(title);
+        String name = base;
+
+        if (used.contains(name.toUpperCase(Locale.ROOT))) {
+            name = base + "_" + slot;
+
+            for (int counter = 2; used.contains(name.toUpperCase(Locale.ROOT)); counter++) {
+                name = base + "_" + slot + "_" + counter;
+            }
+        }
+
+        Path file = directory.resolve(name + extension);
+
+        if (!file.toAbsolutePath().normalize().getParent().equals(normalisedDirectory)) {
+            throw new IOException("Export of slot " + slot + " as " + file + " would be outside of " + directory + ".");
+        }
+
+        used.add(name.toUpperCase(Locale.ROOT));
+
+        return file;
+    }
+
+    /**
+     * Replace the characters of a title which are not safe in a file name.
+     *
+     * @param title slot title
+     * @return file name without extension
+     */
+    static String sanitise(String title) {
+        StringBuilder name = new StringBuilder(title.length());
+        boolean leading = true;
+
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            boolean unsafe = c == '/' || c == '\\' || c == ':' || c < 0x20 || c == 0x7f || (leading && c == '.');
+
+            leading &= c == '.';
+            name.append(unsafe ? '_' : c);
+        }
+
+        return name.toString();
+    }
+}
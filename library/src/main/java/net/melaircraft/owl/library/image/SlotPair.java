@@ -0,0 +1,64 @@
+package net.melaircraft.owl.library.image;
+
+/**
+ * A pair of slots holding the two sides of a double sided disk.
+ */
+public final class SlotPair {
+    /** Slot holding side 0 of the disk. */
+    private final int side0;
+    /** Slot holding side 2 of the disk. */
+    private final int side2;
+
+    /**
+     * Construct a new slot pair.
+     *
+     * @param side0 slot holding side 0 (0 - 510)
+     * @param side2 slot holding side 2 (0 - 510)
+     */
+    public SlotPair(int side0, int side2) {
+        this.side0 = side0;
+        this.side2 = side2;
+    }
+
+    /**
+     * Get the slot holding side 0 of the disk.
+     *
+     * @return slot number
+     */
+    public int getSide0() {
+        return side0;
+    }
+
+    /**
+     * Get the slot holding side 2 of the disk.
+     *
+     * @return slot number
+     */
+    public int getSide2() {
+        return side2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof SlotPair)) {
+            return false;
+        }
+
+        SlotPair that = (SlotPair) o;
+        return side0 == that.side0 && side2 == that.side2;
+    }
+
+    @Override
+    public int hashCode() {
+        return (side0 * 511) + side2;
+    }
+
+    @Override
+    public String toString() {
+        return side0 + "/" + side2;
+    }
+}
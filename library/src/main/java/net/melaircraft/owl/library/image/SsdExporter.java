@@ -0,0 +1,184 @@
+package net.melaircraft.owl.library.image;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import net.melaircraft.owl.library.dfs.DfsCatalogue;
+import net.melaircraft.owl.library.dfs.DfsFile;
+import net.melaircraft.owl.library.exception.dfs.InvalidCatalogueException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Export of slots as single sided DFS images (.ssd) trimmed to the sectors the disk uses.
+ *
+ * The extent of a disk is found from its DFS catalogue, ending after the highest sector used by a file, and never
+ * shorter than the catalogue itself. Disks without a plausible catalogue, see {@link DfsCatalogue#isPlausible()}, are
+ * exported in full. The extent may be padded to a whole number of tracks, for emulators which expect it.
+ *
+ * Slots of a {@link FileChannelDiskBundle} are transferred from the bundle file to the image file by the channel,
+ * without passing through the heap. Other bundles are read a track at a time.
+ */
+public final class SsdExporter {
+    /** File extension of single sided images. */
+    private static final String EXTENSION = ".ssd";
+
+    /**
+     * Utility class, not constructed.
+     */
+    private SsdExporter() {
+    }
+
+    /**
+     * Calculate the number of bytes of a slot to export.
+     *
+     * @param bundle bundle holding the slot
+     * @param slot slot number (0 - 510)
+     * @param padToTrack true to round the extent up to a whole number of tracks
+     * @return length of the image in bytes
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     */
+    public static int getExportLength(DiskBundle bundle, int slot, boolean padToTrack) throws NoStorageSlotException {
+        int sectors = DfsCatalogue.DISK_SECTORS;
+
+        try {
+            DfsCatalogue catalogue = DfsCatalogue.read(bundle, slot);
+
+            if (catalogue.isPlausible()) {
+                sectors = DfsCatalogue.CATALOGUE_SECTORS;
+
+                for (DfsFile file : catalogue.getFiles()) {
+                    sectors = Math.max(sectors, file.getEndSector());
+                }
+            }
+        } catch (InvalidCatalogueException e) {
+            /* Not DFS, so exported in full. */
+        }
+
+        if (padToTrack) {
+            sectors = ((sectors + DiskBundle.SECTORS_PER_TRACK - 1) / DiskBundle.SECTORS_PER_TRACK) * DiskBundle.SECTORS_PER_TRACK;
+        }
+
+        return sectors * DiskBundle.SECTOR_SIZE;
+    }
+
+    /**
+     * Export a slot as a trimmed image to a channel.
+     *
+     * @param bundle bundle to export from
+     * @param slot slot number (0 - 510)
+     * @param channel channel to write the image to
+     * @param padToTrack true to round the extent up to a whole number of tracks
+     * @return number of bytes written
+     * @throws IOException if the image could not be written
+     * @throws NoStorageSlotException if the slot has no storage allocated
+     */
+    public static int exportImage(DiskBundle bundle, int slot, WritableByteChannel channel, boolean padToTrack) throws IOException, NoStorageSlotException {
+        int length = getExportLength(bundle, slot, padToTrack);
+
+        if (bundle instanceof FileChannelDiskBundle) {
+            FileChannel source = ((FileChannelDiskBundle) bundle).getFileChannel();
+            long position = DiskBundle.INITIAL_OFFSET + ((long) DiskBundle.DISK_SIZE * slot);
+            long transferred = 0;
+
+            while (transferred < length) {
+                long count = source.transferTo(position + transferred, length - transferred, channel);
+
+                if (count <= 0) {
+                    throw new IOException("Transfer of slot " + slot + " stopped after " + transferred + " of " + length + " bytes.");
+                }
+
+                transferred += count;
+            }
+        } else {
+            ByteBuffer track = ByteBuffer.allocate(DiskBundle.TRACK_SIZE);
+
+            for (int offset = 0; offset < length; offset += track.capacity()) {
+                track.clear();
+                track.limit(Math.min(track.capacity(), length - offset));
+                bundle.read(slot, offset, track);
+                track.flip();
+
+                while (track.hasRemaining()) {
+                    channel.write(track);
+                }
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Export slots as trimmed images into a directory, several at once. Each file is named after its slot, or
+     * "SLOT" and the slot number if unnamed. Characters unsafe in a file name are replaced with "_", and the slot
+     * number is appended when a name is repeated.
+     *
+     * @param bundle bundle to export from
+     * @param slots slot numbers to export
+     * @param directory directory to write .ssd files to
+     * @param padToTrack true to round each extent up to a whole number of tracks
+     * @param parallelism number of images exported at once
+     * @return paths of the files written by slot, in the same order as the slots
+     * @throws IOException if an image could not be written
+     * @throws NoStorageSlotException if a slot has no storage allocated
+     */
+    public static Map<Integer, Path> exportDirectory(DiskBundle bundle, List<Integer> slots, Path directory, boolean padToTrack, int parallelism) throws IOException, NoStorageSlotException {
+        Map<Integer, Path> files = new LinkedHashMap<>();
+        ExportFileNames names = new ExportFileNames(directory, EXTENSION);
+
+        for (int slot : slots) {
+            files.put(slot, names.next(bundle.getName(slot), slot));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, files.size())));
+
+        try {
+            List<Future<Integer>> exports = new ArrayList<>();
+
+            for (Map.Entry<Integer, Path> entry : files.entrySet()) {
+                exports.add(executor.submit(() -> {
+                    try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        return exportImage(bundle, entry.getKey(), channel, padToTrack);
+                    }
+                }));
+            }
+
+            for (Future<Integer> export : exports) {
+                export.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting images.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return files;
+    }
+}
@@ -0,0 +1,140 @@
+package net.melaircraft.owl.library.loadtest;
+
+/**
+ * Histogram of latencies in nanoseconds, with a fixed number of buckets so recording never allocates.
+ *
+ * Each power of two is split into eight buckets, so a percentile is reported to within 12.5% of the true latency.
+ * A histogram is not thread safe, each thread records into its own and they are merged once finished.
+ */
+public class LatencyHistogram {
+    /** Number of buckets per power of two, as a shift. */
+    private static final int SUB_BUCKET_BITS = 3;
+    /** Number of buckets per power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** Count of latencies in each bucket. */
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    /** Count of latencies recorded. */
+    private long count;
+    /** Sum of latencies recorded. */
+    private long total;
+    /** Largest latency recorded. */
+    private long maximum;
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+
+        counts[bucketOf(value)]++;
+        count++;
+        total += value;
+        maximum = Math.max(maximum, value);
+    }
+
+    /**
+     * Add the latencies of another histogram to this one.
+     *
+     * @param other histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        count += other.count;
+        total += other.total;
+        maximum = Math.max(maximum, other.maximum);
+    }
+
+    /**
+     * Get the number of latencies recorded.
+     *
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the mean latency.
+     *
+     * @return mean in nanoseconds, 0 if none were recorded
+     */
+    public long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * Get the largest latency recorded.
+     *
+     * @return maximum in nanoseconds
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Get the latency which the given fraction of latencies do not exceed.
+     *
+     * @param fraction fraction of latencies, such as 0.99
+     * @return upper bound of the bucket holding the percentile in nanoseconds, never more than the maximum, 0 if none
+     * were recorded
+     */
+    public long getPercentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), maximum);
+            }
+        }
+
+        return maximum;
+    }
+
+    /**
+     * Get the bucket holding a latency.
+     *
+     * @param value latency, not negative
+     * @return bucket index
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return ((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS) + subBucket;
+    }
+
+    /**
+     * Get the largest latency held by a bucket.
+     *
+     * @param bucket bucket index
+     * @return upper bound of bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = (bucket / SUB_BUCKETS) + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,487 @@
+package net.melaircraft.owl.library.loadtest;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Issues a mix of operations against a bundle from many threads, measuring throughput and latency, then checks the
+ * final state of the bundle against a reference model.
+ *
+ * The slots with storage when the run starts are shared out between the threads, and each thread only changes the
+ * slots it owns, so it can keep an exact model of them while reading from any slot. Resizes move the storage between
+ * its starting size and a few spare slots beyond, which are never occupied, so they never disturb an owned slot.
+ * Extracts compare the image read with the model as the run progresses, and every owned slot is compared when the run
+ * ends.
+ *
+ * Operations are not serialized by the generator, so a backend which is not safe for concurrent use shows up as errors
+ * or mismatches.
+ *
+ * The bundle is changed by the run, and occupied slots are unlocked before it starts, so it should be run against a
+ * copy or a bundle made by {@link SyntheticBundle}. Disk images inserted are generated before the run starts, so
+ * their generation is not measured.
+ */
+public class LoadGenerator {
+    /** Number of slots resizes add beyond the starting storage. */
+    public static final int SPARE_SLOTS = 8;
+
+    /** Number of distinct images inserted by the run. */
+    private static final int IMAGE_POOL_SIZE = 8;
+    /** CRC-32 of a blank disk image. */
+    private static final long BLANK_CRC = crcOf(ByteBuffer.wrap(new byte[DiskBundle.DISK_SIZE]));
+
+    /** Bundle under test. */
+    private final DiskBundle bundle;
+    /** Mix of operations to issue. */
+    private final WorkloadMix mix;
+    /** Number of threads issuing operations. */
+    private final int threads;
+    /** Seed for the choice of operations and content. */
+    private final long seed;
+
+    /**
+     * Construct a new load generator.
+     *
+     * @param bundle bundle under test, which must have storage for at least one slot per thread and no more than 503
+     * @param mix mix of operations to issue
+     * @param threads number of threads issuing operations
+     * @param seed seed for the choice of operations and content, the same seed issues the same operations from each
+     * thread
+     */
+    public LoadGenerator(DiskBundle bundle, WorkloadMix mix, int threads, long seed) {
+        if (threads < 1 || bundle.getStorageSize() < threads) {
+            throw new IllegalArgumentException("Bundle with " + bundle.getStorageSize() + " slots cannot be shared between " + threads + " threads.");
+        }
+
+        if (bundle.getStorageSize() + SPARE_SLOTS > 511) {
+            throw new IllegalArgumentException("Bundle needs " + SPARE_SLOTS + " slots without storage for resizes.");
+        }
+
+        this.bundle = bundle;
+        this.mix = mix;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Run for a period, issuing operations as fast as the bundle allows, and report on the operations after warming up.
+     *
+     * @param warmup time to run before measuring
+     * @param duration time to measure
+     * @return load report
+     * @throws InterruptedException if interrupted while waiting for the threads to finish
+     */
+    public LoadReport run(Duration warmup, Duration duration) throws InterruptedException {
+        return execute(Long.MAX_VALUE, warmup.toNanos(), duration.toNanos());
+    }
+
+    /**
+     * Issue a fixed number of operations from each thread, measuring all of them.
+     *
+     * @param operationsPerThread operations issued by each thread
+     * @return load report
+     * @throws InterruptedException if interrupted while waiting for the threads to finish
+     */
+    public LoadReport run(long operationsPerThread) throws InterruptedException {
+        return execute(operationsPerThread, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Run the worker threads and check the final state.
+     *
+     * @param operationsPerThread maximum operations issued by each thread
+     * @param warmupNanos time to run before measuring
+     * @param durationNanos maximum time to measure
+     * @return load report
+     * @throws InterruptedException if interrupted while waiting for the threads to finish
+     */
+    private LoadReport execute(long operationsPerThread, long warmupNanos, long durationNanos) throws InterruptedException {
+        int baseStorage = bundle.getStorageSize();
+        Random random = new Random(seed);
+        byte[][] images = new byte[IMAGE_POOL_SIZE][];
+        long[] imageCrcs = new long[IMAGE_POOL_SIZE];
+
+        for (int i = 0; i < IMAGE_POOL_SIZE; i++) {
+            images[i] = SyntheticBundle.createImage(random);
+            imageCrcs[i] = crcOf(ByteBuffer.wrap(images[i]));
+        }
+
+        SlotModel model = new SlotModel(baseStorage);
+
+        for (int slot = 0; slot < baseStorage; slot++) {
+            if (bundle.isOccupied(slot) && bundle.isLocked(slot)) {
+                bundle.unlock(slot);
+            }
+
+            model.occupied[slot] = bundle.isOccupied(slot);
+            model.names[slot] = bundle.getName(slot);
+            model.crcs[slot] = crcOf(readImage(slot));
+        }
+
+        List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Worker> workers = new ArrayList<>();
+        List<Thread> workerThreads = new ArrayList<>();
+
+        for (int index = 0; index < threads; index++) {
+            Worker worker = new Worker(index, baseStorage, model, images, imageCrcs, mismatches, firstError, start);
+            Thread thread = new Thread(worker, "load-generator-" + index);
+
+            workers.add(worker);
+            workerThreads.add(thread);
+            thread.start();
+        }
+
+        long started = System.nanoTime();
+        long measureFrom = started + warmupNanos;
+        long deadline = durationNanos == Long.MAX_VALUE ? Long.MAX_VALUE : measureFrom + durationNanos;
+
+        for (Worker worker : workers) {
+            worker.operationLimit = operationsPerThread;
+            worker.measureFrom = measureFrom;
+            worker.deadline = deadline;
+        }
+
+        start.countDown();
+
+        for (Thread thread : workerThreads) {
+            thread.join();
+        }
+
+        long elapsed = System.nanoTime() - measureFrom;
+
+        Map<LoadOperation, LatencyHistogram> latencies = new EnumMap<>(LoadOperation.class);
+        Map<LoadOperation, Long> errors = new EnumMap<>(LoadOperation.class);
+
+        for (Worker worker : workers) {
+            for (LoadOperation operation : LoadOperation.values()) {
+                latencies.computeIfAbsent(operation, ignored -> new LatencyHistogram()).add(worker.latencies[operation.ordinal()]);
+                errors.merge(operation, worker.errors[operation.ordinal()], Long::sum);
+            }
+        }
+
+        checkFinalState(model, baseStorage, mismatches);
+
+        return new LoadReport(latencies, errors, Math.max(elapsed, 0), threads, new ArrayList<>(mismatches), firstError.get());
+    }
+
+    /**
+     * Compare the bundle with the reference model.
+     *
+     * @param model reference model of the slots with storage at the start
+     * @param baseStorage storage at the start
+     * @param mismatches list to add differences to
+     */
+    private void checkFinalState(SlotModel model, int baseStorage, List<String> mismatches) {
+        int storage = bundle.getStorageSize();
+
+        if (storage != baseStorage && storage != baseStorage + SPARE_SLOTS) {
+            mismatches.add("Storage is " + storage + " slots, expected " + baseStorage + " or " + (baseStorage + SPARE_SLOTS) + ".");
+        }
+
+        for (int slot = 0; slot < baseStorage; slot++) {
+            if (bundle.isOccupied(slot) != model.occupied[slot]) {
+                mismatches.add("Slot " + slot + " is " + (model.occupied[slot] ? "unoccupied" : "occupied") + ", expected otherwise.");
+            }
+
+            if (!bundle.getName(slot).equals(model.names[slot])) {
+                mismatches.add("Slot " + slot + " is named " + bundle.getName(slot) + ", expected " + model.names[slot] + ".");
+            }
+
+            if (slot < storage && crcOf(readImage(slot)) != model.crcs[slot]) {
+                mismatches.add("Slot " + slot + " image does not match the last image written.");
+            }
+        }
+
+        for (int slot = baseStorage; slot < baseStorage + SPARE_SLOTS; slot++) {
+            if (bundle.isOccupied(slot)) {
+                mismatches.add("Spare slot " + slot + " is occupied.");
+            }
+        }
+    }
+
+    /**
+     * Read the whole image of a slot.
+     *
+     * @param slot slot number
+     * @return buffer holding the image
+     */
+    private ByteBuffer readImage(int slot) {
+        ByteBuffer image = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+        bundle.read(slot, 0, image);
+        image.flip();
+
+        return image;
+    }
+
+    /**
+     * Calculate the CRC-32 of the remaining bytes of a buffer.
+     *
+     * @param buffer buffer to check, the buffer is not modified
+     * @return CRC-32
+     */
+    private static long crcOf(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+
+        return crc.getValue();
+    }
+
+    /**
+     * Expected state of each slot with storage at the start, each element only written by the thread owning the slot.
+     */
+    private static final class SlotModel {
+        /** Whether each slot is occupied. */
+        private final boolean[] occupied;
+        /** Name of each slot. */
+        private final String[] names;
+        /** CRC-32 of the image of each slot. */
+        private final long[] crcs;
+
+        /**
+         * Construct a new slot model.
+         *
+         * @param slots number of slots
+         */
+        private SlotModel(int slots) {
+            occupied = new boolean[slots];
+            names = new String[slots];
+            crcs = new long[slots];
+        }
+    }
+
+    /**
+     * Thread issuing operations.
+     */
+    private final class Worker implements Runnable {
+        /** Index of thread, a slot is owned by the thread with its index modulo the thread count. */
+        private final int index;
+        /** Storage at the start. */
+        private final int baseStorage;
+        /** Reference model. */
+        private final SlotModel model;
+        /** Images to insert. */
+        private final byte[][] images;
+        /** CRC-32 of each image to insert. */
+        private final long[] imageCrcs;
+        /** Differences found during the run. */
+        private final List<String> mismatches;
+        /** First failure of any thread. */
+        private final AtomicReference<Throwable> firstError;
+        /** Signal to start. */
+        private final CountDownLatch start;
+        /** Latencies of successful operations, by operation ordinal. */
+        private final LatencyHistogram[] latencies = new LatencyHistogram[LoadOperation.values().length];
+        /** Count of failed operations, by operation ordinal. */
+        private final long[] errors = new long[LoadOperation.values().length];
+        /** Buffer for sector reads. */
+        private final ByteBuffer sector = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        /** Maximum operations to issue, set before the start signal. */
+        private long operationLimit;
+        /** Time from which operations are measured, set before the start signal. */
+        private long measureFrom;
+        /** Time to stop, set before the start signal. */
+        private long deadline;
+        /** Count of renames and inserts, used to make names. */
+        private int nameCounter;
+
+        /**
+         * Construct a new worker.
+         *
+         * @param index index of thread
+         * @param baseStorage storage at the start
+         * @param model reference model
+         * @param images images to insert
+         * @param imageCrcs CRC-32 of each image to insert
+         * @param mismatches differences found during the run
+         * @param firstError first failure of any thread
+         * @param start signal to start
+         */
+        private Worker(int index, int baseStorage, SlotModel model, byte[][] images, long[] imageCrcs, List<String> mismatches, AtomicReference<Throwable> firstError, CountDownLatch start) {
+            this.index = index;
+            this.baseStorage = baseStorage;
+            this.model = model;
+            this.images = images;
+            this.imageCrcs = imageCrcs;
+            this.mismatches = mismatches;
+            this.firstError = firstError;
+            this.start = start;
+
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            Random random = new Random(seed + 1 + index);
+
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            for (long issued = 0; issued < operationLimit; issued++) {
+                long begin = System.nanoTime();
+
+                if (begin >= deadline) {
+                    break;
+                }
+
+                LoadOperation operation = mix.pick(random);
+
+                try {
+                    long latency = issue(operation, random);
+
+                    if (begin >= measureFrom) {
+                        latencies[operation.ordinal()].record(latency);
+                    }
+                } catch (RuntimeException e) {
+                    errors[operation.ordinal()]++;
+                    firstError.compareAndSet(null, e);
+                }
+            }
+        }
+
+        /**
+         * Issue one operation.
+         *
+         * @param operation operation to issue
+         * @param random source of randomness
+         * @return latency of the bundle calls in nanoseconds
+         */
+        private long issue(LoadOperation operation, Random random) {
+            int slot = pickOwnedSlot(random);
+            long begin;
+            long end;
+
+            switch (operation) {
+                case CATALOGUE_READ: {
+                    int[] occupied = new int[1];
+                    begin = System.nanoTime();
+                    bundle.forEachEntry(entry -> {
+                        if (entry.isOccupied()) {
+                            occupied[0]++;
+                        }
+                    });
+                    end = System.nanoTime();
+                    break;
+                }
+                case SECTOR_READ: {
+                    int anySlot = random.nextInt(baseStorage);
+                    int offset = random.nextInt(DiskBundle.DISK_SIZE / DiskBundle.SECTOR_SIZE) * DiskBundle.SECTOR_SIZE;
+                    sector.clear();
+                    begin = System.nanoTime();
+                    bundle.read(anySlot, offset, sector);
+                    end = System.nanoTime();
+                    break;
+                }
+                case EXTRACT: {
+                    begin = System.nanoTime();
+
+                    try {
+                        byte[] image = bundle.extract(slot).getImage();
+                        end = System.nanoTime();
+
+                        if (!model.occupied[slot]) {
+                            mismatches.add("Slot " + slot + " could be extracted while unoccupied.");
+                        } else if (crcOf(ByteBuffer.wrap(image)) != model.crcs[slot]) {
+                            mismatches.add("Slot " + slot + " extracted an image other than the last written.");
+                        }
+                    } catch (InactivateSlotException e) {
+                        end = System.nanoTime();
+
+                        if (model.occupied[slot]) {
+                            mismatches.add("Slot " + slot + " could not be extracted while occupied.");
+                        }
+                    }
+
+                    break;
+                }
+                case INSERT: {
+                    int image = random.nextInt(images.length);
+                    String name = nextName();
+                    begin = System.nanoTime();
+
+                    if (!bundle.isOccupied(slot)) {
+                        bundle.activate(slot);
+                        bundle.unlock(slot);
+                    }
+
+                    bundle.insert(slot, new ByteBufferDisk(images[image]));
+                    bundle.setName(slot, name);
+                    end = System.nanoTime();
+
+                    model.occupied[slot] = true;
+                    model.names[slot] = name;
+                    model.crcs[slot] = imageCrcs[image];
+                    break;
+                }
+                case DEACTIVATE:
+                    begin = System.nanoTime();
+                    bundle.deactivate(slot, true);
+                    end = System.nanoTime();
+
+                    model.occupied[slot] = false;
+                    model.crcs[slot] = BLANK_CRC;
+                    break;
+                case RENAME: {
+                    String name = nextName();
+                    begin = System.nanoTime();
+                    bundle.setName(slot, name);
+                    end = System.nanoTime();
+
+                    model.names[slot] = name;
+                    break;
+                }
+                case RESIZE:
+                    begin = System.nanoTime();
+                    bundle.changeStorageSize(bundle.getStorageSize() == baseStorage ? baseStorage + SPARE_SLOTS : baseStorage);
+                    end = System.nanoTime();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation + ".");
+            }
+
+            return end - begin;
+        }
+
+        /**
+         * Pick one of the slots owned by this thread at random.
+         *
+         * @param random source of randomness
+         * @return slot number
+         */
+        private int pickOwnedSlot(Random random) {
+            int owned = ((baseStorage - 1 - index) / threads) + 1;
+
+            return index + (random.nextInt(owned) * threads);
+        }
+
+        /**
+         * Make a new slot name, unique to this thread.
+         *
+         * @return slot name, no longer than a disk title
+         */
+        private String nextName() {
+            nameCounter = (nameCounter + 1) % 100000;
+
+            return "W" + index + "-" + nameCounter;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package net.melaircraft.owl.library.loadtest;
+
+/**
+ * Operation issued by a {@link LoadGenerator}.
+ */
+public enum LoadOperation {
+    /** Visit every catalogue entry, counting occupied slots. */
+    CATALOGUE_READ,
+    /** Read one sector of a slot. */
+    SECTOR_READ,
+    /** Extract the disk image of a slot. */
+    EXTRACT,
+    /** Insert a disk image into a slot and name it, activating the slot if unused. */
+    INSERT,
+    /** Deactivate a slot, wiping its disk image. */
+    DEACTIVATE,
+    /** Rename a slot. */
+    RENAME,
+    /** Grow or shrink the storage of the bundle by its spare slots. */
+    RESIZE
+}
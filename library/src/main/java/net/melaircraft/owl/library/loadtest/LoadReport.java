@@ -0,0 +1,185 @@
+package net.melaircraft.owl.library.loadtest;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Results of a run of a {@link LoadGenerator}.
+ */
+public class LoadReport {
+    /** Latencies of successful operations, by operation. */
+    private final Map<LoadOperation, LatencyHistogram> latencies;
+    /** Count of failed operations, by operation. */
+    private final Map<LoadOperation, Long> errors;
+    /** Length of the measured period in nanoseconds. */
+    private final long elapsedNanos;
+    /** Number of threads issuing operations. */
+    private final int threads;
+    /** Differences found between the bundle and the reference model. */
+    private final List<String> mismatches;
+    /** First failure seen, or null if none failed. */
+    private final Throwable firstError;
+
+    /**
+     * Construct a new load report.
+     *
+     * @param latencies latencies of successful operations, by operation
+     * @param errors count of failed operations, by operation
+     * @param elapsedNanos length of the measured period in nanoseconds
+     * @param threads number of threads issuing operations
+     * @param mismatches differences found between the bundle and the reference model
+     * @param firstError first failure seen, or null if none failed
+     */
+    LoadReport(Map<LoadOperation, LatencyHistogram> latencies, Map<LoadOperation, Long> errors, long elapsedNanos, int threads, List<String> mismatches, Throwable firstError) {
+        this.latencies = latencies;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+        this.mismatches = Collections.unmodifiableList(mismatches);
+        this.firstError = firstError;
+    }
+
+    /**
+     * Get the latencies of the successful operations of a type.
+     *
+     * @param operation operation
+     * @return latency histogram
+     */
+    public LatencyHistogram getLatencies(LoadOperation operation) {
+        LatencyHistogram histogram = latencies.get(operation);
+        return histogram != null ? histogram : new LatencyHistogram();
+    }
+
+    /**
+     * Get the latencies of every successful operation.
+     *
+     * @return latency histogram
+     */
+    public LatencyHistogram getTotalLatencies() {
+        LatencyHistogram total = new LatencyHistogram();
+
+        for (LatencyHistogram histogram : latencies.values()) {
+            total.add(histogram);
+        }
+
+        return total;
+    }
+
+    /**
+     * Get the number of operations of a type which failed.
+     *
+     * @param operation operation
+     * @return error count
+     */
+    public long getErrors(LoadOperation operation) {
+        return errors.getOrDefault(operation, 0L);
+    }
+
+    /**
+     * Get the number of operations which failed.
+     *
+     * @return error count
+     */
+    public long getTotalErrors() {
+        long total = 0;
+
+        for (long count : errors.values()) {
+            total += count;
+        }
+
+        return total;
+    }
+
+    /**
+     * Get the first failure seen.
+     *
+     * @return failure, or null if no operation failed
+     */
+    public Throwable getFirstError() {
+        return firstError;
+    }
+
+    /**
+     * Get the sustained throughput of successful operations over the measured period.
+     *
+     * @return operations per second
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getTotalLatencies().getCount() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * Get the length of the measured period.
+     *
+     * @return elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the differences found between the final state of the bundle and the reference model.
+     *
+     * @return mismatch descriptions, empty if the bundle matched
+     */
+    public List<String> getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Check to see if every operation succeeded and the bundle matched the reference model.
+     *
+     * @return true if the run was correct
+     */
+    public boolean isCorrect() {
+        return mismatches.isEmpty() && getTotalErrors() == 0;
+    }
+
+    /**
+     * Format the report as a table of operations with their counts, errors and latency percentiles in microseconds,
+     * followed by the throughput and the correctness check.
+     *
+     * @return report text
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-15s %10s %8s %10s %10s %10s %10s %10s%n", "operation", "count", "errors", "mean us", "p50 us", "p99 us", "p99.9 us", "max us"));
+
+        for (LoadOperation operation : LoadOperation.values()) {
+            LatencyHistogram histogram = getLatencies(operation);
+
+            if (histogram.getCount() > 0 || getErrors(operation) > 0) {
+                appendRow(text, operation.name().toLowerCase(Locale.ROOT), histogram, getErrors(operation));
+            }
+        }
+
+        appendRow(text, "total", getTotalLatencies(), getTotalErrors());
+
+        text.append(String.format(Locale.ROOT, "%nthreads %d, %.1f s, %.0f operations/s%n", threads, elapsedNanos / 1e9, getThroughput()));
+        text.append(mismatches.isEmpty() ? "final state matches reference model" : mismatches.size() + " mismatches with reference model").append(System.lineSeparator());
+
+        for (String mismatch : mismatches) {
+            text.append("  ").append(mismatch).append(System.lineSeparator());
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Append a row of the report table.
+     *
+     * @param text text to append to
+     * @param name name of row
+     * @param histogram latencies of row
+     * @param errorCount errors of row
+     */
+    private static void appendRow(StringBuilder text, String name, LatencyHistogram histogram, long errorCount) {
+        text.append(String.format(Locale.ROOT, "%-15s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(), errorCount,
+                histogram.getMean() / 1e3, histogram.getPercentile(0.5) / 1e3, histogram.getPercentile(0.99) / 1e3,
+                histogram.getPercentile(0.999) / 1e3, histogram.getMaximum() / 1e3));
+    }
+}
@@ -0,0 +1,67 @@
+package net.melaircraft.owl.library.loadtest;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.event.ChangeBatch;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic disk images and bundles for load testing.
+ *
+ * Images resemble real disks rather than random noise: a used area of varied bytes from the start of the disk, with
+ * the rest of the disk blank, so backends which compress or deduplicate are exercised realistically.
+ */
+public final class SyntheticBundle {
+    /**
+     * Utility class, not constructed.
+     */
+    private SyntheticBundle() {
+    }
+
+    /**
+     * Fill the slots with storage of a bundle with synthetic disks. Each slot is occupied with the given probability,
+     * occupied slots are named after their slot number and left unlocked.
+     *
+     * @param bundle bundle to fill, with the storage wanted already allocated
+     * @param occupancy fraction of slots to occupy, from 0 to 1
+     * @param seed seed for the generated content
+     */
+    public static void populate(DiskBundle bundle, double occupancy, long seed) {
+        Random random = new Random(seed);
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            for (int slot = 0; slot < bundle.getStorageSize(); slot++) {
+                if (random.nextDouble() < occupancy) {
+                    bundle.activate(slot);
+                    bundle.unlock(slot);
+                    bundle.insert(slot, new ByteBufferDisk(createImage(random)));
+                    bundle.setName(slot, "DISK" + slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a synthetic disk image.
+     *
+     * @param random source of content
+     * @return image of {@link DiskBundle#DISK_SIZE} bytes
+     */
+    public static byte[] createImage(Random random) {
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        int usedSectors = 2 + random.nextInt((DiskBundle.DISK_SIZE / DiskBundle.SECTOR_SIZE) - 2);
+        int used = usedSectors * DiskBundle.SECTOR_SIZE;
+
+        for (int i = 0; i < used; i += 8) {
+            long value = random.nextLong();
+
+            /* The last three bytes of each word repeat the first, so content compresses partly as real code and data do. */
+            for (int j = 0; j < 8; j++) {
+                image[i + j] = (byte) (j < 5 ? value >>> (j * 8) : value);
+            }
+        }
+
+        return image;
+    }
+}
@@ -0,0 +1,84 @@
+package net.melaircraft.owl.library.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Relative weights of the operations issued by a {@link LoadGenerator}.
+ */
+public class WorkloadMix {
+    /** Weight of each operation. */
+    private final Map<LoadOperation, Integer> weights = new EnumMap<>(LoadOperation.class);
+    /** Total of the weights. */
+    private int total;
+
+    /**
+     * Set the weight of an operation, replacing any weight already set.
+     *
+     * @param operation operation to weigh
+     * @param weight relative weight, 0 to never issue the operation
+     * @return this mix
+     */
+    public WorkloadMix with(LoadOperation operation, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight of " + operation + " must not be negative.");
+        }
+
+        Integer previous = weights.put(operation, weight);
+        total += weight - (previous != null ? previous : 0);
+
+        return this;
+    }
+
+    /**
+     * Get the weight of an operation.
+     *
+     * @param operation operation
+     * @return relative weight
+     */
+    public int getWeight(LoadOperation operation) {
+        return weights.getOrDefault(operation, 0);
+    }
+
+    /**
+     * Pick an operation at random, in proportion to the weights.
+     *
+     * @param random source of randomness
+     * @return operation
+     * @throws IllegalStateException if every weight is 0
+     */
+    LoadOperation pick(Random random) {
+        if (total == 0) {
+            throw new IllegalStateException("Workload mix has no operations.");
+        }
+
+        int choice = random.nextInt(total);
+
+        for (Map.Entry<LoadOperation, Integer> entry : weights.entrySet()) {
+            choice -= entry.getValue();
+
+            if (choice < 0) {
+                return entry.getKey();
+            }
+        }
+
+        throw new IllegalStateException("Weights changed while picking.");
+    }
+
+    /**
+     * Create a mix of mostly catalogue and sector reads, with occasional extracts, inserts, renames and deactivations,
+     * as seen from operators browsing a library.
+     *
+     * @return new workload mix
+     */
+    public static WorkloadMix readMostly() {
+        return new WorkloadMix()
+                .with(LoadOperation.CATALOGUE_READ, 30)
+                .with(LoadOperation.SECTOR_READ, 50)
+                .with(LoadOperation.EXTRACT, 10)
+                .with(LoadOperation.INSERT, 5)
+                .with(LoadOperation.RENAME, 4)
+                .with(LoadOperation.DEACTIVATE, 1);
+    }
+}
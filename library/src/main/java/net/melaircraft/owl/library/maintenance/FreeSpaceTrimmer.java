@@ -0,0 +1,150 @@
+package net.melaircraft.owl.library.maintenance;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsCatalogue;
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.exception.dfs.InvalidCatalogueException;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+/**
+ * Zeroes the sectors of DFS disks which are not used by the catalogue or any file, so stale data left by deleted
+ * files does not hinder compression, deduplication or synchronisation of a bundle.
+ *
+ * Slots are trimmed in parallel. Slots whose first two sectors do not hold a plausible DFS catalogue are skipped, as
+ * they may hold another format whose free space cannot be known.
+ */
+public final class FreeSpaceTrimmer {
+    /** Result of trimming a slot which is locked. */
+    private static final long SKIPPED_LOCKED = -1;
+    /** Result of trimming a slot without a valid catalogue. */
+    private static final long SKIPPED_INVALID = -2;
+    /** Result of a slot which is unoccupied or has no storage. */
+    private static final long NOT_TRIMMED = -3;
+
+    /**
+     * Utility class, not constructed.
+     */
+    private FreeSpaceTrimmer() {
+    }
+
+    /**
+     * Trim every occupied slot of a bundle.
+     *
+     * @param bundle bundle to trim
+     * @param force true to also trim locked slots, written without checking locks so their catalogue entries are not
+     *              changed
+     * @return report of the bytes reclaimed in each slot and the slots skipped
+     */
+    public static TrimReport trim(AbstractDiskBundle bundle, boolean force) {
+        long[] results = new long[511];
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            IntStream.range(0, 511).parallel().forEach(slot -> results[slot] = trimIfOccupied(bundle, slot, force));
+        }
+
+        long[] reclaimed = new long[511];
+        BitSet trimmed = new BitSet();
+        BitSet locked = new BitSet();
+        BitSet invalid = new BitSet();
+
+        for (int slot = 0; slot < 511; slot++) {
+            if (results[slot] == SKIPPED_LOCKED) {
+                locked.set(slot);
+            } else if (results[slot] == SKIPPED_INVALID) {
+                invalid.set(slot);
+            } else if (results[slot] >= 0) {
+                trimmed.set(slot);
+                reclaimed[slot] = results[slot];
+            }
+        }
+
+        return new TrimReport(reclaimed, trimmed, locked, invalid);
+    }
+
+    /**
+     * Trim a slot if it is occupied and has storage.
+     *
+     * @param bundle bundle to trim
+     * @param slot slot number (0 - 510)
+     * @param force true to also trim a locked slot
+     * @return bytes reclaimed, or one of the skip results
+     */
+    private static long trimIfOccupied(AbstractDiskBundle bundle, int slot, boolean force) {
+        if (slot >= bundle.getStorageSize() || !bundle.isOccupied(slot)) {
+            return NOT_TRIMMED;
+        }
+
+        boolean locked = bundle.isLocked(slot);
+
+        if (locked && !force) {
+            return SKIPPED_LOCKED;
+        }
+
+        BitSet used;
+
+        try {
+            used = getUsedSectors(DfsCatalogue.read(bundle, slot));
+        } catch (InvalidCatalogueException e) {
+            return SKIPPED_INVALID;
+        }
+
+        if (used == null) {
+            return SKIPPED_INVALID;
+        }
+
+        return zeroUnused(bundle, slot, used, locked);
+    }
+
+    /**
+     * Calculate the used sectors of a catalogue, checking that it is plausibly DFS.
+     *
+     * @param catalogue parsed catalogue
+     * @return used sectors, or null if the catalogue is not trusted
+     */
+    private static BitSet getUsedSectors(DfsCatalogue catalogue) {
+        return catalogue.isPlausible() ? catalogue.getUsedSectors() : null;
+    }
+
+    /**
+     * Zero every unused sector of a slot which holds data.
+     *
+     * @param bundle bundle to trim
+     * @param slot slot number (0 - 510)
+     * @param used used sectors
+     * @param locked true if the slot is locked, so sectors are written without checking the lock
+     * @return bytes reclaimed
+     */
+    private static long zeroUnused(AbstractDiskBundle bundle, int slot, BitSet used, boolean locked) {
+        ByteBuffer sector = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        ByteBuffer zero = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        long reclaimed = 0;
+
+        for (int free = used.nextClearBit(0); free < DfsCatalogue.DISK_SECTORS; free = used.nextClearBit(free + 1)) {
+            int offset = free * DiskBundle.SECTOR_SIZE;
+
+            sector.clear();
+            bundle.read(slot, offset, sector);
+            sector.flip();
+
+            if (!sector.equals(zero)) {
+                zero.clear();
+
+                if (locked) {
+                    bundle.refreshData(slot, offset, zero);
+                } else {
+                    bundle.write(slot, offset, zero);
+                }
+
+                zero.clear();
+
+                reclaimed += DiskBundle.SECTOR_SIZE;
+            }
+        }
+
+        return reclaimed;
+    }
+}
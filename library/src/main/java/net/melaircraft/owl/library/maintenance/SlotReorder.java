@@ -0,0 +1,421 @@
+package net.melaircraft.owl.library.maintenance;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.CatalogueEntry;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.event.ChangeBatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Reorders the slots of a bundle in place, moving names, flags and boot slots along with the disk images.
+ *
+ * An order lists, for each slot with storage, the slot whose contents it should hold afterwards. The order is applied
+ * by following each of its cycles: the first slot of the cycle is held in a spare buffer, every other slot is moved
+ * into its place in turn, and the spare is written to the last. Unoccupied slots are not copied. The catalogue is
+ * written once, when every disk image has moved.
+ *
+ * When a journal file is given, the original catalogue, the order, the spare buffer and the number of steps completed
+ * are recorded in it, each step being flushed to storage before the journal records it. A reorder interrupted by a
+ * crash is completed by {@link #resume(AbstractDiskBundle, Path)}, the journal is deleted once the reorder finishes.
+ */
+public final class SlotReorder {
+    /** Occupied slots first, in name order, then unoccupied slots, each group in slot order for equal names. */
+    public static final Comparator<CatalogueEntry> BY_NAME = (first, second) -> {
+        if (first.isOccupied() != second.isOccupied()) {
+            return first.isOccupied() ? -1 : 1;
+        }
+
+        int compare = first.isOccupied() ? first.getName().toString().compareTo(second.getName().toString()) : 0;
+        return compare != 0 ? compare : Integer.compare(first.getSlot(), second.getSlot());
+    };
+
+    /** Magic number at the start of a journal, "OWLR". */
+    private static final int JOURNAL_MAGIC = 0x4F574C52;
+    /** Position of the order in a journal. */
+    private static final int ORDER_POSITION = 8;
+    /** Position of the original catalogue in a journal. */
+    private static final int CATALOGUE_POSITION = ORDER_POSITION + (511 * 4);
+    /** Position of the count of completed steps in a journal. */
+    private static final int PROGRESS_POSITION = CATALOGUE_POSITION + DiskBundle.INITIAL_OFFSET;
+    /** Position of the spare buffer in a journal. */
+    private static final int SPARE_POSITION = PROGRESS_POSITION + 4;
+
+    /**
+     * Utility class, not constructed.
+     */
+    private SlotReorder() {
+    }
+
+    /**
+     * Calculate the order which sorts the slots with storage of a bundle.
+     *
+     * @param bundle bundle to sort
+     * @param comparator comparator of catalogue entries
+     * @return order, listing the slot which should move into each slot
+     */
+    public static int[] order(AbstractDiskBundle bundle, Comparator<CatalogueEntry> comparator) {
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        bundle.readCatalogue(catalogue);
+
+        CatalogueEntry first = new CatalogueEntry(catalogue);
+        CatalogueEntry second = new CatalogueEntry(catalogue);
+
+        return Arrays.stream(slotsOf(bundle.getStorageSize()))
+                .boxed()
+                .sorted((a, b) -> comparator.compare(first.moveTo(a), second.moveTo(b)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Reorder the slots of a bundle without a journal, suitable for bundles held in memory.
+     *
+     * @param bundle bundle to reorder
+     * @param order slot which should move into each slot with storage
+     * @throws IllegalArgumentException if the order is not a permutation of the slots with storage
+     */
+    public static void reorder(AbstractDiskBundle bundle, int[] order) {
+        try {
+            reorder(bundle, order, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reorder the slots of a bundle, recording progress in a journal so the reorder can be resumed after a crash.
+     *
+     * @param bundle bundle to reorder
+     * @param order slot which should move into each slot with storage
+     * @param journal path of journal to create, which must not exist, or null for no journal
+     * @throws IOException if the journal could not be written
+     * @throws IllegalArgumentException if the order is not a permutation of the slots with storage
+     */
+    public static void reorder(AbstractDiskBundle bundle, int[] order, Path journal) throws IOException {
+        checkOrder(bundle, order);
+
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        bundle.readCatalogue(catalogue);
+
+        if (journal == null) {
+            run(bundle, order, catalogue, 0, ByteBuffer.allocate(DiskBundle.DISK_SIZE), null);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(SPARE_POSITION);
+            header.putInt(JOURNAL_MAGIC).putInt(order.length);
+
+            for (int slot : order) {
+                header.putInt(slot);
+            }
+
+            header.position(CATALOGUE_POSITION);
+            catalogue.clear();
+            header.put(catalogue);
+            header.putInt(0);
+            header.flip();
+
+            writeFully(channel, header, 0);
+            channel.force(true);
+
+            run(bundle, order, catalogue, 0, ByteBuffer.allocate(DiskBundle.DISK_SIZE), channel);
+        }
+
+        Files.delete(journal);
+    }
+
+    /**
+     * Sort the slots with storage of a bundle, see {@link #order(AbstractDiskBundle, Comparator)}.
+     *
+     * @param bundle bundle to sort
+     * @param comparator comparator of catalogue entries
+     * @param journal path of journal to create, which must not exist, or null for no journal
+     * @throws IOException if the journal could not be written
+     */
+    public static void sort(AbstractDiskBundle bundle, Comparator<CatalogueEntry> comparator, Path journal) throws IOException {
+        reorder(bundle, order(bundle, comparator), journal);
+    }
+
+    /**
+     * Complete a reorder interrupted by a crash, if its journal exists.
+     *
+     * @param bundle bundle being reordered
+     * @param journal path of journal
+     * @return true if a reorder was completed, false if there was no journal
+     * @throws IOException if the journal could not be read, or does not belong to the bundle
+     */
+    public static boolean resume(AbstractDiskBundle bundle, Path journal) throws IOException {
+        if (!Files.exists(journal)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < SPARE_POSITION) {
+                throw new IOException(journal + " is not a complete reorder journal.");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(SPARE_POSITION);
+            readFully(channel, header, 0);
+            header.flip();
+
+            if (header.getInt() != JOURNAL_MAGIC) {
+                throw new IOException(journal + " is not a reorder journal.");
+            }
+
+            int[] order = new int[header.getInt()];
+
+            if (order.length != bundle.getStorageSize()) {
+                throw new IOException(journal + " is for a bundle with " + order.length + " slots of storage.");
+            }
+
+            for (int slot = 0; slot < order.length; slot++) {
+                order[slot] = header.getInt();
+            }
+
+            checkOrder(bundle, order);
+
+            header.position(CATALOGUE_POSITION).limit(PROGRESS_POSITION);
+            ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+            catalogue.put(header);
+
+            header.limit(SPARE_POSITION);
+            int completed = header.getInt();
+
+            ByteBuffer spare = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+
+            if (channel.size() >= SPARE_POSITION + DiskBundle.DISK_SIZE) {
+                readFully(channel, spare, SPARE_POSITION);
+            }
+
+            run(bundle, order, catalogue, completed, spare, channel);
+        }
+
+        Files.delete(journal);
+        return true;
+    }
+
+    /**
+     * Follow every cycle of the order, skipping the steps already completed, then write the reordered catalogue.
+     *
+     * @param bundle bundle to reorder
+     * @param order slot which should move into each slot with storage
+     * @param catalogue original header and catalogue
+     * @param completed number of steps already completed
+     * @param spare spare buffer, holding the spare slot if resuming part way through a cycle
+     * @param journal journal channel, or null for no journal
+     * @throws IOException if the journal could not be written
+     */
+    private static void run(AbstractDiskBundle bundle, int[] order, ByteBuffer catalogue, int completed, ByteBuffer spare, FileChannel journal) throws IOException {
+        CatalogueEntry entry = new CatalogueEntry(catalogue);
+        ByteBuffer transfer = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+        boolean[] visited = new boolean[order.length];
+        int step = 0;
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            for (int start = 0; start < order.length; start++) {
+                if (visited[start] || order[start] == start) {
+                    continue;
+                }
+
+                visited[start] = true;
+
+                if (step++ >= completed && entry.moveTo(start).isOccupied()) {
+                    spare.clear();
+                    bundle.read(start, 0, spare);
+
+                    if (journal != null) {
+                        spare.flip();
+                        writeFully(journal, spare, SPARE_POSITION);
+                        journal.force(false);
+                    }
+                }
+
+                recordStep(journal, step, completed);
+
+                int current = start;
+
+                while (order[current] != start) {
+                    int source = order[current];
+
+                    if (step++ >= completed) {
+                        if (entry.moveTo(source).isOccupied()) {
+                            transfer.clear();
+                            bundle.read(source, 0, transfer);
+                            transfer.flip();
+                            bundle.refreshData(current, 0, transfer);
+                        }
+
+                        completeStep(bundle, journal, step);
+                    }
+
+                    visited[source] = true;
+                    current = source;
+                }
+
+                if (step++ >= completed) {
+                    if (entry.moveTo(start).isOccupied()) {
+                        spare.clear();
+                        bundle.refreshData(current, 0, spare);
+                    }
+
+                    completeStep(bundle, journal, step);
+                }
+            }
+
+            bundle.refreshCatalogue(reorderCatalogue(catalogue, order));
+            bundle.flush();
+        }
+    }
+
+    /**
+     * Record in the journal that a step has completed, if it was carried out in this run.
+     *
+     * @param journal journal channel, or null for no journal
+     * @param step number of steps completed
+     * @param completed number of steps completed before this run
+     * @throws IOException if the journal could not be written
+     */
+    private static void recordStep(FileChannel journal, int step, int completed) throws IOException {
+        if (journal != null && step > completed) {
+            ByteBuffer progress = ByteBuffer.allocate(4).putInt(0, step);
+            writeFully(journal, progress, PROGRESS_POSITION);
+            journal.force(false);
+        }
+    }
+
+    /**
+     * Flush a completed step to storage, then record it in the journal.
+     *
+     * @param bundle bundle being reordered
+     * @param journal journal channel, or null for no journal
+     * @param step number of steps completed
+     * @throws IOException if the journal could not be written
+     */
+    private static void completeStep(AbstractDiskBundle bundle, FileChannel journal, int step) throws IOException {
+        if (journal != null) {
+            bundle.flush();
+            recordStep(journal, step, 0);
+        }
+    }
+
+    /**
+     * Build the reordered catalogue, moving each entry and boot slot with its disk image.
+     *
+     * @param catalogue original header and catalogue
+     * @param order slot which moved into each slot with storage
+     * @return reordered header and catalogue, at position 0
+     */
+    private static ByteBuffer reorderCatalogue(ByteBuffer catalogue, int[] order) {
+        ByteBuffer reordered = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        reordered.put(catalogue.array());
+
+        int[] inverse = new int[order.length];
+
+        for (int slot = 0; slot < order.length; slot++) {
+            inverse[order[slot]] = slot;
+            System.arraycopy(catalogue.array(), entryPosition(order[slot]), reordered.array(), entryPosition(slot), 16);
+        }
+
+        for (int drive = 0; drive < 4; drive++) {
+            int bootSlot = (catalogue.get(drive) & 0xff) | ((catalogue.get(drive + 4) & 0xff) << 8);
+
+            if (bootSlot < order.length) {
+                reordered.put(drive, (byte) (inverse[bootSlot] & 0xff));
+                reordered.put(drive + 4, (byte) ((inverse[bootSlot] >> 8) & 0xff));
+            }
+        }
+
+        reordered.clear();
+        return reordered;
+    }
+
+    /**
+     * Check that an order is a permutation of the slots with storage of a bundle.
+     *
+     * @param bundle bundle to reorder
+     * @param order order to check
+     * @throws IllegalArgumentException if the order is invalid
+     */
+    private static void checkOrder(AbstractDiskBundle bundle, int[] order) {
+        if (order.length != bundle.getStorageSize()) {
+            throw new IllegalArgumentException("Order has " + order.length + " slots, bundle has " + bundle.getStorageSize() + " with storage.");
+        }
+
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+
+        if (!Arrays.equals(sorted, slotsOf(order.length))) {
+            throw new IllegalArgumentException("Order is not a permutation of the slots with storage.");
+        }
+    }
+
+    /**
+     * Get the slot numbers from 0 up to a count.
+     *
+     * @param count number of slots
+     * @return slot numbers in order
+     */
+    private static int[] slotsOf(int count) {
+        int[] slots = new int[count];
+
+        for (int slot = 0; slot < count; slot++) {
+            slots[slot] = slot;
+        }
+
+        return slots;
+    }
+
+    /**
+     * Get the byte position in the catalogue of a slots entry.
+     *
+     * @param slot slot number (0 - 510)
+     * @return byte position in catalogue
+     */
+    private static int entryPosition(int slot) {
+        return 16 * (slot + 1);
+    }
+
+    /**
+     * Write a buffer to a channel at a position in full.
+     *
+     * @param channel channel to write to
+     * @param buffer buffer to write from its position to its limit
+     * @param position position in channel
+     * @throws IOException if the write failed
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Fill a buffer from a channel at a position.
+     *
+     * @param channel channel to read from
+     * @param buffer buffer to fill from its position to its limit
+     * @param position position in channel
+     * @throws IOException if the read failed or the channel ended first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+
+            if (read < 0) {
+                throw new IOException("Reorder journal ends unexpectedly.");
+            }
+
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.melaircraft.owl.library.maintenance;
+
+import java.util.BitSet;
+
+/**
+ * The outcome of trimming the free space of a bundle.
+ */
+public final class TrimReport {
+    /** Bytes reclaimed in each slot. */
+    private final long[] reclaimed;
+    /** Slots which were trimmed. */
+    private final BitSet trimmed;
+    /** Slots skipped because they are locked. */
+    private final BitSet locked;
+    /** Slots skipped because they do not hold a valid DFS catalogue. */
+    private final BitSet invalid;
+
+    /**
+     * Construct a new trim report.
+     *
+     * @param reclaimed bytes reclaimed in each slot
+     * @param trimmed slots which were trimmed
+     * @param locked slots skipped because they are locked
+     * @param invalid slots skipped because they do not hold a valid DFS catalogue
+     */
+    TrimReport(long[] reclaimed, BitSet trimmed, BitSet locked, BitSet invalid) {
+        this.reclaimed = reclaimed;
+        this.trimmed = trimmed;
+        this.locked = locked;
+        this.invalid = invalid;
+    }
+
+    /**
+     * Get the number of bytes zeroed in a slot, only sectors which held data other than 0x00 are counted.
+     *
+     * @param slot slot number (0 - 510)
+     * @return bytes reclaimed
+     */
+    public long getReclaimedBytes(int slot) {
+        return reclaimed[slot];
+    }
+
+    /**
+     * Get the number of bytes zeroed across the whole bundle.
+     *
+     * @return bytes reclaimed
+     */
+    public long getTotalReclaimedBytes() {
+        long total = 0;
+
+        for (long bytes : reclaimed) {
+            total += bytes;
+        }
+
+        return total;
+    }
+
+    /**
+     * Get the slots which were trimmed.
+     *
+     * @return copy of trimmed slots
+     */
+    public BitSet getTrimmedSlots() {
+        return (BitSet) trimmed.clone();
+    }
+
+    /**
+     * Get the slots which were skipped because they are locked.
+     *
+     * @return copy of locked slots
+     */
+    public BitSet getLockedSlots() {
+        return (BitSet) locked.clone();
+    }
+
+    /**
+     * Get the slots which were skipped because they do not hold a valid DFS catalogue.
+     *
+     * @return copy of invalid slots
+     */
+    public BitSet getInvalidSlots() {
+        return (BitSet) invalid.clone();
+    }
+}
@@ -0,0 +1,111 @@
+package net.melaircraft.owl.library.patch;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.stream.IntStream;
+
+/**
+ * Digest of the whole content of a bundle, used as the pre-image hash of a patch.
+ *
+ * The digest is a SHA-256 of the storage size, the header and catalogue, and the SHA-256 of each slot with storage in
+ * order. As each slot is hashed separately, slots are hashed in parallel and one at a time, never holding the whole
+ * bundle in memory.
+ */
+public final class BundleDigest {
+    /** Length of a digest in bytes. */
+    public static final int LENGTH = 32;
+    /** Digest algorithm used. */
+    private static final String ALGORITHM = "SHA-256";
+    /** Buffer for reading a slot, one per thread. */
+    private static final ThreadLocal<ByteBuffer> SLOT_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(DiskBundle.DISK_SIZE));
+
+    /**
+     * Utility class, not constructed.
+     */
+    private BundleDigest() {
+    }
+
+    /**
+     * Calculate the digest of a bundle.
+     *
+     * @param bundle bundle to digest
+     * @return digest
+     */
+    public static byte[] digest(AbstractDiskBundle bundle) {
+        byte[][] slotDigests = IntStream.range(0, bundle.getStorageSize())
+                .parallel()
+                .mapToObj(slot -> digestSlot(readSlot(bundle, slot)))
+                .toArray(byte[][]::new);
+
+        return combine(bundle, slotDigests);
+    }
+
+    /**
+     * Read the disk image of a slot into the buffer of the calling thread.
+     *
+     * @param bundle bundle to read
+     * @param slot slot number (0 - 510)
+     * @return buffer holding the disk image, valid until the thread next reads a slot
+     */
+    static ByteBuffer readSlot(AbstractDiskBundle bundle, int slot) {
+        ByteBuffer buffer = SLOT_BUFFER.get();
+        buffer.clear();
+        bundle.read(slot, 0, buffer);
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /**
+     * Calculate the digest of a disk image.
+     *
+     * @param image buffer holding the disk image from its position to its limit, the buffer is not modified
+     * @return digest
+     */
+    static byte[] digestSlot(ByteBuffer image) {
+        MessageDigest messageDigest = newDigest();
+        messageDigest.update(image.duplicate());
+
+        return messageDigest.digest();
+    }
+
+    /**
+     * Combine the digests of each slot with the storage size and catalogue of a bundle.
+     *
+     * @param bundle bundle digested
+     * @param slotDigests digest of each slot with storage, in order
+     * @return digest of bundle
+     */
+    static byte[] combine(AbstractDiskBundle bundle, byte[][] slotDigests) {
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        bundle.readCatalogue(catalogue);
+        catalogue.flip();
+
+        MessageDigest messageDigest = newDigest();
+        messageDigest.update(ByteBuffer.allocate(4).putInt(0, slotDigests.length));
+        messageDigest.update(catalogue);
+
+        for (byte[] slotDigest : slotDigests) {
+            messageDigest.update(slotDigest);
+        }
+
+        return messageDigest.digest();
+    }
+
+    /**
+     * Create a new message digest.
+     *
+     * @return message digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available.", e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package net.melaircraft.owl.library.patch;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.event.ChangeBatch;
+import net.melaircraft.owl.library.exception.patch.InvalidPatchException;
+import net.melaircraft.owl.library.exception.patch.PreImageMismatchException;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Applies a patch produced by {@link PatchGenerator} to a bundle.
+ *
+ * The bundle is first checked to be the one the patch was generated against, by comparing its digest with the
+ * pre-image digest in the patch. The patch is then streamed onto the bundle, each data run written in place at its
+ * slot and offset, so neither the patch nor the bundle is ever held in memory in full. The catalogue is written once,
+ * after every data run. Locks are not checked, as the patch may change locked slots.
+ *
+ * If the patch ends early or is corrupt part way through, the bundle is left partly patched and will no longer match
+ * the pre-image digest.
+ */
+public final class PatchApplier {
+    /**
+     * Utility class, not constructed.
+     */
+    private PatchApplier() {
+    }
+
+    /**
+     * Apply a patch to a bundle.
+     *
+     * @param input stream to read the patch from, which is not closed
+     * @param bundle bundle to patch
+     * @return number of bytes of disk image written
+     * @throws IOException if the patch could not be read
+     * @throws InvalidPatchException if the patch is not valid
+     * @throws PreImageMismatchException if the bundle is not the one the patch was generated against
+     */
+    public static long apply(InputStream input, AbstractDiskBundle bundle) throws IOException, InvalidPatchException, PreImageMismatchException {
+        try {
+            return applyPatch(input, bundle);
+        } catch (EOFException e) {
+            throw new InvalidPatchException("Patch ends unexpectedly.");
+        }
+    }
+
+    /**
+     * Apply a patch to a bundle, reporting a truncated patch as an end of file exception.
+     *
+     * @param input stream to read the patch from
+     * @param bundle bundle to patch
+     * @return number of bytes of disk image written
+     * @throws IOException if the patch could not be read
+     */
+    private static long applyPatch(InputStream input, AbstractDiskBundle bundle) throws IOException {
+        DataInputStream header = new DataInputStream(input);
+
+        if (header.readInt() != PatchGenerator.MAGIC) {
+            throw new InvalidPatchException("Not a bundle patch.");
+        }
+
+        int version = header.readInt();
+
+        if (version != PatchGenerator.VERSION) {
+            throw new InvalidPatchException("Unsupported patch version " + version + ".");
+        }
+
+        int flags = header.readInt();
+        int sourceStorage = header.readInt();
+        byte[] preImage = new byte[BundleDigest.LENGTH];
+        header.readFully(preImage);
+
+        if (sourceStorage != bundle.getStorageSize()) {
+            throw new PreImageMismatchException("Bundle has " + bundle.getStorageSize() + " slots of storage, patch expects " + sourceStorage + ".");
+        }
+
+        if (!Arrays.equals(preImage, BundleDigest.digest(bundle))) {
+            throw new PreImageMismatchException("Bundle content does not match the patch pre-image.");
+        }
+
+        boolean deflated = (flags & PatchGenerator.FLAG_DEFLATED) != 0;
+        DataInputStream body = new DataInputStream(deflated ? new InflaterInputStream(input) : input);
+
+        int targetStorage = body.readInt();
+
+        if (targetStorage < 0 || targetStorage > 511) {
+            throw new InvalidPatchException("Invalid storage size " + targetStorage + ".");
+        }
+
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        bundle.readCatalogue(catalogue);
+        readCatalogueRuns(body, catalogue);
+
+        long written = 0;
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            if (targetStorage > sourceStorage) {
+                bundle.changeStorageSize(targetStorage);
+            }
+
+            byte[] data = new byte[DiskBundle.SECTOR_SIZE];
+
+            for (int slot = body.readInt(); slot != PatchGenerator.END_OF_DATA; slot = body.readInt()) {
+                int offset = body.readInt();
+                int length = body.readInt();
+
+                if (length < 0 || length > DiskBundle.DISK_SIZE) {
+                    throw new InvalidPatchException("Invalid data run length " + length + ".");
+                }
+
+                if (data.length < length) {
+                    data = new byte[length];
+                }
+
+                body.readFully(data, 0, length);
+                bundle.refreshData(slot, offset, ByteBuffer.wrap(data, 0, length));
+                written += length;
+            }
+
+            catalogue.clear();
+            bundle.refreshCatalogue(catalogue);
+
+            if (targetStorage < sourceStorage) {
+                bundle.changeStorageSize(targetStorage);
+            }
+
+            bundle.flush();
+        }
+
+        return written;
+    }
+
+    /**
+     * Read the catalogue runs of a patch and apply them to a copy of the catalogue.
+     *
+     * @param body body of the patch
+     * @param catalogue copy of the header and catalogue
+     * @throws IOException if the patch could not be read
+     */
+    private static void readCatalogueRuns(DataInputStream body, ByteBuffer catalogue) throws IOException {
+        int count = body.readInt();
+
+        for (int run = 0; run < count; run++) {
+            int offset = body.readInt();
+            int length = body.readInt();
+
+            if (offset < 0 || length < 0 || offset > DiskBundle.INITIAL_OFFSET - length) {
+                throw new InvalidPatchException("Invalid catalogue run at " + offset + " of length " + length + ".");
+            }
+
+            body.readFully(catalogue.array(), offset, length);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package net.melaircraft.owl.library.patch;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.stream.IntStream;
+
+/**
+ * Generates a patch which turns one bundle into another.
+ *
+ * A patch starts with a header, which is never compressed:
+ *
+ * <pre>
+ *   int     magic "OWLP"
+ *   int     version
+ *   int     flags, bit 0 set if the body is deflated
+ *   int     storage size of the source bundle
+ *   byte[]  digest of the source bundle, see {@link BundleDigest}
+ * </pre>
+ *
+ * The body follows, deflated if flagged:
+ *
+ * <pre>
+ *   int     storage size of the target bundle
+ *   int     number of catalogue runs, each an int offset, an int length and the bytes
+ *   ...     data runs, each an int slot, an int offset, an int length and the bytes
+ *   int     -1, marking the end of the data runs
+ * </pre>
+ *
+ * Data runs cover whole sectors. Slots are compared in parallel, each thread reading one slot of each bundle at a
+ * time.
+ */
+public final class PatchGenerator {
+    /** Magic number at the start of a patch, "OWLP". */
+    static final int MAGIC = 0x4F574C50;
+    /** Version of the patch format. */
+    static final int VERSION = 1;
+    /** Flag set if the body is deflated. */
+    static final int FLAG_DEFLATED = 1;
+    /** Slot number marking the end of the data runs. */
+    static final int END_OF_DATA = -1;
+    /** Unchanged catalogue bytes between two changed runs which are included rather than starting a new run. */
+    private static final int CATALOGUE_RUN_GAP = 8;
+    /** Buffer for reading a slot of the target bundle, one per thread. */
+    private static final ThreadLocal<ByteBuffer> TARGET_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(DiskBundle.DISK_SIZE));
+    /** Disk image of 0x00, compared against slots which only the target bundle has storage for. */
+    private static final ByteBuffer ZERO_DISK = ByteBuffer.allocate(DiskBundle.DISK_SIZE).asReadOnlyBuffer();
+
+    /**
+     * Changes found in one slot.
+     */
+    private static final class SlotChanges {
+        /** Digest of the slot in the source bundle, or null if the source has no storage for it. */
+        private byte[] sourceDigest;
+        /** Encoded data runs. */
+        private final ByteArrayOutputStream runs = new ByteArrayOutputStream();
+        /** Number of sectors changed. */
+        private int changedSectors;
+    }
+
+    /**
+     * Utility class, not constructed.
+     */
+    private PatchGenerator() {
+    }
+
+    /**
+     * Generate a patch which turns the source bundle into the target bundle. Neither bundle may be changed while the
+     * patch is generated.
+     *
+     * @param source bundle the patch will be applied to
+     * @param target bundle the patch produces
+     * @param output stream to write the patch to, which is not closed
+     * @param deflate true to deflate the body of the patch
+     * @return number of sectors changed by the patch
+     * @throws IOException if the patch could not be written
+     */
+    public static int generate(AbstractDiskBundle source, AbstractDiskBundle target, OutputStream output, boolean deflate) throws IOException {
+        int sourceStorage = source.getStorageSize();
+        int targetStorage = target.getStorageSize();
+
+        SlotChanges[] changes = IntStream.range(0, Math.max(sourceStorage, targetStorage))
+                .parallel()
+                .mapToObj(slot -> compareSlot(source, target, slot))
+                .toArray(SlotChanges[]::new);
+
+        byte[][] sourceDigests = new byte[sourceStorage][];
+
+        for (int slot = 0; slot < sourceStorage; slot++) {
+            sourceDigests[slot] = changes[slot].sourceDigest;
+        }
+
+        DataOutputStream header = new DataOutputStream(output);
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeInt(deflate ? FLAG_DEFLATED : 0);
+        header.writeInt(sourceStorage);
+        header.write(BundleDigest.combine(source, sourceDigests));
+        header.flush();
+
+        DeflaterOutputStream deflater = deflate ? new DeflaterOutputStream(output) : null;
+        DataOutputStream body = new DataOutputStream(deflate ? deflater : output);
+
+        body.writeInt(targetStorage);
+        writeCatalogueRuns(source, target, body);
+
+        int changedSectors = 0;
+
+        for (SlotChanges slotChanges : changes) {
+            slotChanges.runs.writeTo(body);
+            changedSectors += slotChanges.changedSectors;
+        }
+
+        body.writeInt(END_OF_DATA);
+        body.flush();
+
+        if (deflater != null) {
+            deflater.finish();
+        }
+
+        return changedSectors;
+    }
+
+    /**
+     * Compare a slot of the two bundles, encoding a data run for each group of adjacent changed sectors.
+     *
+     * @param source bundle the patch will be applied to
+     * @param target bundle the patch produces
+     * @param slot slot number (0 - 510)
+     * @return changes found
+     */
+    private static SlotChanges compareSlot(AbstractDiskBundle source, AbstractDiskBundle target, int slot) {
+        SlotChanges changes = new SlotChanges();
+        ByteBuffer before = ZERO_DISK.duplicate();
+
+        if (slot < source.getStorageSize()) {
+            before = BundleDigest.readSlot(source, slot);
+            changes.sourceDigest = BundleDigest.digestSlot(before);
+        }
+
+        if (slot >= target.getStorageSize()) {
+            return changes;
+        }
+
+        ByteBuffer after = TARGET_BUFFER.get();
+        after.clear();
+        target.read(slot, 0, after);
+        after.flip();
+
+        DataOutputStream runs = new DataOutputStream(changes.runs);
+        int sectors = DiskBundle.DISK_SIZE / DiskBundle.SECTOR_SIZE;
+        int runStart = -1;
+
+        try {
+            for (int sector = 0; sector <= sectors; sector++) {
+                boolean changed = sector < sectors && !sectorEquals(before, after, sector * DiskBundle.SECTOR_SIZE);
+
+                if (changed) {
+                    changes.changedSectors++;
+
+                    if (runStart < 0) {
+                        runStart = sector;
+                    }
+                } else if (runStart >= 0) {
+                    int offset = runStart * DiskBundle.SECTOR_SIZE;
+                    int length = (sector - runStart) * DiskBundle.SECTOR_SIZE;
+
+                    runs.writeInt(slot);
+                    runs.writeInt(offset);
+                    runs.writeInt(length);
+                    runs.write(readBytes(after, offset, length));
+
+                    runStart = -1;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return changes;
+    }
+
+    /**
+     * Write the runs of catalogue bytes which differ, joining runs separated by only a few unchanged bytes.
+     *
+     * @param source bundle the patch will be applied to
+     * @param target bundle the patch produces
+     * @param body stream to write to
+     * @throws IOException if the runs could not be written
+     */
+    private static void writeCatalogueRuns(AbstractDiskBundle source, AbstractDiskBundle target, DataOutputStream body) throws IOException {
+        ByteBuffer before = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        ByteBuffer after = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+        source.readCatalogue(before);
+        target.readCatalogue(after);
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        DataOutputStream runs = new DataOutputStream(encoded);
+        int count = 0;
+        int position = 0;
+
+        while (position < DiskBundle.INITIAL_OFFSET) {
+            if (before.get(position) == after.get(position)) {
+                position++;
+                continue;
+            }
+
+            int start = position;
+            int end = position + 1;
+
+            for (int i = end; i < DiskBundle.INITIAL_OFFSET && i < end + CATALOGUE_RUN_GAP; i++) {
+                if (before.get(i) != after.get(i)) {
+                    end = i + 1;
+                }
+            }
+
+            runs.writeInt(start);
+            runs.writeInt(end - start);
+            runs.write(readBytes(after, start, end - start));
+
+            count++;
+            position = end;
+        }
+
+        body.writeInt(count);
+        encoded.writeTo(body);
+    }
+
+    /**
+     * Compare a sector of two disk images.
+     *
+     * @param first first disk image
+     * @param second second disk image
+     * @param offset byte offset of the sector
+     * @return true if the sectors are equal
+     */
+    private static boolean sectorEquals(ByteBuffer first, ByteBuffer second, int offset) {
+        for (int i = offset; i < offset + DiskBundle.SECTOR_SIZE; i += 8) {
+            if (first.getLong(i) != second.getLong(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Copy bytes out of a buffer.
+     *
+     * @param buffer buffer to copy from, which is not modified
+     * @param offset offset to copy from
+     * @param length number of bytes
+     * @return copied bytes
+     */
+    private static byte[] readBytes(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+
+        return bytes;
+    }
+}
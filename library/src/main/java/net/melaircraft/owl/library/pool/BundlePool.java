@@ -0,0 +1,345 @@
+package net.melaircraft.owl.library.pool;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares open bundle files between callers, so each file is opened and mapped once however many requests use it.
+ *
+ * Bundles are acquired by path as reference counted {@link PooledBundle} handles. A bundle with no handles open stays
+ * in the pool idle, ready for the next caller, until the pool is over its budget of open bundles or mapped bytes, when
+ * the least recently used idle bundles are flushed and closed. Bundles in use are never closed, so the pool may exceed
+ * its budget while they are held.
+ *
+ * When an idle bundle is acquired the modification time and size of its file are compared with those recorded when it
+ * was last released, and if another program has changed the file the bundle is closed and the file opened afresh.
+ */
+public class BundlePool implements Closeable {
+    /** Maximum number of bundles to hold open. */
+    private final int maximumOpenBundles;
+    /** Maximum number of bytes of bundle files to hold mapped. */
+    private final long maximumMappedBytes;
+    /** Entries by absolute path, in least recently used order. */
+    private final Map<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** Number of acquisitions which shared an open bundle. */
+    private long hits;
+    /** Number of acquisitions which opened a bundle. */
+    private long misses;
+    /** Number of idle bundles closed to stay within budget. */
+    private long evictions;
+    /** Number of idle bundles closed as their file changed. */
+    private long invalidations;
+    /** Whether the pool has been closed. */
+    private boolean closed;
+
+    /**
+     * Construct a new bundle pool.
+     *
+     * @param maximumOpenBundles maximum number of bundles to hold open
+     * @param maximumMappedBytes maximum number of bytes of bundle files to hold mapped
+     * @throws IllegalArgumentException if either maximum is less than 1
+     */
+    public BundlePool(int maximumOpenBundles, long maximumMappedBytes) {
+        if (maximumOpenBundles < 1 || maximumMappedBytes < 1) {
+            throw new IllegalArgumentException("Pool budget must be at least 1 bundle and 1 byte, " + maximumOpenBundles + " bundles and " + maximumMappedBytes + " bytes given.");
+        }
+
+        this.maximumOpenBundles = maximumOpenBundles;
+        this.maximumMappedBytes = maximumMappedBytes;
+    }
+
+    /**
+     * Acquire a handle to a bundle file, sharing the open bundle if there is one or opening the file if not.
+     *
+     * @param path path to MMB file
+     * @return handle to the bundle, to be closed when no longer needed
+     * @throws IOException if the file could not be opened, or a bundle could not be closed to stay within budget
+     * @throws IllegalStateException if the pool has been closed
+     */
+    public synchronized PooledBundle acquire(Path path) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Bundle pool has been closed.");
+        }
+
+        Path key = path.toAbsolutePath().normalize();
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.references == 0 && !entry.isCurrent()) {
+            entries.remove(key);
+            entry.close();
+            invalidations++;
+            entry = null;
+        }
+
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+            entry = new Entry(key, FileChannelDiskBundle.open(key));
+            entries.put(key, entry);
+        }
+
+        entry.references++;
+
+        try {
+            trim();
+        } catch (IOException | RuntimeException e) {
+            /* No handle is returned, so the reference would otherwise never be released. */
+            entry.references--;
+            throw e;
+        }
+
+        return new PooledBundle(this, entry);
+    }
+
+    /**
+     * Close idle bundles, least recently used first, until the pool is within its budget.
+     *
+     * @throws IOException if a bundle could not be closed
+     */
+    public synchronized void trim() throws IOException {
+        int openBundles = entries.size();
+        long mappedBytes = getMappedBytes();
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while ((openBundles > maximumOpenBundles || mappedBytes > maximumMappedBytes) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+
+            if (entry.references == 0) {
+                iterator.remove();
+                openBundles--;
+                mappedBytes -= entry.getMappedBytes();
+                evictions++;
+                entry.close();
+            }
+        }
+    }
+
+    /**
+     * Release a reference to an entry, recording the state of an idle bundle's file so later changes can be detected.
+     *
+     * @param entry entry to release
+     * @throws IOException if the bundle could not be flushed or closed
+     */
+    synchronized void release(Entry entry) throws IOException {
+        if (--entry.references > 0) {
+            return;
+        }
+
+        if (closed) {
+            entry.close();
+            return;
+        }
+
+        entry.getBundle().flush();
+        entry.recordStamp();
+        trim();
+    }
+
+    /**
+     * Get the number of acquisitions which shared an open bundle.
+     *
+     * @return hit count
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of acquisitions which opened a bundle.
+     *
+     * @return miss count
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of idle bundles closed to stay within budget.
+     *
+     * @return eviction count
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the number of idle bundles closed as their file was changed by another program.
+     *
+     * @return invalidation count
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Get the number of bundles held open, in use or idle.
+     *
+     * @return open bundle count
+     */
+    public synchronized int getOpenBundles() {
+        return entries.size();
+    }
+
+    /**
+     * Get the number of bytes of bundle files held mapped, in use or idle.
+     *
+     * @return mapped byte count
+     */
+    public synchronized long getMappedBytes() {
+        long mappedBytes = 0;
+
+        for (Entry entry : entries.values()) {
+            mappedBytes += entry.getMappedBytes();
+        }
+
+        return mappedBytes;
+    }
+
+    /**
+     * Close the pool, flushing and closing idle bundles now and bundles in use as their last handle is closed.
+     *
+     * @throws IOException if a bundle could not be closed, the remaining bundles are still closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        List<Entry> idle = new ArrayList<>();
+
+        for (Entry entry : entries.values()) {
+            if (entry.references == 0) {
+                idle.add(entry);
+            }
+        }
+
+        entries.clear();
+
+        IOException failure = null;
+
+        for (Entry entry : idle) {
+            try {
+                entry.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * An open bundle in the pool, guarded by the pool's lock.
+     */
+    static final class Entry {
+        /** Absolute path of the bundle file. */
+        private final Path path;
+        /** Open bundle. */
+        private final FileChannelDiskBundle bundle;
+        /** Number of handles open. */
+        private int references;
+        /** Modification time of the file when last released. */
+        private FileTime modified;
+        /** Size of the file when last released. */
+        private long size;
+
+        /**
+         * Construct a new entry for a newly opened bundle.
+         *
+         * @param path absolute path of the bundle file
+         * @param bundle open bundle
+         * @throws IOException if the state of the file could not be read, the bundle is closed
+         */
+        private Entry(Path path, FileChannelDiskBundle bundle) throws IOException {
+            this.path = path;
+            this.bundle = bundle;
+
+            try {
+                recordStamp();
+            } catch (IOException e) {
+                bundle.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Get the path of the bundle file.
+         *
+         * @return absolute path
+         */
+        Path getPath() {
+            return path;
+        }
+
+        /**
+         * Get the open bundle.
+         *
+         * @return bundle
+         */
+        FileChannelDiskBundle getBundle() {
+            return bundle;
+        }
+
+        /**
+         * Calculate the number of bytes of the file mapped by the bundle.
+         *
+         * @return mapped byte count
+         */
+        private long getMappedBytes() {
+            return DiskBundle.INITIAL_OFFSET + ((long) bundle.getStorageSize() * DiskBundle.DISK_SIZE);
+        }
+
+        /**
+         * Record the modification time and size of the file.
+         *
+         * @throws IOException if the state of the file could not be read
+         */
+        private void recordStamp() throws IOException {
+            modified = Files.getLastModifiedTime(path);
+            size = Files.size(path);
+        }
+
+        /**
+         * Check to see if the file is unchanged since last recorded.
+         *
+         * @return true if the modification time and size match, false if they differ or the file can not be read
+         */
+        private boolean isCurrent() {
+            try {
+                return modified.equals(Files.getLastModifiedTime(path)) && size == Files.size(path);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Flush and close the bundle.
+         *
+         * @throws IOException if the bundle could not be closed
+         */
+        private void close() throws IOException {
+            bundle.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.melaircraft.owl.library.pool;
+
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A reference to a bundle shared through a {@link BundlePool}, the bundle stays open at least until every handle to it
+ * has been closed.
+ *
+ * Handles are not thread safe themselves, though many handles may share the same bundle across threads. The bundle
+ * belongs to the pool and is shared with other handles, so it must never be closed directly, only the handle.
+ */
+public final class PooledBundle implements Closeable {
+    /** Pool the bundle was acquired from. */
+    private final BundlePool pool;
+    /** Pool entry holding the bundle. */
+    private final BundlePool.Entry entry;
+    /** Whether this handle has been released. */
+    private boolean closed;
+
+    /**
+     * Construct a new handle holding a reference to a pool entry.
+     *
+     * @param pool pool the bundle was acquired from
+     * @param entry pool entry holding the bundle
+     */
+    PooledBundle(BundlePool pool, BundlePool.Entry entry) {
+        this.pool = pool;
+        this.entry = entry;
+    }
+
+    /**
+     * Get the shared bundle. The bundle must not be closed, as other handles may be using it, close this handle
+     * instead.
+     *
+     * @return open bundle, owned by the pool
+     * @throws IllegalStateException if this handle has been closed
+     */
+    public FileChannelDiskBundle getBundle() {
+        if (closed) {
+            throw new IllegalStateException("Handle to " + entry.getPath() + " has been closed.");
+        }
+
+        return entry.getBundle();
+    }
+
+    /**
+     * Release the reference to the bundle, the pool may then flush and close it if it is over budget. Closing a handle
+     * more than once has no further effect.
+     *
+     * @throws IOException if the bundle was closed and could not be flushed
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            pool.release(entry);
+        }
+    }
+}
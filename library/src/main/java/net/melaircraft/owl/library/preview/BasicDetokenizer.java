@@ -0,0 +1,189 @@
+package net.melaircraft.owl.library.preview;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Detokenizes BBC BASIC programs, one line at a time.
+ *
+ * A program is a sequence of lines, each starting with 0x0D, the line number high and low bytes, and the length of
+ * the line including these four bytes. The program ends with 0x0D 0xFF. Keywords are stored as single bytes of 0x80
+ * and above, line numbers following GOTO and similar are stored as 0x8D followed by three encoded bytes. Text within
+ * quotes and after REM or DATA is stored as typed.
+ *
+ * Each line is decoded into one reused buffer and passed to a visitor, so no text is built for the whole program.
+ */
+public final class BasicDetokenizer {
+    /** Byte starting each line. */
+    private static final int LINE_START = 0x0D;
+    /** Line number high byte marking the end of the program. */
+    private static final int END_OF_PROGRAM = 0xFF;
+    /** Token introducing an encoded line number. */
+    private static final int TOKEN_LINE_NUMBER = 0x8D;
+    /** Token of DATA, the rest of the line is not tokenized. */
+    private static final int TOKEN_DATA = 0xDC;
+    /** Token of REM, the rest of the line is not tokenized. */
+    private static final int TOKEN_REM = 0xF4;
+    /** Keywords of tokens 0x80 to 0xFF. */
+    private static final String[] KEYWORDS = {
+            "AND", "DIV", "EOR", "MOD", "OR", "ERROR", "LINE", "OFF",
+            "STEP", "SPC", "TAB(", "ELSE", "THEN", "", "OPENIN", "PTR",
+            "PAGE", "TIME", "LOMEM", "HIMEM", "ABS", "ACS", "ADVAL", "ASC",
+            "ASN", "ATN", "BGET", "COS", "COUNT", "DEG", "ERL", "ERR",
+            "EVAL", "EXP", "EXT", "FALSE", "FN", "GET", "INKEY", "INSTR(",
+            "INT", "LEN", "LN", "LOG", "NOT", "OPENUP", "OPENOUT", "PI",
+            "POINT(", "POS", "RAD", "RND", "SGN", "SIN", "SQR", "TAN",
+            "TO", "TRUE", "USR", "VAL", "VPOS", "CHR$", "GET$", "INKEY$",
+            "LEFT$(", "MID$(", "RIGHT$(", "STR$", "STRING$(", "EOF", "AUTO", "DELETE",
+            "LOAD", "LIST", "NEW", "OLD", "RENUMBER", "SAVE", "EDIT", "PTR",
+            "PAGE", "TIME", "LOMEM", "HIMEM", "SOUND", "BPUT", "CALL", "CHAIN",
+            "CLEAR", "CLOSE", "CLG", "CLS", "DATA", "DEF", "DIM", "DRAW",
+            "END", "ENDPROC", "ENVELOPE", "FOR", "GOSUB", "GOTO", "GCOL", "IF",
+            "INPUT", "LET", "LOCAL", "MODE", "MOVE", "NEXT", "ON", "VDU",
+            "PLOT", "PRINT", "PROC", "READ", "REM", "REPEAT", "REPORT", "RESTORE",
+            "RETURN", "RUN", "STOP", "COLOUR", "TRACE", "UNTIL", "WIDTH", "OSCLI"
+    };
+
+    /**
+     * Utility class, not constructed.
+     */
+    private BasicDetokenizer() {
+    }
+
+    /**
+     * Detokenize a program, passing each line to a visitor. Decoding stops at the end of the program, or at the first
+     * malformed line.
+     *
+     * @param program buffer holding the program from its position to its limit, the buffer is not modified
+     * @param visitor visitor of each line
+     * @return true if the end of program marker was reached, false if the program was malformed or truncated
+     */
+    public static boolean detokenize(ByteBuffer program, BasicLineVisitor visitor) {
+        StringBuilder text = new StringBuilder(256);
+        int position = program.position();
+        int limit = program.limit();
+
+        while (position + 1 < limit && (program.get(position) & 0xff) == LINE_START) {
+            int high = program.get(position + 1) & 0xff;
+
+            if (high == END_OF_PROGRAM) {
+                return true;
+            }
+
+            if (position + 3 >= limit) {
+                return false;
+            }
+
+            int lineNumber = (high << 8) | (program.get(position + 2) & 0xff);
+            int length = program.get(position + 3) & 0xff;
+
+            if (length < 4 || position + length > limit) {
+                return false;
+            }
+
+            text.setLength(0);
+            decodeLine(program, position + 4, position + length, text);
+            visitor.visit(lineNumber, text);
+
+            position += length;
+        }
+
+        return false;
+    }
+
+    /**
+     * Detokenize a program as a listing, each line number right aligned as by LIST.
+     *
+     * @param program buffer holding the program from its position to its limit, the buffer is not modified
+     * @param out destination of the listing
+     * @return true if the end of program marker was reached, false if the program was malformed or truncated
+     * @throws IOException if the listing could not be written
+     */
+    public static boolean list(ByteBuffer program, Appendable out) throws IOException {
+        try {
+            return detokenize(program, (lineNumber, text) -> {
+                try {
+                    String number = Integer.toString(lineNumber);
+
+                    for (int i = number.length(); i < 5; i++) {
+                        out.append(' ');
+                    }
+
+                    out.append(number).append(text).append('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Check to see if a buffer starts with a well formed BASIC line or end of program marker.
+     *
+     * @param content buffer holding the content from its position to its limit, the buffer is not modified
+     * @return true if the content looks like a BASIC program
+     */
+    public static boolean isProgram(ByteBuffer content) {
+        int position = content.position();
+
+        if (content.remaining() < 2 || (content.get(position) & 0xff) != LINE_START) {
+            return false;
+        }
+
+        if ((content.get(position + 1) & 0xff) == END_OF_PROGRAM) {
+            return true;
+        }
+
+        return content.remaining() >= 4 && (content.get(position + 3) & 0xff) >= 4 && (content.get(position + 3) & 0xff) <= content.remaining();
+    }
+
+    /**
+     * Decode the body of a line.
+     *
+     * @param program buffer holding the program
+     * @param start position of the first byte after the line header
+     * @param end position of the end of the line, exclusive
+     * @param text buffer to append the decoded text to
+     */
+    private static void decodeLine(ByteBuffer program, int start, int end, StringBuilder text) {
+        boolean quoted = false;
+        boolean literal = false;
+
+        for (int i = start; i < end; i++) {
+            int value = program.get(i) & 0xff;
+
+            if (literal || quoted || value < 0x80) {
+                if (value == '"' && !literal) {
+                    quoted = !quoted;
+                }
+
+                text.append((char) value);
+            } else if (value == TOKEN_LINE_NUMBER && i + 3 < end) {
+                text.append(decodeLineNumber(program.get(i + 1), program.get(i + 2), program.get(i + 3)));
+                i += 3;
+            } else {
+                text.append(KEYWORDS[value - 0x80]);
+                literal = value == TOKEN_REM || value == TOKEN_DATA;
+            }
+        }
+    }
+
+    /**
+     * Decode a line number encoded after a 0x8D token.
+     *
+     * @param first first encoded byte, holding the top two bits of each byte of the line number
+     * @param second second encoded byte, holding the low six bits of the low byte
+     * @param third third encoded byte, holding the low six bits of the high byte
+     * @return line number
+     */
+    static int decodeLineNumber(byte first, byte second, byte third) {
+        int bits = (first & 0xff) ^ 0x54;
+        int low = ((bits & 0x30) << 2) | (second & 0x3f);
+        int high = ((bits & 0x0c) << 4) | (third & 0x3f);
+
+        return (high << 8) | low;
+    }
+}
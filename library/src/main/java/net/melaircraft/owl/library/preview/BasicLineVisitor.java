@@ -0,0 +1,14 @@
+package net.melaircraft.owl.library.preview;
+
+/**
+ * Visitor of the lines of a BBC BASIC program as they are detokenized.
+ */
+public interface BasicLineVisitor {
+    /**
+     * Called for each line of the program, in order.
+     *
+     * @param lineNumber line number
+     * @param text detokenized text of the line, valid only until this method returns
+     */
+    void visit(int lineNumber, CharSequence text);
+}
@@ -0,0 +1,305 @@
+package net.melaircraft.owl.library.preview;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsCatalogue;
+import net.melaircraft.owl.library.dfs.DfsFile;
+import net.melaircraft.owl.library.event.BundleChangeEvent;
+import net.melaircraft.owl.library.event.BundleListener;
+import net.melaircraft.owl.library.exception.dfs.DfsFileNotFoundException;
+import net.melaircraft.owl.library.exception.dfs.InvalidCatalogueException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotRegionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Produces previews of the files on DFS disks in a bundle, caching the results.
+ *
+ * Only the catalogue sectors and the sectors of the requested file are read from the bundle. Previews are cached by
+ * slot, file name, preview type and a hash of the file content, and the least recently used are evicted once the
+ * total length of cached previews exceeds a limit. Cached previews of a slot are dropped when the bundle reports a
+ * change to it, and the content hash ensures a stale preview is never returned in the meantime.
+ */
+public class PreviewEngine implements AutoCloseable {
+    /** Bundle holding the disks. */
+    private final DiskBundle bundle;
+    /** Maximum total length of cached previews, in characters. */
+    private final long maximumCacheLength;
+    /** Cached previews, in least recently used order. */
+    private final LinkedHashMap<Key, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+    /** Listener invalidating previews of changed slots. */
+    private final BundleListener listener = this::bundleChanged;
+    /** Total length of cached previews, in characters. */
+    private long cacheLength;
+    /** Number of previews served from the cache. */
+    private long hits;
+    /** Number of previews generated. */
+    private long misses;
+
+    /**
+     * Key of a cached preview.
+     */
+    private static final class Key {
+        /** Slot number. */
+        private final int slot;
+        /** Qualified file name. */
+        private final String fileName;
+        /** Type of preview. */
+        private final PreviewType type;
+        /** Hash of the file content. */
+        private final long contentHash;
+
+        /**
+         * Construct a new key.
+         *
+         * @param slot slot number
+         * @param fileName qualified file name
+         * @param type type of preview
+         * @param contentHash hash of the file content
+         */
+        private Key(int slot, String fileName, PreviewType type, long contentHash) {
+            this.slot = slot;
+            this.fileName = fileName;
+            this.type = type;
+            this.contentHash = contentHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            return slot == key.slot && contentHash == key.contentHash && type == key.type && fileName.equals(key.fileName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(slot, fileName, type, contentHash);
+        }
+    }
+
+    /**
+     * Construct a new preview engine, which listens to the bundle for changes until closed.
+     *
+     * @param bundle bundle holding the disks
+     * @param maximumCacheLength maximum total length of cached previews, in characters
+     */
+    public PreviewEngine(DiskBundle bundle, long maximumCacheLength) {
+        this.bundle = bundle;
+        this.maximumCacheLength = maximumCacheLength;
+
+        bundle.addListener(listener);
+    }
+
+    /**
+     * Get the preview of a file, from the cache if present.
+     *
+     * @param slot slot number (0 - 510)
+     * @param fileName qualified file name, such as "$.BOOT"
+     * @param type type of preview, or null to pick one from the content
+     * @return preview text
+     * @throws InvalidCatalogueException if the slot does not hold a valid DFS catalogue
+     * @throws DfsFileNotFoundException if the file is not in the catalogue
+     */
+    public String preview(int slot, String fileName, PreviewType type) throws InvalidCatalogueException, DfsFileNotFoundException {
+        ByteBuffer content = readFile(slot, fileName);
+        PreviewType previewType = type != null ? type : PreviewType.detect(content);
+        Key key = new Key(slot, fileName, previewType, hash(content));
+
+        synchronized (cache) {
+            String cached = cache.get(key);
+
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+
+            misses++;
+        }
+
+        StringBuilder text = new StringBuilder(content.remaining() * 2);
+
+        try {
+            previewType.write(content, text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        String preview = text.toString();
+        store(key, preview);
+
+        return preview;
+    }
+
+    /**
+     * Write the preview of a file without building or caching it, for previews too large to hold.
+     *
+     * @param slot slot number (0 - 510)
+     * @param fileName qualified file name, such as "$.BOOT"
+     * @param type type of preview, or null to pick one from the content
+     * @param out destination of the preview
+     * @throws IOException if the preview could not be written
+     * @throws InvalidCatalogueException if the slot does not hold a valid DFS catalogue
+     * @throws DfsFileNotFoundException if the file is not in the catalogue
+     */
+    public void write(int slot, String fileName, PreviewType type, Appendable out) throws IOException, InvalidCatalogueException, DfsFileNotFoundException {
+        ByteBuffer content = readFile(slot, fileName);
+        (type != null ? type : PreviewType.detect(content)).write(content, out);
+    }
+
+    /**
+     * Get the total length of cached previews.
+     *
+     * @return length in characters
+     */
+    public long getCacheLength() {
+        synchronized (cache) {
+            return cacheLength;
+        }
+    }
+
+    /**
+     * Get the number of previews served from the cache.
+     *
+     * @return hit count
+     */
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * Get the number of previews which had to be generated.
+     *
+     * @return miss count
+     */
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * Drop every cached preview of a slot.
+     *
+     * @param slot slot number (0 - 510)
+     */
+    public void invalidate(int slot) {
+        synchronized (cache) {
+            Iterator<Map.Entry<Key, String>> iterator = cache.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<Key, String> entry = iterator.next();
+
+                if (entry.getKey().slot == slot) {
+                    cacheLength -= entry.getValue().length();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop listening to the bundle and drop every cached preview.
+     */
+    @Override
+    public void close() {
+        bundle.removeListener(listener);
+
+        synchronized (cache) {
+            cache.clear();
+            cacheLength = 0;
+        }
+    }
+
+    /**
+     * Read the content of a file, reading only the catalogue and the sectors of the file.
+     *
+     * @param slot slot number (0 - 510)
+     * @param fileName qualified file name
+     * @return buffer holding the file content
+     */
+    private ByteBuffer readFile(int slot, String fileName) {
+        for (DfsFile file : DfsCatalogue.read(bundle, slot).getFiles()) {
+            if (file.getFullName().equals(fileName)) {
+                int offset = file.getStartSector() * DiskBundle.SECTOR_SIZE;
+
+                if (offset + file.getLength() > DiskBundle.DISK_SIZE) {
+                    throw new InvalidSlotRegionException(slot, offset, file.getLength());
+                }
+
+                ByteBuffer content = ByteBuffer.allocate(file.getLength());
+                bundle.read(slot, offset, content);
+                content.flip();
+
+                return content;
+            }
+        }
+
+        throw new DfsFileNotFoundException(slot, fileName);
+    }
+
+    /**
+     * Add a preview to the cache, evicting the least recently used previews to stay within the limit.
+     *
+     * @param key key of preview
+     * @param preview preview text
+     */
+    private void store(Key key, String preview) {
+        if (preview.length() > maximumCacheLength) {
+            return;
+        }
+
+        synchronized (cache) {
+            String previous = cache.put(key, preview);
+            cacheLength += preview.length() - (previous != null ? previous.length() : 0);
+
+            Iterator<String> iterator = cache.values().iterator();
+
+            while (cacheLength > maximumCacheLength && iterator.hasNext()) {
+                cacheLength -= iterator.next().length();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop the cached previews of every slot changed.
+     *
+     * @param event change event
+     */
+    private void bundleChanged(BundleChangeEvent event) {
+        BitSet slots = event.getAffectedSlots();
+
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            invalidate(slot);
+        }
+    }
+
+    /**
+     * Hash file content.
+     *
+     * @param content buffer holding the content from its position to its limit, the buffer is not modified
+     * @return hash combining the length and CRC-32 of the content
+     */
+    private static long hash(ByteBuffer content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+
+        return ((long) content.remaining() << 32) | crc.getValue();
+    }
+}
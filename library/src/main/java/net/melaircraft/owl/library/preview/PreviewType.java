@@ -0,0 +1,120 @@
+package net.melaircraft.owl.library.preview;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Type of preview of a file.
+ */
+public enum PreviewType {
+    /** Listing of a BBC BASIC program. */
+    BASIC {
+        @Override
+        public void write(ByteBuffer content, Appendable out) throws IOException {
+            BasicDetokenizer.list(content, out);
+        }
+    },
+    /** Text, with carriage returns as line breaks and other control characters shown as dots. */
+    TEXT {
+        @Override
+        public void write(ByteBuffer content, Appendable out) throws IOException {
+            int previous = -1;
+
+            for (int i = content.position(); i < content.limit(); i++) {
+                int value = content.get(i) & 0xff;
+
+                if (value == '\r' || (value == '\n' && previous != '\r')) {
+                    out.append('\n');
+                } else if (value == '\t' || (value >= 0x20 && value < 0x7f)) {
+                    out.append((char) value);
+                } else if (value != '\n') {
+                    out.append('.');
+                }
+
+                previous = value;
+            }
+        }
+    },
+    /** Hexadecimal dump, sixteen bytes per line with their offset and printable characters. */
+    HEX {
+        @Override
+        public void write(ByteBuffer content, Appendable out) throws IOException {
+            StringBuilder line = new StringBuilder(80);
+
+            for (int offset = 0; offset < content.remaining(); offset += 16) {
+                line.setLength(0);
+                appendHex(line, offset, 6);
+                line.append(' ');
+
+                for (int i = 0; i < 16; i++) {
+                    line.append(' ');
+
+                    if (offset + i < content.remaining()) {
+                        appendHex(line, content.get(content.position() + offset + i) & 0xff, 2);
+                    } else {
+                        line.append("  ");
+                    }
+                }
+
+                line.append("  ");
+
+                for (int i = 0; i < 16 && offset + i < content.remaining(); i++) {
+                    int value = content.get(content.position() + offset + i) & 0xff;
+                    line.append(value >= 0x20 && value < 0x7f ? (char) value : '.');
+                }
+
+                out.append(line).append('\n');
+            }
+        }
+    };
+
+    /** Hexadecimal digits. */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Write the preview of file content.
+     *
+     * @param content buffer holding the file from its position to its limit, the buffer is not modified
+     * @param out destination of the preview
+     * @throws IOException if the preview could not be written
+     */
+    public abstract void write(ByteBuffer content, Appendable out) throws IOException;
+
+    /**
+     * Pick the most suitable preview of file content: a BASIC listing if it looks like a program, text if it is
+     * mostly printable, otherwise a hexadecimal dump.
+     *
+     * @param content buffer holding the file from its position to its limit, the buffer is not modified
+     * @return preview type
+     */
+    public static PreviewType detect(ByteBuffer content) {
+        if (BasicDetokenizer.isProgram(content)) {
+            return BASIC;
+        }
+
+        int printable = 0;
+
+        for (int i = content.position(); i < content.limit(); i++) {
+            int value = content.get(i) & 0xff;
+
+            if (value == '\r' || value == '\n' || value == '\t' || (value >= 0x20 && value < 0x7f)) {
+                printable++;
+            }
+        }
+
+        return printable * 10 >= content.remaining() * 9 ? TEXT : HEX;
+    }
+
+    /**
+     * Append a value in upper case hexadecimal, padded with zeros.
+     *
+     * @param line buffer to append to
+     * @param value value to append
+     * @param digits number of digits
+     */
+    private static void appendHex(StringBuilder line, int value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            line.append(HEX_DIGITS[(value >> shift) & 0xf]);
+        }
+    }
+}
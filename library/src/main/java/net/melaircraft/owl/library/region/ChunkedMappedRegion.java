@@ -0,0 +1,160 @@
+package net.melaircraft.owl.library.region;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Region built from int indexed mapped byte buffers, each mapping one chunk of the file.
+ *
+ * Each chunk maps {@link Region#MAXIMUM_VIEW} bytes beyond its end, overlapping the next, so a view never spans two
+ * mappings. Mappings of the same file share pages, so changes through either mapping are seen by both. Mapped byte
+ * buffers cannot be unmapped, they are released when garbage collected.
+ */
+final class ChunkedMappedRegion implements Region {
+    /** Default size of each chunk. */
+    static final long DEFAULT_CHUNK_SIZE = 1L << 30;
+    /** Size of each piece of a copy between regions. */
+    private static final int COPY_SIZE = MAXIMUM_VIEW;
+
+    /** Mapping of each chunk. */
+    private final MappedByteBuffer[] chunks;
+    /** Size of each chunk, excluding the overlap. */
+    private final long chunkSize;
+    /** Size of the region. */
+    private final long size;
+
+    /**
+     * Map a region of a file.
+     *
+     * @param fileChannel read/write channel of file, which may be closed once mapped
+     * @param size size of region, the file is extended if shorter
+     * @param chunkSize size of each chunk, excluding the overlap
+     * @throws IOException if the file could not be mapped
+     */
+    ChunkedMappedRegion(FileChannel fileChannel, long size, long chunkSize) throws IOException {
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunks = new MappedByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+
+        for (int i = 0; i < chunks.length; i++) {
+            long start = i * chunkSize;
+            chunks[i] = fileChannel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(chunkSize + MAXIMUM_VIEW, size - start));
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void read(long offset, ByteBuffer target) {
+        checkRange(offset, target.remaining());
+
+        long position = offset;
+
+        while (target.hasRemaining()) {
+            int length = (int) Math.min(target.remaining(), chunkSize - (position % chunkSize));
+            target.put(view(position, length));
+            position += length;
+        }
+    }
+
+    @Override
+    public void write(long offset, ByteBuffer source) {
+        checkRange(offset, source.remaining());
+
+        long position = offset;
+
+        while (source.hasRemaining()) {
+            int length = (int) Math.min(source.remaining(), chunkSize - (position % chunkSize));
+
+            ByteBuffer piece = source.duplicate();
+            piece.limit(piece.position() + length);
+            view(position, length).put(piece);
+
+            source.position(source.position() + length);
+            position += length;
+        }
+    }
+
+    @Override
+    public ByteBuffer buffer(long offset, int length) {
+        if (length > MAXIMUM_VIEW) {
+            throw new IllegalArgumentException("View of " + length + " bytes is larger than " + MAXIMUM_VIEW + ".");
+        }
+
+        checkRange(offset, length);
+        return view(offset, length).slice();
+    }
+
+    @Override
+    public void copyTo(long offset, Region target, long targetOffset, long length) {
+        checkRange(offset, length);
+
+        /* Copy backwards when moving up within this region, so an overlapping source is read before it is overwritten. */
+        boolean backwards = target == this && targetOffset > offset && targetOffset < offset + length;
+        long copied = 0;
+
+        while (copied < length) {
+            int piece = (int) Math.min(COPY_SIZE, length - copied);
+            long from = backwards ? offset + length - copied - piece : offset + copied;
+            long to = backwards ? targetOffset + length - copied - piece : targetOffset + copied;
+
+            ByteBuffer data = buffer(from, piece);
+
+            if (target == this) {
+                ByteBuffer copy = ByteBuffer.allocate(piece);
+                copy.put(data);
+                copy.flip();
+                data = copy;
+            }
+
+            target.write(to, data);
+            copied += piece;
+        }
+    }
+
+    @Override
+    public void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    /**
+     * Get a view of part of a single chunk.
+     *
+     * @param offset offset within the region
+     * @param length length of view, which must not extend beyond the overlap of the chunk
+     * @return buffer positioned at the start of the view
+     */
+    private ByteBuffer view(long offset, int length) {
+        int within = (int) (offset % chunkSize);
+
+        ByteBuffer view = chunks[(int) (offset / chunkSize)].duplicate();
+        view.limit(within + length);
+        view.position(within);
+
+        return view;
+    }
+
+    /**
+     * Check that a range lies within the region.
+     *
+     * @param offset offset of range
+     * @param length length of range
+     */
+    private void checkRange(long offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IndexOutOfBoundsException("Range of " + length + " bytes at " + offset + " is outside of region of " + size + " bytes.");
+        }
+    }
+}
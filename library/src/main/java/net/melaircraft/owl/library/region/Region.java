@@ -0,0 +1,72 @@
+package net.melaircraft.owl.library.region;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A memory mapped region of a file, addressed by long offsets so it may be larger than 2 GB.
+ *
+ * Regions are created by {@link Regions#map(java.nio.file.Path, long)}.
+ */
+public interface Region extends Closeable {
+    /**
+     * Largest length of a view returned by {@link #buffer(long, int)}.
+     */
+    int MAXIMUM_VIEW = 1 << 20;
+
+    /**
+     * Get the size of the region.
+     *
+     * @return size in bytes
+     */
+    long size();
+
+    /**
+     * Copy bytes from the region into a buffer, filling it from its position to its limit.
+     *
+     * @param offset offset within the region
+     * @param target buffer to fill, its position is advanced
+     */
+    void read(long offset, ByteBuffer target);
+
+    /**
+     * Copy bytes from a buffer into the region, from its position to its limit.
+     *
+     * @param offset offset within the region
+     * @param source buffer to copy, its position is advanced
+     */
+    void write(long offset, ByteBuffer source);
+
+    /**
+     * Get a live view of part of the region, changes to the view are changes to the region.
+     *
+     * @param offset offset within the region
+     * @param length length of view, no more than {@link #MAXIMUM_VIEW}
+     * @return buffer over the part of the region, positioned at 0
+     */
+    ByteBuffer buffer(long offset, int length);
+
+    /**
+     * Copy bytes from this region to another region, or elsewhere in this region.
+     *
+     * @param offset offset within this region
+     * @param target region to copy into
+     * @param targetOffset offset within the target region
+     * @param length number of bytes to copy
+     */
+    void copyTo(long offset, Region target, long targetOffset, long length);
+
+    /**
+     * Force any changes to the region to be written to the underlying storage device.
+     */
+    void force();
+
+    /**
+     * Release the region. The mapping itself is released when it is garbage collected.
+     *
+     * @throws IOException if the region could not be released
+     */
+    @Override
+    void close() throws IOException;
+}
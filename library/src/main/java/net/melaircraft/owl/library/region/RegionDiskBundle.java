@@ -0,0 +1,276 @@
+package net.melaircraft.owl.library.region;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.event.ChangeType;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementation of a disk bundle held at an offset within a region, addressed with long offsets.
+ *
+ * Many bundles can share one region larger than 2 GB, such as a library of bundles laid end to end, each limited to
+ * the storage between its offset and the next. A bundle opened on its own file owns its region, and remaps it when
+ * its storage changes size.
+ */
+public class RegionDiskBundle extends AbstractDiskBundle implements Closeable {
+    /** Path of the bundle file if the bundle owns its region, otherwise null. */
+    private final Path path;
+    /** Offset of the bundle within the region. */
+    private final long base;
+    /** Maximum number of slots with storage, for a bundle within a shared region. */
+    private final int capacity;
+    /** Region holding the bundle. */
+    private Region region;
+    /** Live view of the header and catalogue. */
+    private ByteBuffer catalogue;
+    /** Number of slots with storage. */
+    private int storageSize;
+
+    /**
+     * Construct a disk bundle over an existing MMB image within a shared region, the region is not closed with the
+     * bundle.
+     *
+     * @param region region holding the bundle
+     * @param base offset of the bundle within the region
+     * @param storageSize number of slots with storage
+     * @param capacity maximum number of slots with storage the bundle may grow to
+     * @throws InvalidSlotException if the storage size or capacity is invalid, or does not fit in the region
+     */
+    public RegionDiskBundle(Region region, long base, int storageSize, int capacity) throws InvalidSlotException {
+        this(null, region, base, storageSize, capacity);
+    }
+
+    /**
+     * Construct a disk bundle.
+     *
+     * @param path path of the bundle file if the bundle owns its region, otherwise null
+     * @param region region holding the bundle
+     * @param base offset of the bundle within the region
+     * @param storageSize number of slots with storage
+     * @param capacity maximum number of slots with storage the bundle may grow to
+     * @throws InvalidSlotException if the storage size or capacity is invalid, or does not fit in the region
+     */
+    private RegionDiskBundle(Path path, Region region, long base, int storageSize, int capacity) throws InvalidSlotException {
+        long required = base + calculateStorageSize(path == null ? capacity : storageSize);
+
+        if (capacity < 0 || capacity > 511 || base < 0 || required > region.size()) {
+            throw new InvalidSlotException(capacity);
+        }
+
+        if (storageSize < 0 || storageSize > capacity) {
+            throw new InvalidSlotException(storageSize);
+        }
+
+        this.path = path;
+        this.region = region;
+        this.base = base;
+        this.storageSize = storageSize;
+        this.capacity = capacity;
+        this.catalogue = region.buffer(base, INITIAL_OFFSET);
+    }
+
+    /**
+     * Open an existing MMB file, the bundle owns the region mapping it.
+     *
+     * @param path path to MMB file
+     * @return opened disk bundle
+     * @throws IOException if the file could not be opened or is not a MMB file
+     */
+    public static RegionDiskBundle open(Path path) throws IOException {
+        long size = Files.size(path);
+
+        if (size < INITIAL_OFFSET || size > calculateStorageSize(511)) {
+            throw new IOException(path + " is not a valid MMB file, size is " + size + ".");
+        }
+
+        int slots = (int) ((size - INITIAL_OFFSET) / DISK_SIZE);
+        Region region = Regions.map(path, calculateStorageSize(slots));
+
+        return new RegionDiskBundle(path, region, 0, slots, 511);
+    }
+
+    /**
+     * Create a new MMB file with a specified number of slots allocated, any existing file will be replaced.
+     *
+     * @param path path to MMB file
+     * @param initialSlots initial slots allocated
+     * @return opened disk bundle
+     * @throws IOException if the file could not be created
+     * @throws InvalidSlotException if the number of slots is invalid
+     */
+    public static RegionDiskBundle create(Path path, int initialSlots) throws IOException, InvalidSlotException {
+        if (initialSlots < 0 || initialSlots > 511) {
+            throw new InvalidSlotException(initialSlots);
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = new ByteBufferDiskBundle(0).getByteBuffer().duplicate();
+
+            while (header.hasRemaining()) {
+                fileChannel.write(header);
+            }
+        }
+
+        Region region = Regions.map(path, calculateStorageSize(initialSlots));
+        return new RegionDiskBundle(path, region, 0, initialSlots, 511);
+    }
+
+    /**
+     * Initialise a new, empty, bundle within a shared region, every slot is set unformatted and the boot slots are
+     * cleared. Slot data is not changed.
+     *
+     * @param region region to hold the bundle
+     * @param base offset of the bundle within the region
+     * @param storageSize number of slots with storage
+     * @param capacity maximum number of slots with storage the bundle may grow to
+     * @return new disk bundle
+     * @throws InvalidSlotException if the storage size or capacity is invalid, or does not fit in the region
+     */
+    public static RegionDiskBundle format(Region region, long base, int storageSize, int capacity) throws InvalidSlotException {
+        RegionDiskBundle bundle = new RegionDiskBundle(region, base, storageSize, capacity);
+        bundle.catalogue.put(new ByteBufferDiskBundle(0).getByteBuffer().duplicate());
+        bundle.catalogue.clear();
+
+        return bundle;
+    }
+
+    /**
+     * Copy the data of a slot into a slot of another region backed bundle with a single bulk region copy. A target
+     * slot which was unused is activated and left unlocked.
+     *
+     * @param slot slot number to copy from (0 - 510)
+     * @param target bundle to copy into, which may be this bundle
+     * @param targetSlot slot number to copy to (0 - 510)
+     * @throws InvalidSlotException if either slot is invalid
+     * @throws NoStorageSlotException if either slot has no storage allocated
+     * @throws LockedSlotException if the target slot is in use and locked
+     */
+    public void transferSlot(int slot, RegionDiskBundle target, int targetSlot) throws InvalidSlotException, NoStorageSlotException, LockedSlotException {
+        checkRegion(slot, 0, DISK_SIZE);
+        target.checkRegion(targetSlot, 0, DISK_SIZE);
+
+        if (target.isOccupied(targetSlot) && target.isLocked(targetSlot)) {
+            throw new LockedSlotException(targetSlot);
+        }
+
+        region.copyTo(slotOffset(slot), target.region, target.slotOffset(targetSlot), DISK_SIZE);
+
+        if (!target.isOccupied(targetSlot)) {
+            target.activate(targetSlot);
+            target.unlock(targetSlot);
+        }
+
+        target.getEventDispatcher().fire(ChangeType.INSERTED, targetSlot);
+    }
+
+    /**
+     * Force any changes in the bundle to be written to the underlying storage device.
+     */
+    @Override
+    public void flush() {
+        region.force();
+    }
+
+    /**
+     * Close the bundle, releasing its region if the bundle owns it.
+     *
+     * @throws IOException if the region could not be released
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+
+        if (path != null) {
+            region.close();
+        }
+    }
+
+    /**
+     * Get the region holding the bundle.
+     *
+     * @return region
+     */
+    public Region getRegion() {
+        return region;
+    }
+
+    /**
+     * Get the offset of the bundle within its region.
+     *
+     * @return offset in bytes
+     */
+    public long getBase() {
+        return base;
+    }
+
+    @Override
+    public int getStorageSize() {
+        return storageSize;
+    }
+
+    @Override
+    protected ByteBuffer getCatalogue() {
+        return catalogue;
+    }
+
+    @Override
+    protected void readData(int slot, int offset, ByteBuffer target) {
+        region.read(slotOffset(slot) + offset, target);
+    }
+
+    @Override
+    protected void writeData(int slot, int offset, ByteBuffer source) {
+        region.write(slotOffset(slot) + offset, source);
+    }
+
+    @Override
+    protected void resizeStorage(int slots) {
+        if (path == null) {
+            if (slots > capacity) {
+                throw new InvalidSlotException(slots);
+            }
+
+            storageSize = slots;
+            return;
+        }
+
+        long newSize = calculateStorageSize(slots);
+
+        try {
+            region.close();
+            region = Regions.map(path, newSize);
+            catalogue = region.buffer(0, INITIAL_OFFSET);
+
+            if (Files.size(path) > newSize) {
+                try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    fileChannel.truncate(newSize);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        storageSize = slots;
+    }
+
+    /**
+     * Get the offset of the start of a slots data within the region.
+     *
+     * @param slot slot number (0 - 510)
+     * @return offset in bytes
+     */
+    private long slotOffset(int slot) {
+        return base + INITIAL_OFFSET + ((long) slot * DISK_SIZE);
+    }
+}
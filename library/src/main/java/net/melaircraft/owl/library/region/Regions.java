@@ -0,0 +1,33 @@
+package net.melaircraft.owl.library.region;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Factory of regions.
+ *
+ * Files are mapped as chunks of mapped byte buffers, so regions may be larger than the int indexed buffers allow.
+ */
+public final class Regions {
+    /**
+     * Utility class, not constructed.
+     */
+    private Regions() {
+    }
+
+    /**
+     * Map a region of a file from its start, creating the file if needed.
+     *
+     * @param path path of file
+     * @param size size of region, the file is extended if shorter
+     * @return mapped region
+     * @throws IOException if the file could not be mapped
+     */
+    public static Region map(Path path, long size) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new ChunkedMappedRegion(fileChannel, size, ChunkedMappedRegion.DEFAULT_CHUNK_SIZE);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package net.melaircraft.owl.library.scan;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A slot read ahead by a {@link SlotScanner}, holding one buffer of its ring.
+ */
+public final class ScannedSlot {
+    /** Buffer of the ring holding the disk image. */
+    private final ByteBuffer buffer;
+    /** Slot number. */
+    private int slot;
+    /** Whether the slot was occupied when read. */
+    private boolean occupied;
+    /** Name of the slot when read. */
+    private String name;
+
+    /**
+     * Construct a new scanned slot over a buffer of the ring.
+     *
+     * @param buffer buffer to hold the disk image, of {@link DiskBundle#DISK_SIZE} bytes
+     */
+    ScannedSlot(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Read a slot into the buffer.
+     *
+     * @param bundle bundle to read from
+     * @param slot slot number
+     */
+    void load(DiskBundle bundle, int slot) {
+        this.slot = slot;
+        this.occupied = bundle.isOccupied(slot);
+        this.name = bundle.getName(slot);
+
+        buffer.clear();
+        bundle.read(slot, 0, buffer);
+        buffer.flip();
+    }
+
+    /**
+     * Get the slot number.
+     *
+     * @return slot number
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Check to see if the slot was occupied when read.
+     *
+     * @return true if occupied
+     */
+    public boolean isOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Get the name of the slot when read.
+     *
+     * @return slot name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the disk image of the slot.
+     *
+     * @return read only buffer holding the disk image from position 0, valid until the next slot is requested
+     */
+    public ByteBuffer getData() {
+        return buffer.asReadOnlyBuffer();
+    }
+}
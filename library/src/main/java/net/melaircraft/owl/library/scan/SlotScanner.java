@@ -0,0 +1,170 @@
+package net.melaircraft.owl.library.scan;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Scans the slots of a bundle in order, while a background thread reads the following slots ahead into a ring of
+ * reused buffers.
+ *
+ * The ring holds a fixed number of disk images, so memory is bounded at that many times {@link DiskBundle#DISK_SIZE}
+ * however large the bundle. The slot handed to the caller holds one buffer of the ring until the next slot is
+ * requested, and the reader fills the rest, blocking when the ring is full. Whole bundle passes on file backed or
+ * compressed bundles then overlap reading with processing, rather than stalling on each slot in turn.
+ *
+ * The scan covers the slots with storage when it starts. Changes made to the bundle during a scan may or may not be
+ * seen, depending on whether the slot has already been read ahead.
+ */
+public class SlotScanner implements AutoCloseable {
+    /** Entry marking the end of the scan, or telling the reader to stop. */
+    private static final ScannedSlot END = new ScannedSlot(ByteBuffer.allocate(0));
+
+    /** Bundle being scanned. */
+    private final DiskBundle bundle;
+    /** Whether to skip unoccupied slots. */
+    private final boolean occupiedOnly;
+    /** Buffers of the ring free to be filled. */
+    private final BlockingQueue<ScannedSlot> free;
+    /** Buffers of the ring filled in slot order, followed by the end marker. */
+    private final BlockingQueue<ScannedSlot> filled;
+    /** Background reader. */
+    private final Thread reader;
+    /** Failure of the reader, set before the end marker is queued. */
+    private volatile RuntimeException failure;
+    /** Whether the scan has been closed. */
+    private volatile boolean closed;
+    /** Slot held by the caller, or null. */
+    private ScannedSlot current;
+    /** Whether the end marker has been taken. */
+    private boolean finished;
+
+    /**
+     * Start scanning a bundle.
+     *
+     * @param bundle bundle to scan
+     * @param ringSize number of disk images held in memory, the slot held by the caller and those read ahead
+     * @param occupiedOnly true to skip unoccupied slots
+     * @throws IllegalArgumentException if the ring size is less than 1
+     */
+    public SlotScanner(DiskBundle bundle, int ringSize, boolean occupiedOnly) {
+        if (ringSize < 1) {
+            throw new IllegalArgumentException("Ring size must be at least 1, " + ringSize + " given.");
+        }
+
+        this.bundle = bundle;
+        this.occupiedOnly = occupiedOnly;
+        this.free = new ArrayBlockingQueue<>(ringSize);
+        this.filled = new ArrayBlockingQueue<>(ringSize + 1);
+
+        for (int i = 0; i < ringSize; i++) {
+            free.add(new ScannedSlot(ByteBuffer.allocate(DiskBundle.DISK_SIZE)));
+        }
+
+        this.reader = new Thread(this::readAhead, "slot-scanner");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Scan every slot of a bundle with storage, or every occupied slot, passing each to a visitor in order.
+     *
+     * @param bundle bundle to scan
+     * @param ringSize number of disk images held in memory
+     * @param occupiedOnly true to skip unoccupied slots
+     * @param visitor visitor of each slot
+     * @throws InterruptedException if interrupted while waiting for a slot to be read
+     */
+    public static void scan(DiskBundle bundle, int ringSize, boolean occupiedOnly, SlotVisitor visitor) throws InterruptedException {
+        try (SlotScanner scanner = new SlotScanner(bundle, ringSize, occupiedOnly)) {
+            ScannedSlot slot;
+
+            while ((slot = scanner.next()) != null) {
+                visitor.visit(slot);
+            }
+        }
+    }
+
+    /**
+     * Get the next slot, waiting for it to be read if the reader has not yet reached it. The slot previously returned
+     * is handed back to the reader and must no longer be used.
+     *
+     * @return next slot, or null if every slot has been scanned
+     * @throws InterruptedException if interrupted while waiting for the slot to be read
+     * @throws RuntimeException the failure of the reader, such as a slot which could not be read, once the slots
+     * read before it have been returned
+     */
+    public ScannedSlot next() throws InterruptedException {
+        if (current != null) {
+            free.add(current);
+            current = null;
+        }
+
+        if (finished) {
+            return null;
+        }
+
+        ScannedSlot slot = filled.take();
+
+        if (slot == END) {
+            finished = true;
+
+            if (failure != null) {
+                throw failure;
+            }
+
+            return null;
+        }
+
+        current = slot;
+        return slot;
+    }
+
+    /**
+     * Stop the reader, waiting for it to finish any slot it is reading. The reader is not interrupted, as interrupting
+     * a read from a file channel would close the channel under the bundle.
+     *
+     * @throws InterruptedException if interrupted while waiting for the reader
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+
+        /* Wakes the reader if it is waiting for a free buffer, if the queue is full it will see the flag instead. */
+        free.offer(END);
+        reader.join();
+    }
+
+    /**
+     * Read each slot in order into a free buffer of the ring, until the end of the storage or the scan is closed.
+     */
+    private void readAhead() {
+        int storage = bundle.getStorageSize();
+
+        try {
+            for (int slot = 0; slot < storage; slot++) {
+                if (occupiedOnly && !bundle.isOccupied(slot)) {
+                    continue;
+                }
+
+                ScannedSlot entry = closed ? END : free.take();
+
+                if (entry == END) {
+                    return;
+                }
+
+                entry.load(bundle, slot);
+                filled.add(entry);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        /* The queue has room for every buffer of the ring and the end marker, so this never blocks. */
+        filled.add(END);
+    }
+}
@@ -0,0 +1,13 @@
+package net.melaircraft.owl.library.scan;
+
+/**
+ * Visitor of the slots of a bundle in order, as read ahead by a {@link SlotScanner}.
+ */
+public interface SlotVisitor {
+    /**
+     * Called for each slot scanned, in slot order.
+     *
+     * @param slot scanned slot, valid only until this method returns
+     */
+    void visit(ScannedSlot slot);
+}
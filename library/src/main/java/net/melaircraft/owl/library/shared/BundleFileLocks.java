@@ -0,0 +1,57 @@
+package net.melaircraft.owl.library.shared;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * Regions of a bundle file locked to coordinate readers and writers in different processes.
+ *
+ * The catalogue region covers the header and catalogue, and each slot has a region covering its disk image. Readers
+ * take shared locks and writers exclusive locks. File locks are held on behalf of a whole process, a process must not
+ * take overlapping locks through two channels at once.
+ */
+public final class BundleFileLocks {
+    /**
+     * Utility class, not constructed.
+     */
+    private BundleFileLocks() {
+    }
+
+    /**
+     * Lock the catalogue region of a bundle file, blocking until it is available.
+     *
+     * @param fileChannel channel of the bundle file
+     * @param shared true for a shared read lock, false for an exclusive write lock
+     * @return lock held, to be released once finished
+     * @throws IOException if the lock could not be taken
+     */
+    public static FileLock lockCatalogue(FileChannel fileChannel, boolean shared) throws IOException {
+        return fileChannel.lock(0, DiskBundle.INITIAL_OFFSET, shared);
+    }
+
+    /**
+     * Lock the region of a slot of a bundle file, blocking until it is available.
+     *
+     * @param fileChannel channel of the bundle file
+     * @param slot slot number (0 - 510)
+     * @param shared true for a shared read lock, false for an exclusive write lock
+     * @return lock held, to be released once finished
+     * @throws IOException if the lock could not be taken
+     */
+    public static FileLock lockSlot(FileChannel fileChannel, int slot, boolean shared) throws IOException {
+        return fileChannel.lock(getSlotPosition(slot), DiskBundle.DISK_SIZE, shared);
+    }
+
+    /**
+     * Get the position of the region of a slot within the bundle file.
+     *
+     * @param slot slot number (0 - 510)
+     * @return byte position
+     */
+    static long getSlotPosition(int slot) {
+        return DiskBundle.INITIAL_OFFSET + ((long) slot * DiskBundle.DISK_SIZE);
+    }
+}
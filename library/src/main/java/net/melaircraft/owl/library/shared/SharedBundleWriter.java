@@ -0,0 +1,98 @@
+package net.melaircraft.owl.library.shared;
+
+import net.melaircraft.owl.library.Disk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.util.function.Consumer;
+
+/**
+ * Makes changes to a bundle file read by {@link SharedReadOnlyDiskBundle} instances in other processes.
+ *
+ * Each change is made under an exclusive lock of the regions it touches, and flushed before the lock is released, so
+ * readers never see a partly written disk image or catalogue. The writer must not be used in a process which also has
+ * the file open through a {@link SharedReadOnlyDiskBundle}, as a process can not hold overlapping file locks.
+ */
+public class SharedBundleWriter {
+    /** Bundle being written. */
+    private final FileChannelDiskBundle bundle;
+
+    /**
+     * Construct a new writer of a bundle file.
+     *
+     * @param bundle bundle to write, opened read/write
+     */
+    public SharedBundleWriter(FileChannelDiskBundle bundle) {
+        this.bundle = bundle;
+    }
+
+    /**
+     * Insert a disk image into a slot, see {@link DiskBundle#insert(int, Disk)}.
+     *
+     * @param slot slot number (0 - 510)
+     * @param disk disk to insert
+     * @throws IOException if the slot region could not be locked
+     */
+    public synchronized void insert(int slot, Disk disk) throws IOException {
+        try (FileLock ignored = BundleFileLocks.lockSlot(bundle.getFileChannel(), slot, false)) {
+            bundle.insert(slot, disk);
+            bundle.flush();
+        }
+    }
+
+    /**
+     * Write part of the disk image of a slot, see {@link DiskBundle#write(int, int, ByteBuffer)}.
+     *
+     * @param slot slot number (0 - 510)
+     * @param offset byte offset within the disk image
+     * @param source buffer to write from its position to its limit
+     * @throws IOException if the slot region could not be locked
+     */
+    public synchronized void write(int slot, int offset, ByteBuffer source) throws IOException {
+        try (FileLock ignored = BundleFileLocks.lockSlot(bundle.getFileChannel(), slot, false)) {
+            bundle.write(slot, offset, source);
+            bundle.flush();
+        }
+    }
+
+    /**
+     * Change the catalogue, such as names, flags and boot slots, under an exclusive lock of the catalogue region.
+     *
+     * @param change change to make to the bundle, which must not change disk images or storage size
+     * @throws IOException if the catalogue region could not be locked
+     */
+    public synchronized void updateCatalogue(Consumer<? super DiskBundle> change) throws IOException {
+        try (FileLock ignored = BundleFileLocks.lockCatalogue(bundle.getFileChannel(), false)) {
+            change.accept(bundle);
+            bundle.flush();
+        }
+    }
+
+    /**
+     * Change the number of slots with storage, see {@link DiskBundle#changeStorageSize(int)}. The catalogue and every
+     * slot past the smaller of the old and new sizes are locked while the file is resized.
+     *
+     * @param slots new number of slots with storage
+     * @throws IOException if the regions could not be locked
+     */
+    public synchronized void changeStorageSize(int slots) throws IOException {
+        long position = BundleFileLocks.getSlotPosition(Math.max(0, Math.min(slots, bundle.getStorageSize())));
+
+        try (FileLock catalogueLock = BundleFileLocks.lockCatalogue(bundle.getFileChannel(), false);
+             FileLock slotsLock = bundle.getFileChannel().lock(position, Long.MAX_VALUE - position, false)) {
+            bundle.changeStorageSize(slots);
+        }
+    }
+
+    /**
+     * Get the bundle being written.
+     *
+     * @return bundle
+     */
+    public FileChannelDiskBundle getBundle() {
+        return bundle;
+    }
+}
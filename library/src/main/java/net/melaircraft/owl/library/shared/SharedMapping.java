@@ -0,0 +1,212 @@
+package net.melaircraft.owl.library.shared;
+
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read only mapping of a bundle file shared by every reader in the process, along with the shared file locks held
+ * on its behalf.
+ *
+ * Java does not allow one process to hold overlapping file locks, so readers in the process share each lock: the
+ * first reader of a region takes the file lock and the last to finish releases it. File locks are taken and released
+ * holding only the monitor of the region's {@link HeldLock}, so a reader waiting for a writer in another process to
+ * finish with one region does not stall readers of other regions.
+ */
+final class SharedMapping implements Closeable {
+    /** Channel of the bundle file, opened for reading. */
+    private final FileChannel fileChannel;
+    /** Real path of the bundle file. */
+    private final Path path;
+    /** Locks held or being taken, keyed by region position. */
+    private final Map<Long, HeldLock> locks = new HashMap<>();
+    /** Current mapping of the whole file. */
+    private volatile MappedByteBuffer buffer;
+    /** Number of bundles open on this mapping, guarded by the registry. */
+    private int references;
+
+    /**
+     * A file lock shared by readers in the process. The file lock is guarded by this object's monitor, the holder
+     * count by the mapping's.
+     */
+    private static final class HeldLock {
+        /** File lock held, or null while being taken or after release. */
+        private FileLock lock;
+        /** Number of readers holding or waiting for the lock. */
+        private int holders;
+    }
+
+    /**
+     * Open and map a bundle file.
+     *
+     * @param path real path of the bundle file
+     * @throws IOException if the file could not be opened, mapped or is not a MMB file
+     */
+    SharedMapping(Path path) throws IOException {
+        this.path = path;
+        this.fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            remap();
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the current mapping of the file.
+     *
+     * @return read only mapped buffer
+     */
+    MappedByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Get the current size of the file, which may differ from the size mapped if a writer has resized it.
+     *
+     * @return size in bytes
+     * @throws IOException if the size could not be read
+     */
+    long size() throws IOException {
+        return fileChannel.size();
+    }
+
+    /**
+     * Remap the file if its size has changed since it was last mapped.
+     *
+     * @return true if the file was remapped
+     * @throws IOException if the file could not be mapped or is no longer a MMB file
+     */
+    synchronized boolean remap() throws IOException {
+        long size = fileChannel.size();
+
+        if (buffer != null && buffer.capacity() == size) {
+            return false;
+        }
+
+        if (size < DiskBundle.INITIAL_OFFSET || size > DiskBundle.INITIAL_OFFSET + (511L * DiskBundle.DISK_SIZE)) {
+            throw new IOException(path + " is not a valid MMB file, size is " + size + ".");
+        }
+
+        buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        return true;
+    }
+
+    /**
+     * Take a shared lock of a region, blocking while a writer holds it.
+     *
+     * @param position position of region
+     * @param size size of region
+     * @throws IOException if the lock could not be taken
+     */
+    void lock(long position, long size) throws IOException {
+        HeldLock held;
+
+        synchronized (this) {
+            held = locks.computeIfAbsent(position, key -> new HeldLock());
+            held.holders++;
+        }
+
+        synchronized (held) {
+            if (held.lock == null) {
+                try {
+                    held.lock = fileChannel.lock(position, size, true);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        held.holders--;
+                        forget(position, held);
+                    }
+
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Release a shared lock of a region taken by {@link #lock(long, long)}.
+     *
+     * @param position position of region
+     * @throws IOException if the lock could not be released
+     */
+    void unlock(long position) throws IOException {
+        HeldLock held;
+
+        synchronized (this) {
+            held = locks.get(position);
+
+            if (--held.holders > 0) {
+                return;
+            }
+        }
+
+        synchronized (held) {
+            /* Another reader may have started waiting since, in which case it keeps the lock. */
+            synchronized (this) {
+                if (held.holders > 0) {
+                    return;
+                }
+            }
+
+            if (held.lock != null) {
+                held.lock.release();
+                held.lock = null;
+            }
+
+            /* Removed only once released, so a new reader of the region never overlaps the old file lock. */
+            forget(position, held);
+        }
+    }
+
+    /**
+     * Remove a held lock with no holders from the map, called holding the monitor of the held lock.
+     *
+     * @param position position of region
+     * @param held held lock
+     */
+    private synchronized void forget(long position, HeldLock held) {
+        if (held.holders == 0 && locks.get(position) == held) {
+            locks.remove(position);
+        }
+    }
+
+    /**
+     * Get the real path of the bundle file.
+     *
+     * @return path
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Add a reference to the mapping, must be called holding the registry lock.
+     */
+    void retain() {
+        references++;
+    }
+
+    /**
+     * Remove a reference to the mapping, must be called holding the registry lock.
+     *
+     * @return true if no references remain
+     */
+    boolean release() {
+        return --references == 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,265 @@
+package net.melaircraft.owl.library.shared;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.BundleTransaction;
+import net.melaircraft.owl.library.CatalogueEditor;
+import net.melaircraft.owl.library.event.ChangeType;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read only view of a bundle file which may be changed by a writer in another process.
+ *
+ * Every bundle opened on the same file within a process shares one read only memory mapping, so the operating system
+ * page cache holds the only copy of the disk images however many readers there are. Disk images are read straight
+ * from the mapping under a shared lock of the slot region, so always reflect the last change committed by a writer
+ * using {@link SharedBundleWriter}. The catalogue is held as a copy, updated under a shared lock of the catalogue
+ * region by {@link #refresh()}, which only reads the catalogue and tells listeners what changed.
+ *
+ * Any attempt to change the bundle throws {@link UnsupportedOperationException}.
+ */
+public class SharedReadOnlyDiskBundle extends AbstractDiskBundle implements Closeable {
+    /** Mappings open in this process, keyed by real path. */
+    private static final Map<Path, SharedMapping> MAPPINGS = new HashMap<>();
+
+    /** Shared mapping of the file. */
+    private final SharedMapping mapping;
+    /** Copy of the header and catalogue. */
+    private final ByteBuffer catalogue = ByteBuffer.allocate(INITIAL_OFFSET);
+    /** Number of slots with storage when the catalogue was last read. */
+    private volatile int storageSize;
+    /** True once closed. */
+    private boolean closed;
+
+    /**
+     * Construct a new read only bundle over a shared mapping.
+     *
+     * @param mapping shared mapping of the file
+     * @throws IOException if the catalogue could not be read
+     */
+    private SharedReadOnlyDiskBundle(SharedMapping mapping) throws IOException {
+        this.mapping = mapping;
+        loadCatalogue(catalogue);
+    }
+
+    /**
+     * Open a bundle file read only, sharing the mapping of any other bundle open on the file in this process.
+     *
+     * @param path path to MMB file
+     * @return opened disk bundle
+     * @throws IOException if the file could not be opened or is not a MMB file
+     */
+    public static SharedReadOnlyDiskBundle open(Path path) throws IOException {
+        Path realPath = path.toRealPath();
+        SharedMapping mapping;
+
+        synchronized (MAPPINGS) {
+            mapping = MAPPINGS.get(realPath);
+
+            if (mapping == null) {
+                mapping = new SharedMapping(realPath);
+                MAPPINGS.put(realPath, mapping);
+            }
+
+            mapping.retain();
+        }
+
+        try {
+            return new SharedReadOnlyDiskBundle(mapping);
+        } catch (IOException | RuntimeException e) {
+            releaseMapping(mapping);
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of files mapped in this process.
+     *
+     * @return number of shared mappings open
+     */
+    public static int getMappingCount() {
+        synchronized (MAPPINGS) {
+            return MAPPINGS.size();
+        }
+    }
+
+    /**
+     * Reread the catalogue from the file, remapping it if a writer has changed its size. Listeners are told of each
+     * entry which differs from the copy previously held.
+     *
+     * @throws IOException if the file could not be read
+     */
+    public void refresh() throws IOException {
+        int previousSize = storageSize;
+        ByteBuffer updated = ByteBuffer.allocate(INITIAL_OFFSET);
+        loadCatalogue(updated);
+
+        updated.clear();
+        refreshCatalogue(updated);
+
+        if (storageSize != previousSize) {
+            getEventDispatcher().fire(ChangeType.RESIZED);
+        }
+    }
+
+    /**
+     * Close the bundle, unmapping the file once no other bundle in the process has it open.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            releaseMapping(mapping);
+        }
+    }
+
+    @Override
+    public int getStorageSize() {
+        return storageSize;
+    }
+
+    @Override
+    protected ByteBuffer getCatalogue() {
+        return catalogue;
+    }
+
+    @Override
+    protected void readData(int slot, int offset, ByteBuffer target) {
+        long position = BundleFileLocks.getSlotPosition(slot);
+
+        try {
+            mapping.lock(position, DISK_SIZE);
+
+            try {
+                /* A writer may have shrunk the file since the catalogue was read, the mapping past its end is invalid. */
+                if (position + DISK_SIZE > mapping.size()) {
+                    throw new NoStorageSlotException(slot);
+                }
+
+                if (position + DISK_SIZE > mapping.getBuffer().capacity()) {
+                    mapping.remap();
+                }
+
+                ByteBuffer source = mapping.getBuffer().duplicate();
+                source.position((int) position + offset);
+                source.limit(source.position() + target.remaining());
+                target.put(source);
+            } finally {
+                mapping.unlock(position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected void writeData(int slot, int offset, ByteBuffer source) {
+        throw readOnly();
+    }
+
+    @Override
+    protected void resizeStorage(int slots) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setBootSlot(int drive, int slot) {
+        throw readOnly();
+    }
+
+    @Override
+    public void activate(int slot) {
+        throw readOnly();
+    }
+
+    @Override
+    public void deactivate(int slot, boolean wipe) {
+        throw readOnly();
+    }
+
+    @Override
+    public void lock(int slot) {
+        throw readOnly();
+    }
+
+    @Override
+    public void unlock(int slot) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setName(int slot, String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public BundleTransaction beginTransaction() {
+        throw readOnly();
+    }
+
+    @Override
+    public CatalogueEditor editCatalogue() {
+        throw readOnly();
+    }
+
+    /**
+     * Read the header and catalogue from the mapping under a shared lock, remapping the file first if its size has
+     * changed, and update the storage size.
+     *
+     * @param target buffer to fill with the header and catalogue from position 0
+     * @throws IOException if the file could not be read
+     */
+    private void loadCatalogue(ByteBuffer target) throws IOException {
+        mapping.lock(0, INITIAL_OFFSET);
+
+        try {
+            mapping.remap();
+
+            ByteBuffer source = mapping.getBuffer().duplicate();
+            source.position(0).limit(INITIAL_OFFSET);
+
+            target.clear();
+            target.put(source);
+
+            storageSize = (source.capacity() - INITIAL_OFFSET) / DISK_SIZE;
+        } finally {
+            mapping.unlock(0);
+        }
+    }
+
+    /**
+     * Create the exception thrown on an attempt to change the bundle.
+     *
+     * @return exception to throw
+     */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Bundle is open read only.");
+    }
+
+    /**
+     * Release a reference to a mapping, closing it once unreferenced.
+     *
+     * @param mapping mapping to release
+     * @throws IOException if the mapping could not be closed
+     */
+    private static void releaseMapping(SharedMapping mapping) throws IOException {
+        synchronized (MAPPINGS) {
+            if (!mapping.release()) {
+                return;
+            }
+
+            MAPPINGS.remove(mapping.getPath());
+        }
+
+        mapping.close();
+    }
+}
@@ -0,0 +1,263 @@
+package net.melaircraft.owl.library.watch;
+
+import net.melaircraft.owl.library.AbstractDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.event.ChangeBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a bundle file for modification by other programs and refreshes an in memory copy of it.
+ *
+ * On a change only the catalogue region is re-read in full, each slot is read and its digest compared against the
+ * digest of the data last seen so only slots which changed are copied into the bundle. Listeners on the bundle are
+ * told of each change, so caches built on the bundle can update themselves.
+ *
+ * Operating systems do not report changes made to a file through a memory mapping, such as by a
+ * {@link net.melaircraft.owl.library.FileChannelDiskBundle}, {@link #reload()} can be called directly in that case.
+ */
+public class BundleWatcher implements Closeable {
+    /** Default time to wait for a file to stop changing before reloading it, in milliseconds. */
+    public static final long DEFAULT_SETTLE_MILLIS = 200;
+
+    /** Path of the bundle file. */
+    private final Path path;
+    /** In memory bundle refreshed from the file. */
+    private final AbstractDiskBundle bundle;
+    /** Time to wait for a file to stop changing before reloading it, in milliseconds. */
+    private final long settleMillis;
+    /** SHA-1 digest of each slot as last seen in the file. */
+    private final byte[][] digests = new byte[511][];
+    /** Digest used to hash slot data. */
+    private final MessageDigest messageDigest;
+    /** Reusable buffer for reading slots from the file. */
+    private final ByteBuffer slotBuffer = ByteBuffer.allocate(DiskBundle.DISK_SIZE);
+    /** Watch service, null if not started. */
+    private WatchService watchService;
+    /** Thread processing watch events, null if not started. */
+    private Thread watchThread;
+
+    /**
+     * Construct a new bundle watcher with the default settle time. The bundle must currently hold the contents of
+     * the file.
+     *
+     * @param path path of the bundle file
+     * @param bundle in memory bundle loaded from the file
+     */
+    public BundleWatcher(Path path, AbstractDiskBundle bundle) {
+        this(path, bundle, DEFAULT_SETTLE_MILLIS);
+    }
+
+    /**
+     * Construct a new bundle watcher. The bundle must currently hold the contents of the file.
+     *
+     * @param path path of the bundle file
+     * @param bundle in memory bundle loaded from the file
+     * @param settleMillis time to wait for the file to stop changing before reloading it, in milliseconds
+     */
+    public BundleWatcher(Path path, AbstractDiskBundle bundle, long settleMillis) {
+        this.path = path.toAbsolutePath();
+        this.bundle = bundle;
+        this.settleMillis = settleMillis;
+
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
+
+        for (int slot = 0; slot < bundle.getStorageSize(); slot++) {
+            slotBuffer.clear();
+            bundle.read(slot, 0, slotBuffer);
+            digests[slot] = digest();
+        }
+    }
+
+    /**
+     * Start watching the bundle file on a background thread.
+     *
+     * @throws IOException if the directory of the file could not be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+
+        watchService = path.getFileSystem().newWatchService();
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+
+        watchThread = new Thread(this::watch, "owl-bundle-watcher-" + path.getFileName());
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    /**
+     * Stop watching the bundle file.
+     *
+     * @throws IOException if the watch service could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+    }
+
+    /**
+     * Refresh the bundle from the file now, copying in the catalogue and any slots whose data has changed.
+     *
+     * @return slots whose data was refreshed
+     * @throws IOException if the file could not be read
+     */
+    public synchronized BitSet reload() throws IOException {
+        BitSet refreshed = new BitSet();
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+             ChangeBatch ignored = bundle.batchChanges()) {
+            long size = fileChannel.size();
+
+            if (size < DiskBundle.INITIAL_OFFSET) {
+                /* The file is part way through being written, a later change will complete it. */
+                return refreshed;
+            }
+
+            ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET);
+            readFully(fileChannel, catalogue, 0);
+            catalogue.flip();
+
+            int fileSlots = (int) Math.min(511, (size - DiskBundle.INITIAL_OFFSET) / DiskBundle.DISK_SIZE);
+
+            /* Grow before the catalogue is replaced, shrink after, so the truncation check sees the right catalogue. */
+            if (fileSlots > bundle.getStorageSize()) {
+                bundle.changeStorageSize(fileSlots);
+            }
+
+            bundle.refreshCatalogue(catalogue);
+
+            if (fileSlots < bundle.getStorageSize()) {
+                bundle.changeStorageSize(fileSlots);
+                Arrays.fill(digests, fileSlots, digests.length, null);
+            }
+
+            for (int slot = 0; slot < fileSlots; slot++) {
+                slotBuffer.clear();
+                readFully(fileChannel, slotBuffer, DiskBundle.INITIAL_OFFSET + ((long) slot * DiskBundle.DISK_SIZE));
+                slotBuffer.flip();
+
+                byte[] digest = digest();
+
+                if (!Arrays.equals(digest, digests[slot])) {
+                    slotBuffer.rewind();
+                    bundle.refreshSlot(slot, slotBuffer);
+                    digests[slot] = digest;
+                    refreshed.set(slot);
+                }
+            }
+        }
+
+        return refreshed;
+    }
+
+    /**
+     * Process watch events until the watcher is closed, reloading once the file has settled after a change.
+     */
+    private void watch() {
+        WatchService service;
+
+        synchronized (this) {
+            service = watchService;
+        }
+
+        try {
+            boolean changed = false;
+
+            while (true) {
+                WatchKey key = changed ? service.poll(settleMillis, TimeUnit.MILLISECONDS) : service.take();
+
+                if (key == null) {
+                    changed = false;
+                    reloadQuietly();
+                    continue;
+                }
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (path.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            /* Watcher has been closed. */
+        }
+    }
+
+    /**
+     * Reload the file, a failed reload is reported and retried on the next change.
+     */
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (IOException | RuntimeException e) {
+            Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+        }
+    }
+
+    /**
+     * Read from a file channel until the buffer is full or the end of file is reached.
+     *
+     * @param fileChannel channel to read
+     * @param buffer buffer to fill
+     * @param position file position to read from
+     * @throws IOException if the read failed
+     */
+    private static void readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+
+        while (buffer.hasRemaining()) {
+            int count = fileChannel.read(buffer, current);
+
+            if (count < 0) {
+                break;
+            }
+
+            current += count;
+        }
+    }
+
+    /**
+     * Calculate the digest of the slot buffer from its start to its limit.
+     *
+     * @return SHA-1 digest
+     */
+    private byte[] digest() {
+        ByteBuffer data = slotBuffer.duplicate();
+        data.rewind();
+
+        messageDigest.reset();
+        messageDigest.update(data);
+        return messageDigest.digest();
+    }
+}
@@ -0,0 +1,126 @@
+package net.melaircraft.owl.library;
+
+import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+import net.melaircraft.owl.library.exception.slot.ResizeWouldTruncateSlotException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BundleTransactionTest {
+    @Test
+    public void testCommitAppliesEveryOperation() {
+        CountingBundle bundle = new CountingBundle(2);
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        Arrays.fill(image, (byte) 0x42);
+
+        bundle.beginTransaction()
+                .changeStorageSize(4)
+                .activate(3)
+                .unlock(3)
+                .insert(3, new ByteBufferDisk(image))
+                .setName(3, "GAMES")
+                .lock(3)
+                .setBootSlot(1, 3)
+                .commit();
+
+        assertEquals(4, bundle.getStorageSize());
+        assertTrue(bundle.isOccupied(3));
+        assertTrue(bundle.isLocked(3));
+        assertEquals("GAMES", bundle.getName(3));
+        assertEquals(3, bundle.getBootSlot(1));
+        assertArrayEquals(image, bundle.extract(3).getImage());
+        assertEquals(1, bundle.flushes);
+    }
+
+    @Test
+    public void testInvalidOperationLeavesBundleUnchanged() {
+        CountingBundle bundle = new CountingBundle(4);
+        bundle.activate(1);
+        bundle.lock(1);
+
+        BundleTransaction transaction = bundle.beginTransaction()
+                .activate(2)
+                .setName(2, "FIRST")
+                .insert(1, new ByteBufferDisk());
+
+        try {
+            transaction.commit();
+            fail("Insert into a locked slot should fail.");
+        } catch (LockedSlotException e) {
+            /* Expected. */
+        }
+
+        assertFalse(bundle.isOccupied(2));
+        assertEquals("", bundle.getName(2));
+        assertEquals(0, bundle.flushes);
+    }
+
+    @Test
+    public void testValidationSeesEarlierOperations() {
+        CountingBundle bundle = new CountingBundle(4);
+        bundle.activate(3);
+        bundle.unlock(3);
+
+        bundle.beginTransaction()
+                .deactivate(3, true)
+                .changeStorageSize(2)
+                .commit();
+
+        assertEquals(2, bundle.getStorageSize());
+        assertFalse(bundle.isOccupied(3));
+    }
+
+    @Test(expected = ResizeWouldTruncateSlotException.class)
+    public void testShrinkOverOccupiedSlotFails() {
+        CountingBundle bundle = new CountingBundle(2);
+
+        bundle.beginTransaction()
+                .changeStorageSize(4)
+                .activate(3)
+                .changeStorageSize(2)
+                .commit();
+    }
+
+    @Test(expected = NoStorageSlotException.class)
+    public void testActivateWithoutStorageFails() {
+        new CountingBundle(2).beginTransaction().activate(5).commit();
+    }
+
+    @Test(expected = InactivateSlotException.class)
+    public void testLockInactiveSlotFails() {
+        new CountingBundle(2).beginTransaction().lock(1).commit();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCommitTwiceFails() {
+        BundleTransaction transaction = new CountingBundle(2).beginTransaction().activate(1);
+
+        transaction.commit();
+        transaction.commit();
+    }
+
+    /**
+     * In memory bundle counting the number of flushes.
+     */
+    private static class CountingBundle extends ByteBufferDiskBundle {
+        /** Number of flushes. */
+        private int flushes;
+
+        CountingBundle(int slots) {
+            super(slots);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
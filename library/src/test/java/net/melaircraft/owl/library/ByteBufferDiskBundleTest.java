@@ -3,6 +3,7 @@ package net.melaircraft.owl.library;
 import net.melaircraft.owl.library.exception.drive.InvalidDriveException;
 import net.melaircraft.owl.library.exception.slot.InactivateSlotException;
 import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotRegionException;
 import net.melaircraft.owl.library.exception.slot.LockedSlotException;
 import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
 import net.melaircraft.owl.library.exception.slot.ResizeWouldTruncateSlotException;
@@ -506,6 +507,105 @@ public class ByteBufferDiskBundleTest {
         assertEquals((byte) 0xff, byteBufferDiskBundle.getByteBuffer().get(DiskBundle.INITIAL_OFFSET + DiskBundle.DISK_SIZE - 1));
     }
 
+    @Test
+    public void testReadRegion() {
+        ByteBufferDiskBundle byteBufferDiskBundle = new ByteBufferDiskBundle(2);
+        byteBufferDiskBundle.getByteBuffer().put(DiskBundle.INITIAL_OFFSET + DiskBundle.DISK_SIZE + 300, (byte) 0xff);
+
+        ByteBuffer target = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        byteBufferDiskBundle.read(1, DiskBundle.SECTOR_SIZE, target);
+
+        assertEquals(DiskBundle.SECTOR_SIZE, target.position());
+        assertEquals((byte) 0xff, target.get(300 - DiskBundle.SECTOR_SIZE));
+    }
+
+    @Test
+    public void testWriteRegion() {
+        ByteBufferDiskBundle byteBufferDiskBundle = new ByteBufferDiskBundle(2);
+
+        ByteBuffer source = ByteBuffer.allocate(2);
+        source.put(0, (byte) 0xff);
+        source.put(1, (byte) 0xfe);
+
+        byteBufferDiskBundle.write(1, DiskBundle.DISK_SIZE - 2, source);
+
+        assertEquals(0, source.remaining());
+        assertEquals((byte) 0xff, byteBufferDiskBundle.getByteBuffer().get(DiskBundle.INITIAL_OFFSET + (2 * DiskBundle.DISK_SIZE) - 2));
+        assertEquals((byte) 0xfe, byteBufferDiskBundle.getByteBuffer().get(DiskBundle.INITIAL_OFFSET + (2 * DiskBundle.DISK_SIZE) - 1));
+    }
+
+    @Test(expected = InvalidSlotRegionException.class)
+    public void testReadRegionBeyondDisk() {
+        new ByteBufferDiskBundle(1).read(0, DiskBundle.DISK_SIZE - 1, ByteBuffer.allocate(2));
+    }
+
+    @Test(expected = NoStorageSlotException.class)
+    public void testReadRegionNoStorage() {
+        new ByteBufferDiskBundle(1).read(1, 0, ByteBuffer.allocate(2));
+    }
+
+    @Test(expected = LockedSlotException.class)
+    public void testWriteRegionLockedSlot() {
+        ByteBufferDiskBundle byteBufferDiskBundle = new ByteBufferDiskBundle(1);
+        byteBufferDiskBundle.activate(0);
+
+        byteBufferDiskBundle.write(0, 0, ByteBuffer.allocate(2));
+    }
+
+    @Test
+    public void testForEachEntryVisitsEverySlot() {
+        ByteBufferDiskBundle byteBufferDiskBundle = new ByteBufferDiskBundle(2);
+        int[] visited = new int[1];
+
+        byteBufferDiskBundle.forEachEntry(entry -> {
+            assertEquals(visited[0], entry.getSlot());
+            assertFalse(entry.isOccupied());
+            assertFalse(entry.isLocked());
+            assertEquals(0, entry.getName().length());
+            visited[0]++;
+        });
+
+        assertEquals(511, visited[0]);
+    }
+
+    @Test
+    public void testForEachEntryReadsCatalogue() {
+        ByteBufferDiskBundle byteBufferDiskBundle = new ByteBufferDiskBundle(2);
+
+        byteBufferDiskBundle.activate(0);
+        byteBufferDiskBundle.setName(0, "LOCKED");
+        byteBufferDiskBundle.activate(1);
+        byteBufferDiskBundle.unlock(1);
+        byteBufferDiskBundle.setName(1, "WRITABLE");
+
+        StringBuilder names = new StringBuilder();
+        boolean[] locked = new boolean[2];
+
+        byteBufferDiskBundle.forEachEntry(entry -> {
+            if (entry.isOccupied()) {
+                names.append(entry.getName()).append(',');
+                locked[entry.getSlot()] = entry.isLocked();
+            }
+        });
+
+        assertEquals("LOCKED,WRITABLE,", names.toString());
+        assertTrue(locked[0]);
+        assertFalse(locked[1]);
+    }
+
+    @Test
+    public void testForEachEntryNameView() {
+        ByteBufferDiskBundle byteBufferDiskBundle = new ByteBufferDiskBundle();
+        byteBufferDiskBundle.setName(5, "ABCDEFGHIJKL");
+
+        CatalogueEntry entry = new CatalogueEntry(byteBufferDiskBundle.getByteBuffer()).moveTo(5);
+
+        assertEquals(12, entry.getName().length());
+        assertEquals('C', entry.getName().charAt(2));
+        assertEquals("DEF", entry.getName().subSequence(3, 6).toString());
+        assertEquals("ABCDEFGHIJKL", entry.getName().toString());
+    }
+
     private void dump(ByteBuffer byteBuffer) {
         for (int i = 0; i < byteBuffer.limit(); i++) {
             if (i % 16 == 0) {
@@ -0,0 +1,153 @@
+package net.melaircraft.owl.library;
+
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import net.melaircraft.owl.library.exception.slot.NoStorageSlotException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CatalogueEditorTest {
+    @Test
+    public void testNewBundleCatalogue() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+
+        for (int slot = 0; slot < 511; slot++) {
+            assertFalse(bundle.isOccupied(slot));
+            assertEquals("", bundle.getName(slot));
+        }
+
+        assertEquals(0, bundle.getBootSlot(0));
+    }
+
+    @Test
+    public void testFlagRanges() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(8);
+
+        CatalogueEditor editor = bundle.editCatalogue()
+                .clearFlags(0, 8, DiskBundle.HEADER_FLAG_DISK_UNFORMATTED)
+                .setFlags(2, 5, DiskBundle.HEADER_FLAG_DISK_WRITEABLE);
+
+        assertFalse(bundle.isOccupied(0));
+
+        editor.apply();
+
+        for (int slot = 0; slot < 8; slot++) {
+            assertTrue(bundle.isOccupied(slot));
+            assertEquals(slot < 2 || slot >= 5, bundle.isLocked(slot));
+        }
+
+        assertFalse(bundle.isOccupied(8));
+    }
+
+    @Test
+    public void testFlagSetsAndRenames() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(8);
+        BitSet slots = new BitSet();
+        slots.set(1);
+        slots.set(6);
+
+        Map<Integer, String> names = new HashMap<>();
+        names.put(1, "GAMES");
+        names.put(6, "UTILITIES");
+
+        bundle.editCatalogue()
+                .clearFlags(slots, DiskBundle.HEADER_FLAG_DISK_UNFORMATTED)
+                .setFlags(slots, DiskBundle.HEADER_FLAG_DISK_WRITEABLE)
+                .rename(names)
+                .apply();
+
+        assertTrue(bundle.isOccupied(1));
+        assertFalse(bundle.isLocked(6));
+        assertFalse(bundle.isOccupied(2));
+        assertEquals("GAMES", bundle.getName(1));
+        assertEquals("UTILITIES", bundle.getName(6));
+
+        bundle.editCatalogue().clearFlags(slots, DiskBundle.HEADER_FLAG_DISK_WRITEABLE).apply();
+
+        assertTrue(bundle.isLocked(1));
+        assertTrue(bundle.isLocked(6));
+    }
+
+    @Test
+    public void testRebuildAndClear() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        bundle.activate(0);
+        bundle.setName(0, "OLD");
+        bundle.setBootSlot(0, 3);
+
+        Map<Integer, String> names = new HashMap<>();
+        names.put(2, "NEW");
+
+        bundle.editCatalogue().rebuild(names).apply();
+
+        assertFalse(bundle.isOccupied(0));
+        assertEquals("", bundle.getName(0));
+        assertEquals(0, bundle.getBootSlot(0));
+        assertTrue(bundle.isOccupied(2));
+        assertTrue(bundle.isLocked(2));
+        assertEquals("NEW", bundle.getName(2));
+
+        bundle.editCatalogue().clear().apply();
+
+        assertFalse(bundle.isOccupied(2));
+        assertEquals("", bundle.getName(2));
+    }
+
+    @Test
+    public void testLittleEndianCatalogue() {
+        ByteBuffer catalogue = ByteBuffer.allocate(DiskBundle.INITIAL_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+
+        AbstractDiskBundle.clearCatalogue(catalogue);
+
+        for (int slot = 0; slot < 511; slot++) {
+            int position = AbstractDiskBundle.getSlotPos(slot);
+
+            assertEquals(0, catalogue.get(position));
+            assertEquals(DiskBundle.HEADER_FLAG_DISK_UNFORMATTED, catalogue.get(position + DiskBundle.HEADER_FLAG_OFFSET));
+        }
+    }
+
+    @Test
+    public void testOccupyingSlotWithoutStorage() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+        CatalogueEditor editor = bundle.editCatalogue()
+                .clearFlags(0, 4, DiskBundle.HEADER_FLAG_DISK_UNFORMATTED);
+
+        try {
+            editor.apply();
+            fail("Expected slot without storage to be rejected.");
+        } catch (NoStorageSlotException e) {
+            assertFalse(bundle.isOccupied(0));
+        }
+    }
+
+    @Test(expected = InvalidSlotException.class)
+    public void testInvalidRange() {
+        new ByteBufferDiskBundle(2).editCatalogue().setFlags(500, 512, DiskBundle.HEADER_FLAG_DISK_WRITEABLE);
+    }
+
+    @Test(expected = InvalidSlotException.class)
+    public void testInvalidSlotSet() {
+        BitSet slots = new BitSet();
+        slots.set(511);
+
+        new ByteBufferDiskBundle(2).editCatalogue().setFlags(slots, DiskBundle.HEADER_FLAG_DISK_WRITEABLE);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testApplyTwice() {
+        CatalogueEditor editor = new ByteBufferDiskBundle(2).editCatalogue();
+
+        editor.apply();
+        editor.apply();
+    }
+}
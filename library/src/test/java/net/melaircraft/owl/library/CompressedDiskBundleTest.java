@@ -0,0 +1,208 @@
+package net.melaircraft.owl.library;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompressedDiskBundleTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCreateIsEmpty() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("empty.owlz");
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.create(path, 10)) {
+            assertEquals(10, bundle.getStorageSize());
+            assertFalse(bundle.isOccupied(0));
+            bundle.activate(5);
+            assertEquals(0, bundle.extract(5).getImage()[1000]);
+        }
+    }
+
+    @Test
+    public void testReadSectorAfterReopen() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("sector.owlz");
+        byte[] sector = new byte[DiskBundle.SECTOR_SIZE];
+        new Random(1).nextBytes(sector);
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.create(path, 4)) {
+            bundle.activate(2);
+            bundle.unlock(2);
+            bundle.setName(2, "SECTOR");
+            bundle.write(2, DiskBundle.SECTOR_SIZE * 405, ByteBuffer.wrap(sector));
+        }
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.open(path)) {
+            ByteBuffer read = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+            bundle.read(2, DiskBundle.SECTOR_SIZE * 405, read);
+
+            assertArrayEquals(sector, read.array());
+            assertEquals("SECTOR", bundle.getName(2));
+            assertFalse(bundle.isLocked(2));
+        }
+    }
+
+    @Test
+    public void testCompressRoundTrip() throws IOException {
+        ByteBufferDiskBundle source = new ByteBufferDiskBundle(6);
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        new Random(2).nextBytes(image);
+
+        source.activate(3);
+        source.unlock(3);
+        source.insert(3, new ByteBufferDisk(image));
+        source.setName(3, "RANDOM");
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("round.owlz");
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.compress(source, path)) {
+            assertArrayEquals(image, bundle.extract(3).getImage());
+            assertArrayEquals(source.getByteBuffer().array(), bundle.toByteBufferDiskBundle().getByteBuffer().array());
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            bundle.writeTo(Channels.newChannel(output));
+            assertArrayEquals(source.getByteBuffer().array(), output.toByteArray());
+        }
+    }
+
+    @Test
+    public void testEmptyTracksTakeNoSpace() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("sparse.owlz");
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.compress(new ByteBufferDiskBundle(511), path)) {
+            assertEquals(511, bundle.getStorageSize());
+        }
+
+        assertTrue(Files.size(path) < DiskBundle.INITIAL_OFFSET + (511 * DiskBundle.TRACKS_PER_DISK * 16) + 64);
+    }
+
+    @Test
+    public void testCompactReclaimsReplacedTracks() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("compact.owlz");
+        byte[] data = new byte[DiskBundle.TRACK_SIZE];
+        Random random = new Random(3);
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.create(path, 2)) {
+            bundle.activate(0);
+            bundle.unlock(0);
+
+            for (int i = 0; i < 5; i++) {
+                random.nextBytes(data);
+                bundle.write(0, 0, ByteBuffer.wrap(data));
+            }
+
+            assertTrue(bundle.getWastedBytes() > 0);
+            long before = Files.size(path);
+
+            bundle.compact();
+
+            assertEquals(0, bundle.getWastedBytes());
+            assertTrue(Files.size(path) < before);
+
+            ByteBuffer read = ByteBuffer.allocate(DiskBundle.TRACK_SIZE);
+            bundle.read(0, 0, read);
+            assertArrayEquals(data, read.array());
+        }
+    }
+
+    @Test
+    public void testCompactedContainerCompleteBeforeFlush() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("complete.owlz");
+        Path copy = temporaryFolder.getRoot().toPath().resolve("copy.owlz");
+        byte[] data = new byte[DiskBundle.TRACK_SIZE];
+        new Random(5).nextBytes(data);
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.create(path, 2)) {
+            bundle.activate(1);
+            bundle.unlock(1);
+            bundle.setName(1, "KEPT");
+            bundle.write(1, DiskBundle.TRACK_SIZE, ByteBuffer.wrap(data));
+            bundle.write(1, DiskBundle.TRACK_SIZE, ByteBuffer.wrap(data));
+
+            bundle.compact();
+
+            /* Copied before the bundle is flushed or closed, as if the process had stopped after compacting. */
+            Files.copy(path, copy);
+        }
+
+        assertFalse(Files.exists(path.resolveSibling("complete.owlz.compact")));
+
+        try (CompressedDiskBundle reopened = CompressedDiskBundle.open(copy)) {
+            ByteBuffer read = ByteBuffer.allocate(DiskBundle.TRACK_SIZE);
+            reopened.read(1, DiskBundle.TRACK_SIZE, read);
+
+            assertArrayEquals(data, read.array());
+            assertEquals("KEPT", reopened.getName(1));
+            assertEquals(0, reopened.getWastedBytes());
+        }
+    }
+
+    @Test
+    public void testTruncatedTrackIsNotReturned() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("truncated.owlz");
+        byte[] first = new byte[DiskBundle.TRACK_SIZE];
+        byte[] second = new byte[DiskBundle.TRACK_SIZE];
+        new Random(6).nextBytes(first);
+        new Random(7).nextBytes(second);
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.create(path, 1)) {
+            bundle.activate(0);
+            bundle.unlock(0);
+            bundle.write(0, 0, ByteBuffer.wrap(first));
+            bundle.write(0, DiskBundle.TRACK_SIZE, ByteBuffer.wrap(second));
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        try (CompressedDiskBundle bundle = CompressedDiskBundle.open(path)) {
+            ByteBuffer read = ByteBuffer.allocate(DiskBundle.TRACK_SIZE);
+            bundle.read(0, 0, read);
+            assertArrayEquals(first, read.array());
+
+            try {
+                bundle.read(0, DiskBundle.TRACK_SIZE, ByteBuffer.allocate(DiskBundle.TRACK_SIZE));
+                fail("Expected truncated track to be rejected.");
+            } catch (UncheckedIOException e) {
+                assertTrue(e.getCause() instanceof EOFException);
+            }
+
+            read.clear();
+            bundle.read(0, 0, read);
+            assertArrayEquals(first, read.array());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedIndexIsRejected() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("index.owlz");
+
+        CompressedDiskBundle.create(path, 1).close();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(DiskBundle.INITIAL_OFFSET);
+        }
+
+        CompressedDiskBundle.open(path).close();
+    }
+}
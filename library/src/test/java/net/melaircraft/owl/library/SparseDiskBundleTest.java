@@ -0,0 +1,90 @@
+package net.melaircraft.owl.library;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SparseDiskBundleTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testEmptyBundleAllocatesNothing() {
+        SparseDiskBundle bundle = new SparseDiskBundle(511);
+
+        bundle.activate(10);
+
+        assertEquals(0, bundle.getAllocatedBytes());
+        assertEquals(0, bundle.extract(10).getImage()[5000]);
+    }
+
+    @Test
+    public void testWriteAllocatesOnlyTouchedTracks() {
+        SparseDiskBundle bundle = new SparseDiskBundle(10);
+        bundle.activate(1);
+        bundle.unlock(1);
+
+        bundle.write(1, DiskBundle.TRACK_SIZE - 2, ByteBuffer.wrap(new byte[]{1, 2, 3, 4}));
+        bundle.write(1, DiskBundle.TRACK_SIZE * 40, ByteBuffer.wrap(new byte[16]));
+
+        assertEquals(DiskBundle.TRACK_SIZE * 2, bundle.getAllocatedBytes());
+
+        ByteBuffer read = ByteBuffer.allocate(6);
+        bundle.read(1, DiskBundle.TRACK_SIZE - 3, read);
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 0}, read.array());
+    }
+
+    @Test
+    public void testWipeReleasesStorage() {
+        SparseDiskBundle bundle = new SparseDiskBundle(10);
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        new Random(1).nextBytes(image);
+
+        bundle.activate(3);
+        bundle.unlock(3);
+        bundle.insert(3, new ByteBufferDisk(image));
+
+        assertEquals(DiskBundle.DISK_SIZE, bundle.getAllocatedBytes());
+
+        bundle.deactivate(3, true);
+
+        assertEquals(0, bundle.getAllocatedBytes());
+    }
+
+    @Test
+    public void testSaveAndReadMatchesByteBufferBundle() throws IOException {
+        ByteBufferDiskBundle reference = new ByteBufferDiskBundle(5);
+        SparseDiskBundle bundle = new SparseDiskBundle(5);
+        byte[] data = new byte[1000];
+        new Random(2).nextBytes(data);
+
+        for (DiskBundle target : new DiskBundle[]{reference, bundle}) {
+            target.activate(4);
+            target.unlock(4);
+            target.setName(4, "SPARSE");
+            target.write(4, 31000, ByteBuffer.wrap(data));
+            target.setBootSlot(1, 4);
+        }
+
+        Path path = temporaryFolder.getRoot().toPath().resolve("sparse.mmb");
+        bundle.save(path);
+
+        assertArrayEquals(reference.getByteBuffer().array(), Files.readAllBytes(path));
+
+        SparseDiskBundle loaded = SparseDiskBundle.read(path);
+
+        assertEquals(5, loaded.getStorageSize());
+        assertEquals("SPARSE", loaded.getName(4));
+        assertEquals(DiskBundle.TRACK_SIZE, loaded.getAllocatedBytes());
+        assertArrayEquals(reference.extract(4).getImage(), loaded.extract(4).getImage());
+    }
+}
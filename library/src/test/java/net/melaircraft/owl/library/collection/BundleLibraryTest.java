@@ -0,0 +1,130 @@
+package net.melaircraft.owl.library.collection;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import net.melaircraft.owl.library.exception.slot.OccupiedSlotException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BundleLibraryTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFindByNameAcrossBundles() throws IOException {
+        Path first = createBundle("first.mmb", 2, "GAMES");
+        Path second = createBundle("second.mmb", 2, "UTILS");
+
+        try (BundleLibrary library = new BundleLibrary(temporaryFolder.getRoot().toPath().resolve("library.idx"))) {
+            library.addBundle(first);
+            library.addBundle(second);
+
+            List<LibraryEntry> found = library.findByName("utils");
+
+            assertEquals(1, found.size());
+            assertEquals(0, found.get(0).getLocation().getSlot());
+            assertEquals(second.toAbsolutePath().normalize(), found.get(0).getLocation().getBundle());
+        }
+    }
+
+    @Test
+    public void testNextFreeSlotSkipsFullBundles() throws IOException {
+        Path full = createBundle("full.mmb", 1, "FULL");
+        Path empty = createBundle("empty.mmb", 2, null);
+
+        try (BundleLibrary library = new BundleLibrary(temporaryFolder.getRoot().toPath().resolve("library.idx"))) {
+            library.addBundle(full);
+            library.addBundle(empty);
+
+            Optional<SlotLocation> free = library.nextFreeSlot();
+
+            assertTrue(free.isPresent());
+            assertEquals(empty.toAbsolutePath().normalize(), free.get().getBundle());
+            assertEquals(0, free.get().getSlot());
+        }
+    }
+
+    @Test
+    public void testIndexPersistsAcrossLoads() throws IOException {
+        Path bundle = createBundle("bundle.mmb", 2, "PERSIST");
+        Path indexPath = temporaryFolder.getRoot().toPath().resolve("library.idx");
+
+        try (BundleLibrary library = new BundleLibrary(indexPath)) {
+            library.addBundle(bundle);
+            library.save();
+        }
+
+        try (BundleLibrary library = BundleLibrary.load(indexPath)) {
+            List<LibraryEntry> found = library.findByName("PERSIST");
+
+            assertEquals(1, found.size());
+            assertEquals(1, library.getBundles().size());
+        }
+    }
+
+    @Test
+    public void testMoveBetweenBundles() throws IOException {
+        Path first = createBundle("first.mmb", 2, "MOVING");
+        Path second = createBundle("second.mmb", 2, null);
+
+        try (BundleLibrary library = new BundleLibrary(temporaryFolder.getRoot().toPath().resolve("library.idx"))) {
+            library.addBundle(first);
+            library.addBundle(second);
+
+            byte[] hash = library.findByName("MOVING").get(0).getHash();
+
+            library.move(new SlotLocation(first, 0), new SlotLocation(second, 1));
+
+            DiskBundle target = library.getBundle(second);
+            DiskBundle source = library.getBundle(first);
+
+            assertTrue(target.isOccupied(1));
+            assertEquals("MOVING", target.getName(1));
+            assertEquals((byte) 0xaa, target.extract(1).getImage()[DiskBundle.DISK_SIZE - 1]);
+            assertFalse(source.isOccupied(0));
+
+            List<LibraryEntry> found = library.findByHash(hash);
+            assertEquals(1, found.size());
+            assertEquals(1, found.get(0).getLocation().getSlot());
+        }
+    }
+
+    @Test(expected = OccupiedSlotException.class)
+    public void testMoveToOccupiedSlot() throws IOException {
+        Path first = createBundle("first.mmb", 1, "A");
+        Path second = createBundle("second.mmb", 1, "B");
+
+        try (BundleLibrary library = new BundleLibrary(temporaryFolder.getRoot().toPath().resolve("library.idx"))) {
+            library.move(new SlotLocation(first, 0), new SlotLocation(second, 0));
+        }
+    }
+
+    private Path createBundle(String fileName, int slots, String name) throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve(fileName);
+
+        try (FileChannelDiskBundle bundle = FileChannelDiskBundle.create(path, slots)) {
+            if (name != null) {
+                ByteBufferDisk disk = new ByteBufferDisk();
+                disk.getByteBuffer().put(DiskBundle.DISK_SIZE - 1, (byte) 0xaa);
+
+                bundle.insert(0, disk);
+                bundle.activate(0);
+                bundle.unlock(0);
+                bundle.setName(0, name);
+            }
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,96 @@
+package net.melaircraft.owl.library.dfs;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.exception.dfs.InvalidCatalogueException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DfsCatalogueTest {
+    @Test
+    public void testParseCatalogue() {
+        ByteBuffer catalogue = ByteBuffer.allocate(DfsCatalogue.CATALOGUE_SIZE);
+        writeText(catalogue, 0, "GAMESDIS");
+        writeText(catalogue, 256, "K1");
+        catalogue.put(256 + 4, (byte) 0x12);
+        catalogue.put(256 + 5, (byte) 16);
+        catalogue.put(256 + 6, (byte) 0x33);
+        catalogue.put(256 + 7, (byte) 0x20);
+
+        writeText(catalogue, 8, "!BOOT  ");
+        catalogue.put(15, (byte) ('$' | 0x80));
+        catalogue.put(256 + 8 + 4, (byte) 0x00);
+        catalogue.put(256 + 8 + 5, (byte) 0x02);
+        catalogue.put(256 + 8 + 7, (byte) 0x02);
+
+        writeText(catalogue, 16, "LOADER ");
+        catalogue.put(23, (byte) 'G');
+        catalogue.put(256 + 16, (byte) 0x00);
+        catalogue.put(256 + 17, (byte) 0x19);
+        catalogue.put(256 + 18, (byte) 0x23);
+        catalogue.put(256 + 19, (byte) 0x80);
+        catalogue.put(256 + 20, (byte) 0x01);
+        catalogue.put(256 + 22, (byte) 0xdd);
+        catalogue.put(256 + 23, (byte) 0x04);
+
+        DfsCatalogue parsed = DfsCatalogue.parse(catalogue);
+
+        assertEquals("GAMESDISK1", parsed.getTitle());
+        assertEquals(0x12, parsed.getCycle());
+        assertEquals(3, parsed.getBootOption());
+        assertEquals(800, parsed.getSectorCount());
+        assertEquals(2, parsed.getFiles().size());
+
+        DfsFile boot = parsed.getFiles().get(0);
+        assertEquals("$.!BOOT", boot.getFullName());
+        assertTrue(boot.isLocked());
+        assertEquals(512, boot.getLength());
+        assertEquals(2, boot.getSectorCount());
+
+        DfsFile loader = parsed.getFiles().get(1);
+        assertEquals('G', loader.getDirectory());
+        assertFalse(loader.isLocked());
+        assertEquals(0x31900, loader.getLoadAddress());
+        assertEquals(0x38023, loader.getExecAddress());
+        assertEquals(0x10001, loader.getLength());
+        assertEquals(0x104, loader.getStartSector());
+        assertEquals(257, loader.getSectorCount());
+
+        BitSet used = parsed.getUsedSectors();
+        assertTrue(used.get(0));
+        assertTrue(used.get(3));
+        assertFalse(used.get(4));
+        assertTrue(used.get(0x104 + 256));
+        assertFalse(used.get(0x104 + 257));
+    }
+
+    @Test
+    public void testReadFromBundle() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+        bundle.activate(1);
+
+        DfsCatalogue parsed = DfsCatalogue.read(bundle, 1);
+
+        assertEquals("", parsed.getTitle());
+        assertTrue(parsed.getFiles().isEmpty());
+    }
+
+    @Test(expected = InvalidCatalogueException.class)
+    public void testMisalignedFileOffsetIsInvalid() {
+        ByteBuffer catalogue = ByteBuffer.allocate(DfsCatalogue.CATALOGUE_SIZE);
+        catalogue.put(256 + 5, (byte) 3);
+
+        DfsCatalogue.parse(catalogue);
+    }
+
+    private static void writeText(ByteBuffer catalogue, int position, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            catalogue.put(position + i, (byte) text.charAt(i));
+        }
+    }
+}
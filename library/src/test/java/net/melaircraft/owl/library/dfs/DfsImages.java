@@ -0,0 +1,121 @@
+package net.melaircraft.owl.library.dfs;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+
+/**
+ * Builds DFS disk images and bundles holding them for tests.
+ */
+public final class DfsImages {
+    /**
+     * Utility class, not constructed.
+     */
+    private DfsImages() {
+    }
+
+    /**
+     * Create a file in the $ directory with no load or execution address.
+     *
+     * @param name file name, up to 7 characters
+     * @param length length in bytes
+     * @param startSector first sector of the file
+     * @return file
+     */
+    public static DfsFile file(String name, int length, int startSector) {
+        return new DfsFile('$', name, false, 0, 0, length, startSector);
+    }
+
+    /**
+     * Create a full sized disk image whose catalogue lists files, with the sector count of a full disk. Only the
+     * catalogue is written, the sectors of the files are left as 0x00.
+     *
+     * @param files files in catalogue order
+     * @return disk image
+     */
+    public static byte[] create(DfsFile... files) {
+        return create(DfsCatalogue.DISK_SECTORS, files);
+    }
+
+    /**
+     * Create a full sized disk image whose catalogue lists files.
+     *
+     * @param sectorCount sector count recorded in the catalogue
+     * @param files files in catalogue order
+     * @return disk image
+     */
+    public static byte[] create(int sectorCount, DfsFile... files) {
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        int sector1 = DiskBundle.SECTOR_SIZE;
+
+        image[sector1 + 5] = (byte) (files.length * 8);
+        image[sector1 + 6] = (byte) ((sectorCount >> 8) & 0x03);
+        image[sector1 + 7] = (byte) sectorCount;
+
+        for (int index = 0; index < files.length; index++) {
+            DfsFile file = files[index];
+            int entry = 8 * (index + 1);
+
+            for (int i = 0; i < 7; i++) {
+                image[entry + i] = (byte) (i < file.getName().length() ? file.getName().charAt(i) : ' ');
+            }
+
+            image[entry + 7] = (byte) (file.getDirectory() | (file.isLocked() ? 0x80 : 0));
+
+            putShort(image, sector1 + entry, file.getLoadAddress());
+            putShort(image, sector1 + entry + 2, file.getExecAddress());
+            putShort(image, sector1 + entry + 4, file.getLength());
+            image[sector1 + entry + 6] = (byte) (((file.getExecAddress() >> 16) & 0x03) << 6
+                    | ((file.getLength() >> 16) & 0x03) << 4
+                    | ((file.getLoadAddress() >> 16) & 0x03) << 2
+                    | ((file.getStartSector() >> 8) & 0x03));
+            image[sector1 + entry + 7] = (byte) file.getStartSector();
+        }
+
+        return image;
+    }
+
+    /**
+     * Write a disk image into a slot, activating the slot and leaving it writable.
+     *
+     * @param bundle bundle to write to
+     * @param slot slot number (0 - 510)
+     * @param image disk image
+     */
+    public static void insert(DiskBundle bundle, int slot, byte[] image) {
+        if (!bundle.isOccupied(slot)) {
+            bundle.activate(slot);
+        }
+
+        bundle.unlock(slot);
+        bundle.insert(slot, new ByteBufferDisk(image));
+    }
+
+    /**
+     * Create an in memory bundle holding disk images in its first slots, each activated and writable.
+     *
+     * @param images disk images, in slot order
+     * @return bundle with storage for exactly the images given
+     */
+    public static ByteBufferDiskBundle createBundle(byte[]... images) {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(images.length);
+
+        for (int slot = 0; slot < images.length; slot++) {
+            insert(bundle, slot, images[slot]);
+        }
+
+        return bundle;
+    }
+
+    /**
+     * Write a little endian 16 bit value, the low 16 bits of a value.
+     *
+     * @param image image to write to
+     * @param position position of the low byte
+     * @param value value to write
+     */
+    private static void putShort(byte[] image, int position, int value) {
+        image[position] = (byte) value;
+        image[position + 1] = (byte) (value >> 8);
+    }
+}
@@ -0,0 +1,151 @@
+package net.melaircraft.owl.library.diff;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsFile;
+import net.melaircraft.owl.library.dfs.DfsImages;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskDifferTest {
+    @Test
+    public void testIdenticalSlots() {
+        ByteBufferDiskBundle bundle = DfsImages.createBundle(createDfsImage("ALPHA", "BETA"), createDfsImage("ALPHA", "BETA"));
+
+        DiskDiff diff = DiskDiffer.compare(bundle, 0, 1);
+
+        assertTrue(diff.isIdentical());
+        assertTrue(diff.hasFileSystem());
+        assertTrue(diff.getFileChanges().isEmpty());
+        assertTrue(diff.getChangedRanges().isEmpty());
+    }
+
+    @Test
+    public void testChangedRangesAndTracks() {
+        byte[] first = new byte[DiskBundle.DISK_SIZE];
+        byte[] second = new byte[DiskBundle.DISK_SIZE];
+        Arrays.fill(first, (byte) 0xe5);
+        Arrays.fill(second, (byte) 0xe5);
+
+        second[(5 * DiskBundle.SECTOR_SIZE) + 17] = 1;
+        second[20 * DiskBundle.SECTOR_SIZE] = 1;
+        second[(21 * DiskBundle.SECTOR_SIZE) + 100] = 1;
+        second[(23 * DiskBundle.SECTOR_SIZE) - 1] = 1;
+        second[DiskBundle.DISK_SIZE - 1] = 1;
+
+        DiskDiff diff = DiskDiffer.compare(DfsImages.createBundle(first, second), 0, 1);
+
+        assertFalse(diff.isIdentical());
+        assertEquals(5, diff.getChangedSectorCount());
+        assertEquals(Arrays.asList(new SectorRange(5, 1), new SectorRange(20, 3), new SectorRange(799, 1)), diff.getChangedRanges());
+
+        BitSet tracks = new BitSet();
+        tracks.set(0);
+        tracks.set(2);
+        tracks.set(79);
+        assertEquals(tracks, diff.getChangedTracks());
+    }
+
+    @Test
+    public void testFileChanges() {
+        byte[] first = createDfsImage("ALPHA", "BETA");
+        byte[] second = createDfsImage("BETA", "GAMMA");
+        second[(3 * DiskBundle.SECTOR_SIZE) + 10] = 0x55;
+
+        DiskDiff diff = DiskDiffer.compare(DfsImages.createBundle(first, second), 0, 1);
+
+        assertEquals(Arrays.asList(
+                new FileChange("$.ALPHA", FileChange.Kind.REMOVED),
+                new FileChange("$.BETA", FileChange.Kind.MODIFIED),
+                new FileChange("$.GAMMA", FileChange.Kind.ADDED)), diff.getFileChanges());
+    }
+
+    @Test
+    public void testChangeOutsideFilesModifiesNoFile() {
+        byte[] first = createDfsImage("ALPHA", "BETA");
+        byte[] second = createDfsImage("ALPHA", "BETA");
+        second[(4 * DiskBundle.SECTOR_SIZE) + 10] = 0x55;
+
+        DiskDiff diff = DiskDiffer.compare(DfsImages.createBundle(first, second), 0, 1);
+
+        assertEquals(1, diff.getChangedSectorCount());
+        assertTrue(diff.hasFileSystem());
+        assertTrue(diff.getFileChanges().isEmpty());
+    }
+
+    @Test
+    public void testSlotAgainstDiskWithoutView() {
+        byte[] first = createDfsImage("ALPHA", "BETA");
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(1) {
+            @Override
+            public ByteBuffer viewData(int slot) {
+                return null;
+            }
+        };
+        bundle.insert(0, new ByteBufferDisk(first));
+
+        assertNull(bundle.viewData(0));
+        assertTrue(DiskDiffer.compare(bundle, 0, new ByteBufferDisk(first)).isIdentical());
+
+        byte[] shortImage = Arrays.copyOf(first, 3 * DiskBundle.SECTOR_SIZE);
+        DiskDiff diff = DiskDiffer.compare(bundle, 0, () -> shortImage);
+
+        assertEquals(Arrays.asList(new SectorRange(3, 1)), diff.getChangedRanges());
+        assertEquals(Arrays.asList(new FileChange("$.BETA", FileChange.Kind.MODIFIED)), diff.getFileChanges());
+    }
+
+    @Test
+    public void testNonDfsDisks() {
+        byte[] first = new byte[DiskBundle.DISK_SIZE];
+        first[256 + 5] = 3;
+        byte[] second = first.clone();
+        second[1000] = 1;
+
+        DiskDiff diff = DiskDiffer.compare(DfsImages.createBundle(first, second), 0, 1);
+
+        assertFalse(diff.hasFileSystem());
+        assertTrue(diff.getFileChanges().isEmpty());
+        assertEquals(1, diff.getChangedSectorCount());
+    }
+
+    /**
+     * Create a DFS disk whose files each fill one sector with the first letter of their name, ALPHA in sector 2, BETA
+     * in sector 3 and any other name in sector 5.
+     */
+    private static byte[] createDfsImage(String... names) {
+        DfsFile[] files = new DfsFile[names.length];
+
+        for (int index = 0; index < names.length; index++) {
+            files[index] = DfsImages.file(names[index], DiskBundle.SECTOR_SIZE, sectorOf(names[index]));
+        }
+
+        byte[] image = DfsImages.create(files);
+
+        for (DfsFile file : files) {
+            int start = file.getStartSector() * DiskBundle.SECTOR_SIZE;
+            Arrays.fill(image, start, start + DiskBundle.SECTOR_SIZE, (byte) file.getName().charAt(0));
+        }
+
+        return image;
+    }
+
+    private static int sectorOf(String name) {
+        switch (name) {
+            case "ALPHA":
+                return 2;
+            case "BETA":
+                return 3;
+            default:
+                return 5;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package net.melaircraft.owl.library.drive;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.exception.drive.DriveNotMountedException;
+import net.melaircraft.owl.library.exception.drive.InvalidSectorException;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualDrivesTest {
+    @Test
+    public void testSectorsOfTrackReadOnce() {
+        CountingBundle bundle = new CountingBundle();
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        image[DiskBundle.TRACK_SIZE * 2 + DiskBundle.SECTOR_SIZE * 3] = 0x55;
+        bundle.insert(4, new ByteBufferDisk(image));
+        bundle.reads = 0;
+
+        VirtualDrive drive = new VirtualDrives(bundle).mount(0, 4);
+        ByteBuffer sector = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+
+        for (int i = 0; i < DiskBundle.SECTORS_PER_TRACK; i++) {
+            sector.clear();
+            drive.readSector(2, i, sector);
+
+            if (i == 3) {
+                assertEquals(0x55, sector.get(0));
+            }
+        }
+
+        assertEquals(1, bundle.reads);
+    }
+
+    @Test
+    public void testWritesCoalescedIntoOneWriteBack() {
+        CountingBundle bundle = new CountingBundle();
+        VirtualDrives drives = new VirtualDrives(bundle);
+        VirtualDrive drive = drives.mount(1, 4);
+
+        byte[] data = new byte[DiskBundle.SECTOR_SIZE];
+
+        for (int i = 2; i < 6; i++) {
+            Arrays.fill(data, (byte) i);
+            drive.writeSector(7, i, ByteBuffer.wrap(data));
+        }
+
+        assertEquals(0, bundle.writes);
+
+        drives.flush();
+
+        assertEquals(1, bundle.writes);
+
+        ByteBuffer read = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        bundle.read(4, DiskBundle.TRACK_SIZE * 7 + DiskBundle.SECTOR_SIZE * 5, read);
+        Arrays.fill(data, (byte) 5);
+        assertArrayEquals(data, read.array());
+    }
+
+    @Test
+    public void testRemountWritesBackChanges() {
+        CountingBundle bundle = new CountingBundle();
+        bundle.activate(5);
+        VirtualDrives drives = new VirtualDrives(bundle);
+
+        drives.mount(0, 4).writeSector(0, 0, ByteBuffer.wrap(new byte[DiskBundle.SECTOR_SIZE]));
+        drives.mount(0, 5);
+
+        assertEquals(1, bundle.writes);
+        assertEquals(5, drives.getDrive(0).getSlot());
+    }
+
+    @Test(expected = LockedSlotException.class)
+    public void testLockedSlotIsWriteProtected() {
+        CountingBundle bundle = new CountingBundle();
+        bundle.lock(4);
+
+        VirtualDrive drive = new VirtualDrives(bundle).mount(0, 4);
+
+        assertTrue(drive.isWriteProtected());
+        drive.writeSector(0, 0, ByteBuffer.wrap(new byte[DiskBundle.SECTOR_SIZE]));
+    }
+
+    @Test
+    public void testLockAfterMountIsSeen() throws InterruptedException {
+        CountingBundle bundle = new CountingBundle();
+        VirtualDrive drive = new VirtualDrives(bundle).mount(0, 4);
+
+        bundle.lock(4);
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while (!drive.isWriteProtected() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(drive.isWriteProtected());
+    }
+
+    @Test
+    public void testChangesDiscardedWhenLockedBeforeWriteBack() {
+        CountingBundle bundle = new CountingBundle();
+        VirtualDrives drives = new VirtualDrives(bundle);
+        VirtualDrive drive = drives.mount(0, 4);
+
+        byte[] data = new byte[DiskBundle.SECTOR_SIZE];
+        Arrays.fill(data, (byte) 0x55);
+        drive.writeSector(3, 0, ByteBuffer.wrap(data));
+
+        bundle.lock(4);
+
+        /* Neither moving to another track nor remounting may fail on the discarded write back. */
+        drive.readSector(4, 0, ByteBuffer.allocate(DiskBundle.SECTOR_SIZE));
+        drives.mount(0, 4);
+
+        ByteBuffer read = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        bundle.read(4, DiskBundle.TRACK_SIZE * 3, read);
+        assertArrayEquals(new byte[DiskBundle.SECTOR_SIZE], read.array());
+        assertTrue(drive.isWriteProtected());
+    }
+
+    @Test
+    public void testMountBootSlots() {
+        CountingBundle bundle = new CountingBundle();
+        bundle.setBootSlot(2, 4);
+        bundle.setBootSlot(3, 7);
+
+        VirtualDrives drives = new VirtualDrives(bundle);
+        drives.mountBootSlots();
+
+        assertEquals(4, drives.getDrive(2).getSlot());
+        assertEquals(VirtualDrive.NOT_MOUNTED, drives.getDrive(3).getSlot());
+    }
+
+    @Test(expected = DriveNotMountedException.class)
+    public void testUnmountedDriveFails() {
+        new VirtualDrives(new CountingBundle()).getDrive(0).readSector(0, 0, ByteBuffer.allocate(DiskBundle.SECTOR_SIZE));
+    }
+
+    @Test(expected = InvalidSectorException.class)
+    public void testInvalidSectorFails() {
+        new VirtualDrives(new CountingBundle()).mount(0, 4).readSector(0, 10, ByteBuffer.allocate(DiskBundle.SECTOR_SIZE));
+    }
+
+    /**
+     * In memory bundle counting reads and writes of disk image data, with slot 4 occupied and writable.
+     */
+    private static class CountingBundle extends ByteBufferDiskBundle {
+        /** Number of data reads. */
+        private int reads;
+        /** Number of data writes. */
+        private int writes;
+
+        CountingBundle() {
+            super(10);
+            activate(4);
+            unlock(4);
+        }
+
+        @Override
+        protected void readData(int slot, int offset, ByteBuffer target) {
+            reads++;
+            super.readData(slot, offset, target);
+        }
+
+        @Override
+        protected void writeData(int slot, int offset, ByteBuffer source) {
+            writes++;
+            super.writeData(slot, offset, source);
+        }
+    }
+}
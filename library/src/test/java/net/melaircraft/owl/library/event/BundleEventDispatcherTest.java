@@ -0,0 +1,162 @@
+package net.melaircraft.owl.library.event;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BundleEventDispatcherTest {
+    @Test
+    public void testSingleChangeIsDelivered() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(1);
+        RecordingListener listener = new RecordingListener(1);
+        bundle.addListener(listener);
+
+        bundle.activate(0);
+
+        BundleChangeEvent event = listener.await();
+        assertTrue(event.contains(ChangeType.ACTIVATED));
+        assertTrue(event.getSlots(ChangeType.ACTIVATED).get(0));
+        assertTrue(event.getBundle() == bundle);
+    }
+
+    @Test
+    public void testBatchIsCoalesced() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(511);
+        RecordingListener listener = new RecordingListener(1);
+        bundle.addListener(listener);
+
+        try (ChangeBatch ignored = bundle.batchChanges()) {
+            for (int slot = 0; slot < 500; slot++) {
+                bundle.insert(slot, new ByteBufferDisk());
+                bundle.activate(slot);
+                bundle.setName(slot, "DISK" + slot);
+            }
+        }
+
+        BundleChangeEvent event = listener.await();
+
+        assertEquals(500, event.getSlots(ChangeType.INSERTED).cardinality());
+        assertEquals(500, event.getSlots(ChangeType.ACTIVATED).cardinality());
+        assertEquals(500, event.getSlots(ChangeType.RENAMED).cardinality());
+        assertEquals(500, event.getAffectedSlots().cardinality());
+
+        Thread.sleep(50);
+        assertEquals(1, listener.events.size());
+    }
+
+    @Test
+    public void testBootSlotRecordsDrive() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(1);
+        RecordingListener listener = new RecordingListener(1);
+        bundle.addListener(listener);
+
+        bundle.setBootSlot(3, 200);
+
+        BitSet drives = listener.await().getSlots(ChangeType.BOOT_SLOT_CHANGED);
+        assertEquals(1, drives.cardinality());
+        assertTrue(drives.get(3));
+    }
+
+    @Test
+    public void testListenerDoesNotStallMutation() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener recording = new RecordingListener(1);
+
+        bundle.addListener(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        bundle.addListener(recording);
+
+        /* Every change must complete while the first listener is still blocked. */
+        bundle.activate(0);
+        bundle.activate(1);
+        bundle.unlock(1);
+
+        release.countDown();
+        recording.await();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        BitSet unlocked = new BitSet();
+
+        while (!unlocked.get(1) && System.currentTimeMillis() < deadline) {
+            synchronized (recording) {
+                for (BundleChangeEvent event : recording.events) {
+                    unlocked.or(event.getSlots(ChangeType.LOCK_CHANGED));
+                }
+            }
+
+            Thread.sleep(10);
+        }
+
+        assertTrue(unlocked.get(1));
+    }
+
+    @Test
+    public void testUnchangedLockNotFired() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(1);
+        bundle.activate(0);
+
+        RecordingListener listener = new RecordingListener(1);
+        bundle.addListener(listener);
+
+        /* A newly activated slot is already locked. */
+        bundle.lock(0);
+
+        assertFalse(listener.latch.await(100, TimeUnit.MILLISECONDS));
+
+        bundle.unlock(0);
+        bundle.unlock(0);
+
+        assertTrue(listener.await().getSlots(ChangeType.LOCK_CHANGED).get(0));
+    }
+
+    @Test
+    public void testRemovedListenerNotCalled() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(1);
+        RecordingListener listener = new RecordingListener(1);
+
+        bundle.addListener(listener);
+        bundle.removeListener(listener);
+        bundle.activate(0);
+
+        assertFalse(listener.latch.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    private static class RecordingListener implements BundleListener {
+        private final List<BundleChangeEvent> events = new ArrayList<>();
+        private final CountDownLatch latch;
+
+        private RecordingListener(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public synchronized void bundleChanged(BundleChangeEvent event) {
+            events.add(event);
+            latch.countDown();
+        }
+
+        private BundleChangeEvent await() throws InterruptedException {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            synchronized (this) {
+                return events.get(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package net.melaircraft.owl.library.fsck;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsImages;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BundleCheckerTest {
+    @Test
+    public void testValidBundleIsClean() {
+        ByteBufferDiskBundle bundle = createBundle();
+        DfsImages.insert(bundle, 4, DfsImages.create(DfsImages.file("A", 512, 2), DfsImages.file("B", 300, 4)));
+
+        CheckReport report = new BundleChecker().check(bundle);
+
+        assertTrue(report.getProblems().toString(), report.isClean());
+    }
+
+    @Test
+    public void testBootSlotInactiveIsRepaired() {
+        ByteBufferDiskBundle bundle = createBundle();
+        bundle.setBootSlot(2, 50);
+
+        CheckReport report = new BundleChecker().check(bundle, true);
+
+        assertEquals(1, report.getProblems(ProblemType.BOOT_SLOT_INACTIVE).size());
+        assertEquals(1, report.getRepaired().size());
+        assertEquals(2, bundle.getBootSlot(2));
+        assertTrue(new BundleChecker().check(bundle).isClean());
+    }
+
+    @Test
+    public void testBootSlotMovedToOccupiedSlot() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(10);
+        bundle.activate(7);
+
+        CheckReport report = new BundleChecker().check(bundle, true);
+
+        assertEquals(4, report.getProblems(ProblemType.BOOT_SLOT_INACTIVE).size());
+        assertEquals(4, report.getRepaired().size());
+
+        for (int drive = 0; drive < 4; drive++) {
+            assertEquals(7, bundle.getBootSlot(drive));
+        }
+
+        assertTrue(new BundleChecker().check(bundle).isClean());
+    }
+
+    @Test
+    public void testBootSlotNotRepairedWithoutOccupiedSlot() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(10);
+
+        CheckReport report = new BundleChecker().check(bundle, true);
+
+        assertEquals(4, report.getProblems(ProblemType.BOOT_SLOT_INACTIVE).size());
+        assertTrue(report.getRepaired().isEmpty());
+        assertEquals(4, report.getRemaining().size());
+    }
+
+    @Test
+    public void testInvalidFlagsAreRepaired() {
+        ByteBufferDiskBundle bundle = createBundle();
+        bundle.getByteBuffer().put(16 * 6 + 15, (byte) 0x3f);
+        bundle.getByteBuffer().put(16 * 7 + 15, (byte) 0xf3);
+
+        CheckReport report = new BundleChecker().check(bundle, true);
+
+        assertEquals(2, report.getProblems(ProblemType.INVALID_FLAGS).size());
+        assertTrue(report.getRemaining().isEmpty());
+        assertEquals(DiskBundle.HEADER_FLAG_DISK_WRITEABLE, bundle.getByteBuffer().get(16 * 6 + 15));
+        assertEquals(DiskBundle.HEADER_FLAG_DISK_UNFORMATTED, bundle.getByteBuffer().get(16 * 7 + 15));
+    }
+
+    @Test
+    public void testOccupiedSlotWithoutStorage() {
+        ByteBufferDiskBundle bundle = createBundle();
+        bundle.getByteBuffer().put(16 * 101 + 15, (byte) 0x00);
+
+        CheckReport report = new BundleChecker().check(bundle, true);
+
+        assertEquals(1, report.getProblems(ProblemType.OCCUPIED_WITHOUT_STORAGE).size());
+        assertFalse(bundle.isOccupied(100));
+    }
+
+    @Test
+    public void testDfsProblemsAreReported() {
+        ByteBufferDiskBundle bundle = createBundle();
+        DfsImages.insert(bundle, 4, DfsImages.create(DfsImages.file("A", 1024, 2), DfsImages.file("B", 300, 5), DfsImages.file("C", 1000, 798)));
+
+        CheckReport report = new BundleChecker().check(bundle, true);
+
+        assertEquals(1, report.getProblems(ProblemType.DFS_OVERLAPPING_FILES).size());
+        assertEquals(1, report.getProblems(ProblemType.DFS_FILE_OUT_OF_RANGE).size());
+        assertTrue(report.getRepaired().isEmpty());
+    }
+
+    private static ByteBufferDiskBundle createBundle() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(20);
+
+        for (int slot = 0; slot < 20; slot++) {
+            bundle.activate(slot);
+            bundle.unlock(slot);
+        }
+
+        return bundle;
+    }
+}
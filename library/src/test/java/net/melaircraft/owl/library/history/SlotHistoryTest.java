@@ -0,0 +1,139 @@
+package net.melaircraft.owl.library.history;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SlotHistoryTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyChangedTracksAreStored() throws IOException {
+        ByteBufferDiskBundle bundle = createBundle();
+        SlotHistory history = SlotHistory.open(temporaryFolder.getRoot().toPath());
+
+        SlotVersion first = history.record(bundle, 0);
+        assertEquals(2, history.getChunkCount());
+        assertEquals(0, history.record(bundle, 0).getIndex());
+        assertEquals(1, history.getVersions(0).size());
+        assertEquals(first.getRecorded(), history.getVersion(0, 0).getRecorded());
+
+        bundle.insert(0, new ByteBufferDisk(createImage(5)));
+        SlotVersion second = history.record(bundle, 0);
+        assertEquals(1, second.getIndex());
+        assertEquals(3, history.getChunkCount());
+
+        bundle.activate(1);
+        bundle.unlock(1);
+        bundle.insert(1, new ByteBufferDisk(createImage(5)));
+        assertEquals(1, history.recordAll(bundle));
+        assertEquals(3, history.getChunkCount());
+        assertEquals(1, history.getVersions(1).size());
+        assertEquals(2, history.getVersions(0).size());
+        assertEquals("GAMES", history.getVersions(0).get(0).getName());
+    }
+
+    @Test
+    public void testRestoreEarlierVersion() throws IOException {
+        ByteBufferDiskBundle bundle = createBundle();
+        SlotHistory history = SlotHistory.open(temporaryFolder.getRoot().toPath());
+
+        history.record(bundle, 0);
+        bundle.insert(0, new ByteBufferDisk(createImage(5)));
+        bundle.setName(0, "OVERWRITTEN");
+        history.record(bundle, 0);
+
+        SlotHistory reopened = SlotHistory.open(temporaryFolder.getRoot().toPath());
+        reopened.restore(reopened.getVersion(0, 0), bundle, 0);
+        reopened.restore(reopened.getVersion(0, 1), bundle, 2);
+
+        assertArrayEquals(createImage(0), bundle.extract(0).getImage());
+        assertEquals("GAMES", bundle.getName(0));
+        assertArrayEquals(createImage(5), bundle.extract(2).getImage());
+        assertEquals("OVERWRITTEN", bundle.getName(2));
+        assertTrue(bundle.isOccupied(2));
+    }
+
+    @Test
+    public void testPartialRecordIgnored() throws IOException {
+        ByteBufferDiskBundle bundle = createBundle();
+        Path directory = temporaryFolder.getRoot().toPath();
+        SlotHistory history = SlotHistory.open(directory);
+
+        history.record(bundle, 0);
+        Files.write(directory.resolve("slots").resolve("0"), new byte[100], StandardOpenOption.APPEND);
+        assertEquals(1, history.getVersions(0).size());
+
+        bundle.insert(0, new ByteBufferDisk(createImage(5)));
+        history.record(bundle, 0);
+        assertEquals(2, history.getVersions(0).size());
+        assertEquals(1, history.getVersions(0).get(1).getIndex());
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptChunkDetected() throws IOException {
+        ByteBufferDiskBundle bundle = createBundle();
+        Path directory = temporaryFolder.getRoot().toPath();
+        SlotHistory history = SlotHistory.open(directory);
+
+        SlotVersion version = history.record(bundle, 0);
+
+        try (Stream<Path> files = Files.walk(directory.resolve("chunks"))) {
+            files.filter(Files::isRegularFile).forEach(chunk -> {
+                try {
+                    Files.write(chunk, new byte[DiskBundle.TRACK_SIZE]);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        history.restore(version, bundle, 0);
+    }
+
+    @Test
+    public void testEmptyHistory() throws IOException {
+        SlotHistory history = SlotHistory.open(temporaryFolder.getRoot().toPath().resolve("new"));
+
+        List<SlotVersion> versions = history.getVersions(7);
+        assertTrue(versions.isEmpty());
+        assertFalse(Files.exists(temporaryFolder.getRoot().toPath().resolve("new").resolve("slots").resolve("7")));
+    }
+
+    private static ByteBufferDiskBundle createBundle() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(3);
+        bundle.activate(0);
+        bundle.unlock(0);
+        bundle.setName(0, "GAMES");
+        bundle.insert(0, new ByteBufferDisk(createImage(0)));
+
+        return bundle;
+    }
+
+    private static byte[] createImage(int changedTrack) {
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+
+        for (int i = 0; i < DiskBundle.TRACK_SIZE; i++) {
+            image[i] = (byte) i;
+            image[(changedTrack * DiskBundle.TRACK_SIZE) + i] = (byte) (i * 7);
+        }
+
+        return image;
+    }
+}
@@ -0,0 +1,142 @@
+package net.melaircraft.owl.library.image;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.exception.slot.LockedSlotException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DsdConverterTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testImportDeinterleavesTracks() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+
+        DsdConverter.importImage(ByteBuffer.wrap(createImage()), bundle, new SlotPair(0, 1));
+
+        assertTrue(bundle.isOccupied(0));
+        assertTrue(bundle.isOccupied(1));
+
+        for (int track = 0; track < DiskBundle.TRACKS_PER_DISK; track++) {
+            assertEquals((byte) (track * 2), bundle.extract(0).getImage()[track * DiskBundle.TRACK_SIZE]);
+            assertEquals((byte) (track * 2 + 1), bundle.extract(1).getImage()[track * DiskBundle.TRACK_SIZE + DiskBundle.TRACK_SIZE - 1]);
+        }
+    }
+
+    @Test
+    public void testExportRoundTrip() {
+        byte[] image = createImage();
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(3);
+
+        DsdConverter.importImage(ByteBuffer.wrap(image), bundle, new SlotPair(2, 0));
+        ByteBuffer exported = DsdConverter.exportImage(bundle, new SlotPair(2, 0));
+
+        assertEquals(ByteBuffer.wrap(image), exported);
+    }
+
+    @Test
+    public void testStreamingRoundTrip() throws IOException {
+        byte[] image = createImage();
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+
+        DsdConverter.importImage(Channels.newChannel(new ByteArrayInputStream(image)), bundle, new SlotPair(0, 1));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        DsdConverter.exportImage(bundle, new SlotPair(0, 1), Channels.newChannel(output));
+
+        assertArrayEquals(image, output.toByteArray());
+    }
+
+    @Test
+    public void testShortImageIsPadded() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+        bundle.getByteBuffer().put(DiskBundle.INITIAL_OFFSET + DiskBundle.DISK_SIZE - 1, (byte) 0xff);
+
+        byte[] image = new byte[DiskBundle.TRACK_SIZE * 3];
+        image[0] = 1;
+
+        DsdConverter.importImage(ByteBuffer.wrap(image), bundle, new SlotPair(0, 1));
+
+        assertEquals(1, bundle.extract(0).getImage()[0]);
+        assertEquals(0, bundle.extract(0).getImage()[DiskBundle.DISK_SIZE - 1]);
+    }
+
+    @Test(expected = LockedSlotException.class)
+    public void testImportIntoLockedSlot() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(2);
+        bundle.activate(1);
+
+        DsdConverter.importImage(ByteBuffer.wrap(createImage()), bundle, new SlotPair(0, 1));
+    }
+
+    @Test
+    public void testDirectoryRoundTrip() throws IOException {
+        Path input = temporaryFolder.newFolder("input").toPath();
+        Path output = temporaryFolder.newFolder("output").toPath();
+        byte[] image = createImage();
+
+        Files.write(input.resolve("GAME.dsd"), image);
+
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(3);
+        bundle.activate(0);
+
+        Map<Path, SlotPair> imported = DsdConverter.importDirectory(input, bundle);
+
+        assertEquals(new SlotPair(1, 2), imported.get(input.resolve("GAME.dsd")));
+        assertEquals("GAME", bundle.getName(1));
+
+        List<Path> written = DsdConverter.exportDirectory(bundle, Collections.singletonList(new SlotPair(1, 2)), output);
+
+        assertEquals(output.resolve("GAME.dsd"), written.get(0));
+        assertArrayEquals(image, Files.readAllBytes(written.get(0)));
+    }
+
+    @Test
+    public void testExportNamesStayInDirectory() throws IOException {
+        Path output = temporaryFolder.newFolder("output").toPath();
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(6);
+
+        bundle.setName(0, "../EVIL");
+        bundle.setName(2, "A/B");
+        bundle.setName(4, "A/B");
+
+        List<Path> written = DsdConverter.exportDirectory(bundle, Arrays.asList(new SlotPair(0, 1), new SlotPair(2, 3), new SlotPair(4, 5)), output);
+
+        assertEquals(Arrays.asList(output.resolve("___EVIL.dsd"), output.resolve("A_B.dsd"), output.resolve("A_B_4.dsd")), written);
+
+        for (Path file : written) {
+            assertEquals(DsdConverter.DSD_SIZE, Files.size(file));
+        }
+    }
+
+    private byte[] createImage() {
+        byte[] image = new byte[DsdConverter.DSD_SIZE];
+
+        for (int track = 0; track < DiskBundle.TRACKS_PER_DISK * 2; track++) {
+            for (int i = 0; i < DiskBundle.TRACK_SIZE; i++) {
+                image[(track * DiskBundle.TRACK_SIZE) + i] = (byte) track;
+            }
+        }
+
+        return image;
+    }
+}
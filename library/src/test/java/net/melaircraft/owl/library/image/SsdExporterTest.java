@@ -0,0 +1,134 @@
+package net.melaircraft.owl.library.image;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import net.melaircraft.owl.library.dfs.DfsImages;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SsdExporterTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testExportLength() {
+        ByteBufferDiskBundle bundle = createBundle(new ByteBufferDiskBundle(4));
+
+        assertEquals(13 * DiskBundle.SECTOR_SIZE, SsdExporter.getExportLength(bundle, 0, false));
+        assertEquals(20 * DiskBundle.SECTOR_SIZE, SsdExporter.getExportLength(bundle, 0, true));
+        assertEquals(2 * DiskBundle.SECTOR_SIZE, SsdExporter.getExportLength(bundle, 1, false));
+        assertEquals(DiskBundle.DISK_SIZE, SsdExporter.getExportLength(bundle, 2, false));
+    }
+
+    @Test
+    public void testImplausibleCatalogueExportedInFull() {
+        ByteBufferDiskBundle bundle = DfsImages.createBundle(DfsImages.create(0, DfsImages.file("DATA", DiskBundle.SECTOR_SIZE + 128, 11)));
+
+        assertEquals(DiskBundle.DISK_SIZE, SsdExporter.getExportLength(bundle, 0, false));
+    }
+
+    @Test
+    public void testExportFromMemoryBundle() throws IOException {
+        ByteBufferDiskBundle bundle = createBundle(new ByteBufferDiskBundle(4));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(13 * DiskBundle.SECTOR_SIZE, SsdExporter.exportImage(bundle, 0, Channels.newChannel(out), false));
+        assertArrayEquals(Arrays.copyOf(createDfsImage(12), 13 * DiskBundle.SECTOR_SIZE), out.toByteArray());
+    }
+
+    @Test
+    public void testParallelExportFromBundleFile() throws IOException {
+        Path directory = temporaryFolder.newFolder("export").toPath();
+
+        try (FileChannelDiskBundle bundle = FileChannelDiskBundle.create(temporaryFolder.getRoot().toPath().resolve("bundle.mmb"), 4)) {
+            createBundle(bundle);
+
+            Map<Integer, Path> files = SsdExporter.exportDirectory(bundle, Arrays.asList(0, 1, 2, 3), directory, true, 3);
+
+            assertEquals(directory.resolve("GAMES.ssd"), files.get(0));
+            assertEquals(directory.resolve("BLANK.ssd"), files.get(1));
+            assertEquals(directory.resolve("GAMES_2.ssd"), files.get(2));
+            assertEquals(directory.resolve("SLOT3.ssd"), files.get(3));
+
+            assertArrayEquals(Arrays.copyOf(createDfsImage(12), 20 * DiskBundle.SECTOR_SIZE), Files.readAllBytes(files.get(0)));
+            assertEquals(10 * DiskBundle.SECTOR_SIZE, Files.size(files.get(1)));
+            assertArrayEquals(createRawImage(), Files.readAllBytes(files.get(2)));
+        }
+    }
+
+    @Test
+    public void testExportNamesStayInDirectory() throws IOException {
+        Path directory = temporaryFolder.newFolder("export").toPath();
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+
+        bundle.setName(0, "GAMES");
+        bundle.setName(1, "GAMES_2");
+        bundle.setName(2, "GAMES");
+        bundle.setName(3, "../EVIL");
+
+        Map<Integer, Path> files = SsdExporter.exportDirectory(bundle, Arrays.asList(0, 1, 2, 3), directory, false, 2);
+
+        assertEquals(directory.resolve("GAMES.ssd"), files.get(0));
+        assertEquals(directory.resolve("GAMES_2.ssd"), files.get(1));
+        assertEquals(directory.resolve("GAMES_2_2.ssd"), files.get(2));
+        assertEquals(directory.resolve("___EVIL.ssd"), files.get(3));
+        assertTrue(Files.exists(files.get(2)));
+    }
+
+    private static <T extends DiskBundle> T createBundle(T bundle) {
+        DfsImages.insert(bundle, 0, createDfsImage(12));
+        DfsImages.insert(bundle, 1, createDfsImage(-1));
+        DfsImages.insert(bundle, 2, createRawImage());
+
+        bundle.setName(0, "GAMES");
+        bundle.setName(1, "BLANK");
+        bundle.setName(2, "GAMES");
+
+        return bundle;
+    }
+
+    /**
+     * Create a DFS disk holding one file of a sector and a half ending in the given sector, or no files if negative.
+     */
+    private static byte[] createDfsImage(int lastSector) {
+        if (lastSector < 0) {
+            byte[] image = DfsImages.create();
+            image[DiskBundle.DISK_SIZE - 1] = 0x7f;
+            return image;
+        }
+
+        int startSector = lastSector - 1;
+        int length = DiskBundle.SECTOR_SIZE + 128;
+
+        byte[] image = DfsImages.create(DfsImages.file("DATA", length, startSector));
+        Arrays.fill(image, startSector * DiskBundle.SECTOR_SIZE, (startSector * DiskBundle.SECTOR_SIZE) + length, (byte) 0x42);
+        image[DiskBundle.DISK_SIZE - 1] = 0x7f;
+
+        return image;
+    }
+
+    private static byte[] createRawImage() {
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        image[256 + 5] = 3;
+
+        for (int i = 0; i < image.length; i += 100) {
+            image[i + 1] = (byte) i;
+        }
+
+        return image;
+    }
+}
@@ -0,0 +1,86 @@
+package net.melaircraft.owl.library.loadtest;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoadGeneratorTest {
+    @Test
+    public void testConcurrentMixMatchesModel() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(32);
+        SyntheticBundle.populate(bundle, 0.5, 1);
+
+        LoadReport report = new LoadGenerator(bundle, WorkloadMix.readMostly(), 4, 2).run(500);
+
+        assertTrue(report.toString(), report.isCorrect());
+        assertEquals(2000, report.getTotalLatencies().getCount());
+        assertTrue(report.getLatencies(LoadOperation.SECTOR_READ).getCount() > 0);
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.toString().contains("final state matches reference model"));
+    }
+
+    @Test
+    public void testEveryOperationIncludingResize() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(6);
+        WorkloadMix mix = new WorkloadMix();
+
+        for (LoadOperation operation : LoadOperation.values()) {
+            mix.with(operation, 1);
+        }
+
+        LoadReport report = new LoadGenerator(bundle, mix, 1, 3).run(400);
+
+        assertTrue(report.toString(), report.isCorrect());
+
+        for (LoadOperation operation : LoadOperation.values()) {
+            assertTrue(operation.name(), report.getLatencies(operation).getCount() > 0);
+        }
+    }
+
+    @Test
+    public void testLostWritesDetected() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4) {
+            @Override
+            protected void writeData(int slot, int offset, ByteBuffer source) {
+                if (slot != 2) {
+                    super.writeData(slot, offset, source);
+                }
+            }
+        };
+
+        WorkloadMix mix = new WorkloadMix().with(LoadOperation.INSERT, 1);
+        LoadReport report = new LoadGenerator(bundle, mix, 2, 4).run(20);
+
+        assertFalse(report.isCorrect());
+        assertEquals(0, report.getTotalErrors());
+        assertTrue(report.getMismatches().contains("Slot 2 image does not match the last image written."));
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaximum());
+        assertEquals(500_500, histogram.getMean());
+
+        long median = histogram.getPercentile(0.5);
+        assertTrue(median >= 500_000 && median <= 500_000 * 1.125);
+        assertEquals(1_000_000, histogram.getPercentile(1.0));
+
+        for (long value = 0; value < 100_000; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(value <= LatencyHistogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBoundOf(bucket - 1));
+        }
+    }
+}
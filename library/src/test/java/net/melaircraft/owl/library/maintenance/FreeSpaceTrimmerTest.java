@@ -0,0 +1,103 @@
+package net.melaircraft.owl.library.maintenance;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsCatalogue;
+import net.melaircraft.owl.library.dfs.DfsImages;
+import net.melaircraft.owl.library.event.BundleChangeEvent;
+import net.melaircraft.owl.library.event.ChangeType;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FreeSpaceTrimmerTest {
+    @Test
+    public void testTrimZeroesOnlyFreeSectors() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        createDisk(bundle, 1);
+
+        assertEquals(DiskBundle.SECTOR_SIZE * 3, FreeSpaceTrimmer.trim(bundle, false).getTotalReclaimedBytes());
+
+        TrimReport report = FreeSpaceTrimmer.trim(bundle, false);
+        assertEquals(0, report.getTotalReclaimedBytes());
+
+        createDisk(bundle, 2);
+        report = FreeSpaceTrimmer.trim(bundle, false);
+
+        assertEquals(DiskBundle.SECTOR_SIZE * 3, report.getReclaimedBytes(2));
+        assertTrue(report.getTrimmedSlots().get(2));
+        assertEquals(0x55, readSector(bundle, 2, 2)[0]);
+        assertEquals(0x55, readSector(bundle, 2, 3)[255]);
+        assertEquals(0, readSector(bundle, 2, 4)[0]);
+        assertEquals(0, readSector(bundle, 2, 700)[10]);
+    }
+
+    @Test
+    public void testLockedSlotsSkippedUnlessForced() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        createDisk(bundle, 0);
+        bundle.lock(0);
+
+        TrimReport report = FreeSpaceTrimmer.trim(bundle, false);
+
+        assertTrue(report.getLockedSlots().get(0));
+        assertEquals(0x55, readSector(bundle, 0, 4)[0]);
+
+        List<BundleChangeEvent> events = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        bundle.addListener(event -> {
+            events.add(event);
+            delivered.countDown();
+        });
+
+        report = FreeSpaceTrimmer.trim(bundle, true);
+
+        assertEquals(DiskBundle.SECTOR_SIZE * 3, report.getReclaimedBytes(0));
+        assertEquals(0, readSector(bundle, 0, 4)[0]);
+        assertTrue(bundle.isLocked(0));
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        for (BundleChangeEvent event : events) {
+            assertFalse(event.contains(ChangeType.LOCK_CHANGED));
+        }
+    }
+
+    @Test
+    public void testInvalidCatalogueIsSkipped() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        createDisk(bundle, 3, 1);
+
+        TrimReport report = FreeSpaceTrimmer.trim(bundle, false);
+
+        assertTrue(report.getInvalidSlots().get(3));
+        assertEquals(0x55, readSector(bundle, 3, 4)[0]);
+    }
+
+    private static void createDisk(ByteBufferDiskBundle bundle, int slot) {
+        createDisk(bundle, slot, DfsCatalogue.DISK_SECTORS);
+    }
+
+    private static void createDisk(ByteBufferDiskBundle bundle, int slot, int sectorCount) {
+        byte[] image = DfsImages.create(sectorCount, DfsImages.file("F", 2 * DiskBundle.SECTOR_SIZE, 2));
+        Arrays.fill(image, 2 * DiskBundle.SECTOR_SIZE, 7 * DiskBundle.SECTOR_SIZE, (byte) 0x55);
+
+        DfsImages.insert(bundle, slot, image);
+    }
+
+    private static byte[] readSector(DiskBundle bundle, int slot, int sector) {
+        ByteBuffer buffer = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        bundle.read(slot, sector * DiskBundle.SECTOR_SIZE, buffer);
+        return buffer.array();
+    }
+}
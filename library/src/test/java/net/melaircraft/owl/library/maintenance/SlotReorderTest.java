@@ -0,0 +1,144 @@
+package net.melaircraft.owl.library.maintenance;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SlotReorderTest {
+    /** Names given to slots 0 - 4, slot 5 is left unoccupied. */
+    private static final String[] NAMES = {"FROG", "BIRD", "DOG", "ANT", "EEL"};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSortByNameMovesEverything() throws IOException {
+        FailingBundle bundle = createBundle();
+
+        SlotReorder.sort(bundle, SlotReorder.BY_NAME, null);
+
+        assertSorted(bundle);
+    }
+
+    @Test
+    public void testCustomOrder() {
+        FailingBundle bundle = createBundle();
+
+        SlotReorder.reorder(bundle, new int[]{1, 0, 2, 4, 5, 3});
+
+        assertEquals("BIRD", bundle.getName(0));
+        assertEquals("FROG", bundle.getName(1));
+        assertEquals("DOG", bundle.getName(2));
+        assertEquals("EEL", bundle.getName(3));
+        assertFalse(bundle.isOccupied(4));
+        assertEquals("ANT", bundle.getName(5));
+        assertEquals(3, bundle.extract(5).getImage()[100]);
+        assertEquals(2, bundle.getBootSlot(1));
+    }
+
+    @Test
+    public void testResumeAfterCrash() throws IOException {
+        FailingBundle bundle = createBundle();
+        Path journal = temporaryFolder.getRoot().toPath().resolve("reorder.journal");
+        bundle.writesBeforeFailure = 2;
+
+        try {
+            SlotReorder.sort(bundle, SlotReorder.BY_NAME, journal);
+            fail("Reorder should have been interrupted.");
+        } catch (IllegalStateException e) {
+            /* Expected. */
+        }
+
+        assertTrue(Files.exists(journal));
+        assertEquals("FROG", bundle.getName(0));
+
+        bundle.writesBeforeFailure = -1;
+
+        assertTrue(SlotReorder.resume(bundle, journal));
+        assertFalse(Files.exists(journal));
+        assertSorted(bundle);
+        assertFalse(SlotReorder.resume(bundle, journal));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidOrderRejected() {
+        SlotReorder.reorder(createBundle(), new int[]{0, 0, 1, 2, 3, 4});
+    }
+
+    private static void assertSorted(DiskBundle bundle) {
+        String[] sorted = NAMES.clone();
+        Arrays.sort(sorted);
+
+        for (int slot = 0; slot < sorted.length; slot++) {
+            assertEquals(sorted[slot], bundle.getName(slot));
+
+            byte[] image = new byte[DiskBundle.DISK_SIZE];
+            Arrays.fill(image, (byte) Arrays.asList(NAMES).indexOf(sorted[slot]));
+            assertArrayEquals(image, bundle.extract(slot).getImage());
+        }
+
+        assertFalse(bundle.isOccupied(5));
+        assertTrue(bundle.isLocked(Arrays.binarySearch(sorted, "DOG")));
+        assertEquals(Arrays.binarySearch(sorted, "DOG"), bundle.getBootSlot(1));
+    }
+
+    private static FailingBundle createBundle() {
+        FailingBundle bundle = new FailingBundle();
+
+        for (int slot = 0; slot < NAMES.length; slot++) {
+            byte[] image = new byte[DiskBundle.DISK_SIZE];
+            Arrays.fill(image, (byte) slot);
+
+            bundle.activate(slot);
+            bundle.unlock(slot);
+            bundle.setName(slot, NAMES[slot]);
+            bundle.insert(slot, new ByteBufferDisk(image));
+        }
+
+        bundle.lock(2);
+        bundle.setBootSlot(1, 2);
+        bundle.writesBeforeFailure = -1;
+
+        return bundle;
+    }
+
+    /**
+     * In memory bundle which fails after a number of data writes, simulating a crash.
+     */
+    private static class FailingBundle extends ByteBufferDiskBundle {
+        /** Data writes allowed before failing, or -1 to never fail. */
+        private int writesBeforeFailure = -1;
+
+        FailingBundle() {
+            super(6);
+        }
+
+        @Override
+        protected void writeData(int slot, int offset, ByteBuffer source) {
+            if (writesBeforeFailure == 0) {
+                throw new IllegalStateException("Simulated crash.");
+            }
+
+            if (writesBeforeFailure > 0) {
+                writesBeforeFailure--;
+            }
+
+            super.writeData(slot, offset, source);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package net.melaircraft.owl.library.patch;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.exception.patch.InvalidPatchException;
+import net.melaircraft.owl.library.exception.patch.PreImageMismatchException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PatchTest {
+    @Test
+    public void testPatchTurnsSourceIntoTarget() throws IOException {
+        for (boolean deflate : new boolean[]{false, true}) {
+            ByteBufferDiskBundle source = createSource();
+            ByteBufferDiskBundle target = copy(source);
+
+            target.write(2, DiskBundle.SECTOR_SIZE * 7 + 3, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+            target.write(2, DiskBundle.SECTOR_SIZE * 100, ByteBuffer.wrap(new byte[600]));
+            target.setName(2, "CHANGED");
+            target.lock(2);
+            target.setBootSlot(0, 2);
+
+            ByteArrayOutputStream patch = new ByteArrayOutputStream();
+            int sectors = PatchGenerator.generate(source, target, patch, deflate);
+
+            assertEquals(4, sectors);
+            assertTrue(patch.size() < 8 * DiskBundle.SECTOR_SIZE);
+
+            long written = PatchApplier.apply(new ByteArrayInputStream(patch.toByteArray()), source);
+
+            assertEquals(4 * DiskBundle.SECTOR_SIZE, written);
+            assertArrayEquals(target.getByteBuffer().array(), source.getByteBuffer().array());
+        }
+    }
+
+    @Test
+    public void testPatchChangesStorageSize() throws IOException {
+        ByteBufferDiskBundle source = createSource();
+        ByteBufferDiskBundle target = copy(source);
+        target.changeStorageSize(6);
+        target.activate(5);
+        target.unlock(5);
+        target.write(5, 0, ByteBuffer.wrap(new byte[]{9}));
+
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        PatchGenerator.generate(source, target, patch, true);
+        PatchApplier.apply(new ByteArrayInputStream(patch.toByteArray()), source);
+
+        assertEquals(6, source.getStorageSize());
+        assertArrayEquals(target.getByteBuffer().array(), source.getByteBuffer().array());
+
+        ByteArrayOutputStream reverse = new ByteArrayOutputStream();
+        PatchGenerator.generate(source, createSource(), reverse, false);
+        PatchApplier.apply(new ByteArrayInputStream(reverse.toByteArray()), source);
+
+        assertEquals(4, source.getStorageSize());
+        assertArrayEquals(createSource().getByteBuffer().array(), source.getByteBuffer().array());
+    }
+
+    @Test(expected = PreImageMismatchException.class)
+    public void testWrongBundleRejected() throws IOException {
+        ByteBufferDiskBundle source = createSource();
+        ByteBufferDiskBundle target = copy(source);
+        target.setName(1, "OTHER");
+
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        PatchGenerator.generate(source, target, patch, false);
+
+        source.write(1, 0, ByteBuffer.wrap(new byte[]{1}));
+        PatchApplier.apply(new ByteArrayInputStream(patch.toByteArray()), source);
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void testTruncatedPatchRejected() throws IOException {
+        ByteBufferDiskBundle source = createSource();
+
+        ByteArrayOutputStream patch = new ByteArrayOutputStream();
+        PatchGenerator.generate(source, copy(source), patch, false);
+
+        PatchApplier.apply(new ByteArrayInputStream(Arrays.copyOf(patch.toByteArray(), 20)), source);
+    }
+
+    private static ByteBufferDiskBundle createSource() {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(4);
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        new Random(5).nextBytes(image);
+
+        for (int slot = 1; slot < 3; slot++) {
+            bundle.activate(slot);
+            bundle.unlock(slot);
+            bundle.setName(slot, "DISK" + slot);
+            bundle.insert(slot, new ByteBufferDisk(image));
+        }
+
+        return bundle;
+    }
+
+    private static ByteBufferDiskBundle copy(ByteBufferDiskBundle bundle) {
+        ByteBufferDiskBundle copy = new ByteBufferDiskBundle(bundle.getStorageSize());
+        copy.getByteBuffer().duplicate().put(bundle.getByteBuffer().duplicate());
+
+        return copy;
+    }
+}
@@ -0,0 +1,168 @@
+package net.melaircraft.owl.library.pool;
+
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BundlePoolTest {
+    /** Mapped size of a bundle of two slots. */
+    private static final long BUNDLE_BYTES = DiskBundle.INITIAL_OFFSET + (2L * DiskBundle.DISK_SIZE);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHandlesShareBundle() throws IOException {
+        Path path = createBundle("shared.mmb");
+
+        try (BundlePool pool = new BundlePool(4, Long.MAX_VALUE)) {
+            PooledBundle first = pool.acquire(path);
+            PooledBundle second = pool.acquire(path.getParent().resolve(".").resolve("shared.mmb"));
+
+            assertSame(first.getBundle(), second.getBundle());
+            assertEquals(1, pool.getMisses());
+            assertEquals(1, pool.getHits());
+
+            FileChannelDiskBundle bundle = second.getBundle();
+
+            first.close();
+            first.close();
+            assertTrue(bundle.getFileChannel().isOpen());
+            second.close();
+
+            try (PooledBundle third = pool.acquire(path)) {
+                assertSame(bundle, third.getBundle());
+            }
+
+            assertEquals(2, pool.getHits());
+            assertEquals(1, pool.getOpenBundles());
+            assertEquals(BUNDLE_BYTES, pool.getMappedBytes());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedHandle() throws IOException {
+        try (BundlePool pool = new BundlePool(4, Long.MAX_VALUE)) {
+            PooledBundle handle = pool.acquire(createBundle("closed.mmb"));
+            handle.close();
+            handle.getBundle();
+        }
+    }
+
+    @Test
+    public void testIdleBundlesEvictedOverHandleBudget() throws IOException {
+        Path first = createBundle("first.mmb");
+        Path second = createBundle("second.mmb");
+        Path third = createBundle("third.mmb");
+
+        try (BundlePool pool = new BundlePool(2, Long.MAX_VALUE)) {
+            FileChannelDiskBundle firstBundle;
+
+            try (PooledBundle handle = pool.acquire(first)) {
+                firstBundle = handle.getBundle();
+                firstBundle.setName(0, "CHANGED");
+            }
+
+            pool.acquire(second).close();
+
+            try (PooledBundle handle = pool.acquire(third)) {
+                assertEquals(2, pool.getOpenBundles());
+                assertEquals(1, pool.getEvictions());
+                assertFalse(firstBundle.getFileChannel().isOpen());
+            }
+        }
+
+        try (FileChannelDiskBundle bundle = FileChannelDiskBundle.open(first)) {
+            assertEquals("CHANGED", bundle.getName(0));
+        }
+    }
+
+    @Test
+    public void testBundlesInUseExceedMemoryBudget() throws IOException {
+        Path first = createBundle("first.mmb");
+        Path second = createBundle("second.mmb");
+
+        try (BundlePool pool = new BundlePool(4, BUNDLE_BYTES)) {
+            PooledBundle firstHandle = pool.acquire(first);
+            PooledBundle secondHandle = pool.acquire(second);
+
+            assertEquals(2 * BUNDLE_BYTES, pool.getMappedBytes());
+            assertEquals(0, pool.getEvictions());
+
+            firstHandle.close();
+
+            assertEquals(BUNDLE_BYTES, pool.getMappedBytes());
+            assertEquals(1, pool.getEvictions());
+
+            secondHandle.close();
+
+            assertEquals(1, pool.getOpenBundles());
+        }
+    }
+
+    @Test
+    public void testChangedFileInvalidatesIdleBundle() throws IOException {
+        Path path = createBundle("changed.mmb");
+
+        try (BundlePool pool = new BundlePool(4, Long.MAX_VALUE)) {
+            FileChannelDiskBundle original;
+
+            try (PooledBundle handle = pool.acquire(path)) {
+                original = handle.getBundle();
+            }
+
+            try (FileChannelDiskBundle external = FileChannelDiskBundle.open(path)) {
+                external.changeStorageSize(3);
+            }
+
+            Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 10000));
+
+            try (PooledBundle handle = pool.acquire(path)) {
+                assertNotSame(original, handle.getBundle());
+                assertFalse(original.getFileChannel().isOpen());
+                assertEquals(3, handle.getBundle().getStorageSize());
+            }
+
+            assertEquals(2, pool.getMisses());
+            assertEquals(1, pool.getInvalidations());
+        }
+    }
+
+    @Test
+    public void testCloseWithHandlesOpen() throws IOException {
+        BundlePool pool = new BundlePool(4, Long.MAX_VALUE);
+        PooledBundle handle = pool.acquire(createBundle("open.mmb"));
+        FileChannelDiskBundle bundle = handle.getBundle();
+
+        pool.close();
+        assertTrue(bundle.getFileChannel().isOpen());
+
+        handle.close();
+        assertFalse(bundle.getFileChannel().isOpen());
+    }
+
+    private Path createBundle(String name) throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve(name);
+
+        try (FileChannelDiskBundle bundle = FileChannelDiskBundle.create(path, 2)) {
+            bundle.activate(0);
+            bundle.unlock(0);
+            bundle.setName(0, "DISK");
+        }
+
+        return path;
+    }
+}
@@ -0,0 +1,99 @@
+package net.melaircraft.owl.library.preview;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.dfs.DfsImages;
+import net.melaircraft.owl.library.exception.dfs.DfsFileNotFoundException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PreviewEngineTest {
+    /** Tokenized program: 10 PRINT "HI", 20 GOTO 10, 30 REM PRINT. */
+    private static final byte[] PROGRAM = {
+            0x0d, 0x00, 0x0a, 0x0b, (byte) 0xf1, ' ', '"', 'H', 'I', '"', ' ',
+            0x0d, 0x00, 0x14, 0x09, (byte) 0xe5, (byte) 0x8d, 0x54, 0x4a, 0x40,
+            0x0d, 0x00, 0x1e, 0x0b, (byte) 0xf4, ' ', 'P', 'R', 'I', 'N', 'T',
+            0x0d, (byte) 0xff
+    };
+
+    /** Expected listing of the program. */
+    private static final String LISTING = "   10PRINT \"HI\" \n   20GOTO10\n   30REM PRINT\n";
+
+    @Test
+    public void testBasicListing() throws IOException {
+        StringBuilder listing = new StringBuilder();
+
+        assertTrue(BasicDetokenizer.list(ByteBuffer.wrap(PROGRAM), listing));
+        assertEquals(LISTING, listing.toString());
+        assertEquals(PreviewType.BASIC, PreviewType.detect(ByteBuffer.wrap(PROGRAM)));
+    }
+
+    @Test
+    public void testDecodeLineNumber() {
+        assertEquals(10, BasicDetokenizer.decodeLineNumber((byte) 0x54, (byte) 0x4a, (byte) 0x40));
+        assertEquals(32767, BasicDetokenizer.decodeLineNumber((byte) 0x60, (byte) 0x7f, (byte) 0x7f));
+    }
+
+    @Test
+    public void testPreviewIsCachedUntilFileChanges() {
+        ByteBufferDiskBundle bundle = createBundle();
+
+        try (PreviewEngine engine = new PreviewEngine(bundle, 1024)) {
+            String first = engine.preview(0, "$.PROG", null);
+            assertEquals(LISTING, first);
+            assertSame(first, engine.preview(0, "$.PROG", PreviewType.BASIC));
+            assertEquals(1, engine.getHits());
+            assertEquals(1, engine.getMisses());
+
+            ByteBuffer change = ByteBuffer.wrap(new byte[]{'O'});
+            bundle.write(0, 2 * DiskBundle.SECTOR_SIZE + 8, change);
+
+            assertEquals("   10PRINT \"HO\" \n   20GOTO10\n   30REM PRINT\n", engine.preview(0, "$.PROG", null));
+            assertEquals(2, engine.getMisses());
+        }
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        ByteBufferDiskBundle bundle = createBundle();
+
+        try (PreviewEngine engine = new PreviewEngine(bundle, LISTING.length() + 10)) {
+            engine.preview(0, "$.PROG", PreviewType.BASIC);
+            engine.preview(0, "$.PROG", PreviewType.TEXT);
+            assertTrue(engine.getCacheLength() <= LISTING.length() + 10);
+
+            engine.preview(0, "$.PROG", PreviewType.BASIC);
+            assertEquals(3, engine.getMisses());
+        }
+    }
+
+    @Test
+    public void testTextPreview() {
+        try (PreviewEngine engine = new PreviewEngine(createBundle(), 1024)) {
+            assertEquals("HELLO\nWORLD.\n", engine.preview(0, "$.NOTES", null));
+        }
+    }
+
+    @Test(expected = DfsFileNotFoundException.class)
+    public void testMissingFile() {
+        try (PreviewEngine engine = new PreviewEngine(createBundle(), 1024)) {
+            engine.preview(0, "$.GONE", null);
+        }
+    }
+
+    private static ByteBufferDiskBundle createBundle() {
+        byte[] notes = "HELLO\rWORLD\u0007\r".getBytes();
+
+        byte[] image = DfsImages.create(DfsImages.file("PROG", PROGRAM.length, 2), DfsImages.file("NOTES", notes.length, 3));
+        System.arraycopy(PROGRAM, 0, image, 2 * DiskBundle.SECTOR_SIZE, PROGRAM.length);
+        System.arraycopy(notes, 0, image, 3 * DiskBundle.SECTOR_SIZE, notes.length);
+
+        return DfsImages.createBundle(image);
+    }
+}
@@ -0,0 +1,84 @@
+package net.melaircraft.owl.library.region;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Rough comparison of sector reads and writes through a heap bundle and a region bundle, run by hand with the test
+ * class path.
+ */
+public final class RegionBenchmark {
+    /** Slots exercised. */
+    private static final int SLOTS = 64;
+    /** Passes over every sector of every slot. */
+    private static final int PASSES = 5;
+
+    /**
+     * Utility class, not constructed.
+     */
+    private RegionBenchmark() {
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args ignored
+     * @throws IOException if the temporary bundle could not be created
+     */
+    public static void main(String[] args) throws IOException {
+        ByteBufferDiskBundle heap = new ByteBufferDiskBundle(SLOTS);
+        prepare(heap);
+        System.out.println("ByteBufferDiskBundle: " + run(heap) + " ms");
+
+        Path path = Files.createTempFile("owl-region", ".mmb");
+
+        try (RegionDiskBundle region = RegionDiskBundle.create(path, SLOTS)) {
+            prepare(region);
+            System.out.println("RegionDiskBundle: " + run(region) + " ms");
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Activate and unlock every slot exercised.
+     *
+     * @param bundle bundle to prepare
+     */
+    private static void prepare(DiskBundle bundle) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            bundle.activate(slot);
+            bundle.unlock(slot);
+        }
+    }
+
+    /**
+     * Write then read every sector of every slot, several times.
+     *
+     * @param bundle bundle to exercise
+     * @return elapsed milliseconds
+     */
+    private static long run(DiskBundle bundle) {
+        ByteBuffer sector = ByteBuffer.allocate(DiskBundle.SECTOR_SIZE);
+        long start = System.nanoTime();
+
+        for (int pass = 0; pass < PASSES; pass++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                for (int offset = 0; offset < DiskBundle.DISK_SIZE; offset += DiskBundle.SECTOR_SIZE) {
+                    sector.clear();
+                    sector.put(0, (byte) pass);
+                    bundle.write(slot, offset, sector);
+                    sector.clear();
+                    bundle.read(slot, offset, sector);
+                }
+            }
+        }
+
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,135 @@
+package net.melaircraft.owl.library.region;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.exception.slot.InvalidSlotException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegionDiskBundleTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCreateWriteAndReopen() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("bundle.mmb");
+        byte[] image = randomImage(1);
+
+        try (RegionDiskBundle bundle = RegionDiskBundle.create(path, 4)) {
+            bundle.activate(2);
+            bundle.unlock(2);
+            bundle.setName(2, "REGION");
+            bundle.insert(2, new ByteBufferDisk(image));
+        }
+
+        assertEquals(DiskBundle.INITIAL_OFFSET + 4L * DiskBundle.DISK_SIZE, Files.size(path));
+
+        try (RegionDiskBundle bundle = RegionDiskBundle.open(path)) {
+            assertEquals(4, bundle.getStorageSize());
+            assertEquals("REGION", bundle.getName(2));
+            assertArrayEquals(image, bundle.extract(2).getImage());
+        }
+    }
+
+    @Test
+    public void testResizeRemapsOwnedRegion() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("bundle.mmb");
+
+        try (RegionDiskBundle bundle = RegionDiskBundle.create(path, 2)) {
+            bundle.changeStorageSize(6);
+            bundle.activate(5);
+            bundle.unlock(5);
+            bundle.write(5, 100, ByteBuffer.wrap(new byte[]{9, 8, 7}));
+
+            ByteBuffer read = ByteBuffer.allocate(3);
+            bundle.read(5, 100, read);
+            assertArrayEquals(new byte[]{9, 8, 7}, read.array());
+
+            bundle.deactivate(5, false);
+            bundle.changeStorageSize(1);
+        }
+
+        assertEquals(DiskBundle.INITIAL_OFFSET + DiskBundle.DISK_SIZE, Files.size(path));
+    }
+
+    @Test
+    public void testReadAndWriteAcrossChunkBoundary() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("region.bin");
+        long chunkSize = 64 * 1024;
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             Region region = new ChunkedMappedRegion(fileChannel, 3 * chunkSize, chunkSize)) {
+            byte[] data = new byte[1000];
+            new Random(2).nextBytes(data);
+
+            region.write(chunkSize - 500, ByteBuffer.wrap(data));
+
+            ByteBuffer read = ByteBuffer.allocate(1000);
+            region.read(chunkSize - 500, read);
+            assertArrayEquals(data, read.array());
+
+            ByteBuffer view = region.buffer(chunkSize - 500, 1000);
+            assertEquals(data[999], view.get(999));
+
+            region.copyTo(chunkSize - 500, region, 2 * chunkSize + 10, 1000);
+            read.clear();
+            region.read(2 * chunkSize + 10, read);
+            assertArrayEquals(data, read.array());
+        }
+    }
+
+    @Test
+    public void testTransferBetweenBundlesInSharedRegion() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("library.bin");
+        long bundleSize = DiskBundle.INITIAL_OFFSET + 3L * DiskBundle.DISK_SIZE;
+        byte[] image = randomImage(3);
+
+        try (Region region = Regions.map(path, 2 * bundleSize)) {
+            RegionDiskBundle first = RegionDiskBundle.format(region, 0, 3, 3);
+            RegionDiskBundle second = RegionDiskBundle.format(region, bundleSize, 3, 3);
+
+            first.activate(1);
+            first.unlock(1);
+            first.insert(1, new ByteBufferDisk(image));
+
+            assertFalse(second.isOccupied(0));
+
+            first.transferSlot(1, second, 0);
+
+            assertTrue(second.isOccupied(0));
+            assertArrayEquals(image, second.extract(0).getImage());
+            assertArrayEquals(image, first.extract(1).getImage());
+        }
+    }
+
+    @Test(expected = InvalidSlotException.class)
+    public void testSharedRegionCannotGrowBeyondCapacity() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("library.bin");
+
+        try (Region region = Regions.map(path, DiskBundle.INITIAL_OFFSET + 2L * DiskBundle.DISK_SIZE)) {
+            RegionDiskBundle bundle = RegionDiskBundle.format(region, 0, 1, 2);
+
+            bundle.changeStorageSize(3);
+        }
+    }
+
+    private static byte[] randomImage(long seed) {
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        new Random(seed).nextBytes(image);
+        return image;
+    }
+}
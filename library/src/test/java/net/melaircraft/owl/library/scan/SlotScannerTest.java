@@ -0,0 +1,151 @@
+package net.melaircraft.owl.library.scan;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SlotScannerTest {
+    @Test
+    public void testSlotsReturnedInOrder() throws InterruptedException {
+        ByteBufferDiskBundle bundle = createBundle(10);
+
+        try (SlotScanner scanner = new SlotScanner(bundle, 2, false)) {
+            for (int slot = 0; slot < 10; slot++) {
+                ScannedSlot scanned = scanner.next();
+
+                assertEquals(slot, scanned.getSlot());
+                assertEquals(slot % 2 == 0, scanned.isOccupied());
+                assertEquals(DiskBundle.DISK_SIZE, scanned.getData().remaining());
+                assertEquals((byte) slot, scanned.getData().get(1000));
+            }
+
+            assertNull(scanner.next());
+            assertNull(scanner.next());
+        }
+    }
+
+    @Test
+    public void testOccupiedOnly() throws InterruptedException {
+        ByteBufferDiskBundle bundle = createBundle(10);
+        List<Integer> slots = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        SlotScanner.scan(bundle, 3, true, scanned -> {
+            slots.add(scanned.getSlot());
+            names.add(scanned.getName());
+        });
+
+        assertEquals(Arrays.asList(0, 2, 4, 6, 8), slots);
+        assertEquals(Arrays.asList("DISK0", "DISK2", "DISK4", "DISK6", "DISK8"), names);
+    }
+
+    @Test
+    public void testFailureAfterSlotsRead() throws InterruptedException {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(6) {
+            @Override
+            public void read(int slot, int offset, ByteBuffer buffer) {
+                if (slot == 3) {
+                    throw new IllegalStateException("Slot 3 unreadable.");
+                }
+
+                super.read(slot, offset, buffer);
+            }
+        };
+
+        try (SlotScanner scanner = new SlotScanner(bundle, 4, false)) {
+            assertEquals(0, scanner.next().getSlot());
+            assertEquals(1, scanner.next().getSlot());
+            assertEquals(2, scanner.next().getSlot());
+
+            try {
+                scanner.next();
+                fail("Expected failure of slot 3.");
+            } catch (IllegalStateException e) {
+                assertEquals("Slot 3 unreadable.", e.getMessage());
+            }
+
+            assertNull(scanner.next());
+        }
+    }
+
+    @Test
+    public void testReadAheadBoundedByRing() throws InterruptedException {
+        AtomicInteger reads = new AtomicInteger();
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(20) {
+            @Override
+            public void read(int slot, int offset, ByteBuffer buffer) {
+                reads.incrementAndGet();
+                super.read(slot, offset, buffer);
+            }
+        };
+
+        try (SlotScanner scanner = new SlotScanner(bundle, 3, false)) {
+            for (int consumed = 1; consumed <= 5; consumed++) {
+                scanner.next();
+                Thread.sleep(50);
+
+                /* The caller holds one buffer, so at most the rest of the ring is read ahead. */
+                assertTrue(reads.get() <= consumed + 2);
+            }
+
+            assertEquals(7, reads.get());
+        }
+    }
+
+    @Test
+    public void testCloseStopsReader() throws InterruptedException {
+        AtomicInteger reads = new AtomicInteger();
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(20) {
+            @Override
+            public void read(int slot, int offset, ByteBuffer buffer) {
+                reads.incrementAndGet();
+                super.read(slot, offset, buffer);
+            }
+        };
+
+        SlotScanner scanner = new SlotScanner(bundle, 2, false);
+        scanner.next();
+        scanner.close();
+
+        int afterClose = reads.get();
+        Thread.sleep(50);
+
+        assertEquals(afterClose, reads.get());
+        assertFalse(afterClose > 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRingSize() {
+        new SlotScanner(new ByteBufferDiskBundle(1), 0, false);
+    }
+
+    private static ByteBufferDiskBundle createBundle(int slots) {
+        ByteBufferDiskBundle bundle = new ByteBufferDiskBundle(slots);
+
+        for (int slot = 0; slot < slots; slot++) {
+            byte[] image = new byte[DiskBundle.DISK_SIZE];
+            image[1000] = (byte) slot;
+            bundle.insert(slot, new ByteBufferDisk(image));
+
+            if (slot % 2 == 0) {
+                bundle.activate(slot);
+                bundle.setName(slot, "DISK" + slot);
+            }
+        }
+
+        return bundle;
+    }
+}
@@ -0,0 +1,146 @@
+package net.melaircraft.owl.library.shared;
+
+import net.melaircraft.owl.library.ByteBufferDisk;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedReadOnlyDiskBundleTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testBundlesShareOneMapping() throws IOException {
+        Path path = createBundle();
+        int before = SharedReadOnlyDiskBundle.getMappingCount();
+
+        try (SharedReadOnlyDiskBundle first = SharedReadOnlyDiskBundle.open(path);
+             SharedReadOnlyDiskBundle second = SharedReadOnlyDiskBundle.open(path.getParent().resolve(".").resolve(path.getFileName()))) {
+            assertEquals(before + 1, SharedReadOnlyDiskBundle.getMappingCount());
+            assertEquals("GAMES", first.getName(1));
+            assertEquals("GAMES", second.getName(1));
+        }
+
+        assertEquals(before, SharedReadOnlyDiskBundle.getMappingCount());
+    }
+
+    @Test
+    public void testReaderSeesWriterChanges() throws IOException {
+        Path path = createBundle();
+        byte[] image = new byte[DiskBundle.DISK_SIZE];
+        Arrays.fill(image, (byte) 0x33);
+
+        try (SharedReadOnlyDiskBundle reader = SharedReadOnlyDiskBundle.open(path);
+             FileChannelDiskBundle bundle = FileChannelDiskBundle.open(path)) {
+            SharedBundleWriter writer = new SharedBundleWriter(bundle);
+
+            writer.insert(1, new ByteBufferDisk(image));
+            assertArrayEquals(image, reader.extract(1).getImage());
+
+            writer.updateCatalogue(changing -> {
+                changing.setName(1, "UTILS");
+                changing.lock(1);
+            });
+
+            assertEquals("GAMES", reader.getName(1));
+
+            reader.refresh();
+
+            assertEquals("UTILS", reader.getName(1));
+            assertTrue(reader.isLocked(1));
+        }
+    }
+
+    @Test
+    public void testReaderFollowsResize() throws IOException {
+        Path path = createBundle();
+
+        try (SharedReadOnlyDiskBundle reader = SharedReadOnlyDiskBundle.open(path);
+             FileChannelDiskBundle bundle = FileChannelDiskBundle.open(path)) {
+            new SharedBundleWriter(bundle).changeStorageSize(6);
+
+            assertEquals(3, reader.getStorageSize());
+
+            reader.refresh();
+
+            assertEquals(6, reader.getStorageSize());
+            assertFalse(reader.isOccupied(5));
+            assertEquals(0, reader.extract(1).getImage()[0]);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testChangesAreRejected() throws IOException {
+        try (SharedReadOnlyDiskBundle reader = SharedReadOnlyDiskBundle.open(createBundle())) {
+            reader.setName(1, "NOPE");
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testDataChangesAreRejected() throws IOException {
+        try (SharedReadOnlyDiskBundle reader = SharedReadOnlyDiskBundle.open(createBundle())) {
+            reader.write(1, 0, ByteBuffer.allocate(1));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCatalogueEditsAreRejected() throws IOException {
+        try (SharedReadOnlyDiskBundle reader = SharedReadOnlyDiskBundle.open(createBundle())) {
+            reader.editCatalogue();
+        }
+    }
+
+    @Test
+    public void testConcurrentLockingOfOneRegion() throws Exception {
+        try (SharedMapping mapping = new SharedMapping(createBundle().toRealPath())) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        mapping.lock(0, DiskBundle.INITIAL_OFFSET);
+                        mapping.unlock(0);
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> result : results) {
+                result.get();
+            }
+
+            executor.shutdown();
+        }
+    }
+
+    private Path createBundle() throws IOException {
+        Path path = temporaryFolder.newFile().toPath();
+
+        try (FileChannelDiskBundle bundle = FileChannelDiskBundle.create(path, 3)) {
+            bundle.activate(1);
+            bundle.unlock(1);
+            bundle.setName(1, "GAMES");
+        }
+
+        return path;
+    }
+}
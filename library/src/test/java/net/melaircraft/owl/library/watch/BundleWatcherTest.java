@@ -0,0 +1,111 @@
+package net.melaircraft.owl.library.watch;
+
+import net.melaircraft.owl.library.ByteBufferDiskBundle;
+import net.melaircraft.owl.library.DiskBundle;
+import net.melaircraft.owl.library.FileChannelDiskBundle;
+import net.melaircraft.owl.library.event.BundleChangeEvent;
+import net.melaircraft.owl.library.event.ChangeType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class BundleWatcherTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReloadRefreshesOnlyChangedSlots() throws IOException {
+        Path path = createBundle();
+        ByteBufferDiskBundle bundle = ByteBufferDiskBundle.read(path);
+        BundleWatcher watcher = new BundleWatcher(path, bundle);
+
+        try (FileChannelDiskBundle external = FileChannelDiskBundle.open(path)) {
+            external.write(2, 100, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+            external.setName(1, "RENAMED");
+        }
+
+        BitSet refreshed = watcher.reload();
+
+        assertEquals(1, refreshed.cardinality());
+        assertTrue(refreshed.get(2));
+        assertEquals(3, bundle.extract(2).getImage()[102]);
+        assertEquals("RENAMED", bundle.getName(1));
+    }
+
+    @Test
+    public void testReloadWithoutChangeRefreshesNothing() throws IOException {
+        Path path = createBundle();
+        BundleWatcher watcher = new BundleWatcher(path, ByteBufferDiskBundle.read(path));
+
+        assertTrue(watcher.reload().isEmpty());
+    }
+
+    @Test
+    public void testReloadFollowsResize() throws IOException {
+        Path path = createBundle();
+        ByteBufferDiskBundle bundle = ByteBufferDiskBundle.read(path);
+        BundleWatcher watcher = new BundleWatcher(path, bundle);
+
+        try (FileChannelDiskBundle external = FileChannelDiskBundle.open(path)) {
+            external.changeStorageSize(5);
+            external.activate(4);
+        }
+
+        watcher.reload();
+
+        assertEquals(5, bundle.getStorageSize());
+        assertTrue(bundle.isOccupied(4));
+    }
+
+    @Test
+    public void testWatchNotifiesListeners() throws IOException, InterruptedException {
+        Path path = createBundle();
+        ByteBufferDiskBundle bundle = ByteBufferDiskBundle.read(path);
+        BlockingQueue<BundleChangeEvent> events = new ArrayBlockingQueue<>(16);
+        bundle.addListener(events::add);
+
+        try (BundleWatcher watcher = new BundleWatcher(path, bundle, 50)) {
+            watcher.start();
+
+            /* Written through a channel, as changes made through a memory mapping are not reported by the OS. */
+            try (FileChannel external = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                external.write(ByteBuffer.wrap(new byte[]{(byte) 0xff}), DiskBundle.INITIAL_OFFSET);
+            }
+
+            BundleChangeEvent event = events.poll(30, TimeUnit.SECONDS);
+
+            assertNotNull(event);
+            assertTrue(event.getSlots(ChangeType.INSERTED).get(0));
+            assertEquals((byte) 0xff, bundle.extract(0).getImage()[0]);
+        }
+    }
+
+    private Path createBundle() throws IOException {
+        Path path = temporaryFolder.getRoot().toPath().resolve("watched.mmb");
+
+        try (FileChannelDiskBundle bundle = FileChannelDiskBundle.create(path, 3)) {
+            for (int slot = 0; slot < 3; slot++) {
+                bundle.activate(slot);
+                bundle.unlock(slot);
+                bundle.setName(slot, "DISK" + slot);
+                bundle.write(slot, DiskBundle.DISK_SIZE - 1, ByteBuffer.wrap(new byte[]{(byte) slot}));
+            }
+        }
+
+        return path;
+    }
+}